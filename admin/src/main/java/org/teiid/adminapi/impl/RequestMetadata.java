@@ -42,6 +42,13 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
     private String transactionId;
     private ProcessingState processingState = ProcessingState.PROCESSING;
     private ThreadState threadState = ThreadState.RUNNING;
+    private long reservedBufferBytes;
+    private long peakReservedBufferBytes;
+    private long batchesWritten;
+    private long bytesWritten;
+    private long batchesRead;
+    private long bytesRead;
+    private long bufferReadTime;
     
     @Override
     public long getExecutionId() {
@@ -124,6 +131,83 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
 		this.transactionId = id;
 	}
 	
+	/**
+	 * @return the bytes of buffer memory currently reserved for processing 
+	 */
+	public long getReservedBufferBytes() {
+		return reservedBufferBytes;
+	}
+	
+	public void setReservedBufferBytes(long reservedBufferBytes) {
+		this.reservedBufferBytes = reservedBufferBytes;
+	}
+	
+	/**
+	 * @return the maximum bytes of buffer memory reserved for processing 
+	 */
+	public long getPeakReservedBufferBytes() {
+		return peakReservedBufferBytes;
+	}
+	
+	public void setPeakReservedBufferBytes(long peakReservedBufferBytes) {
+		this.peakReservedBufferBytes = peakReservedBufferBytes;
+	}
+	
+	/**
+	 * @return the number of batches written to buffer storage
+	 */
+	public long getBatchesWritten() {
+		return batchesWritten;
+	}
+	
+	public void setBatchesWritten(long batchesWritten) {
+		this.batchesWritten = batchesWritten;
+	}
+	
+	/**
+	 * @return the estimated in memory bytes of the batches written to buffer storage
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+	
+	public void setBytesWritten(long bytesWritten) {
+		this.bytesWritten = bytesWritten;
+	}
+	
+	/**
+	 * @return the number of batches read back from buffer storage
+	 */
+	public long getBatchesRead() {
+		return batchesRead;
+	}
+	
+	public void setBatchesRead(long batchesRead) {
+		this.batchesRead = batchesRead;
+	}
+	
+	/**
+	 * @return the estimated in memory bytes of the batches read back from buffer storage
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+	
+	public void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+	
+	/**
+	 * @return the time in milliseconds that processing was blocked reading from buffer storage
+	 */
+	public long getBufferReadTime() {
+		return bufferReadTime;
+	}
+	
+	public void setBufferReadTime(long bufferReadTime) {
+		this.bufferReadTime = bufferReadTime;
+	}
+	
     @Override
 	public boolean equals(Object obj) {
     	if (!(obj instanceof RequestMetadata)) {
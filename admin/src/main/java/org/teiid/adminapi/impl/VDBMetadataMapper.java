@@ -1280,6 +1280,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 		private static final String EXECUTION_ID = "execution-id"; //$NON-NLS-1$
 		private static final String STATE = "processing-state"; //$NON-NLS-1$
 		private static final String THREAD_STATE = "thread-state"; //$NON-NLS-1$
+		private static final String RESERVED_BUFFER_BYTES = "reserved-buffer-bytes"; //$NON-NLS-1$
+		private static final String PEAK_RESERVED_BUFFER_BYTES = "peak-reserved-buffer-bytes"; //$NON-NLS-1$
+		private static final String BATCHES_WRITTEN = "batches-written"; //$NON-NLS-1$
+		private static final String BYTES_WRITTEN = "bytes-written"; //$NON-NLS-1$
+		private static final String BATCHES_READ = "batches-read"; //$NON-NLS-1$
+		private static final String BYTES_READ = "bytes-read"; //$NON-NLS-1$
+		private static final String BUFFER_READ_TIME = "buffer-read-time"; //$NON-NLS-1$
 		
 		public static RequestMetadataMapper INSTANCE = new RequestMetadataMapper();
 		
@@ -1301,6 +1308,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			node.get(STATE).set(request.getState().name());
 			node.get(THREAD_STATE).set(request.getThreadState().name());
+			node.get(RESERVED_BUFFER_BYTES).set(request.getReservedBufferBytes());
+			node.get(PEAK_RESERVED_BUFFER_BYTES).set(request.getPeakReservedBufferBytes());
+			node.get(BATCHES_WRITTEN).set(request.getBatchesWritten());
+			node.get(BYTES_WRITTEN).set(request.getBytesWritten());
+			node.get(BATCHES_READ).set(request.getBatchesRead());
+			node.get(BYTES_READ).set(request.getBytesRead());
+			node.get(BUFFER_READ_TIME).set(request.getBufferReadTime());
 			
 			wrapDomain(request, node);
 			return node;
@@ -1324,6 +1338,15 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			request.setState(ProcessingState.valueOf(node.get(STATE).asString()));
 			request.setThreadState(ThreadState.valueOf(node.get(THREAD_STATE).asString()));
+			if (node.has(RESERVED_BUFFER_BYTES)) {
+				request.setReservedBufferBytes(node.get(RESERVED_BUFFER_BYTES).asLong());
+				request.setPeakReservedBufferBytes(node.get(PEAK_RESERVED_BUFFER_BYTES).asLong());
+				request.setBatchesWritten(node.get(BATCHES_WRITTEN).asLong());
+				request.setBytesWritten(node.get(BYTES_WRITTEN).asLong());
+				request.setBatchesRead(node.get(BATCHES_READ).asLong());
+				request.setBytesRead(node.get(BYTES_READ).asLong());
+				request.setBufferReadTime(node.get(BUFFER_READ_TIME).asLong());
+			}
 			
 			unwrapDomain(request, node);
 			return request;
@@ -1339,6 +1362,13 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			addAttribute(node, TRANSACTION_ID, ModelType.STRING, false);
 			addAttribute(node, STATE, ModelType.STRING, true);
 			addAttribute(node, THREAD_STATE, ModelType.STRING, true);
+			addAttribute(node, RESERVED_BUFFER_BYTES, ModelType.LONG, false);
+			addAttribute(node, PEAK_RESERVED_BUFFER_BYTES, ModelType.LONG, false);
+			addAttribute(node, BATCHES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BYTES_WRITTEN, ModelType.LONG, false);
+			addAttribute(node, BATCHES_READ, ModelType.LONG, false);
+			addAttribute(node, BYTES_READ, ModelType.LONG, false);
+			addAttribute(node, BUFFER_READ_TIME, ModelType.LONG, false);
 			return node; 		
 		}
 		
@@ -1352,7 +1382,14 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 					new SimpleAttributeDefinition(NODE_ID, ModelType.INT, true),
 					new SimpleAttributeDefinition(TRANSACTION_ID, ModelType.STRING, true),
 					new SimpleAttributeDefinition(STATE, ModelType.STRING, false),
-					new SimpleAttributeDefinition(THREAD_STATE, ModelType.STRING, false)
+					new SimpleAttributeDefinition(THREAD_STATE, ModelType.STRING, false),
+					new SimpleAttributeDefinition(RESERVED_BUFFER_BYTES, ModelType.LONG, true),
+					new SimpleAttributeDefinition(PEAK_RESERVED_BUFFER_BYTES, ModelType.LONG, true),
+					new SimpleAttributeDefinition(BATCHES_WRITTEN, ModelType.LONG, true),
+					new SimpleAttributeDefinition(BYTES_WRITTEN, ModelType.LONG, true),
+					new SimpleAttributeDefinition(BATCHES_READ, ModelType.LONG, true),
+					new SimpleAttributeDefinition(BYTES_READ, ModelType.LONG, true),
+					new SimpleAttributeDefinition(BUFFER_READ_TIME, ModelType.LONG, true)
 			};
 		}
 	}
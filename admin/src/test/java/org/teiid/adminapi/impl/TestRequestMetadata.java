@@ -40,6 +40,9 @@ public class TestRequestMetadata {
 		
 		assertEquals(request, actual);
 		assertEquals(request.getState(), actual.getState());
+		assertEquals(1 << 20, actual.getPeakReservedBufferBytes());
+		assertEquals(3, actual.getBatchesWritten());
+		assertEquals(4096, actual.getBytesRead());
 	}
 
 	private RequestMetadata buildRequest() {
@@ -53,6 +56,9 @@ public class TestRequestMetadata {
 		request.setStartTime(12345L);
 		request.setTransactionId("transaction-id");//$NON-NLS-1$
 		request.setThreadState(ThreadState.RUNNING);
+		request.setPeakReservedBufferBytes(1 << 20);
+		request.setBatchesWritten(3);
+		request.setBytesRead(4096);
 		//request.setNodeId(1);
 		return request;
 	}
@@ -120,6 +126,55 @@ public class TestRequestMetadata {
 			"        },\n" + 
 			"        \"description\" : \"Thread state\",\n" + 
 			"        \"required\" : true\n" + 
+			"    },\n" + 
+			"    \"reserved-buffer-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Buffer memory bytes currently reserved for processing\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"peak-reserved-buffer-bytes\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Maximum buffer memory bytes reserved for processing\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batches-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-written\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Estimated memory bytes of the batches written to buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"batches-read\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Batches read back from buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"bytes-read\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Estimated memory bytes of the batches read back from buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
+			"    },\n" + 
+			"    \"buffer-read-time\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Milliseconds blocked reading from buffer storage\",\n" + 
+			"        \"required\" : false\n" + 
 			"    }\n" + 
 			"}";
 	@Test public void testDescribe() {
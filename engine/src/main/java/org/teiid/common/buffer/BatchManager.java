@@ -23,6 +23,7 @@
 package org.teiid.common.buffer;
 
 import java.lang.ref.Reference;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.core.TeiidComponentException;
@@ -34,6 +35,13 @@ public interface BatchManager {
 	
 	List<List<?>> getBatch(Long batch, boolean retain) throws TeiidComponentException;
 	
+	/**
+	 * Hint that the batches will be read next, in iteration order.  The implementation
+	 * may asynchronously load some of them into memory.  The iterator is only used
+	 * by the calling thread.
+	 */
+	void prefetch(Iterator<Long> batches);
+	
 	void remove(Long batch);
 	
 	void setPrefersMemory(boolean prefers);
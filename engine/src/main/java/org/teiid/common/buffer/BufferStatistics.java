@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer usage attributed to a single request.  Batch managers created while 
+ * processing the request report the spilling and reading of their batches, which
+ * may happen on other threads.
+ * <br>
+ * Byte counts are the in memory size estimates of the batches.
+ */
+public class BufferStatistics {
+	
+	private long startTime = System.currentTimeMillis();
+	private volatile long reservedBytes;
+	private volatile long peakReservedBytes;
+	private AtomicLong batchesWritten = new AtomicLong();
+	private AtomicLong bytesWritten = new AtomicLong();
+	private AtomicLong batchesRead = new AtomicLong();
+	private AtomicLong bytesRead = new AtomicLong();
+	private AtomicLong readNanos = new AtomicLong();
+	private volatile long firstWriteTime;
+	private volatile long lastWriteTime;
+	private volatile boolean closed;
+	
+	/**
+	 * Set the current reservation of the request, which is only changed by the processing thread
+	 */
+	public void setReservedBytes(long reserved) {
+		this.reservedBytes = reserved;
+		if (reserved > peakReservedBytes) {
+			peakReservedBytes = reserved;
+		}
+	}
+	
+	public void batchWritten(long sizeEstimate) {
+		long time = System.currentTimeMillis();
+		if (batchesWritten.getAndIncrement() == 0) {
+			firstWriteTime = time;
+		}
+		lastWriteTime = time;
+		bytesWritten.addAndGet(sizeEstimate);
+	}
+	
+	public void batchRead(long sizeEstimate, long nanos) {
+		batchesRead.incrementAndGet();
+		bytesRead.addAndGet(sizeEstimate);
+		readNanos.addAndGet(nanos);
+	}
+	
+	/**
+	 * Called when the request completes.  Batch managers that outlive the request,
+	 * such as cached results, will stop reporting to and referencing these statistics.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+	
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	public long getReservedBytes() {
+		return reservedBytes;
+	}
+	
+	public long getStartTime() {
+		return startTime;
+	}
+	
+	public long getPeakReservedBytes() {
+		return peakReservedBytes;
+	}
+	
+	public long getBatchesWritten() {
+		return batchesWritten.get();
+	}
+	
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+	
+	public long getBatchesRead() {
+		return batchesRead.get();
+	}
+	
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+	
+	/**
+	 * @return the time in milliseconds that processing was blocked reading batches from storage
+	 */
+	public long getReadTime() {
+		return TimeUnit.NANOSECONDS.toMillis(readNanos.get());
+	}
+	
+	/**
+	 * @return the time of the first batch write or 0 if nothing has been written
+	 */
+	public long getFirstWriteTime() {
+		return firstWriteTime;
+	}
+	
+	/**
+	 * @return the time of the last batch write or 0 if nothing has been written
+	 */
+	public long getLastWriteTime() {
+		return lastWriteTime;
+	}
+	
+	public List<String> getStatisticsList() {
+		ArrayList<String> statisticsList = new ArrayList<String>(8);
+		statisticsList.add("Peak Reserved Bytes: " + getPeakReservedBytes()); //$NON-NLS-1$
+		statisticsList.add("Batches Written: " + getBatchesWritten()); //$NON-NLS-1$
+		statisticsList.add("Bytes Written: " + getBytesWritten()); //$NON-NLS-1$
+		statisticsList.add("Batches Read: " + getBatchesRead()); //$NON-NLS-1$
+		statisticsList.add("Bytes Read: " + getBytesRead()); //$NON-NLS-1$
+		statisticsList.add("Read Time: " + getReadTime()); //$NON-NLS-1$
+		if (firstWriteTime != 0) {
+			//relative to the start of the request
+			statisticsList.add("First Write Time: " + (firstWriteTime - startTime)); //$NON-NLS-1$
+			statisticsList.add("Last Write Time: " + (lastWriteTime - startTime)); //$NON-NLS-1$
+		}
+		return statisticsList;
+	}
+	
+	@Override
+	public String toString() {
+		return getStatisticsList().toString();
+	}
+
+}
@@ -0,0 +1,495 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * An immutable column oriented representation of a batch of rows.
+ * <br>
+ * Fixed width numeric types are held in primitive arrays and strings are dictionary
+ * encoded per batch.  Nulls are tracked with a bitmap per column.  Columns of other types
+ * are held as an Object[] so that any batch may be represented.
+ * <br>
+ * The batch is itself a List of row views so that it may be used anywhere a
+ * List&lt;List&lt;?&gt;&gt; batch is expected.  The row views are read only and
+ * values are boxed on access.  Callers that know the column types should use the
+ * typed accessors instead.
+ */
+public class ColumnarBatch extends AbstractList<List<?>> implements RandomAccess {
+
+	public enum ColumnType {
+		INT,
+		LONG,
+		DOUBLE,
+		BOOLEAN,
+		STRING,
+		OBJECT
+	}
+
+	private final class RowView extends AbstractList<Object> implements RandomAccess {
+		private final int row;
+
+		public RowView(int row) {
+			this.row = row;
+		}
+
+		@Override
+		public Object get(int index) {
+			return getValue(row, index);
+		}
+
+		@Override
+		public int size() {
+			return columns.length;
+		}
+	}
+
+	private static abstract class Column {
+		long[] nulls;
+
+		boolean isNull(int row) {
+			return nulls != null && (nulls[row >> 6] & (1l << row)) != 0;
+		}
+
+		void setNull(int row, int rowCount) {
+			if (nulls == null) {
+				nulls = new long[((rowCount - 1) >> 6) + 1];
+			}
+			nulls[row >> 6] |= (1l << row);
+		}
+
+		abstract ColumnType getColumnType();
+
+		abstract Object get(int row);
+
+		/**
+		 * @return false if the value cannot be held by this column
+		 */
+		abstract boolean set(int row, Object value);
+	}
+
+	private static class IntColumn extends Column {
+		final int[] values;
+		final Class<?> type;
+
+		IntColumn(int rowCount, Class<?> type) {
+			this.values = new int[rowCount];
+			this.type = type;
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.INT;
+		}
+
+		@Override
+		Object get(int row) {
+			int val = values[row];
+			if (type == DataTypeManager.DefaultDataClasses.SHORT) {
+				return Short.valueOf((short)val);
+			}
+			if (type == DataTypeManager.DefaultDataClasses.BYTE) {
+				return Byte.valueOf((byte)val);
+			}
+			return Integer.valueOf(val);
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (value.getClass() != type) {
+				return false;
+			}
+			values[row] = ((Number)value).intValue();
+			return true;
+		}
+	}
+
+	private static class LongColumn extends Column {
+		final long[] values;
+
+		LongColumn(int rowCount) {
+			this.values = new long[rowCount];
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.LONG;
+		}
+
+		@Override
+		Object get(int row) {
+			return Long.valueOf(values[row]);
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (value.getClass() != DataTypeManager.DefaultDataClasses.LONG) {
+				return false;
+			}
+			values[row] = (Long)value;
+			return true;
+		}
+	}
+
+	private static class DoubleColumn extends Column {
+		final double[] values;
+		final Class<?> type;
+
+		DoubleColumn(int rowCount, Class<?> type) {
+			this.values = new double[rowCount];
+			this.type = type;
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.DOUBLE;
+		}
+
+		@Override
+		Object get(int row) {
+			if (type == DataTypeManager.DefaultDataClasses.FLOAT) {
+				return Float.valueOf((float)values[row]);
+			}
+			return Double.valueOf(values[row]);
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (value.getClass() != type) {
+				return false;
+			}
+			values[row] = ((Number)value).doubleValue();
+			return true;
+		}
+	}
+
+	private static class BooleanColumn extends Column {
+		final long[] values;
+
+		BooleanColumn(int rowCount) {
+			this.values = new long[((rowCount - 1) >> 6) + 1];
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.BOOLEAN;
+		}
+
+		@Override
+		Object get(int row) {
+			return Boolean.valueOf((values[row >> 6] & (1l << row)) != 0);
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (value.getClass() != DataTypeManager.DefaultDataClasses.BOOLEAN) {
+				return false;
+			}
+			if ((Boolean)value) {
+				values[row >> 6] |= (1l << row);
+			}
+			return true;
+		}
+	}
+
+	private static class StringColumn extends Column {
+		final int[] codes;
+		String[] dictionary;
+		int dictionarySize;
+		Map<String, Integer> index = new HashMap<String, Integer>();
+
+		StringColumn(int rowCount) {
+			this.codes = new int[rowCount];
+			this.dictionary = new String[Math.min(rowCount, 16)];
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.STRING;
+		}
+
+		@Override
+		Object get(int row) {
+			return dictionary[codes[row]];
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (value.getClass() != DataTypeManager.DefaultDataClasses.STRING) {
+				return false;
+			}
+			String s = (String)value;
+			Integer code = index.get(s);
+			if (code == null) {
+				code = dictionarySize++;
+				if (code == dictionary.length) {
+					String[] newDictionary = new String[dictionary.length << 1];
+					System.arraycopy(dictionary, 0, newDictionary, 0, dictionary.length);
+					dictionary = newDictionary;
+				}
+				dictionary[code] = s;
+				index.put(s, code);
+			}
+			codes[row] = code;
+			return true;
+		}
+
+		void trim() {
+			if (dictionarySize < dictionary.length) {
+				String[] newDictionary = new String[dictionarySize];
+				System.arraycopy(dictionary, 0, newDictionary, 0, dictionarySize);
+				dictionary = newDictionary;
+			}
+			index = null;
+		}
+	}
+
+	private static class ObjectColumn extends Column {
+		final Object[] values;
+
+		ObjectColumn(int rowCount) {
+			this.values = new Object[rowCount];
+		}
+
+		@Override
+		ColumnType getColumnType() {
+			return ColumnType.OBJECT;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			values[row] = value;
+			return true;
+		}
+	}
+
+	private final Column[] columns;
+	private final Class<?>[] types;
+	private final int rowCount;
+
+	private ColumnarBatch(Class<?>[] types, int rowCount) {
+		this.types = types;
+		this.rowCount = rowCount;
+		this.columns = new Column[types.length];
+	}
+
+	/**
+	 * Determine if any of the given types would benefit from a columnar representation.
+	 */
+	public static boolean isEncodable(Class<?>[] types) {
+		for (Class<?> type : types) {
+			if (getColumnType(type) != ColumnType.OBJECT) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the storage {@link ColumnType} that will be used for the given runtime type
+	 */
+	public static ColumnType getColumnType(Class<?> type) {
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER
+				|| type == DataTypeManager.DefaultDataClasses.SHORT
+				|| type == DataTypeManager.DefaultDataClasses.BYTE) {
+			return ColumnType.INT;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.LONG) {
+			return ColumnType.LONG;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.DOUBLE
+				|| type == DataTypeManager.DefaultDataClasses.FLOAT) {
+			return ColumnType.DOUBLE;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.BOOLEAN) {
+			return ColumnType.BOOLEAN;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.STRING) {
+			return ColumnType.STRING;
+		}
+		return ColumnType.OBJECT;
+	}
+
+	/**
+	 * Create a columnar copy of the given rows.  If the rows are already
+	 * a {@link ColumnarBatch} they are returned as is.
+	 * @param types the runtime type classes of the columns
+	 * @param rows
+	 */
+	public static ColumnarBatch create(Class<?>[] types, List<? extends List<?>> rows) {
+		if (rows instanceof ColumnarBatch) {
+			return (ColumnarBatch)rows;
+		}
+		int rowCount = rows.size();
+		ColumnarBatch result = new ColumnarBatch(types, rowCount);
+		for (int col = 0; col < types.length; col++) {
+			result.columns[col] = createColumn(types[col], rowCount);
+		}
+		for (int row = 0; row < rowCount; row++) {
+			List<?> tuple = rows.get(row);
+			for (int col = 0; col < types.length; col++) {
+				Object value = tuple.get(col);
+				Column column = result.columns[col];
+				if (value == null) {
+					column.setNull(row, rowCount);
+				} else if (!column.set(row, value)) {
+					//an unexpected value type, fall back to holding the objects
+					column = result.toObjectColumn(col, row);
+					column.set(row, value);
+				}
+			}
+		}
+		for (Column column : result.columns) {
+			if (column instanceof StringColumn) {
+				((StringColumn)column).trim();
+			}
+		}
+		return result;
+	}
+
+	private static Column createColumn(Class<?> type, int rowCount) {
+		switch (getColumnType(type)) {
+		case INT:
+			return new IntColumn(rowCount, type);
+		case LONG:
+			return new LongColumn(rowCount);
+		case DOUBLE:
+			return new DoubleColumn(rowCount, type);
+		case BOOLEAN:
+			return new BooleanColumn(rowCount);
+		case STRING:
+			return new StringColumn(rowCount);
+		default:
+			return new ObjectColumn(rowCount);
+		}
+	}
+
+	private Column toObjectColumn(int col, int rowsSet) {
+		Column existing = columns[col];
+		ObjectColumn column = new ObjectColumn(rowCount);
+		for (int row = 0; row < rowsSet; row++) {
+			if (!existing.isNull(row)) {
+				column.values[row] = existing.get(row);
+			}
+		}
+		columns[col] = column;
+		return column;
+	}
+
+	@Override
+	public List<?> get(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return new RowView(index);
+	}
+
+	@Override
+	public int size() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public Class<?>[] getTypes() {
+		return types;
+	}
+
+	public ColumnType getColumnType(int col) {
+		return columns[col].getColumnType();
+	}
+
+	/**
+	 * Get the boxed value at the given zero-based row and column
+	 */
+	public Object getValue(int row, int col) {
+		Column column = columns[col];
+		if (column.isNull(row)) {
+			return null;
+		}
+		return column.get(row);
+	}
+
+	public boolean isNull(int row, int col) {
+		return columns[col].isNull(row);
+	}
+
+	public boolean hasNulls(int col) {
+		return columns[col].nulls != null;
+	}
+
+	/**
+	 * Get the values of an {@link ColumnType#INT} column.  Null positions have a value of 0.
+	 */
+	public int[] getIntColumn(int col) {
+		return ((IntColumn)columns[col]).values;
+	}
+
+	/**
+	 * Get the values of a {@link ColumnType#LONG} column.  Null positions have a value of 0.
+	 */
+	public long[] getLongColumn(int col) {
+		return ((LongColumn)columns[col]).values;
+	}
+
+	/**
+	 * Get the values of a {@link ColumnType#DOUBLE} column.  Null positions have a value of 0.
+	 */
+	public double[] getDoubleColumn(int col) {
+		return ((DoubleColumn)columns[col]).values;
+	}
+
+	/**
+	 * Get the dictionary codes of a {@link ColumnType#STRING} column.
+	 * @see #getDictionary(int)
+	 */
+	public int[] getDictionaryCodes(int col) {
+		return ((StringColumn)columns[col]).codes;
+	}
+
+	public String[] getDictionary(int col) {
+		return ((StringColumn)columns[col]).dictionary;
+	}
+
+	/**
+	 * Get the values of an {@link ColumnType#OBJECT} column.
+	 */
+	public Object[] getObjectColumn(int col) {
+		return ((ObjectColumn)columns[col]).values;
+	}
+
+}
@@ -194,6 +194,14 @@ public abstract class FileStore implements Removable {
 	
 	protected abstract void removeDirect();
 	
+	/**
+	 * @return true if the buffers returned by {@link #createInputStream(long, long)} directly
+	 * reference memory mapped storage, such that reads do not require an intermediate copy.
+	 */
+	public boolean isMemoryMapped() {
+		return false;
+	}
+	
 	public ExtensibleBufferedInputStream createInputStream(final long start, final long length) {
 		return new ExtensibleBufferedInputStream() {
 			private long offset = start;
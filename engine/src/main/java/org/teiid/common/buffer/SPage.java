@@ -145,7 +145,7 @@ class SPage implements Cloneable {
 					return new SearchResult(-previousValues.size() - 1, page.prev, previousValues);
 				}
 				if (parent != null && index != 0) {
-					page.stree.updateLock.lock();
+					page.stree.beginUpdate();
 					try {
 						index = Collections.binarySearch(values, k, page.stree.comparator);
 						if (index != 0) {
@@ -169,7 +169,7 @@ class SPage implements Cloneable {
 							}
 						}
 					} finally {
-						page.stree.updateLock.unlock();
+						page.stree.endUpdate();
 					}
 				}
 			}
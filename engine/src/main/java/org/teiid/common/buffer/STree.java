@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.teiid.client.BatchSerializer;
@@ -48,6 +49,11 @@ import org.teiid.query.processor.relational.ListNestedSortComparator;
  * Self balancing search tree using skip list like logic
  * This has similar performance similar to a B+/-Tree,
  * but with fewer updates. 
+ * <br>
+ * Modifications are expected to be performed by a single writer at a time.  
+ * Each modification advances the version, which is odd while the modification
+ * is in progress, so that read only {@link TupleBrowser}s may read
+ * without locking and reposition when they detect a concurrent modification.
  */
 @SuppressWarnings("unchecked")
 public class STree implements Cloneable {
@@ -75,6 +81,7 @@ public class STree implements Cloneable {
 	protected LobManager lobManager;
     
     protected ReentrantLock updateLock = new ReentrantLock();
+    private AtomicLong version = new AtomicLong();
     
     private AtomicInteger rowCount = new AtomicInteger();
 	
@@ -113,6 +120,7 @@ public class STree implements Cloneable {
 				clone.lobManager = lobManager.clone();
 			}
 			clone.updateLock = new ReentrantLock();
+			clone.version = new AtomicLong();
 			clone.rowCount = new AtomicInteger(rowCount.get());
 			//clone the pages
 			clone.pages = new HashMap<Long, SPage>(pages);
@@ -142,6 +150,56 @@ public class STree implements Cloneable {
 		}
 	}
 	
+	/**
+	 * Start a modification.  Must be followed by {@link #endUpdate()}.
+	 * Nested calls by the same thread are counted as a single modification. 
+	 */
+	void beginUpdate() {
+		updateLock.lock();
+		if (updateLock.getHoldCount() == 1) {
+			version.incrementAndGet();
+		}
+	}
+	
+	void endUpdate() {
+		try {
+			if (updateLock.getHoldCount() == 1) {
+				version.incrementAndGet();
+			}
+		} finally {
+			updateLock.unlock();
+		}
+	}
+	
+	long getVersion() {
+		return version.get();
+	}
+	
+	/**
+	 * Validate that there has been no modification since the start version.
+	 * <br>
+	 * A plain read of the version would not order the preceding reads of the pages, so 
+	 * the version is instead checked with a compare and set of the same value.  If it 
+	 * succeeds any later modification must observe it and so all of the preceding reads
+	 * happen-before the writes of that modification.
+	 */
+	boolean validate(long start) {
+		return version.compareAndSet(start, start);
+	}
+	
+	/**
+	 * Get the version, waiting for any modification in progress to complete
+	 */
+	long getStableVersion() {
+		for (;;) {
+			long result = version.get();
+			if ((result & 1) == 0) {
+				return result;
+			}
+			Thread.yield();
+		}
+	}
+	
 	private SPage getPage(SPage page) {
 		if (page == null) {
 			return page;
@@ -174,7 +232,12 @@ public class STree implements Cloneable {
 		if (toFlush.managedBatch != null) {
 			return;
 		}
-		toFlush.setValues(toFlush.getValues());
+		beginUpdate();
+		try {
+			toFlush.setValues(toFlush.getValues());
+		} finally {
+			endUpdate();
+		}
 	}
 	
 	public void readValuesFrom(ObjectInputStream ois) throws IOException, ClassNotFoundException, TeiidComponentException {
@@ -240,12 +303,20 @@ public class STree implements Cloneable {
 	 * @throws TeiidComponentException 
 	 */
 	List find(List n, List<SearchResult> places) throws TeiidComponentException {
+		return find(n, places, true);
+	}
+	
+	/**
+	 * @param correct true if the index pointers may be corrected during the search, 
+	 * which is a modification 
+	 */
+	List find(List n, List<SearchResult> places, boolean correct) throws TeiidComponentException {
 		SPage x = null;
 		for (int i = header.length - 1; i >= 0; i--) {
 			if (x == null) {
 				x = header[i];
 			}
-			SearchResult s = SPage.search(x, n, places);
+			SearchResult s = SPage.search(x, n, correct?places:null);
 			if (places != null) {
 				places.add(s);
 			}
@@ -279,6 +350,15 @@ public class STree implements Cloneable {
 		if (tuple.size() != this.leafManager.getTypes().length) {
 			throw new AssertionError("Invalid tuple."); //$NON-NLS-1$
 		}
+		beginUpdate();
+		try {
+			return insertTuple(tuple, mode, sizeHint);
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	private List insertTuple(List tuple, InsertMode mode, int sizeHint) throws TeiidComponentException {
 		LinkedList<SearchResult> places = new LinkedList<SearchResult>();
 		List match = null;
 		if (this.lobManager != null) {
@@ -347,6 +427,136 @@ public class STree implements Cloneable {
 		return null;
 	}
 	
+	/**
+	 * Create a {@link BulkLoader} for this tree, which must be empty.
+	 * @param fillFactor the fraction of each page to fill, from 0 exclusive to 1 inclusive.
+	 * Values less than 1 leave room for subsequent inserts without splitting.
+	 */
+	public BulkLoader createBulkLoader(float fillFactor) {
+		if (fillFactor <= 0 || fillFactor > 1) {
+			throw new IllegalArgumentException("Invalid fill factor " + fillFactor); //$NON-NLS-1$
+		}
+		if (rowCount.get() != 0) {
+			throw new AssertionError("Bulk load requires an empty tree."); //$NON-NLS-1$
+		}
+		//full pages are always stored
+		batchInsert = false;
+		incompleteInsert = null;
+		return new BulkLoader(fillFactor);
+	}
+
+	/**
+	 * Loads tuples in ascending key order by filling the leaf pages sequentially and
+	 * building each index level bottom up as the level below fills, so that no searching or
+	 * splitting is performed.
+	 * <br>
+	 * The loaded tuples are not visible until {@link #finish()} is called.  If a tuple
+	 * is out of order, the pages built so far are finished and the remaining tuples
+	 * are inserted normally.
+	 */
+	public class BulkLoader {
+		private float fillFactor;
+		private ArrayList<SPage> firstPages = new ArrayList<SPage>();
+		private ArrayList<List> firstKeys = new ArrayList<List>();
+		private ArrayList<SPage> currentPages = new ArrayList<SPage>();
+		private ArrayList<List<List<?>>> currentValues = new ArrayList<List<List<?>>>();
+		private List<?> last;
+		private boolean finished;
+
+		private BulkLoader(float fillFactor) {
+			this.fillFactor = fillFactor;
+		}
+
+		/**
+		 * Add the next tuple
+		 * @return null if the tuple was added, otherwise the existing tuple with the same key
+		 */
+		public List append(List<?> tuple) throws TeiidComponentException {
+			if (tuple.size() != leafManager.getTypes().length) {
+				throw new AssertionError("Invalid tuple."); //$NON-NLS-1$
+			}
+			if (!finished && last != null) {
+				int compare = comparator.compare(last, tuple);
+				if (compare == 0) {
+					return last;
+				}
+				if (compare > 0) {
+					finish();
+				}
+			}
+			if (finished) {
+				return insert(tuple, InsertMode.NEW, -1);
+			}
+			updateLock.lock();
+			try {
+				if (lobManager != null) {
+					lobManager.updateReferences(tuple, ReferenceMode.CREATE);
+				}
+				add(0, extractKey(tuple), tuple);
+				rowCount.addAndGet(1);
+				last = tuple;
+			} finally {
+				updateLock.unlock();
+			}
+			return null;
+		}
+
+		private void add(int level, List key, Object value) throws TeiidComponentException {
+			boolean leaf = level == 0;
+			if (level == currentPages.size()) {
+				SPage page = new SPage(STree.this, leaf);
+				firstPages.add(page);
+				firstKeys.add(key);
+				currentPages.add(page);
+				currentValues.add(page.getValues());
+			}
+			SPage page = currentPages.get(level);
+			List<List<?>> values = currentValues.get(level);
+			if (values.size() >= Math.max(1, (int)(getPageSize(leaf) * fillFactor))) {
+				page.setValues(values);
+				SPage nextPage = new SPage(STree.this, leaf);
+				page.next = nextPage;
+				nextPage.prev = page;
+				if (level + 1 == currentPages.size()) {
+					//the first page of this level now needs a parent
+					add(level + 1, firstKeys.get(level), page);
+				}
+				add(level + 1, key, nextPage);
+				page = nextPage;
+				values = page.getValues();
+				currentPages.set(level, page);
+				currentValues.set(level, values);
+			}
+			setValue(values.size(), key, value, values, page);
+		}
+
+		/**
+		 * Make the loaded tuples visible.  Must be called once all tuples have been appended.
+		 */
+		public void finish() throws TeiidComponentException {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			if (firstPages.isEmpty()) {
+				return;
+			}
+			beginUpdate();
+			try {
+				for (int i = 0; i < currentPages.size(); i++) {
+					currentPages.get(i).setValues(currentValues.get(i));
+				}
+				header = firstPages.toArray(new SPage[firstPages.size()]);
+			} finally {
+				endUpdate();
+			}
+			firstPages = null;
+			firstKeys = null;
+			currentPages = null;
+			currentValues = null;
+		}
+	}
+
 	public int getExpectedHeight(int sizeHint) {
 		if (sizeHint == 0) {
 			return 0;
@@ -424,6 +634,15 @@ public class STree implements Cloneable {
 	}
 	
 	public List remove(List key) throws TeiidComponentException {
+		beginUpdate();
+		try {
+			return removeTuple(key);
+		} finally {
+			endUpdate();
+		}
+	}
+	
+	private List removeTuple(List key) throws TeiidComponentException {
 		LinkedList<SearchResult> places = new LinkedList<SearchResult>();
 		List tuple = find(key, places);
 		if (tuple == null) {
@@ -501,16 +720,21 @@ public class STree implements Cloneable {
 	}
 	
 	public int truncate(boolean force) {
-		int oldSize = rowCount.getAndSet(0);
-		for (int i = 0; i < header.length; i++) {
-			SPage page = header[i];
-			while (page != null) {
-				page.remove(force);
-				page = page.next;
+		beginUpdate();
+		try {
+			int oldSize = rowCount.getAndSet(0);
+			for (int i = 0; i < header.length; i++) {
+				SPage page = header[i];
+				while (page != null) {
+					page.remove(force);
+					page = page.next;
+				}
 			}
+			header = new SPage[] {new SPage(this, true)};
+			return oldSize;
+		} finally {
+			endUpdate();
 		}
-		header = new SPage[] {new SPage(this, true)};
-		return oldSize;
 	}
 	
 	public int getHeight() {
@@ -563,7 +787,12 @@ public class STree implements Cloneable {
 				return;
 			}
 			//remove unneeded index level
-			this.header = Arrays.copyOf(this.header, header.length - 1);
+			beginUpdate();
+			try {
+				this.header = Arrays.copyOf(this.header, header.length - 1);
+			} finally {
+				endUpdate();
+			}
 		}
 	}
 
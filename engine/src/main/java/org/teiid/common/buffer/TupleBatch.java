@@ -74,6 +74,17 @@ public class TupleBatch {
         this.rowOffset = beginRow;
         this.tuples = new ArrayList<List<?>>(listOfTupleLists);
     }
+    
+    /**
+     * Create a batch directly over the columnar tuples without copying.
+     * The tuples of the resulting batch are read only.
+     */
+    public static TupleBatch columnar(int beginRow, ColumnarBatch tuples) {
+    	TupleBatch result = new TupleBatch();
+    	result.rowOffset = beginRow;
+    	result.tuples = tuples;
+    	return result;
+    }
 
     /**
      * Return the number of the first row of the tuple source that is
@@ -113,6 +124,16 @@ public class TupleBatch {
 		return tuples;
 	}
     
+    /**
+     * @return the columnar representation of this batch or null if the tuples are not columnar
+     */
+    public ColumnarBatch getColumnarBatch() {
+    	if (tuples instanceof ColumnarBatch) {
+    		return (ColumnarBatch)tuples;
+    	}
+    	return null;
+    }
+    
     /**
      * Get all tuples 
      * @return All tuples
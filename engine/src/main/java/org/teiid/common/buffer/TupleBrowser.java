@@ -24,6 +24,8 @@ package org.teiid.common.buffer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.teiid.common.buffer.SPage.SearchResult;
@@ -32,6 +34,12 @@ import org.teiid.core.TeiidProcessingException;
 
 /**
  * Implements intelligent browsing over a {@link STree}
+ * <br>
+ * A read only browser does not require that modifications be excluded.  Each read is 
+ * validated against the tree version and if the tree was modified the browser 
+ * repositions after the last value returned from the range, or repeats the lookup 
+ * of the current values.  Values are not read from a consistent snapshot - 
+ * the tree should be cloned for that.
  * 
  * TODO: this is not as efficient as it should be over partial matches
  */
@@ -56,6 +64,24 @@ public class TupleBrowser implements TupleSource {
 	private List<Object> cachedBound;
 	
 	private ArrayList<SearchResult> places = new ArrayList<SearchResult>();
+	
+	private boolean readOnly;
+	private long version = -1;
+	//true if the current attempt has read from the tree rather than just the copied page values
+	private boolean treeAccessed;
+	private List<Object> rangeLower;
+	private List<?> rangeUpper;
+	private boolean rangePartial;
+	private List<?> lastRangeValue;
+	private List<?> skipKey;
+	private LinkedList<List<?>> attemptValues;
+	private LinkedList<List<?>> retryValues;
+	//the partial range state at the start of the current attempt
+	private boolean attemptInPartial;
+	private List<Object> attemptRangeLower;
+	private List<?> attemptRangeUpper;
+	private boolean attemptRangePartial;
+	private List<?> attemptLastRangeValue;
 
 	/**
 	 * Construct a value based browser.  The {@link TupleSource} should already be in the
@@ -65,9 +91,21 @@ public class TupleBrowser implements TupleSource {
 	 * @param direction
 	 */
 	public TupleBrowser(STree sTree, TupleSource valueSet, boolean direction) {
+		this(sTree, valueSet, direction, false);
+	}
+	
+	/**
+	 * Construct a value based browser.
+	 * @param readOnly true if the browser should validate its reads rather than 
+	 * expecting modifications to be excluded
+	 */
+	public TupleBrowser(STree sTree, TupleSource valueSet, boolean direction, boolean readOnly) {
 		this.tree = sTree;
 		this.direction = direction;
 		this.valueSet = valueSet;
+		if (readOnly) {
+			setReadOnly();
+		}
 	}
 	
 	/**
@@ -79,15 +117,44 @@ public class TupleBrowser implements TupleSource {
 	 * @throws TeiidComponentException
 	 */
 	public TupleBrowser(STree sTree, List<Object> lowerBound, List<Object> upperBound, boolean direction) throws TeiidComponentException {
+		this(sTree, lowerBound, upperBound, direction, false);
+	}
+	
+	/**
+	 * Construct a range based browser
+	 * @param readOnly true if the browser should validate its reads rather than 
+	 * expecting modifications to be excluded
+	 */
+	public TupleBrowser(STree sTree, List<Object> lowerBound, List<Object> upperBound, boolean direction, boolean readOnly) throws TeiidComponentException {
 		this.tree = sTree;
 		this.direction = direction;
 		
-		init(lowerBound, upperBound, false);
+		if (readOnly) {
+			//defer the initial positioning to the first validated read
+			setReadOnly();
+			setRange(lowerBound, upperBound, false);
+		} else {
+			init(lowerBound, upperBound, false);
+		}
+	}
+	
+	private void setReadOnly() {
+		this.readOnly = true;
+		this.attemptValues = new LinkedList<List<?>>();
+		this.retryValues = new LinkedList<List<?>>();
+	}
+	
+	private void setRange(List<Object> lowerBound, List<?> upperBound, boolean isPartialKey) {
+		this.rangeLower = lowerBound == null?null:new ArrayList<Object>(lowerBound);
+		this.rangeUpper = upperBound;
+		this.rangePartial = isPartialKey;
+		this.lastRangeValue = null;
 	}
 
 	private void init(List<Object> lowerBound,
 			List<?> upperBound, boolean isPartialKey)
 			throws TeiidComponentException {
+		treeAccessed = true;
 		if (lowerBound != null) {
 			lowerBound.addAll(Collections.nCopies(tree.getKeyLength() - lowerBound.size(), null));
 			setPage(lowerBound);
@@ -101,7 +168,7 @@ public class TupleBrowser implements TupleSource {
 			if (!isPartialKey && lowerBound != null && this.tree.comparator.compare(upperBound, lowerBound) < 0) {
 				valid = false;
 			}
-			this.tree.find(upperBound, getPlaces());
+			this.tree.find(upperBound, getPlaces(), !readOnly);
 			SearchResult upper = places.get(places.size() - 1);
 			bound = upper.page;
 			boundIndex = upper.index;
@@ -111,7 +178,7 @@ public class TupleBrowser implements TupleSource {
 				boundIndex = Math.min(upper.values.size(), -boundIndex -1) - 1;
 			}
 			if (!direction) {
-				values = upper.values;
+				values = copyValues(upper.values);
 			}
 			if (lowerBound != null && page == bound) {
 				valid = index<=boundIndex;
@@ -122,7 +189,7 @@ public class TupleBrowser implements TupleSource {
 			}
 			if (!direction) {
 				if (page != bound || values == null) {
-					values = bound.getValues();
+					values = copyValues(bound.getValues());
 				}
 				boundIndex = values.size() - 1;
 			}
@@ -143,7 +210,8 @@ public class TupleBrowser implements TupleSource {
 	}
 
 	private boolean setPage(List<?> lowerBound) throws TeiidComponentException {
-		this.tree.find(lowerBound, getPlaces());
+		treeAccessed = true;
+		this.tree.find(lowerBound, getPlaces(), !readOnly);
 		
 		SearchResult sr = places.get(places.size() - 1);
 		page = sr.page;
@@ -153,10 +221,21 @@ public class TupleBrowser implements TupleSource {
 			result = false;
 			index = -index - 1;
 		}
-		values = sr.values;
+		values = copyValues(sr.values);
 		return result;
 	}
 	
+	/**
+	 * In read only mode the page values are copied, so that once the copy is validated 
+	 * the remaining tuples from the page may be returned without validation.
+	 */
+	private List<List<?>> copyValues(List<List<?>> pageValues) {
+		if (readOnly) {
+			return new ArrayList<List<?>>(pageValues);
+		}
+		return pageValues;
+	}
+	
 	private ArrayList<SearchResult> getPlaces() {
 		places.clear();
 		return places;
@@ -165,10 +244,127 @@ public class TupleBrowser implements TupleSource {
 	@Override
 	public List<?> nextTuple() throws TeiidComponentException,
 			TeiidProcessingException {
+		if (!readOnly) {
+			return nextTupleDirect();
+		}
+		for (;;) {
+			treeAccessed = false;
+			try {
+				if (version == -1) {
+					long start = tree.getStableVersion();
+					reposition();
+					version = start;
+				}
+				saveAttemptState();
+				List<?> result = nextTupleDirect();
+				if (isValid()) {
+					attemptValues.clear();
+					if (valueSet == null || inPartial) {
+						if (result != null && skipKey != null && tree.comparator.compare(result, skipKey) == 0) {
+							//already returned prior to repositioning
+							skipKey = null;
+							continue;
+						}
+						lastRangeValue = result;
+					}
+					skipKey = null;
+					return result;
+				}
+			} catch (TeiidComponentException e) {
+				if (isValid()) {
+					throw e;
+				}
+			} catch (RuntimeException e) {
+				if (isValid()) {
+					throw e;
+				}
+			} catch (AssertionError e) {
+				if (isValid()) {
+					throw e;
+				}
+			}
+			//there was a concurrent modification
+			version = -1;
+		}
+	}
+	
+	/**
+	 * The version is only validated if the attempt read from the tree, so that 
+	 * tuples returned from the copied page values do not contend on the version. 
+	 */
+	private boolean isValid() {
+		return !treeAccessed || tree.validate(version);
+	}
+	
+	private void saveAttemptState() {
+		attemptInPartial = inPartial;
+		attemptRangeLower = rangeLower;
+		attemptRangeUpper = rangeUpper;
+		attemptRangePartial = rangePartial;
+		attemptLastRangeValue = lastRangeValue;
+	}
+	
+	/**
+	 * Discard the current position after a modification.  Values consumed by a
+	 * failed attempt are looked up again, otherwise the range is searched again 
+	 * from the last value returned.  If the failed attempt started in a partial 
+	 * key range, that range is resumed before the values are looked up again. 
+	 */
+	@SuppressWarnings("unchecked")
+	private void reposition() throws TeiidComponentException {
+		values = null;
+		updated = false;
+		if (!attemptValues.isEmpty()) {
+			retryValues.addAll(0, attemptValues);
+			attemptValues.clear();
+			inPartial = attemptInPartial;
+			if (!inPartial) {
+				page = null;
+				return;
+			}
+			rangeLower = attemptRangeLower;
+			rangeUpper = attemptRangeUpper;
+			rangePartial = attemptRangePartial;
+			lastRangeValue = attemptLastRangeValue;
+		}
+		if (valueSet != null && !inPartial) {
+			return;
+		}
+		List<Object> lower = rangeLower;
+		List<?> upper = rangeUpper;
+		skipKey = null;
+		if (lastRangeValue != null) {
+			List key = tree.extractKey(lastRangeValue);
+			if (direction) {
+				lower = key;
+			} else {
+				upper = key;
+			}
+			skipKey = key;
+		}
+		page = null;
+		bound = null;
+		boundIndex = -1;
+		index = 0;
+		init(lower == null?null:new ArrayList<Object>(lower), upper, rangePartial);
+	}
+	
+	private List<?> nextTupleDirect() throws TeiidComponentException,
+			TeiidProcessingException {
 		for (;;) {
 			//first check for value iteration
 			if (!inPartial && valueSet != null) {
-				List<?> newValue = valueSet.nextTuple();
+				List<?> newValue = null;
+				if (readOnly) {
+					if (!retryValues.isEmpty()) {
+						newValue = retryValues.removeFirst();
+					} else {
+						newValue = valueSet.nextTuple();
+					}
+					attemptValues.add(newValue);
+				} else {
+					newValue = valueSet.nextTuple();
+				}
 				if (newValue == null) {
 					resetState();
 					return null;
@@ -179,6 +375,9 @@ public class TupleBrowser implements TupleSource {
 					}
 					cachedBound.clear();
 					cachedBound.addAll(newValue);
+					if (readOnly) {
+						setRange(cachedBound, newValue, true);
+					}
 					init(cachedBound, newValue, true);
 					inPartial = true;
 					continue;
@@ -191,6 +390,7 @@ public class TupleBrowser implements TupleSource {
 						return values.get(possibleIndex);
 					}
 					//check for end/terminal conditions
+					treeAccessed = true;
 					if (direction && possibleIndex == -values.size() -1) {
 						if (page.next == null) {
 							resetState();
@@ -220,7 +420,11 @@ public class TupleBrowser implements TupleSource {
 				return null;
 			}
 			if (values == null) {
-				values = page.getValues();
+				treeAccessed = true;
+				if (getOffset() != 0) {
+					prefetch();
+				}
+				values = copyValues(page.getValues());
 				if (direction) {
 					index = 0;
 				} else {
@@ -238,6 +442,7 @@ public class TupleBrowser implements TupleSource {
 				return result;
 			}
 			resetState();
+			treeAccessed = true;
 			if (direction) {
 				page = page.next;
 			} else {
@@ -246,6 +451,40 @@ public class TupleBrowser implements TupleSource {
 		}
 	}
 	
+	/**
+	 * Hint the following pages of a range scan to the batch manager
+	 */
+	private void prefetch() {
+		final SPage start = direction?page.next:page.prev;
+		if (start == null || page == bound) {
+			return;
+		}
+		tree.getBatchManager(true).prefetch(new Iterator<Long>() {
+			SPage current = start;
+			
+			@Override
+			public boolean hasNext() {
+				return current != null;
+			}
+			
+			@Override
+			public Long next() {
+				Long result = current.managedBatch;
+				if (current == bound) {
+					current = null;
+				} else {
+					current = direction?current.next:current.prev;
+				}
+				return result;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		});
+	}
+	
 	public void reset(TupleSource ts) throws TeiidComponentException {
 		this.valueSet = ts;
 		resetState();
@@ -130,6 +130,7 @@ public class TupleBuffer {
 	private List<List<?>> batchBuffer;
 	private boolean removed;
 	private boolean forwardOnly;
+	private int nextSequentialRow;
 
 	private LobManager lobManager;
 	private String uuid;
@@ -285,8 +286,17 @@ public class TupleBuffer {
 			Map.Entry<Integer, Long> entry = batches.floorEntry(row);
 			Assertion.isNotNull(entry);
 			Long batch = entry.getValue();
+			if (entry.getKey() == nextSequentialRow) {
+				//sequential access, so hint that the following batches will be needed
+				manager.prefetch(batches.tailMap(entry.getKey(), false).values().iterator());
+			}
 	    	List<List<?>> rows = manager.getBatch(batch, !forwardOnly);
-	    	result = new TupleBatch(entry.getKey(), rows);
+	    	if (rows instanceof ColumnarBatch) {
+	    		result = TupleBatch.columnar(entry.getKey(), (ColumnarBatch)rows);
+	    	} else {
+	    		result = new TupleBatch(entry.getKey(), rows);
+	    	}
+	    	nextSequentialRow = result.getEndRow() + 1;
 	    	if (isFinal && result.getEndRow() == rowCount) {
 	    		result.setTerminationFlag(true);
 	    	}
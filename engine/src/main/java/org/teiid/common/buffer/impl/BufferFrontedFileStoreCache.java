@@ -44,6 +44,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -100,6 +101,9 @@ import org.teiid.query.QueryPlugin;
  * The locking is as fine grained as possible to prevent contention.  See {@link PhysicalInfo} for
  * flags that are used when it is used as a lock.  It is important to not access the
  * group maps when a {@link PhysicalInfo} lock is held.
+ * 
+ * Objects may optionally be compressed with {@link LZCompressor} after the gid/oid header, 
+ * which allows more objects to be held in the memory buffer and reduces the storage block sizes. 
  */
 public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	
@@ -128,6 +132,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	
 	static final int BLOCK_SIZE = 1 << LOG_BLOCK_SIZE;
 	static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final double[] COMPRESSION_RATIO_BOUNDS = {1.5, 2, 3, 4};
 	static final int ADDRESSES_PER_BLOCK = BLOCK_SIZE/BYTES_PER_BLOCK_ADDRESS;
 	static final int MAX_INDIRECT = DIRECT_POINTERS + ADDRESSES_PER_BLOCK;
 	static final int MAX_DOUBLE_INDIRECT = MAX_INDIRECT + ADDRESSES_PER_BLOCK * ADDRESSES_PER_BLOCK;
@@ -360,7 +365,8 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	
 	private int maxMemoryBlocks;
 	private AtomicLong readAttempts = new AtomicLong();
-	LrfuEvictionQueue<PhysicalInfo> memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
+	private EvictionPolicy evictionPolicy = EvictionPolicy.LRFU;
+	EvictionQueue<PhysicalInfo> memoryBufferEntries = evictionPolicy.createEvictionQueue(readAttempts);
 	private Semaphore memoryWritePermits; //prevents deadlock waiting for free blocks
 	private ReentrantReadWriteLock memoryEvictionLock = new ReentrantReadWriteLock(true);
 	private ReentrantLock freedLock = new ReentrantLock();
@@ -382,6 +388,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private AtomicInteger freedCounter = new AtomicInteger();
 	
 	private boolean compactBufferFiles = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.compactBufferFiles", false); //$NON-NLS-1$
+	private boolean compress = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.compressBufferBlocks", false); //$NON-NLS-1$
 	
 	private int truncateInterval = 4;
 	//defrag to release freespace held by storage files
@@ -554,6 +561,11 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	
 	private AtomicLong storageWrites = new AtomicLong();
 	private AtomicLong storageReads = new AtomicLong();
+	private AtomicLong uncompressedBytes = new AtomicLong();
+	private AtomicLong compressedBytes = new AtomicLong();
+	private AtomicLong compressedBlocks = new AtomicLong();
+	private AtomicLong uncompressedBlocks = new AtomicLong();
+	private AtomicLongArray compressionRatioCounts = new AtomicLongArray(COMPRESSION_RATIO_BOUNDS.length + 1);
 	
 	private long minDefrag = DEFAULT_MIN_DEFRAG;
 	private BufferManagerImpl bufferManager;
@@ -658,10 +670,21 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			BlockOutputStream bos = new BlockOutputStream(blockManager, memoryBlocks);
 			bos.writeLong(s.getId());
 			bos.writeLong(entry.getId());
-			ObjectOutput dos = new ObjectOutputStream(bos);
+			LZCompressor.CompressingOutputStream cos = null;
+			ObjectOutput dos = null;
+			if (compress) {
+				cos = new LZCompressor.CompressingOutputStream(bos);
+				dos = new ObjectOutputStream(cos);
+			} else {
+				dos = new ObjectOutputStream(bos);
+			}
 			dos.writeInt(entry.getSizeEstimate());
             s.serialize(entry.getObject(), dos);
+            //closes the block stream as well so that the bytes written are accurate 
             dos.close();
+            if (cos != null) {
+            	recordCompression(cos.getRawBytes(), cos.getStoredBytes(), bos.getBytesWritten());
+            }
         	//synchronized to ensure proper cleanup from a concurrent removal 
             synchronized (map) {
             	if (physicalMapping.containsKey(s.getId()) && map.containsKey(entry.getId())) {
@@ -753,6 +776,8 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		Lock lock = null;
 		ExtensibleBufferedInputStream eis = null;
 		int memoryBlocks = 0;
+		boolean mapped = false;
+		boolean locked = false;
 		try {
 			synchronized (info) {
 				assert !info.pinned && info.loading; //load should be locked
@@ -777,18 +802,31 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 					FileStore fs = blockStore.stores[segment];
 					long blockOffset = (info.block%blockStore.blocksInUse.getBitsPerSegment())*blockStore.blockSize;
 					eis = fs.createInputStream(blockOffset, info.memoryBlockCount<<LOG_BLOCK_SIZE);
-					lock = blockStore.locks[segment].writeLock();
+					mapped = fs.isMemoryMapped();
+					if (mapped) {
+						//read in place, the read lock prevents truncation of the mapping
+						lock = blockStore.locks[segment].readLock();
+					} else {
+						lock = blockStore.locks[segment].writeLock();
+					}
 					memoryBlocks = info.memoryBlockCount;
 				} else {
 					return null;
 				}
 			}
-			if (lock != null) {
+			if (mapped) {
+				lock.lock();
+				locked = true;
+				is = eis;
+			} else if (lock != null) {
 				is = readIntoMemory(info, eis, lock, memoryBlocks);
 			}
 			for (int i = 0; i < HEADER_BYTES; i++) {
 				is.read();
 			}
+			if (compress) {
+				is = new LZCompressor.DecompressingInputStream(is);
+			}
 			ObjectInput dis = new ObjectInputStream(is);
 			int sizeEstimate = dis.readInt();
 			CacheEntry ce = new CacheEntry(new CacheKey(oid, 1, 1), sizeEstimate, serializer.deserialize(dis), ref, true);
@@ -800,6 +838,9 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
         } catch (InterruptedException e) {
         	 throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30049, e);
 		} finally {
+			if (locked) {
+				lock.unlock();
+			}
         	synchronized (info) {
 				info.pinned = false;
 				info.notifyAll();
@@ -832,6 +873,10 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			//TODO: there is still an extra buffer being created here, we could FileChannels to do better
 			ByteBuffer bb = null;
 			while ((bb = is.getBuffer()) != null) {
+				if (!bb.hasArray()) {
+					os.write(bb);
+					continue;
+				}
 				byte[] array = bb.array();
 				os.write(array, bb.position() + bb.arrayOffset(), bb.remaining());
 				bb.position(bb.position()+bb.remaining());
@@ -1224,4 +1269,115 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		this.compactBufferFiles = compactBufferFiles;
 	}
 	
+	/**
+	 * Set whether serialized objects are compressed.  Must be set prior to use.
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+	
+	public boolean isCompress() {
+		return compress;
+	}
+	
+	/**
+	 * @return the total number of serialized bytes prior to compression
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+	
+	/**
+	 * @return the total number of serialized bytes after compression
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+	
+	/**
+	 * @return the number of memory blocks written for compressed objects
+	 */
+	public long getCompressedBlocks() {
+		return compressedBlocks.get();
+	}
+	
+	/**
+	 * @return the number of memory blocks the compressed objects would have used without compression
+	 */
+	public long getUncompressedBlocks() {
+		return uncompressedBlocks.get();
+	}
+	
+	/**
+	 * Get the distribution of the per object block compression ratios, which is the ratio 
+	 * of the blocks needed uncompressed to the blocks written.  The counts are for the ratios
+	 * less than 1.5, [1.5, 2), [2, 3), [3, 4), and 4 or more.
+	 */
+	public long[] getCompressionRatioCounts() {
+		long[] result = new long[compressionRatioCounts.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = compressionRatioCounts.get(i);
+		}
+		return result;
+	}
+	
+	private void recordCompression(long rawBytes, long storedBytes, long bytesWritten) {
+		uncompressedBytes.addAndGet(rawBytes);
+		compressedBytes.addAndGet(storedBytes);
+		long header = bytesWritten - storedBytes;
+		long blocks = getBlockCount(bytesWritten);
+		long rawBlocks = getBlockCount(header + rawBytes);
+		compressedBlocks.addAndGet(blocks);
+		uncompressedBlocks.addAndGet(rawBlocks);
+		double ratio = rawBlocks/(double)blocks;
+		int index = 0;
+		while (index < COMPRESSION_RATIO_BOUNDS.length && ratio >= COMPRESSION_RATIO_BOUNDS[index]) {
+			index++;
+		}
+		compressionRatioCounts.incrementAndGet(index);
+	}
+	
+	private static long getBlockCount(long size) {
+		return (size>>LOG_BLOCK_SIZE) + ((size&BLOCK_MASK)>0?1:0);
+	}
+	
+	/**
+	 * @return the ratio of uncompressed to compressed bytes written or 1 if nothing 
+	 * has been compressed
+	 */
+	public double getCompressionRatio() {
+		long compressed = compressedBytes.get();
+		if (compressed == 0) {
+			return 1;
+		}
+		return uncompressedBytes.get()/(double)compressed;
+	}
+	
+	/**
+	 * Set the policy used to order the memory buffer entries for eviction.
+	 * Must be set prior to use.
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		this.evictionPolicy = evictionPolicy;
+		this.memoryBufferEntries = evictionPolicy.createEvictionQueue(readAttempts);
+	}
+	
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+	
+	/**
+	 * @return the number of reads satisfied by the memory buffer
+	 */
+	public long getMemoryBufferHits() {
+		return memoryBufferEntries.getHits();
+	}
+	
+	/**
+	 * @return the number of reads that required a storage read
+	 */
+	public long getMemoryBufferMisses() {
+		return memoryBufferEntries.getMisses();
+	}
+	
 }
\ No newline at end of file
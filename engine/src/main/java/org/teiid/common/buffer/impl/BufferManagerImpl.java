@@ -37,6 +37,8 @@ import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,6 +58,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.DataTypeManager.WeakReferenceHashedValueCache;
 import org.teiid.core.types.Streamable;
 import org.teiid.core.util.Assertion;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.dqp.internal.process.DQPConfiguration;
 import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.logging.LogConstants;
@@ -77,7 +80,8 @@ import org.teiid.query.util.CommandContext;
  * TODO: add detection of pinned batches to prevent unnecessary purging of non-persistent batches
  *       - this is not necessary for already persistent batches, since we hold a weak reference
  *       
- * TODO: add a pre-fetch for tuplebuffers or some built-in correlation logic with the queue.      
+ * When io threads are configured, evictions are written behind by the io pool
+ * and sequentially read batches are prefetched.
  */
 public class BufferManagerImpl implements BufferManager, ReplicatedObject<String> {
 
@@ -107,7 +111,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				try {
 					long evicted = impl.doEvictions(impl.maxProcessingBytes, true, impl.initialEvictionQueue);
 					if (evicted != 0 && LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
-						LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Asynch eviction run", evicted, impl.reserveBatchBytes.get(), impl.maxReserveBytes, impl.activeBatchBytes.get()); //$NON-NLS-1$
+						LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Asynch eviction run", evicted, impl.reserveBatchBytes.getTotal(), impl.maxReserveBytes, impl.activeBatchBytes.get()); //$NON-NLS-1$
 					}
 				} catch (Throwable t) {
 					LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, t, "Exception during cleaning run"); //$NON-NLS-1$
@@ -154,10 +158,15 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		private LobManager lobManager;
 		private long totalSize;
 		private long rowsSampled;
+		private Class<?>[] typeClasses;
+		private boolean columnar;
+		private int[] compactTypeCodes;
+		private WeakReference<BufferStatistics> stats;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
 			this.sizeUtility = new SizeUtility(types);
+			this.typeClasses = types;
 			this.types = new String[types.length];
 			for (int i = 0; i < types.length; i++) {
 				this.types[i] = DataTypeManager.getDataTypeName(types[i]);
@@ -169,10 +178,54 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			return id;
 		}
 		
+		/**
+		 * @return the statistics of the creating request or null if the request has completed.
+		 * The buffer may outlive the request, so the reference is dropped once the request is closed.
+		 */
+		BufferStatistics getStatistics() {
+			WeakReference<BufferStatistics> ref = this.stats;
+			if (ref == null) {
+				return null;
+			}
+			BufferStatistics result = ref.get();
+			if (result == null || result.isClosed()) {
+				this.stats = null;
+				return null;
+			}
+			return result;
+		}
+		
 		public void setLobManager(LobManager lobManager) {
 			this.lobManager = lobManager;
 		}
 		
+		/**
+		 * Hold batches in memory as {@link ColumnarBatch}es.  Only valid 
+		 * for managers that do not expect to modify their batches in place.
+		 */
+		void setColumnar(boolean columnar) {
+			this.columnar = columnar && ColumnarBatch.isEncodable(typeClasses);
+		}
+		
+		private List<? extends List<?>> encode(List<? extends List<?>> batch) {
+			if (!columnar) {
+				return batch;
+			}
+			return ColumnarBatch.create(typeClasses, batch);
+		}
+		
+		/**
+		 * Spill batches with the {@link CompactBatchSerializer}.  Only valid 
+		 * if set prior to the first batch being persisted.
+		 */
+		void setCompactSerialization(boolean compact) {
+			if (compact && CompactBatchSerializer.isSupported(typeClasses)) {
+				this.compactTypeCodes = CompactBatchSerializer.getTypeCodes(typeClasses);
+			} else {
+				this.compactTypeCodes = null;
+			}
+		}
+		
 		@Override
 		public String[] getTypes() {
 			return types;
@@ -217,7 +270,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					synchronized (old) {
 						int oldRowCount = ((List)old.getObject()).size();
 						if (!old.isPersistent() && (batch.size() > (oldRowCount>>2) && batch.size() < (oldRowCount<<1))) {
-							old.setObject(batch);
+							old.setObject(encode(batch));
 							return previous;
 						}
 						totalSize -= old.getSizeEstimate();
@@ -229,6 +282,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			} else {
 				updateEstimates = true;
 			}
+			batch = encode(batch);
 			sizeEstimate = getSizeEstimate(batch);
 			if (updateEstimates) {
 				totalSize += sizeEstimate;
@@ -252,7 +306,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		@Override
 		public List<? extends List<?>> deserialize(ObjectInput ois)
 				throws IOException, ClassNotFoundException {
-			List<? extends List<?>> batch = BatchSerializer.readBatch(ois, types);
+			List<? extends List<?>> batch = null;
+			if (compactTypeCodes != null) {
+				batch = CompactBatchSerializer.readBatch(ois, compactTypeCodes);
+			} else {
+				batch = BatchSerializer.readBatch(ois, types);
+			}
 			if (lobManager != null) {
 				for (int i = batch.size() - 1; i >= 0; i--) {
 					try {
@@ -262,7 +321,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					}
 				}
 			}
-			return batch;
+			return encode(batch);
 		}
 		
 		@Override
@@ -274,7 +333,11 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 			try {
 				//it's expected that the containing structure has updated the lob manager
-				BatchSerializer.writeBatch(oos, types, obj);
+				if (compactTypeCodes != null) {
+					CompactBatchSerializer.writeBatch(oos, compactTypeCodes, obj);
+				} else {
+					BatchSerializer.writeBatch(oos, types, obj);
+				}
 			} catch (RuntimeException e) {
 				if (ExceptionUtil.getExceptionOfType(e, ClassCastException.class) != null) {
 					throw e;
@@ -316,10 +379,15 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
 					LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, id, "reading batch", batch, "from storage, total reads:", count); //$NON-NLS-1$ //$NON-NLS-2$
 				}
+				BufferStatistics stats = getStatistics();
+				long start = stats != null?System.nanoTime():0;
 				ce = cache.get(o, batch, this.ref);
 				if (ce == null) {
 					throw new AssertionError("Batch not found in storage " + batch); //$NON-NLS-1$
 				}
+				if (stats != null) {
+					stats.batchRead(ce.getSizeEstimate(), System.nanoTime() - start);
+				}
 				if (!retain) {
 					removeFromCache(this.id, batch);
 					persistBatchReferences(ce.getSizeEstimate());
@@ -331,6 +399,50 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 			return (List<List<?>>)ce.getObject();
 		}
+		
+		@Override
+		public void prefetch(Iterator<Long> batches) {
+			if (ioPool == null) {
+				return;
+			}
+			for (int i = 0; i < readAheadBatches && batches.hasNext(); i++) {
+				Long batch = batches.next();
+				if (batch == null || memoryEntries.containsKey(batch)) {
+					continue;
+				}
+				long memoryCount = activeBatchBytes.get() + overheadBytes.get() + maxReserveBytes - reserveBatchBytes.getTotal();
+				if (memoryCount >= maxReserveBytes) {
+					return; //prefetching would just force evictions
+				}
+				scheduleRead(ref, batch);
+			}
+		}
+		
+		/**
+		 * Load the batch into memory if it is only held by the cache
+		 */
+		void load(Long batch) throws TeiidComponentException {
+			Object o = cache.lockForLoad(batch, this);
+			try {
+				if (fastGet(batch, prefersMemory.get(), true) != null) {
+					return;
+				}
+				CacheEntry ce = cache.get(o, batch, this.ref);
+				if (ce == null) {
+					return; //already removed
+				}
+				readCount.incrementAndGet();
+				prefetchCount.incrementAndGet();
+				BufferStatistics stats = getStatistics();
+				if (stats != null) {
+					//read ahead does not block processing
+					stats.batchRead(ce.getSizeEstimate(), 0);
+				}
+				addMemoryEntry(ce, false);
+			} finally {
+				cache.unlockForLoad(o);
+			}
+		}
 
 		@Override
 		public void remove(Long batch) {
@@ -374,7 +486,11 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	}
 
 	static final int CONCURRENCY_LEVEL = 32; //TODO: make this configurable since it is roughly the same as max active plans
+	//the max reserve held by a single stripe of the reserve counter
+	private static final int STRIPE_FRACTION = CONCURRENCY_LEVEL * 8;
 	private static final int TARGET_BYTES_PER_ROW = 1 << 11; //2k bytes per row
+	private static final int MAX_IO_QUEUE = 64;
+	public static final int DEFAULT_READ_AHEAD_BATCHES = 4;
 	private static ReferenceQueue<CacheEntry> SOFT_QUEUE = new ReferenceQueue<CacheEntry>();
 	
 	// Configuration 
@@ -383,24 +499,30 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private int maxProcessingBytes = 1 << 21; 
     private Integer maxProcessingBytesOrig;
     long maxReserveBytes = 1 << 28;;
-    AtomicLong reserveBatchBytes = new AtomicLong();
+    ReserveCounter reserveBatchBytes = new ReserveCounter(CONCURRENCY_LEVEL);
     AtomicLong overheadBytes = new AtomicLong();
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
     private boolean inlineLobs = true;
+    private boolean useColumnarBatches;
+    private boolean useCompactSerialization;
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
+    private int ioThreads;
+    private int readAheadBatches = DEFAULT_READ_AHEAD_BATCHES;
 
     private ReentrantLock lock = new ReentrantLock();
     private Condition batchesFreed = lock.newCondition();
+    private AtomicInteger reserveWaiters = new AtomicInteger();
     
     AtomicLong activeBatchBytes = new AtomicLong();
     
     private AtomicLong readAttempts = new AtomicLong();
     //TODO: consider the size estimate in the weighting function
-    LrfuEvictionQueue<CacheEntry> evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
-    LrfuEvictionQueue<CacheEntry> initialEvictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRFU;
+    EvictionQueue<CacheEntry> evictionQueue = evictionPolicy.createEvictionQueue(readAttempts);
+    EvictionQueue<CacheEntry> initialEvictionQueue = evictionPolicy.createInitialEvictionQueue(readAttempts);
     ConcurrentHashMap<Long, CacheEntry> memoryEntries = new ConcurrentHashMap<Long, CacheEntry>(16, .75f, CONCURRENCY_LEVEL);
     
     //limited size reference caches based upon the memory settings
@@ -429,6 +551,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private AtomicLong readCount = new AtomicLong();
 	private AtomicLong writeCount = new AtomicLong();
 	private AtomicLong referenceHit = new AtomicLong();
+	private AtomicLong prefetchCount = new AtomicLong();
+	
+	//asynch io
+	private ExecutorService ioPool;
+	private long maxPendingWriteBytes;
+	AtomicLong pendingWriteBytes = new AtomicLong();
+	private ConcurrentHashMap<Long, Boolean> pendingReads = new ConcurrentHashMap<Long, Boolean>(16, .75f, CONCURRENCY_LEVEL);
 	
 	//TODO: this does not scale well with multiple embedded instances
 	private static final Timer timer = new Timer("BufferManager Cleaner", true); //$NON-NLS-1$
@@ -476,7 +605,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	}
 	
 	public long getReserveBatchBytes() {
-		return reserveBatchBytes.get();
+		return reserveBatchBytes.getTotal();
 	}
     
     /**
@@ -503,6 +632,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	int[] lobIndexes = LobManager.getLobIndexes(elements);
     	Class<?>[] types = getTypeClasses(elements);
     	BatchManagerImpl batchManager = createBatchManager(newID, types);
+    	batchManager.setColumnar(useColumnarBatches);
     	LobManager lobManager = null;
 		if (lobIndexes != null) {
 			FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
@@ -550,7 +680,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	}
 
 	private BatchManagerImpl createBatchManager(final Long newID, Class<?>[] types) {
-		return new BatchManagerImpl(newID, types);
+		BatchManagerImpl batchManager = new BatchManagerImpl(newID, types);
+		batchManager.setCompactSerialization(useCompactSerialization);
+		CommandContext context = CommandContext.getThreadLocalContext();
+		if (context != null) {
+			batchManager.stats = new WeakReference<BufferStatistics>(context.getBufferStatistics());
+		}
+		return batchManager;
 	}
 
     @Override
@@ -582,6 +718,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			int maxReserve = maxReserveBatchKB<<10;
 			this.maxReserveBytes = maxReserve;
 			this.reserveBatchBytes.set(maxReserve);
+			this.reserveBatchBytes.setMaxStripeBytes(maxReserve/STRIPE_FRACTION);
 		} else {
 			this.maxReserveBytes = -1;
 		}
@@ -601,6 +738,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			this.maxReserveBytes += Math.max(0, Math.min(one_gig, maxMemory) >> 1);
     	}
 		this.reserveBatchBytes.set(maxReserveBytes);
+		this.reserveBatchBytes.setMaxStripeBytes(maxReserveBytes/STRIPE_FRACTION);
 		if (this.maxProcessingBytesOrig == null) {
 			//store the config value so that we can be reinitialized (this is not a clean approach)
 			this.maxProcessingBytesOrig = this.maxProcessingBytes;
@@ -617,6 +755,11 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 		this.maxSoftReferences = 1 << Math.min(30, logSize);
 		this.nominalProcessingMemoryMax = (int)Math.max(Math.min(this.maxReserveBytes, 2*this.maxProcessingBytes), Math.min(Integer.MAX_VALUE, 2*this.maxReserveBytes/maxActivePlans));
+		if (ioThreads > 0 && ioPool == null) {
+			ioPool = ExecutorUtils.newFixedThreadPool(ioThreads, MAX_IO_QUEUE, "BufferManager IO"); //$NON-NLS-1$
+		}
+		//bound how far memory may run over the reserve while writes are pending
+		this.maxPendingWriteBytes = Math.max(this.maxProcessingBytes, this.maxReserveBytes >> 4);
 	}
 	
 	void setNominalProcessingMemoryMax(int nominalProcessingMemoryMax) {
@@ -650,12 +793,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         		LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Releasing orphaned buffer space", count); //$NON-NLS-1$
         	}
     	}
-    	lock.lock();
-    	try {
-        	this.reserveBatchBytes.addAndGet(count);
-	    	batchesFreed.signalAll();
-    	} finally {
-    		lock.unlock();
+    	this.reserveBatchBytes.release(count);
+    	if (reserveWaiters.get() > 0) {
+	    	lock.lock();
+	    	try {
+		    	batchesFreed.signalAll();
+	    	} finally {
+	    		lock.unlock();
+	    	}
     	}
     }
     
@@ -673,20 +818,15 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	if (mode == BufferReserveMode.FORCE) {
     		reserve(count, context);
     	} else {
-    		lock.lock();
-    		try {
-    			count = Math.min(count, nominalProcessingMemoryMax - existing);
-    			result = noWaitReserve(count, false, context);
-    		} finally {
-    			lock.unlock();
-    		}
+			count = Math.min(count, nominalProcessingMemoryMax - existing);
+			result = noWaitReserve(count, false, context);
     	}
 		persistBatchReferences(result);
     	return result;
     }
 
 	private void reserve(int count, CommandContext context) {
-		this.reserveBatchBytes.addAndGet(-count);
+		this.reserveBatchBytes.addShared(-count);
 		if (context != null) {
 			context.addAndGetReservedBuffers(count);
 		}
@@ -727,7 +867,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					if (val[1] - last < 10) {
 						//if the time difference is too close, then wait to prevent tight spins
 						//but we can't wait too long as we don't want to thread starve the system
-						batchesFreed.await(20, TimeUnit.MILLISECONDS);
+						reserveWaiters.incrementAndGet();
+						try {
+							batchesFreed.await(20, TimeUnit.MILLISECONDS);
+						} finally {
+							reserveWaiters.decrementAndGet();
+						}
 					}
 					if ((val[0] << (force?16:18)) > count) {
 						//aging out 
@@ -745,7 +890,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 							min = 4*count/5;
 						}
 						//if a sample looks good proceed
-						if (reserveBatchBytes.get() > min){
+						if (reserveBatchBytes.getTotal() > min){
 							reserve(count_orig, context);
 							result = count_orig;
 						}
@@ -778,11 +923,22 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     }
 
 	private int noWaitReserve(int count, boolean allOrNothing, CommandContext context) {
+		if (count > 0 && this.reserveBatchBytes.tryReserveLocal(count, this.overheadBytes.get())) {
+			if (context != null) {
+				context.addAndGetReservedBuffers(count);
+			}
+			return count;
+		}
 		boolean success = false;
 		for (int i = 0; !success && i < 2; i++) {
-			long reserveBatch = this.reserveBatchBytes.get();
+			long reserveBatch = this.reserveBatchBytes.getShared();
 			long overhead = this.overheadBytes.get();
 			long current = reserveBatch - overhead;
+			if (count > current && this.reserveBatchBytes.reconcile() != 0) {
+				//the stripes held enough to matter, use the reconciled value 
+				reserveBatch = this.reserveBatchBytes.getShared();
+				current = reserveBatch - overhead;
+			}
 			if (allOrNothing) {
 				if (count > current) {
 					return 0;
@@ -793,13 +949,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			if (count == 0) {
 				return 0;
 			}
-			if (this.reserveBatchBytes.compareAndSet(reserveBatch, reserveBatch - count)) {
+			if (this.reserveBatchBytes.compareAndSetShared(reserveBatch, reserveBatch - count)) {
 				success = true;
 			}
 		}
 		//the value is changing rapidly, but we've already potentially adjusted the value twice, so just proceed
 		if (!success) {
-			this.reserveBatchBytes.addAndGet(-count);
+			this.reserveBatchBytes.addShared(-count);
 		}
 		if (context != null) {
 			context.addAndGetReservedBuffers(count);
@@ -812,7 +968,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			return;
 		}
 		long activeBatch = activeBatchBytes.get() + overheadBytes.get();
-		long reserveBatch = reserveBatchBytes.get();
+		long reserveBatch = reserveBatchBytes.getTotal();
 		long memoryCount = activeBatch + maxReserveBytes - reserveBatch;
 		if (memoryCount <= maxReserveBytes) {
 			if (DataTypeManager.USE_VALUE_CACHE && DataTypeManager.isValueCacheEnabled() && memoryCount < maxReserveBytes / 8) {
@@ -828,10 +984,72 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 		}
 		//we delay work here as there should be excess vm space, we are using an overestimate, and we want the cleaner to do the work if possible
-		//TODO: track sizes held by each queue independently
 		long maxToFree = Math.min(max, memoryCount - maxReserveBytes);
-		LrfuEvictionQueue<CacheEntry> first = initialEvictionQueue;
-		LrfuEvictionQueue<CacheEntry> second = evictionQueue;
+		if (ioPool != null && scheduleEvictions(maxToFree)) {
+			return;
+		}
+		evictBatches(maxToFree);
+	}
+	
+	/**
+	 * Write behind the evictions using the io pool.  If too many bytes are already 
+	 * pending, then the caller is expected to perform the evictions. 
+	 */
+	private boolean scheduleEvictions(final long maxToFree) {
+		if (pendingWriteBytes.addAndGet(maxToFree) > maxPendingWriteBytes) {
+			pendingWriteBytes.addAndGet(-maxToFree);
+			return false;
+		}
+		try {
+			ioPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						evictBatches(maxToFree);
+					} catch (Throwable t) {
+						LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, t, "Exception during asynch eviction"); //$NON-NLS-1$
+					} finally {
+						pendingWriteBytes.addAndGet(-maxToFree);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingWriteBytes.addAndGet(-maxToFree);
+			return false;
+		}
+		return true;
+	}
+	
+	private void scheduleRead(final WeakReference<BatchManagerImpl> ref, final Long batch) {
+		if (pendingReads.putIfAbsent(batch, Boolean.TRUE) != null) {
+			return;
+		}
+		try {
+			ioPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						BatchManagerImpl manager = ref.get();
+						if (manager != null) {
+							manager.load(batch);
+						}
+					} catch (Throwable t) {
+						LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, t, "Exception during prefetch of batch", batch); //$NON-NLS-1$
+					} finally {
+						pendingReads.remove(batch);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			//prefetching is only a hint
+			pendingReads.remove(batch);
+		}
+	}
+	
+	void evictBatches(long maxToFree) {
+		//TODO: track sizes held by each queue independently
+		EvictionQueue<CacheEntry> first = initialEvictionQueue;
+		EvictionQueue<CacheEntry> second = evictionQueue;
 		if (evictionQueue.getSize() > 2*initialEvictionQueue.getSize()) {
 			//attempt to evict from the non-initial queue first as these should essentially be cost "free" and hopefully the reference cache can mitigate
 			//the cost of rereading
@@ -840,22 +1058,22 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 		maxToFree -= doEvictions(maxToFree, false, first);
 		if (maxToFree > 0) {
-			maxToFree = Math.min(maxToFree, activeBatchBytes.get() + overheadBytes.get() - reserveBatchBytes.get());
+			maxToFree = Math.min(maxToFree, activeBatchBytes.get() + overheadBytes.get() - reserveBatchBytes.getTotal());
 			if (maxToFree > 0) {
 				doEvictions(maxToFree, false, second);
 			}
 		}
 	}
 	
-	long doEvictions(long maxToFree, boolean ageOut, LrfuEvictionQueue<CacheEntry> queue) {
+	long doEvictions(long maxToFree, boolean ageOut, EvictionQueue<CacheEntry> queue) {
 		if (queue == evictionQueue) {
 			maxToFree = Math.min(maxToFree, this.maxProcessingBytes);
 		}
 		long freed = 0;
 		while (freed <= maxToFree && (
 				ageOut 
-				|| (queue == evictionQueue && activeBatchBytes.get() + overheadBytes.get() + this.maxReserveBytes/2 > reserveBatchBytes.get()) //nominal cleaning criterion 
-				|| (queue != evictionQueue && activeBatchBytes.get() + overheadBytes.get() + 3*this.maxReserveBytes/4 > reserveBatchBytes.get()))) { //assume that basically all initial batches will need to be written out at some point
+				|| (queue == evictionQueue && activeBatchBytes.get() + overheadBytes.get() + this.maxReserveBytes/2 > reserveBatchBytes.getTotal()) //nominal cleaning criterion 
+				|| (queue != evictionQueue && activeBatchBytes.get() + overheadBytes.get() + 3*this.maxReserveBytes/4 > reserveBatchBytes.getTotal()))) { //assume that basically all initial batches will need to be written out at some point
 			CacheEntry ce = queue.firstEntry(!ageOut);
 			if (ce == null) {
 				break;
@@ -917,6 +1135,12 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
 				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, s.getId(), ce.getId(), "writing batch to storage, total writes: ", count); //$NON-NLS-1$
 			}
+			if (s instanceof BatchManagerImpl) {
+				BufferStatistics stats = ((BatchManagerImpl)s).getStatistics();
+				if (stats != null) {
+					stats.batchWritten(ce.getSizeEstimate());
+				}
+			}
 		}
 		boolean result = cache.add(ce, s);
 		if (s.useSoftCache()) {
@@ -1118,6 +1342,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		this.evictionQueue.getEvictionQueue().clear();
 		this.initialEvictionQueue.getEvictionQueue().clear();
 		this.cleaner.cancel();
+		if (this.ioPool != null) {
+			this.ioPool.shutdownNow();
+		}
 	}
 
 	@Override
@@ -1255,6 +1482,99 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	public void setInlineLobs(boolean inlineLobs) {
 		this.inlineLobs = inlineLobs;
 	}
+	
+	/**
+	 * Set whether {@link TupleBuffer} batches are held in memory in a 
+	 * compact {@link ColumnarBatch} form rather than as lists of boxed values.
+	 */
+	public void setUseColumnarBatches(boolean useColumnarBatches) {
+		this.useColumnarBatches = useColumnarBatches;
+	}
+	
+	public boolean isUseColumnarBatches() {
+		return useColumnarBatches;
+	}
+	
+	/**
+	 * Set whether spilled batches are written with a type specialized 
+	 * compact format rather than the client batch serialization format.
+	 */
+	public void setUseCompactSerialization(boolean useCompactSerialization) {
+		this.useCompactSerialization = useCompactSerialization;
+	}
+	
+	public boolean isUseCompactSerialization() {
+		return useCompactSerialization;
+	}
+
+	/**
+	 * Set the number of threads used to write behind evictions and to
+	 * prefetch batches.  0, the default, performs all io on the calling thread.
+	 * Must be set prior to {@link #initialize()}.
+	 */
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+	
+	/**
+	 * Set the executor used for the asynch io rather than creating one with 
+	 * the io threads.  It will be shutdown along with the buffer manager.
+	 * Must be set prior to {@link #initialize()}.
+	 */
+	public void setIoExecutor(ExecutorService ioPool) {
+		this.ioPool = ioPool;
+	}
+	
+	public int getIoThreads() {
+		return ioThreads;
+	}
+	
+	/**
+	 * Set the max number of batches to prefetch when reading sequentially.
+	 */
+	public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+	
+	public int getReadAheadBatches() {
+		return readAheadBatches;
+	}
+	
+	/**
+	 * Set the policy used to order memory entries for eviction.
+	 * Must be set prior to use.
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		this.evictionPolicy = evictionPolicy;
+		this.evictionQueue = evictionPolicy.createEvictionQueue(readAttempts);
+		this.initialEvictionQueue = evictionPolicy.createInitialEvictionQueue(readAttempts);
+	}
+	
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+	
+	/**
+	 * @return the number of accesses to batches held in memory
+	 */
+	public long getEvictionQueueHits() {
+		return evictionQueue.getHits() + initialEvictionQueue.getHits();
+	}
+	
+	/**
+	 * @return the number of accesses that required a batch to be read back into memory
+	 */
+	public long getEvictionQueueMisses() {
+		return evictionQueue.getMisses() + initialEvictionQueue.getMisses();
+	}
+	
+	public long getPrefetchCount() {
+		return prefetchCount.get();
+	}
+	
+	public long getPendingWriteBytes() {
+		return pendingWriteBytes.get();
+	}
 
 	public int getMaxReserveKB() {
 		return (int)maxReserveBytes>>10;
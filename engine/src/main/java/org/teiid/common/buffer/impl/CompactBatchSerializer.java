@@ -0,0 +1,416 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.client.BatchSerializer;
+import org.teiid.client.ResizingArrayList;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.DataTypeManager.DefaultTypeCodes;
+
+/**
+ * A type specialized serializer for spilled batches.  Unlike the {@link BatchSerializer}, 
+ * which is also used for the client protocol, the format is not versioned 
+ * and is only expected to be read by the same process.
+ * <br>
+ * Each column is written as an optional null bitmap followed by the non-null values.
+ * Integral values are written as zig-zag varints, longs and date/time values are 
+ * delta encoded against the previous value in the column, booleans are written as a 
+ * bitmap, and strings reference a dictionary shared by all columns in the batch.
+ */
+final class CompactBatchSerializer {
+	
+	private static final int NO_NULLS = 0;
+	private static final int HAS_NULLS = 1;
+	private static final int ALL_NULL = 2;
+	
+	//dictionary reference 0 indicates a new value
+	private static final int NEW_STRING = 0;
+	
+	private CompactBatchSerializer() {
+	}
+	
+	/**
+	 * @return true if all of the types can be serialized, otherwise the {@link BatchSerializer} should be used 
+	 */
+	static boolean isSupported(Class<?>[] types) {
+		for (Class<?> type : types) {
+			switch (DataTypeManager.getTypeCode(type)) {
+			case DefaultTypeCodes.STRING:
+			case DefaultTypeCodes.CHAR:
+			case DefaultTypeCodes.BOOLEAN:
+			case DefaultTypeCodes.BYTE:
+			case DefaultTypeCodes.SHORT:
+			case DefaultTypeCodes.INTEGER:
+			case DefaultTypeCodes.LONG:
+			case DefaultTypeCodes.BIGINTEGER:
+			case DefaultTypeCodes.FLOAT:
+			case DefaultTypeCodes.DOUBLE:
+			case DefaultTypeCodes.BIGDECIMAL:
+			case DefaultTypeCodes.DATE:
+			case DefaultTypeCodes.TIME:
+			case DefaultTypeCodes.TIMESTAMP:
+			case DefaultTypeCodes.NULL:
+				break;
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	static int[] getTypeCodes(Class<?>[] types) {
+		int[] result = new int[types.length];
+		for (int i = 0; i < types.length; i++) {
+			result[i] = DataTypeManager.getTypeCode(types[i]);
+		}
+		return result;
+	}
+
+	static void writeBatch(ObjectOutput out, int[] typeCodes, List<? extends List<?>> batch) throws IOException {
+		int rows = batch.size();
+		writeVarInt(out, rows);
+		if (rows == 0) {
+			return;
+		}
+		Map<String, Integer> dictionary = null;
+		byte[] nulls = new byte[(rows + 7) >> 3];
+		for (int col = 0; col < typeCodes.length; col++) {
+			int nullCount = 0;
+			for (int row = 0; row < rows; row++) {
+				if (batch.get(row).get(col) == null) {
+					nulls[row >> 3] |= 1 << (row & 7);
+					nullCount++;
+				}
+			}
+			if (nullCount == rows) {
+				out.write(ALL_NULL);
+				Arrays.fill(nulls, (byte)0);
+				continue;
+			}
+			if (nullCount == 0) {
+				out.write(NO_NULLS);
+			} else {
+				out.write(HAS_NULLS);
+				out.write(nulls);
+				Arrays.fill(nulls, (byte)0);
+			}
+			switch (typeCodes[col]) {
+			case DefaultTypeCodes.BOOLEAN:
+				int bits = 0;
+				int count = 0;
+				for (int row = 0; row < rows; row++) {
+					Boolean b = (Boolean)batch.get(row).get(col);
+					if (b == null) {
+						continue;
+					}
+					if (b) {
+						bits |= 1 << count;
+					}
+					if (++count == 8) {
+						out.write(bits);
+						bits = 0;
+						count = 0;
+					}
+				}
+				if (count > 0) {
+					out.write(bits);
+				}
+				break;
+			case DefaultTypeCodes.STRING:
+				if (dictionary == null) {
+					dictionary = new HashMap<String, Integer>();
+				}
+				for (int row = 0; row < rows; row++) {
+					String s = (String)batch.get(row).get(col);
+					if (s == null) {
+						continue;
+					}
+					Integer index = dictionary.get(s);
+					if (index != null) {
+						writeVarInt(out, index);
+						continue;
+					}
+					writeVarInt(out, NEW_STRING);
+					writeString(out, s);
+					dictionary.put(s, dictionary.size() + 1);
+				}
+				break;
+			default:
+				long previous = 0;
+				for (int row = 0; row < rows; row++) {
+					Object value = batch.get(row).get(col);
+					if (value != null) {
+						previous = writeValue(out, typeCodes[col], value, previous);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write a single value
+	 * @return the new previous value for delta encoding
+	 */
+	private static long writeValue(ObjectOutput out, int typeCode, Object value, long previous) throws IOException {
+		switch (typeCode) {
+		case DefaultTypeCodes.CHAR:
+			writeVarInt(out, ((Character)value).charValue());
+			break;
+		case DefaultTypeCodes.BYTE:
+		case DefaultTypeCodes.SHORT:
+		case DefaultTypeCodes.INTEGER:
+			writeVarLong(out, zigZag(((Number)value).intValue()));
+			break;
+		case DefaultTypeCodes.LONG:
+			long l = (Long)value;
+			writeVarLong(out, zigZag(l - previous));
+			return l;
+		case DefaultTypeCodes.FLOAT:
+			out.writeFloat((Float)value);
+			break;
+		case DefaultTypeCodes.DOUBLE:
+			out.writeDouble((Double)value);
+			break;
+		case DefaultTypeCodes.BIGINTEGER:
+			writeBytes(out, ((BigInteger)value).toByteArray());
+			break;
+		case DefaultTypeCodes.BIGDECIMAL:
+			BigDecimal bd = (BigDecimal)value;
+			writeVarLong(out, zigZag(bd.scale()));
+			writeBytes(out, bd.unscaledValue().toByteArray());
+			break;
+		case DefaultTypeCodes.DATE:
+		case DefaultTypeCodes.TIME:
+			long time = ((java.util.Date)value).getTime();
+			writeVarLong(out, zigZag(time - previous));
+			return time;
+		case DefaultTypeCodes.TIMESTAMP:
+			Timestamp ts = (Timestamp)value;
+			long millis = ts.getTime();
+			writeVarLong(out, zigZag(millis - previous));
+			//the millis are already included in the time
+			writeVarInt(out, ts.getNanos() % 1000000);
+			return millis;
+		default:
+			//null type, nothing to write
+			break;
+		}
+		return previous;
+	}
+	
+	static List<List<Object>> readBatch(ObjectInput in, int[] typeCodes) throws IOException {
+		int rows = readVarInt(in);
+		if (rows == 0) {
+			return new ArrayList<List<Object>>(0);
+		}
+		int columns = typeCodes.length;
+		List<List<Object>> batch = new ResizingArrayList<List<Object>>(rows);
+		for (int row = 0; row < rows; row++) {
+			batch.add(row, Arrays.asList(new Object[columns]));
+		}
+		List<Object> dictionary = null;
+		byte[] nulls = new byte[(rows + 7) >> 3];
+		for (int col = 0; col < columns; col++) {
+			int nullState = in.readUnsignedByte();
+			if (nullState == ALL_NULL) {
+				continue;
+			}
+			if (nullState == HAS_NULLS) {
+				in.readFully(nulls);
+			} else if (nullState == NO_NULLS) {
+				Arrays.fill(nulls, (byte)0);
+			} else {
+				throw new StreamCorruptedException();
+			}
+			switch (typeCodes[col]) {
+			case DefaultTypeCodes.BOOLEAN:
+				int bits = 0;
+				int count = 0;
+				for (int row = 0; row < rows; row++) {
+					if (isNull(nulls, row)) {
+						continue;
+					}
+					if (count == 0) {
+						bits = in.readUnsignedByte();
+					}
+					batch.get(row).set(col, (bits & (1 << count)) != 0);
+					count = (count + 1) & 7;
+				}
+				break;
+			case DefaultTypeCodes.STRING:
+				if (dictionary == null) {
+					dictionary = new ArrayList<Object>();
+				}
+				for (int row = 0; row < rows; row++) {
+					if (isNull(nulls, row)) {
+						continue;
+					}
+					int index = readVarInt(in);
+					Object value = null;
+					if (index == NEW_STRING) {
+						value = DataTypeManager.getCanonicalValue(readString(in));
+						dictionary.add(value);
+					} else {
+						value = dictionary.get(index - 1);
+					}
+					batch.get(row).set(col, value);
+				}
+				break;
+			default:
+				long[] previous = new long[1];
+				for (int row = 0; row < rows; row++) {
+					if (!isNull(nulls, row)) {
+						batch.get(row).set(col, DataTypeManager.getCanonicalValue(readValue(in, typeCodes[col], previous)));
+					}
+				}
+			}
+		}
+		return batch;
+	}
+	
+	private static Object readValue(ObjectInput in, int typeCode, long[] previous) throws IOException {
+		switch (typeCode) {
+		case DefaultTypeCodes.CHAR:
+			return Character.valueOf((char)readVarInt(in));
+		case DefaultTypeCodes.BYTE:
+			return Byte.valueOf((byte)unZigZag(readVarLong(in)));
+		case DefaultTypeCodes.SHORT:
+			return Short.valueOf((short)unZigZag(readVarLong(in)));
+		case DefaultTypeCodes.INTEGER:
+			return Integer.valueOf((int)unZigZag(readVarLong(in)));
+		case DefaultTypeCodes.LONG:
+			previous[0] += unZigZag(readVarLong(in));
+			return Long.valueOf(previous[0]);
+		case DefaultTypeCodes.FLOAT:
+			return in.readFloat();
+		case DefaultTypeCodes.DOUBLE:
+			return in.readDouble();
+		case DefaultTypeCodes.BIGINTEGER:
+			return new BigInteger(readBytes(in));
+		case DefaultTypeCodes.BIGDECIMAL:
+			int scale = (int)unZigZag(readVarLong(in));
+			return new BigDecimal(new BigInteger(readBytes(in)), scale);
+		case DefaultTypeCodes.DATE:
+			previous[0] += unZigZag(readVarLong(in));
+			return new Date(previous[0]);
+		case DefaultTypeCodes.TIME:
+			previous[0] += unZigZag(readVarLong(in));
+			return new Time(previous[0]);
+		case DefaultTypeCodes.TIMESTAMP:
+			previous[0] += unZigZag(readVarLong(in));
+			Timestamp ts = new Timestamp(previous[0]);
+			ts.setNanos(ts.getNanos() + readVarInt(in));
+			return ts;
+		default:
+			return null;
+		}
+	}
+	
+	private static boolean isNull(byte[] nulls, int row) {
+		return (nulls[row >> 3] & (1 << (row & 7))) != 0;
+	}
+	
+	/**
+	 * Strings are written as the varint length followed by the chars as varints, 
+	 * so that ascii values take a single byte and there is no length limit.
+	 */
+	private static void writeString(ObjectOutput out, String s) throws IOException {
+		int length = s.length();
+		writeVarInt(out, length);
+		for (int i = 0; i < length; i++) {
+			writeVarInt(out, s.charAt(i));
+		}
+	}
+	
+	private static String readString(ObjectInput in) throws IOException {
+		int length = readVarInt(in);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char)readVarInt(in);
+		}
+		return new String(chars);
+	}
+	
+	private static void writeBytes(ObjectOutput out, byte[] bytes) throws IOException {
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+	
+	private static byte[] readBytes(ObjectInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return bytes;
+	}
+	
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+	
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	static void writeVarInt(ObjectOutput out, int value) throws IOException {
+		writeVarLong(out, value & 0xffffffffL);
+	}
+	
+	static void writeVarLong(ObjectOutput out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int)(value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+	
+	static int readVarInt(ObjectInput in) throws IOException {
+		return (int)readVarLong(in);
+	}
+	
+	static long readVarLong(ObjectInput in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			result |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new StreamCorruptedException();
+	}
+
+}
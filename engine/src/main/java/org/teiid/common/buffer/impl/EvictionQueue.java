@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.Collection;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+
+/**
+ * An ordering of cache entries for eviction.  Implementations must be safe for concurrent use
+ * and have assumptions that match buffermanager usage.  Null values are not allowed.
+ * <br>
+ * Accesses to entries held by the queue are counted as hits, accesses to entries not held
+ * by the queue are counted as misses.
+ * @param <V>
+ */
+public interface EvictionQueue<V extends BaseCacheEntry> {
+
+	boolean remove(V value);
+	
+	boolean add(V value);
+	
+	/**
+	 * Record an access and reposition the value in the queue.
+	 * Callers should be synchronized on value
+	 */
+	void touch(V value);
+	
+	/**
+	 * Record an access to a value that is not in the queue.
+	 * Callers should be synchronized on value
+	 */
+	void recordAccess(V value);
+	
+	/**
+	 * @return the values in eviction order
+	 */
+	Collection<V> getEvictionQueue();
+	
+	/**
+	 * @param poll if true remove the entry 
+	 * @return the next entry to evict
+	 */
+	V firstEntry(boolean poll);
+	
+	/**
+	 * @return the ordering value that an entry would have if accessed at the current time
+	 */
+	long computeNextOrderingValue(long currentTime, long lastAccess, long orderingValue);
+	
+	int getSize();
+	
+	long getHits();
+	
+	long getMisses();
+	
+}
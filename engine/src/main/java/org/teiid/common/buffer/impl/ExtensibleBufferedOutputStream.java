@@ -69,6 +69,21 @@ public abstract class ExtensibleBufferedOutputStream extends OutputStream {
     	}
     }
 
+    /**
+     * Write the remaining bytes from the given buffer.  The buffer
+     * need not be array backed.
+     */
+    public void write(ByteBuffer bb) throws IOException {
+    	while (bb.hasRemaining()) {
+        	ensureBuffer();
+    		int toCopy = Math.min(buf.remaining(), bb.remaining());
+    		ByteBuffer slice = bb.duplicate();
+    		slice.limit(slice.position() + toCopy);
+    		buf.put(slice);
+    		bb.position(bb.position() + toCopy);
+    	}
+    }
+
 	public void flush() throws IOException {
 		if (buf != null) {
 			int bytes = buf.position() - startPosition;
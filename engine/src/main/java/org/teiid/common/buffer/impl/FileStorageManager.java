@@ -287,6 +287,28 @@ public class FileStorageManager implements StorageManager {
 		return usedBufferSpace.get();
 	}
     
+    /**
+     * Account for the given number of bytes against the max buffer space.
+     * Nothing is accounted if the max would be exceeded.
+     * @param bytes
+     * @throws OutOfDiskException
+     */
+    void reserveBufferSpace(long bytes) throws OutOfDiskException {
+		long used = usedBufferSpace.addAndGet(bytes);
+		if (used > maxBufferSpace) {
+			usedBufferSpace.addAndGet(-bytes);
+			throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytes, used, maxBufferSpace)); //$NON-NLS-1$
+		}
+	}
+    
+    /**
+     * Return previously reserved bytes to the max buffer space.
+     * @param bytes
+     */
+    void releaseBufferSpace(long bytes) {
+		usedBufferSpace.addAndGet(-bytes);
+	}
+    
     /**
      * Set the max amount of buffer space in bytes
      * @param maxBufferSpace
@@ -0,0 +1,387 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A simple LZ77 byte oriented codec in the style of LZ4.  It favors speed over
+ * compression ratio and is intended for serialized batches, which typically
+ * contain many repeated type headers and values.
+ *
+ * A compressed block is a sequence of tokens.  The high nibble of the token is the
+ * literal length and the low nibble is the match length - 4.  A nibble value of 15 indicates
+ * that the length continues in subsequent bytes, each 255 valued byte meaning
+ * that another byte follows.  Literals follow the literal length, then a 2 byte
+ * little endian match offset, then the match length continuation bytes.  The last
+ * token contains only literals.
+ *
+ * The streams break the data into chunks of at most {@link #MAX_CHUNK_SIZE} bytes, each
+ * with a header of the raw length and the stored length.  A negative stored length
+ * indicates that the chunk was not compressible and is stored as is.
+ */
+final class LZCompressor {
+
+	static final int MAX_CHUNK_SIZE = 1 << 16;
+	private static final int MIN_MATCH = 4;
+	private static final int HASH_LOG = 12;
+	private static final int LAST_LITERALS = 5;
+	private static final int MIN_LENGTH = 12;
+
+	private final int[] table = new int[1 << HASH_LOG];
+
+	/**
+	 * Compresses the source bytes into the destination array, which must have
+	 * a length of at least {@link #maxCompressedLength(int)}.
+	 * @return the compressed length or -1 if the compressed form is not smaller
+	 */
+	int compress(byte[] src, int len, byte[] dst) {
+		if (len < MIN_LENGTH) {
+			return -1;
+		}
+		for (int i = 0; i < table.length; i++) {
+			table[i] = -1;
+		}
+		int ip = 0;
+		int anchor = 0;
+		int op = 0;
+		int limit = len - MIN_LENGTH;
+		while (ip < limit) {
+			int seq = readInt(src, ip);
+			int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+			int ref = table[h];
+			table[h] = ip;
+			if (ref < 0 || ip - ref >= MAX_CHUNK_SIZE || readInt(src, ref) != seq) {
+				ip++;
+				continue;
+			}
+			int matchLen = MIN_MATCH;
+			while (ip + matchLen < len - LAST_LITERALS && src[ref + matchLen] == src[ip + matchLen]) {
+				matchLen++;
+			}
+			op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLen);
+			if (op >= len) {
+				return -1;
+			}
+			ip += matchLen;
+			anchor = ip;
+		}
+		op = writeSequence(src, anchor, len - anchor, dst, op, 0, 0);
+		if (op >= len) {
+			return -1;
+		}
+		return op;
+	}
+
+	static int maxCompressedLength(int len) {
+		return len + len/255 + 16;
+	}
+
+	private static int writeSequence(byte[] src, int literalStart, int literalLength, byte[] dst, int op, int offset, int matchLen) {
+		int tokenPos = op++;
+		int token = 0;
+		if (literalLength >= 15) {
+			token = 15 << 4;
+			op = writeLength(dst, op, literalLength - 15);
+		} else {
+			token = literalLength << 4;
+		}
+		System.arraycopy(src, literalStart, dst, op, literalLength);
+		op += literalLength;
+		if (matchLen > 0) {
+			dst[op++] = (byte)offset;
+			dst[op++] = (byte)(offset >>> 8);
+			int ml = matchLen - MIN_MATCH;
+			if (ml >= 15) {
+				token |= 15;
+				op = writeLength(dst, op, ml - 15);
+			} else {
+				token |= ml;
+			}
+		}
+		dst[tokenPos] = (byte)token;
+		return op;
+	}
+
+	private static int writeLength(byte[] dst, int op, int length) {
+		while (length >= 255) {
+			dst[op++] = (byte)255;
+			length -= 255;
+		}
+		dst[op++] = (byte)length;
+		return op;
+	}
+
+	/**
+	 * Decompress the source bytes into the destination array, which must
+	 * be sized to hold the raw length.
+	 * @return the decompressed length
+	 */
+	static int decompress(byte[] src, int len, byte[] dst) throws IOException {
+		int ip = 0;
+		int op = 0;
+		try {
+			while (ip < len) {
+				int token = src[ip++] & 0xff;
+				int literalLength = token >>> 4;
+				if (literalLength == 15) {
+					int b = 0;
+					do {
+						b = src[ip++] & 0xff;
+						literalLength += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literalLength);
+				ip += literalLength;
+				op += literalLength;
+				if (ip >= len) {
+					break;
+				}
+				int offset = (src[ip++] & 0xff) | ((src[ip++] & 0xff) << 8);
+				int matchLen = token & 15;
+				if (matchLen == 15) {
+					int b = 0;
+					do {
+						b = src[ip++] & 0xff;
+						matchLen += b;
+					} while (b == 255);
+				}
+				matchLen += MIN_MATCH;
+				int ref = op - offset;
+				if (ref < 0 || offset == 0) {
+					throw new IOException("Invalid compressed data"); //$NON-NLS-1$
+				}
+				//the match may overlap the output, so copy a byte at a time
+				for (int i = 0; i < matchLen; i++) {
+					dst[op++] = dst[ref++];
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Invalid compressed data", e); //$NON-NLS-1$
+		}
+		return op;
+	}
+
+	private static int readInt(byte[] b, int pos) {
+		return (b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8) | ((b[pos + 2] & 0xff) << 16) | ((b[pos + 3] & 0xff) << 24);
+	}
+
+	/**
+	 * Writes compressed chunks to the underlying stream.  {@link #close()} flushes
+	 * the last chunk, but does not close the underlying stream.
+	 */
+	static final class CompressingOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final LZCompressor compressor = new LZCompressor();
+		private byte[] buffer = new byte[1 << 12];
+		private byte[] compressed;
+		private int count;
+		private long rawBytes;
+		private long storedBytes;
+		private boolean closed;
+
+		CompressingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buffer.length && !grow()) {
+				flushChunk();
+			}
+			buffer[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == buffer.length && !grow()) {
+					flushChunk();
+				}
+				int toCopy = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, toCopy);
+				count += toCopy;
+				off += toCopy;
+				len -= toCopy;
+			}
+		}
+
+		private boolean grow() {
+			if (buffer.length == MAX_CHUNK_SIZE) {
+				return false;
+			}
+			byte[] newBuffer = new byte[buffer.length << 1];
+			System.arraycopy(buffer, 0, newBuffer, 0, count);
+			buffer = newBuffer;
+			return true;
+		}
+
+		private void flushChunk() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			int maxLength = maxCompressedLength(count);
+			if (compressed == null || compressed.length < maxLength) {
+				compressed = new byte[maxLength];
+			}
+			int length = compressor.compress(buffer, count, compressed);
+			writeInt(count);
+			if (length < 0) {
+				writeInt(-count);
+				out.write(buffer, 0, count);
+				storedBytes += count + 8;
+			} else {
+				writeInt(length);
+				out.write(compressed, 0, length);
+				storedBytes += length + 8;
+			}
+			rawBytes += count;
+			count = 0;
+		}
+
+		private void writeInt(int v) throws IOException {
+			out.write(v >>> 24);
+			out.write(v >>> 16);
+			out.write(v >>> 8);
+			out.write(v);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				flushChunk();
+				out.close();
+			}
+		}
+
+		long getRawBytes() {
+			return rawBytes;
+		}
+
+		long getStoredBytes() {
+			return storedBytes;
+		}
+	}
+
+	/**
+	 * Reads the chunks written by a {@link CompressingOutputStream}.  Chunks are only
+	 * read as needed so that the underlying stream is not read past the end of the
+	 * compressed data.
+	 */
+	static final class DecompressingInputStream extends InputStream {
+		private final InputStream in;
+		private byte[] buffer;
+		private byte[] compressed;
+		private int pos;
+		private int count;
+
+		DecompressingInputStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (pos == count && !readChunk()) {
+				return -1;
+			}
+			return buffer[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (pos == count && !readChunk()) {
+				return -1;
+			}
+			int toCopy = Math.min(len, count - pos);
+			System.arraycopy(buffer, pos, b, off, toCopy);
+			pos += toCopy;
+			return toCopy;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return count - pos;
+		}
+
+		private boolean readChunk() throws IOException {
+			int rawLength = readInt();
+			if (rawLength == -1) {
+				return false;
+			}
+			int storedLength = readInt();
+			if (rawLength <= 0 || rawLength > MAX_CHUNK_SIZE) {
+				throw new IOException("Invalid compressed chunk length " + rawLength); //$NON-NLS-1$
+			}
+			if (buffer == null || buffer.length < rawLength) {
+				buffer = new byte[rawLength];
+			}
+			if (storedLength < 0) {
+				readFully(buffer, -storedLength);
+			} else {
+				if (compressed == null || compressed.length < storedLength) {
+					compressed = new byte[storedLength];
+				}
+				readFully(compressed, storedLength);
+				if (decompress(compressed, storedLength, buffer) != rawLength) {
+					throw new IOException("Invalid compressed data"); //$NON-NLS-1$
+				}
+			}
+			pos = 0;
+			count = rawLength;
+			return true;
+		}
+
+		private void readFully(byte[] b, int len) throws IOException {
+			int read = 0;
+			while (read < len) {
+				int n = in.read(b, read, len - read);
+				if (n < 0) {
+					throw new EOFException();
+				}
+				read += n;
+			}
+		}
+
+		private int readInt() throws IOException {
+			int ch1 = in.read();
+			if (ch1 < 0) {
+				return -1;
+			}
+			int ch2 = in.read();
+			int ch3 = in.read();
+			int ch4 = in.read();
+			if ((ch2 | ch3 | ch4) < 0) {
+				throw new EOFException();
+			}
+			return (ch1 << 24) + (ch2 << 16) + (ch3 << 8) + ch4;
+		}
+	}
+
+}
@@ -37,7 +37,7 @@ import org.teiid.common.buffer.CacheKey;
  * Null values are not allowed.
  * @param <V>
  */
-public class LrfuEvictionQueue<V extends BaseCacheEntry> {
+public class LrfuEvictionQueue<V extends BaseCacheEntry> implements EvictionQueue<V> {
 	
 	private static final long DEFAULT_HALF_LIFE = 1<<16;
 	private static final long MIN_INTERVAL = 1<<9;
@@ -50,12 +50,15 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	protected long maxInterval;
 	protected long halfLife;
 	private AtomicInteger size = new AtomicInteger();
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
 	
 	public LrfuEvictionQueue(AtomicLong clock) {
 		this.clock = clock;
 		setHalfLife(DEFAULT_HALF_LIFE);
 	}
 
+	@Override
 	public boolean remove(V value) {
 		if (evictionQueue.remove(value.getKey()) != null) {
 			size.addAndGet(-1);
@@ -64,6 +67,7 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		return false;
 	}
 	
+	@Override
 	public boolean add(V value) {
 		if (evictionQueue.put(value.getKey(), value) == null) {
 			size.addAndGet(1);
@@ -72,20 +76,28 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		return false;
 	}
 	
+	@Override
 	public void touch(V value) {
 		long tick = clock.get();
 		if (tick - MIN_INTERVAL < value.getKey().getLastAccess()) {
+			hits.getAndIncrement();
 			return;
 		}
-		evictionQueue.remove(value.getKey());
-		recordAccess(value);
+		if (evictionQueue.remove(value.getKey()) != null) {
+			hits.getAndIncrement();
+		} else {
+			misses.getAndIncrement();
+		}
+		updateKey(value);
 		evictionQueue.put(value.getKey(), value);
 	}
 		
+	@Override
 	public Collection<V> getEvictionQueue() {
 		return evictionQueue.values();
 	}
 	
+	@Override
 	public V firstEntry(boolean poll) {
 		Map.Entry<CacheKey, V> entry = null;
 		if (poll) {
@@ -102,10 +114,13 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		return null;
 	}
 	
-	/**
-     * Callers should be synchronized on value
-     */
-	void recordAccess(V value) {
+	@Override
+	public void recordAccess(V value) {
+		misses.getAndIncrement();
+		updateKey(value);
+	}
+	
+	private void updateKey(V value) {
 		CacheKey key = value.getKey();
 		long lastAccess = key.getLastAccess();
 		long currentClock = clock.get();
@@ -116,7 +131,8 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		value.setKey(new CacheKey(key.getId(), currentClock, orderingValue));
 	}
 	
-	long computeNextOrderingValue(long currentTime,
+	@Override
+	public long computeNextOrderingValue(long currentTime,
 			long lastAccess, long orderingValue) {
 		long delta = currentTime - lastAccess;
 		if (delta > maxInterval) {
@@ -138,10 +154,21 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		this.maxInterval = 62*this.halfLife;
 	}
 	
+	@Override
 	public int getSize() {
 		return size.get();
 	}
 	
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+	
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder result = new StringBuilder();
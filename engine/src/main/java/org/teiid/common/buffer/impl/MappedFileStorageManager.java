@@ -0,0 +1,238 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.teiid.common.buffer.ExtensibleBufferedInputStream;
+import org.teiid.common.buffer.FileStore;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+
+/**
+ * A {@link FileStorageManager} that memory maps the storage files in fixed size segments.
+ * <br>
+ * Reads and writes are simple buffer copies rather than positional file
+ * operations and the input streams reference the mapping directly.  The files
+ * grow in increasing increments, up to the segment size, and are remapped as needed.
+ * Files are only held open while being resized, so the max open files setting does not apply.
+ * <br>
+ * Since an access to a mapping beyond the end of the file is fatal, the caller must ensure
+ * that a store is not truncated while input streams over the truncated area are in use.
+ */
+public class MappedFileStorageManager extends FileStorageManager {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+	private static final int MIN_CAPACITY = 1 << 16;
+
+	private int segmentLog = 26;
+
+	public class MappedStore extends FileStore {
+		private String name;
+		private File file;
+		private long length;
+		private long capacity;
+		private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+		public MappedStore(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized long getLength() {
+			return length;
+		}
+
+		@Override
+		public boolean isMemoryMapped() {
+			return true;
+		}
+
+		@Override
+		protected synchronized int readWrite(long fileOffset, byte[] b, int offSet,
+				int len, boolean write) throws IOException {
+			if (!write) {
+				if (fileOffset >= length) {
+					return -1;
+				}
+				len = (int)Math.min(len, length - fileOffset);
+			} else if (fileOffset + len > length) {
+				resize(fileOffset + len, false);
+			}
+			ByteBuffer bb = getMappedBuffer(fileOffset, len);
+			len = bb.remaining();
+			if (write) {
+				bb.put(b, offSet, len);
+			} else {
+				bb.get(b, offSet, len);
+			}
+			return len;
+		}
+
+		/**
+		 * Get a buffer over the mapping starting at the given offset.  The buffer
+		 * will not extend past the segment boundary.
+		 */
+		private ByteBuffer getMappedBuffer(long fileOffset, long len) {
+			MappedByteBuffer segment = segments[(int)(fileOffset >> segmentLog)];
+			ByteBuffer bb = segment.duplicate();
+			int position = (int)(fileOffset & ((1 << segmentLog) - 1));
+			bb.position(position);
+			bb.limit((int)Math.min(bb.capacity(), position + len));
+			return bb.slice();
+		}
+
+		@Override
+		public synchronized void setLength(long newLength) throws IOException {
+			resize(newLength, true);
+		}
+
+		private void resize(long newLength, boolean truncate) throws IOException {
+			if (newLength == length) {
+				return;
+			}
+			if (newLength < length && !truncate) {
+				return;
+			}
+			long newCapacity = capacity;
+			if (newLength > capacity) {
+				//grow by doubling up to the segment size
+				newCapacity = Math.max(Math.max(newLength, MIN_CAPACITY), Math.min(capacity << 1, capacity + (1 << segmentLog)));
+			} else if (truncate) {
+				newCapacity = newLength;
+			}
+			if (newCapacity != capacity) {
+				remap(newCapacity);
+			}
+			this.length = newLength;
+		}
+
+		private void remap(long newCapacity) throws IOException {
+			long bytesUsed = newCapacity - capacity;
+			if (bytesUsed > 0) {
+				reserveBufferSpace(bytesUsed);
+			}
+			boolean success = false;
+			try {
+				if (file == null) {
+					file = createFile(name);
+				}
+				RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+				try {
+					raf.setLength(newCapacity);
+					FileChannel channel = raf.getChannel();
+					int segmentSize = 1 << segmentLog;
+					int segmentCount = (int)((newCapacity + segmentSize - 1) >> segmentLog);
+					MappedByteBuffer[] newSegments = Arrays.copyOf(segments, segmentCount);
+					for (int i = 0; i < segmentCount; i++) {
+						long start = (long)i << segmentLog;
+						long size = Math.min(segmentSize, newCapacity - start);
+						if (newSegments[i] == null || newSegments[i].capacity() != size) {
+							//the old mapping is not explicitly released, it will be unmapped when collected
+							newSegments[i] = channel.map(MapMode.READ_WRITE, start, size);
+						}
+					}
+					segments = newSegments;
+				} finally {
+					raf.close();
+				}
+				if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
+					LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Remapped", file.getName(), "to", newCapacity, "bytes"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+				success = true;
+			} finally {
+				if (success) {
+					if (bytesUsed < 0) {
+						releaseBufferSpace(-bytesUsed);
+					}
+					capacity = newCapacity;
+				} else if (bytesUsed > 0) {
+					releaseBufferSpace(bytesUsed);
+				}
+			}
+		}
+
+		@Override
+		public ExtensibleBufferedInputStream createInputStream(final long start, final long streamLength) {
+			return new ExtensibleBufferedInputStream() {
+				private long offset = start;
+				private long remaining = streamLength;
+
+				@Override
+				protected ByteBuffer nextBuffer() throws IOException {
+					synchronized (MappedStore.this) {
+						long available = length - offset;
+						if (remaining != -1) {
+							available = Math.min(available, remaining);
+						}
+						if (available <= 0) {
+							return null;
+						}
+						ByteBuffer bb = getMappedBuffer(offset, available);
+						offset += bb.remaining();
+						if (remaining != -1) {
+							remaining -= bb.remaining();
+						}
+						return bb;
+					}
+				}
+			};
+		}
+
+		@Override
+		protected synchronized void removeDirect() {
+			releaseBufferSpace(capacity);
+			capacity = 0;
+			length = 0;
+			segments = new MappedByteBuffer[0];
+			if (file != null) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Set the size of the mapped segments.  Will be rounded down to a power of 2.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		this.segmentLog = 31 - Integer.numberOfLeadingZeros(Math.max(MIN_CAPACITY, segmentSize));
+	}
+
+	public int getSegmentSize() {
+		return 1 << segmentLog;
+	}
+
+	@Override
+	public FileStore createFileStore(String name) {
+		return new MappedStore(name);
+	}
+
+}
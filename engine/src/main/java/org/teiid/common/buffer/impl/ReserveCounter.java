@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A striped counter of available reserve bytes.
+ * <br>
+ * Releases are credited to a stripe chosen by the current thread, up to a max per stripe, 
+ * and reservations that fit are taken from the same stripe.  This avoids contention
+ * on the shared count when many threads are reserving and releasing concurrently.  
+ * The stripe credit is lazily returned to the shared count when the shared count
+ * alone is not sufficient.
+ */
+public class ReserveCounter {
+	
+	//space the stripes to avoid false sharing
+	private static final int PADDING = 8;
+	
+	private final AtomicLong shared = new AtomicLong();
+	private final AtomicLongArray stripes;
+	private final int mask;
+	private volatile long maxStripeBytes;
+	
+	/**
+	 * @param concurrencyLevel - should be a power of 2
+	 */
+	public ReserveCounter(int concurrencyLevel) {
+		this.stripes = new AtomicLongArray(concurrencyLevel * PADDING);
+		this.mask = concurrencyLevel - 1;
+	}
+	
+	private int getStripe() {
+		long id = Thread.currentThread().getId();
+		return ((int)(id ^ (id >>> 32)) & mask) * PADDING;
+	}
+	
+	/**
+	 * Set the max number of bytes that may be held by a single stripe
+	 */
+	public void setMaxStripeBytes(long maxStripeBytes) {
+		this.maxStripeBytes = maxStripeBytes;
+	}
+	
+	/**
+	 * @return the total of the shared count and all stripes
+	 */
+	public long getTotal() {
+		long result = shared.get();
+		for (int i = 0; i < stripes.length(); i+=PADDING) {
+			result += stripes.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Reset the total.  Not safe for use with concurrent updates. 
+	 */
+	public void set(long value) {
+		for (int i = 0; i < stripes.length(); i+=PADDING) {
+			stripes.set(i, 0);
+		}
+		shared.set(value);
+	}
+	
+	public long getShared() {
+		return shared.get();
+	}
+	
+	public boolean compareAndSetShared(long expect, long update) {
+		return shared.compareAndSet(expect, update);
+	}
+	
+	public long addShared(long delta) {
+		return shared.addAndGet(delta);
+	}
+	
+	/**
+	 * Release the bytes to the current stripe if possible, otherwise to the shared count
+	 */
+	public void release(long count) {
+		int stripe = getStripe();
+		long local = stripes.get(stripe);
+		if (local + count <= maxStripeBytes && stripes.compareAndSet(stripe, local, local + count)) {
+			return;
+		}
+		shared.addAndGet(count);
+	}
+	
+	/**
+	 * Attempt to take the bytes from the current stripe.
+	 * @param overhead the amount of the total that should not be reserved 
+	 * @return true if the bytes were taken
+	 */
+	public boolean tryReserveLocal(long count, long overhead) {
+		int stripe = getStripe();
+		long local = stripes.get(stripe);
+		return local >= count && shared.get() + local - overhead >= count && stripes.compareAndSet(stripe, local, local - count);
+	}
+	
+	/**
+	 * Return all stripe credit to the shared count
+	 * @return the amount returned
+	 */
+	public long reconcile() {
+		long total = 0;
+		for (int i = 0; i < stripes.length(); i+=PADDING) {
+			if (stripes.get(i) != 0) {
+				total += stripes.getAndSet(i, 0);
+			}
+		}
+		if (total != 0) {
+			shared.addAndGet(total);
+		}
+		return total;
+	}
+	
+	@Override
+	public String toString() {
+		return String.valueOf(getTotal());
+	}
+
+}
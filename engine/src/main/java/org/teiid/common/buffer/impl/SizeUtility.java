@@ -38,6 +38,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.teiid.common.buffer.ColumnarBatch;
 import org.teiid.core.types.BaseLob;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
@@ -122,6 +123,9 @@ public final class SizeUtility {
 	}
 	
     public long getBatchSize(boolean accountForValueCache, List<? extends List<?>> data) {
+    	if (data instanceof ColumnarBatch) {
+    		return getColumnarBatchSize(accountForValueCache, (ColumnarBatch)data);
+    	}
         int colLength = types.length;
         int rowLength = data.size();
     
@@ -146,6 +150,64 @@ public final class SizeUtility {
         return size;
     }
     
+    /**
+     * Get the size of a {@link ColumnarBatch} based upon the primitive arrays, 
+     * null bitmaps, and string dictionaries that back it.
+     */
+    long getColumnarBatchSize(boolean accountForValueCache, ColumnarBatch batch) {
+    	int rowLength = batch.size();
+    	long bitmapSize = 16 + alignMemory((((rowLength - 1) >> 6) + 1) * 8);
+    	// batch object and column array overhead
+    	long size = 32 + alignMemory(batch.getColumnCount() * REFERENCE_SIZE);
+    	for (int col = 0; col < batch.getColumnCount(); col++) {
+    		// column object overhead
+    		size += 32;
+    		if (batch.hasNulls(col)) {
+    			size += bitmapSize;
+    		}
+    		switch (batch.getColumnType(col)) {
+    		case INT:
+    			size += 16 + alignMemory(rowLength * 4);
+    			break;
+    		case LONG:
+    		case DOUBLE:
+    			size += 16 + alignMemory(rowLength * 8);
+    			break;
+    		case BOOLEAN:
+    			size += bitmapSize;
+    			break;
+    		case STRING:
+    			size += 16 + alignMemory(rowLength * 4);
+    			String[] dictionary = batch.getDictionary(col);
+    			size += 16 + alignMemory(dictionary.length * REFERENCE_SIZE);
+    			for (String s : dictionary) {
+    				size += getSize(s, DataTypeManager.DefaultDataClasses.STRING, false, accountForValueCache);
+    			}
+    			break;
+    		default:
+    			Class<?> type = batch.getTypes()[col];
+    			Object[] values = batch.getObjectColumn(col);
+    			size += 16 + alignMemory(rowLength * REFERENCE_SIZE);
+    			if (rowLength == 0) {
+    				break;
+    			}
+    			if (VARIABLE_SIZE_TYPES.contains(type)) {
+    				int rowsSampled = 0;
+    				long estimatedSize = 0;
+    				for (int row = 0; row < rowLength; row=(row*2)+1) {
+    					rowsSampled++;
+    					estimatedSize += getSize(values[row], type, true, accountForValueCache);
+    				}
+    				size += estimatedSize/(float)rowsSampled * rowLength;
+    			} else {
+    				size += getSize(accountForValueCache, type) * rowLength;
+    			}
+    			break;
+    		}
+    	}
+    	return size;
+    }
+    
     static int getSize(boolean isValueCacheEnabled,
 			Class<?> type) {
     	int[] vals = SIZE_ESTIMATES.get(type);
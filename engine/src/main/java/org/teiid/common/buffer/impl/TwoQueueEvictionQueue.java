@@ -0,0 +1,283 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
+
+/**
+ * A scan resistant eviction queue based upon 2Q.
+ * <br>
+ * Entries start in a probationary queue and are promoted to the protected queue
+ * on a subsequent access outside of the correlated reference period.  The 
+ * probationary queue is evicted from first once it holds more than its share of the entries,
+ * so that a single large scan cannot flush the protected entries.  The ids of entries polled
+ * from the queue are remembered so that an entry readmitted soon after eviction is
+ * placed directly in the protected queue.  Both queues are in least recently used order.
+ * <br>
+ * A queue that only holds entries prior to their first read back, such as the initial eviction queue
+ * of the buffer manager, should not remember polled ids.  Otherwise a single scan that spills and 
+ * re-reads its entries would have all of them promoted.
+ * @param <V>
+ */
+public class TwoQueueEvictionQueue<V extends BaseCacheEntry> implements EvictionQueue<V> {
+	
+	private static final long MIN_INTERVAL = 1<<9;
+	private static final int MIN_GHOSTS = 1<<10;
+	
+	private NavigableMap<CacheKey, V> probationQueue = new ConcurrentSkipListMap<CacheKey, V>();
+	private NavigableMap<CacheKey, V> protectedQueue = new ConcurrentSkipListMap<CacheKey, V>();
+	private AtomicInteger probationSize = new AtomicInteger();
+	private AtomicInteger protectedSize = new AtomicInteger();
+	private Map<Long, Boolean> ghosts = Collections.synchronizedMap(new LinkedHashMap<Long, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+			return size() > Math.max(MIN_GHOSTS, getSize());
+		}
+	});
+	private AtomicLong clock;
+	private boolean recordGhosts = true;
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private int probationPercent = 25;
+	
+	private Collection<V> values = new AbstractCollection<V>() {
+		
+		@Override
+		public Iterator<V> iterator() {
+			final Iterator<V> first;
+			final Iterator<V> second;
+			if (evictProbationFirst()) {
+				first = probationQueue.values().iterator();
+				second = protectedQueue.values().iterator();
+			} else {
+				first = protectedQueue.values().iterator();
+				second = probationQueue.values().iterator();
+			}
+			return new Iterator<V>() {
+				@Override
+				public boolean hasNext() {
+					return first.hasNext() || second.hasNext();
+				}
+				
+				@Override
+				public V next() {
+					if (first.hasNext()) {
+						return first.next();
+					}
+					if (second.hasNext()) {
+						return second.next();
+					}
+					throw new NoSuchElementException();
+				}
+				
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return getSize();
+		}
+		
+		@Override
+		public void clear() {
+			probationQueue.clear();
+			protectedQueue.clear();
+			probationSize.set(0);
+			protectedSize.set(0);
+			ghosts.clear();
+		}
+	};
+	
+	public TwoQueueEvictionQueue(AtomicLong clock) {
+		this.clock = clock;
+	}
+	
+	/**
+	 * @param clock
+	 * @param recordGhosts if false the ids of polled entries are not remembered
+	 */
+	public TwoQueueEvictionQueue(AtomicLong clock, boolean recordGhosts) {
+		this.clock = clock;
+		this.recordGhosts = recordGhosts;
+	}
+	
+	/**
+	 * Set the percentage of entries the probationary queue may hold before
+	 * it is evicted from first.
+	 */
+	public void setProbationPercent(int probationPercent) {
+		this.probationPercent = probationPercent;
+	}
+
+	@Override
+	public boolean remove(V value) {
+		CacheKey key = value.getKey();
+		if (probationQueue.remove(key) != null) {
+			probationSize.addAndGet(-1);
+			return true;
+		}
+		if (protectedQueue.remove(key) != null) {
+			protectedSize.addAndGet(-1);
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean add(V value) {
+		if (ghosts.remove(value.getId()) != null) {
+			return put(protectedQueue, protectedSize, value);
+		}
+		return put(probationQueue, probationSize, value);
+	}
+	
+	private boolean put(NavigableMap<CacheKey, V> queue, AtomicInteger size, V value) {
+		if (queue.put(value.getKey(), value) == null) {
+			size.addAndGet(1);
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public void touch(V value) {
+		long tick = clock.get();
+		if (tick - MIN_INTERVAL < value.getKey().getLastAccess()) {
+			hits.getAndIncrement();
+			return;
+		}
+		if (remove(value)) {
+			hits.getAndIncrement();
+			updateKey(value, tick);
+			put(protectedQueue, protectedSize, value);
+		} else {
+			misses.getAndIncrement();
+			updateKey(value, tick);
+			add(value);
+		}
+	}
+	
+	@Override
+	public void recordAccess(V value) {
+		misses.getAndIncrement();
+		updateKey(value, clock.get());
+	}
+	
+	private void updateKey(V value, long tick) {
+		value.setKey(new CacheKey(value.getId(), tick, tick));
+	}
+	
+	@Override
+	public long computeNextOrderingValue(long currentTime, long lastAccess,
+			long orderingValue) {
+		return currentTime;
+	}
+	
+	boolean evictProbationFirst() {
+		int probation = probationSize.get();
+		return probation > 0 && (protectedSize.get() == 0 || probation * 100l > (long)probationPercent * getSize());
+	}
+	
+	@Override
+	public V firstEntry(boolean poll) {
+		NavigableMap<CacheKey, V> first = protectedQueue;
+		NavigableMap<CacheKey, V> second = probationQueue;
+		if (evictProbationFirst()) {
+			first = probationQueue;
+			second = protectedQueue;
+		}
+		V result = firstEntry(first, poll);
+		if (result == null) {
+			result = firstEntry(second, poll);
+		}
+		return result;
+	}
+
+	private V firstEntry(NavigableMap<CacheKey, V> queue, boolean poll) {
+		Map.Entry<CacheKey, V> entry = null;
+		if (poll) {
+			entry = queue.pollFirstEntry();
+			if (entry != null) {
+				if (queue == probationQueue) {
+					probationSize.addAndGet(-1);
+				} else {
+					protectedSize.addAndGet(-1);
+				}
+				if (recordGhosts) {
+					ghosts.put(entry.getKey().getId(), Boolean.TRUE);
+				}
+			}
+		} else {
+			entry = queue.firstEntry();
+		}
+		if (entry != null) {
+			return entry.getValue();
+		}
+		return null;
+	}
+	
+	@Override
+	public Collection<V> getEvictionQueue() {
+		return values;
+	}
+	
+	@Override
+	public int getSize() {
+		return probationSize.get() + protectedSize.get();
+	}
+	
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+	
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "Probation:" + probationSize.get() + " Protected:" + protectedSize.get(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
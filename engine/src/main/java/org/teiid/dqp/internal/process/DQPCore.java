@@ -59,6 +59,7 @@ import org.teiid.client.util.ResultsReceiver;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.client.xa.XidImpl;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferStatistics;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
@@ -199,6 +200,16 @@ public class DQPCore implements DQP {
             	if (holder.getTransactionContext() != null && holder.getTransactionContext().getTransactionType() != Scope.NONE) {
             		req.setTransactionId(holder.getTransactionContext().getTransactionId());
             	}
+            	BufferStatistics stats = holder.getBufferStatistics();
+            	if (stats != null) {
+            		req.setReservedBufferBytes(stats.getReservedBytes());
+            		req.setPeakReservedBufferBytes(stats.getPeakReservedBytes());
+            		req.setBatchesWritten(stats.getBatchesWritten());
+            		req.setBytesWritten(stats.getBytesWritten());
+            		req.setBatchesRead(stats.getBatchesRead());
+            		req.setBytesRead(stats.getBytesRead());
+            		req.setBufferReadTime(stats.getReadTime());
+            	}
 
                 for (DataTierTupleSource conInfo : holder.getConnectorRequests()) {
                     String connectorName = conInfo.getConnectorName();
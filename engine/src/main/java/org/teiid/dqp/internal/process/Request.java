@@ -24,6 +24,7 @@ package org.teiid.dqp.internal.process;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -44,6 +45,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.util.Assertion;
 import org.teiid.dqp.internal.datamgr.ConnectorManagerRepository;
 import org.teiid.dqp.internal.process.AuthorizationValidator.CommandType;
+import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
 import org.teiid.dqp.message.RequestID;
 import org.teiid.dqp.service.TransactionContext;
 import org.teiid.dqp.service.TransactionContext.Scope;
@@ -69,11 +71,19 @@ import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.lang.BatchedUpdateCommand;
 import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Insert;
 import org.teiid.query.sql.lang.Limit;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.sql.visitor.GroupCollectorVisitor;
@@ -373,7 +383,7 @@ public class Request {
 
         checkReferences(references);
         
-        validateAccess(requestMsg.getCommands(), command, CommandType.USER);
+        boolean accessModified = validateAccess(requestMsg.getCommands(), command, CommandType.USER);
         
     	this.userCommand = (Command) command.clone();
         
@@ -387,6 +397,30 @@ public class Request {
 
         validateQuery(command);
         
+        List<Reference> autoParameters = null;
+        List<Object> autoParameterValues = null;
+        CacheID autoParameterizedId = null;
+        //a command modified by authorization, such as a pruned select *, may not print differently so it cannot be shared 
+        if (!accessModified && isAutoParameterize(command)) {
+        	autoParameters = new ArrayList<Reference>();
+        	autoParameterValues = new ArrayList<Object>();
+        	parameterize(((Query)command).getCriteria(), autoParameters, autoParameterValues);
+        	if (!autoParameters.isEmpty()) {
+        		autoParameterizedId = new CacheID(this.workContext, createParseInfo(this.requestMsg), command.toString());
+        		//distinguish from prepared statement entries and by the effective row limit
+        		autoParameterizedId.setParameters(Arrays.asList(addLimit?requestMsg.getRowLimit():0));
+        		PreparedPlan plan = this.planCache.get(autoParameterizedId);
+        		if (plan != null) {
+        			LogManager.logTrace(LogConstants.CTX_DQP, new Object[] { "Reusing the auto parameterized plan for: ", requestMsg.getCommandString() }); //$NON-NLS-1$
+        			this.addedLimit = addLimit && requestMsg.getRowLimit() > 0 && ((Query)command).getLimit() == null;
+        			this.analysisRecord = plan.getAnalysisRecord();
+        			this.processPlan = plan.getPlan().clone();
+        			PreparedStatementRequest.resolveParameterValues(plan.getReferences(), autoParameterValues, this.context, this.metadata);
+        			return;
+        		}
+        	}
+        }
+        
         command = QueryRewriter.rewrite(command, metadata, context);
         
         /*
@@ -419,8 +453,79 @@ public class Request {
             }
         }
         LogManager.logDetail(LogConstants.CTX_DQP, new Object[] { QueryPlugin.Util.getString("BasicInterceptor.ProcessTree_for__4"), requestId, processPlan }); //$NON-NLS-1$
+        
+        if (autoParameterizedId != null) {
+        	PreparedPlan plan = new PreparedPlan();
+        	plan.setCommand(this.userCommand);
+        	plan.setReferences(autoParameters);
+        	plan.setPlan(processPlan.clone(), this.context);
+        	plan.setAnalysisRecord(analysisRecord);
+        	Determinism determinismLevel = this.context.getDeterminismLevel();
+        	if (userCommand.getCacheHint() != null && userCommand.getCacheHint().getDeterminism() != null) {
+        		determinismLevel = userCommand.getCacheHint().getDeterminism();
+        	}
+        	this.planCache.put(autoParameterizedId, determinismLevel, plan, userCommand.getCacheHint() != null?userCommand.getCacheHint().getTtl():null);
+        	PreparedStatementRequest.resolveParameterValues(autoParameters, autoParameterValues, this.context, this.metadata);
+        }
+    }
+    
+    /**
+     * Determine if literals in the command should be replaced by references so that the plan
+     * may be cached and reused for ad-hoc statements that differ only by literal values.
+     */
+    private boolean isAutoParameterize(Command command) {
+    	return this.options != null && this.options.isAutoParameterize() && this.planCache != null
+    			&& command instanceof Query && !requestMsg.isPreparedStatement() && !requestMsg.isCallableStatement()
+    			&& !requestMsg.isBatchedUpdate() && ((Query)command).getCriteria() != null;
+    }
+    
+    /**
+     * Replace the literals compared to columns in the given criteria with positional references.
+     * Only comparison and in predicates are considered as other literals are typically needed
+     * by the rewriter and planner.  The command must already be resolved.
+     */
+    static void parameterize(Criteria crit, List<Reference> references, List<Object> values) {
+    	if (crit instanceof CompoundCriteria) {
+    		for (Criteria c : ((CompoundCriteria)crit).getCriteria()) {
+				parameterize(c, references, values);
+			}
+    	} else if (crit instanceof NotCriteria) {
+    		parameterize(((NotCriteria)crit).getCriteria(), references, values);
+    	} else if (crit instanceof CompareCriteria) {
+    		CompareCriteria cc = (CompareCriteria)crit;
+    		if (cc.getLeftExpression() instanceof ElementSymbol) {
+    			cc.setRightExpression(parameterize(cc.getRightExpression(), references, values));
+    		} else if (cc.getRightExpression() instanceof ElementSymbol) {
+    			cc.setLeftExpression(parameterize(cc.getLeftExpression(), references, values));
+    		}
+    	} else if (crit instanceof SetCriteria) {
+    		SetCriteria sc = (SetCriteria)crit;
+    		if (sc.getExpression() instanceof ElementSymbol && sc.isAllConstants()) {
+    			List<Expression> newValues = new ArrayList<Expression>(sc.getValues().size());
+    			for (Object value : sc.getValues()) {
+    				newValues.add(parameterize((Expression)value, references, values));
+    			}
+    			sc.setValues(newValues);
+    			sc.setAllConstants(false);
+    		}
+    	}
     }
 
+	private static Expression parameterize(Expression expr, List<Reference> references, List<Object> values) {
+		if (!(expr instanceof Constant)) {
+			return expr;
+		}
+		Constant constant = (Constant)expr;
+		if (constant.isNull() || constant.isMultiValued()) {
+			return expr;
+		}
+		Reference ref = new Reference(references.size());
+		ref.setType(constant.getType());
+		references.add(ref);
+		values.add(constant.getValue());
+		return ref;
+	}
+
 	private AnalysisRecord getAnalysisRecord() {
 		if (this.analysisRecord == null) {
 			this.analysisRecord = new AnalysisRecord(requestMsg.getShowPlan() != ShowPlan.OFF, requestMsg.getShowPlan() == ShowPlan.DEBUG);
@@ -49,6 +49,7 @@ import org.teiid.client.util.ResultsReceiver;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferStatistics;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
@@ -995,6 +996,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         		if (processor != null) {
         			PlanNode node = processor.getProcessorPlan().getDescriptionProperties();
         			node.addProperty(AnalysisRecord.PROP_DATA_BYTES_SENT, String.valueOf(dataBytes.get()));
+        			node.addProperty(AnalysisRecord.PROP_BUFFER_STATS_LIST, processor.getContext().getBufferStatistics().getStatisticsList());
             		response.setPlanDescription(node);
         		}
         		if (analysisRecord.getAnnotations() != null && !analysisRecord.getAnnotations().isEmpty()) {
@@ -1204,6 +1206,17 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		return processingTimestamp;
 	}
 	
+	/**
+	 * @return the buffer usage of this request or null if processing has not started
+	 */
+	public BufferStatistics getBufferStatistics() {
+		QueryProcessor qp = this.processor;
+		if (qp == null) {
+			return null;
+		}
+		return qp.getContext().getBufferStatistics();
+	}
+	
 	@Override
 	public void release() {
 		try {
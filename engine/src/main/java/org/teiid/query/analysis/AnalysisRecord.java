@@ -62,6 +62,7 @@ public class AnalysisRecord {
 	// Common 
     public static final String PROP_OUTPUT_COLS = "Output Columns"; //$NON-NLS-1$
     public static final String PROP_DATA_BYTES_SENT = "Data Bytes Sent"; //$NON-NLS-1$
+    public static final String PROP_BUFFER_STATS_LIST = "Buffer Statistics"; //$NON-NLS-1$
     
     // Relational
     public static final String PROP_CRITERIA = "Criteria"; //$NON-NLS-1$
@@ -71,6 +72,7 @@ public class AnalysisRecord {
     public static final String PROP_MODEL_NAME = "Model Name"; //$NON-NLS-1$
     public static final String PROP_SHARING_ID = "Sharing ID"; //$NON-NLS-1$
     public static final String PROP_DEPENDENT = "Dependent Join"; //$NON-NLS-1$
+    public static final String PROP_DEPENDENT_BACKOFF = "Dependent Join Backoff"; //$NON-NLS-1$
     public static final String PROP_JOIN_STRATEGY = "Join Strategy"; //$NON-NLS-1$
     public static final String PROP_JOIN_TYPE = "Join Type"; //$NON-NLS-1$
     public static final String PROP_JOIN_CRITERIA = "Join Criteria"; //$NON-NLS-1$
@@ -79,6 +81,8 @@ public class AnalysisRecord {
     public static final String PROP_SORT_COLS = "Sort Columns"; //$NON-NLS-1$
     public static final String PROP_SORT_MODE = "Sort Mode"; //$NON-NLS-1$
     public static final String PROP_ROLLUP = "Rollup"; //$NON-NLS-1$
+    public static final String PROP_HASH_AGGREGATION = "Hash Aggregation"; //$NON-NLS-1$
+    public static final String PROP_HASH_DISTINCT = "Hash Distinct"; //$NON-NLS-1$
     public static final String PROP_NODE_STATS_LIST = "Statistics"; //$NON-NLS-1$
     public static final String PROP_NODE_COST_ESTIMATES = "Cost Estimates";  //$NON-NLS-1$
     public static final String PROP_ROW_OFFSET = "Row Offset";  //$NON-NLS-1$
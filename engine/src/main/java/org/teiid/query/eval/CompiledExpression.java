@@ -0,0 +1,871 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.ColumnarBatch;
+import org.teiid.common.buffer.ColumnarBatch.ColumnType;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.ExpressionCriteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.CaseExpression;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.DerivedExpression;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
+import org.teiid.translator.SourceSystemFunctions;
+
+/**
+ * A pre-resolved form of an {@link Expression} or {@link Criteria} for repeated
+ * evaluation against tuples with a fixed layout.
+ * <br>
+ * Element lookups, constants, function descriptors and constant IN lists are resolved once
+ * at compile time so that per row evaluation avoids the type dispatch and map lookups
+ * performed by the {@link Evaluator}.  Compiled forms are immutable and may be shared
+ * between plan clones.  Anything not handled directly (subqueries, xml/json, lookup, pushdown
+ * functions, references, etc.) is delegated to the supplied {@link Evaluator} so the results
+ * and error handling are the same as interpreted evaluation.
+ * <br>
+ * Compiled forms may also be evaluated a batch at a time against a selection of rows, see
+ * {@link #evaluate(List, int[], int, Evaluator, Object[])}.  Comparisons of a column to a constant
+ * and integral arithmetic have specialized kernels, which use the primitive columns of a
+ * {@link ColumnarBatch} when available.  Everything else evaluates row by row.
+ */
+public abstract class CompiledExpression {
+	
+	/**
+	 * Compile the expression with the same semantics as {@link Evaluator#evaluate(Expression, List)}
+	 */
+	public static CompiledExpression compile(Expression expression, Map<?, Integer> elements) {
+		return new Wrapped(compileInternal(expression, elements), expression);
+	}
+	
+	/**
+	 * Compile the criteria with the same semantics as {@link Evaluator#evaluateTVL(Criteria, List)}
+	 */
+	public static CompiledExpression compile(Criteria criteria, Map<?, Integer> elements) {
+		return compileCriteria(criteria, elements);
+	}
+	
+	/**
+	 * Evaluate against the tuple.  Criteria return a three valued logic {@link Boolean}.
+	 */
+	public abstract Object evaluate(List<?> tuple, Evaluator eval) 
+			throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	
+	public boolean matches(List<?> tuple, Evaluator eval) 
+			throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+		return Boolean.TRUE.equals(evaluate(tuple, eval));
+	}
+	
+	/**
+	 * Evaluate against the selected rows of a batch.
+	 * @param rows the batch rows, which may be a {@link ColumnarBatch}
+	 * @param selection the zero-based indexes of the rows to evaluate
+	 * @param count the number of valid selection entries
+	 * @param result the value for the row selection[i] is set to result[i]
+	 */
+	public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result) 
+			throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+		for (int i = 0; i < count; i++) {
+			result[i] = evaluate(rows.get(selection[i]), eval);
+		}
+	}
+	
+	/**
+	 * @return true if evaluation may be delegated to the {@link Evaluator}, which may block
+	 * and should then be performed a row at a time. 
+	 */
+	public boolean requiresRowMode() {
+		return false;
+	}
+	
+	/**
+	 * Create a selection of count consecutive rows beginning at start 
+	 */
+	public static int[] getSelection(int start, int count) {
+		int[] selection = new int[count];
+		for (int i = 0; i < count; i++) {
+			selection[i] = start + i;
+		}
+		return selection;
+	}
+	
+	/**
+	 * @return true if any of the non-null expressions {@link #requiresRowMode()}
+	 */
+	public static boolean requiresRowMode(CompiledExpression... exprs) {
+		for (CompiledExpression expr : exprs) {
+			if (expr != null && expr.requiresRowMode()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	static boolean compare(int operator, int compare) {
+		switch (operator) {
+		case CompareCriteria.EQ:
+			return compare == 0;
+		case CompareCriteria.NE:
+			return compare != 0;
+		case CompareCriteria.LT:
+			return compare < 0;
+		case CompareCriteria.LE:
+			return compare <= 0;
+		case CompareCriteria.GT:
+			return compare > 0;
+		case CompareCriteria.GE:
+			return compare >= 0;
+		default:
+			throw new AssertionError();
+		}
+	}
+	
+	private static CompiledExpression compileInternal(Expression expression, Map<?, Integer> elements) {
+		if (expression instanceof DerivedExpression) {
+			Integer index = elements != null ? elements.get(expression) : null;
+			if (index != null) {
+				return new ColumnReference(index);
+			}
+			if (expression instanceof ExpressionSymbol) {
+				return compileInternal(((ExpressionSymbol)expression).getExpression(), elements);
+			}
+		} else if (expression instanceof Constant) {
+			return new ConstantValue(((Constant)expression).getValue());
+		} else if (expression instanceof Function) {
+			Function function = (Function)expression;
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd != null && fd.getPushdown() != PushDown.MUST_PUSHDOWN && !function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				Expression[] args = function.getArgs();
+				CompiledExpression[] compiledArgs = new CompiledExpression[args.length];
+				for (int i = 0; i < args.length; i++) {
+					compiledArgs[i] = compileInternal(args[i], elements);
+				}
+				return new FunctionCall(fd, compiledArgs);
+			}
+		} else if (expression instanceof CaseExpression) {
+			CaseExpression expr = (CaseExpression)expression;
+			CompiledExpression[] whens = new CompiledExpression[expr.getWhenCount()];
+			CompiledExpression[] thens = new CompiledExpression[expr.getWhenCount()];
+			for (int i = 0; i < whens.length; i++) {
+				whens[i] = compileInternal(expr.getWhenExpression(i), elements);
+				thens[i] = compileInternal(expr.getThenExpression(i), elements);
+			}
+			return new Case(compileInternal(expr.getExpression(), elements), whens, thens, compileElse(expr.getElseExpression(), elements));
+		} else if (expression instanceof SearchedCaseExpression) {
+			SearchedCaseExpression expr = (SearchedCaseExpression)expression;
+			CompiledExpression[] whens = new CompiledExpression[expr.getWhenCount()];
+			CompiledExpression[] thens = new CompiledExpression[expr.getWhenCount()];
+			for (int i = 0; i < whens.length; i++) {
+				whens[i] = compileCriteria(expr.getWhenCriteria(i), elements);
+				thens[i] = compileInternal(expr.getThenExpression(i), elements);
+			}
+			return new Case(null, whens, thens, compileElse(expr.getElseExpression(), elements));
+		} else if (expression instanceof Criteria) {
+			//criteria used as a value is two valued
+			return new TwoValued(compileCriteria((Criteria)expression, elements));
+		}
+		return new InterpretedExpression(expression);
+	}
+
+	private static CompiledExpression compileElse(Expression expr, Map<?, Integer> elements) {
+		if (expr == null) {
+			return new ConstantValue(null);
+		}
+		return compileInternal(expr, elements);
+	}
+	
+	private static CompiledExpression compileCriteria(Criteria criteria, Map<?, Integer> elements) {
+		if (criteria instanceof CompoundCriteria) {
+			CompoundCriteria cc = (CompoundCriteria)criteria;
+			List<Criteria> crits = cc.getCriteria();
+			CompiledExpression[] compiled = new CompiledExpression[crits.size()];
+			for (int i = 0; i < compiled.length; i++) {
+				compiled[i] = compileCriteria(crits.get(i), elements);
+			}
+			return new Compound(compiled, cc.getOperator() == CompoundCriteria.AND);
+		} else if (criteria instanceof NotCriteria) {
+			return new Not(compileCriteria(((NotCriteria)criteria).getCriteria(), elements));
+		} else if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			return new Compare(cc, compile(cc.getLeftExpression(), elements), compile(cc.getRightExpression(), elements));
+		} else if (criteria instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)criteria;
+			return new IsNull(inc, compile(inc.getExpression(), elements));
+		} else if (criteria instanceof SetCriteria && ((SetCriteria)criteria).isAllConstants()) {
+			SetCriteria sc = (SetCriteria)criteria;
+			return new InConstants(sc, compile(sc.getExpression(), elements));
+		} else if (criteria instanceof ExpressionCriteria) {
+			return compile(((ExpressionCriteria)criteria).getExpression(), elements);
+		}
+		return new InterpretedCriteria(criteria);
+	}
+	
+	static class ColumnReference extends CompiledExpression {
+		private final int index;
+		
+		ColumnReference(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval) {
+			return tuple.get(index);
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result) {
+			if (rows instanceof ColumnarBatch) {
+				ColumnarBatch batch = (ColumnarBatch)rows;
+				for (int i = 0; i < count; i++) {
+					result[i] = batch.getValue(selection[i], index);
+				}
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				result[i] = rows.get(selection[i]).get(index);
+			}
+		}
+	}
+	
+	static class ConstantValue extends CompiledExpression {
+		private final Object value;
+		
+		ConstantValue(Object value) {
+			this.value = value;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval) {
+			return value;
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result) {
+			Arrays.fill(result, 0, count, value);
+		}
+	}
+	
+	static class FunctionCall extends CompiledExpression {
+		private final FunctionDescriptor fd;
+		private final CompiledExpression[] args;
+		private final int start;
+		
+		private final char operator;
+		
+		FunctionCall(FunctionDescriptor fd, CompiledExpression[] args) {
+			this.fd = fd;
+			this.args = args;
+			this.start = fd.requiresContext()?1:0;
+			this.operator = getIntegralOperator(fd);
+		}
+		
+		/**
+		 * @return the operator if this is integer or long addition, subtraction, or multiplication 
+		 * that may use a primitive kernel, otherwise 0
+		 */
+		private static char getIntegralOperator(FunctionDescriptor fd) {
+			Class<?>[] types = fd.getTypes();
+			if (types.length != 2 || types[0] != types[1] || fd.getReturnType() != types[0] 
+					|| (types[0] != DataTypeManager.DefaultDataClasses.INTEGER && types[0] != DataTypeManager.DefaultDataClasses.LONG)
+					|| fd.getDeterministic() != Determinism.DETERMINISTIC || fd.isNullDependent()) {
+				return 0;
+			}
+			for (String op : new String[] {SourceSystemFunctions.ADD_OP, SourceSystemFunctions.SUBTRACT_OP, SourceSystemFunctions.MULTIPLY_OP}) {
+				if (fd.isSystemFunction(op)) {
+					return op.charAt(0);
+				}
+			}
+			return 0;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return requiresRowMode(args);
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Object[][] argValues = new Object[args.length][count];
+			for (int j = 0; j < args.length; j++) {
+				args[j].evaluate(rows, selection, count, eval, argValues[j]);
+			}
+			if (operator != 0) {
+				Object[] left = argValues[0];
+				Object[] right = argValues[1];
+				boolean isLong = fd.getReturnType() == DataTypeManager.DefaultDataClasses.LONG;
+				for (int i = 0; i < count; i++) {
+					if (left[i] == null || right[i] == null) {
+						result[i] = null;
+					} else if (isLong) {
+						long x = (Long)left[i];
+						long y = (Long)right[i];
+						result[i] = operator == '+' ? x + y : (operator == '-' ? x - y : x * y);
+					} else {
+						int x = (Integer)left[i];
+						int y = (Integer)right[i];
+						result[i] = operator == '+' ? x + y : (operator == '-' ? x - y : x * y);
+					}
+				}
+				return;
+			}
+			for (int i = 0; i < count; i++) {
+				Object[] values = new Object[args.length + start];
+				if (start == 1) {
+					values[0] = eval.context;
+				}
+				for (int j = 0; j < args.length; j++) {
+					values[j + start] = argValues[j][i];
+				}
+				result[i] = fd.invokeFunction(values, eval.context, null);
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Object[] values = new Object[args.length + start];
+			if (start == 1) {
+				values[0] = eval.context;
+			}
+			for (int i = 0; i < args.length; i++) {
+				values[i + start] = args[i].evaluate(tuple, eval);
+			}
+			return fd.invokeFunction(values, eval.context, null);
+		}
+	}
+	
+	static class Case extends CompiledExpression {
+		private final CompiledExpression expr;
+		private final CompiledExpression[] whens;
+		private final CompiledExpression[] thens;
+		private final CompiledExpression elseExpr;
+		
+		/**
+		 * @param expr the case operand, or null for a searched case
+		 */
+		Case(CompiledExpression expr, CompiledExpression[] whens, CompiledExpression[] thens, CompiledExpression elseExpr) {
+			this.expr = expr;
+			this.whens = whens;
+			this.thens = thens;
+			this.elseExpr = elseExpr;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return (expr != null && expr.requiresRowMode()) || requiresRowMode(whens) || requiresRowMode(thens) || elseExpr.requiresRowMode();
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			if (expr == null) {
+				for (int i = 0; i < whens.length; i++) {
+					if (whens[i].matches(tuple, eval)) {
+						return thens[i].evaluate(tuple, eval);
+					}
+				}
+			} else {
+				Object exprVal = expr.evaluate(tuple, eval);
+				for (int i = 0; i < whens.length; i++) {
+					if (EquivalenceUtil.areEqual(exprVal, whens[i].evaluate(tuple, eval))) {
+						return thens[i].evaluate(tuple, eval);
+					}
+				}
+			}
+			return elseExpr.evaluate(tuple, eval);
+		}
+	}
+	
+	static class TwoValued extends CompiledExpression {
+		private final CompiledExpression crit;
+		
+		TwoValued(CompiledExpression crit) {
+			this.crit = crit;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return crit.requiresRowMode();
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			crit.evaluate(rows, selection, count, eval, result);
+			for (int i = 0; i < count; i++) {
+				result[i] = Boolean.TRUE.equals(result[i]);
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			return crit.matches(tuple, eval);
+		}
+	}
+	
+	/**
+	 * Wraps exceptions in the same way as {@link Evaluator#evaluate(Expression, List)}
+	 */
+	static class Wrapped extends CompiledExpression {
+		private final CompiledExpression compiled;
+		private final Expression expression;
+		
+		Wrapped(CompiledExpression compiled, Expression expression) {
+			this.compiled = compiled;
+			this.expression = expression;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return compiled.requiresRowMode();
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			try {
+				compiled.evaluate(rows, selection, count, eval, result);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			try {
+				return compiled.evaluate(tuple, eval);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+	}
+	
+	static class Compound extends CompiledExpression {
+		private final CompiledExpression[] crits;
+		private final boolean and;
+		
+		Compound(CompiledExpression[] crits, boolean and) {
+			this.crits = crits;
+			this.and = and;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return requiresRowMode(crits);
+		}
+		
+		/**
+		 * Each criteria is only evaluated against the rows that are still undecided
+		 */
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Arrays.fill(result, 0, count, and?Boolean.TRUE:Boolean.FALSE);
+			int[] pending = Arrays.copyOf(selection, count);
+			int[] positions = getSelection(0, count);
+			Object[] values = new Object[count];
+			for (int j = 0; j < crits.length && count > 0; j++) {
+				crits[j].evaluate(rows, pending, count, eval, values);
+				int undecided = 0;
+				for (int i = 0; i < count; i++) {
+					Boolean value = (Boolean)values[i];
+					int position = positions[i];
+					if (value == null) {
+						result[position] = null;
+					} else if (value.booleanValue() != and) {
+						result[position] = value;
+						continue;
+					}
+					pending[undecided] = pending[i];
+					positions[undecided++] = position;
+				}
+				count = undecided;
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Boolean result = and?Boolean.TRUE:Boolean.FALSE;
+			for (int i = 0; i < crits.length; i++) {
+				Boolean value = (Boolean)crits[i].evaluate(tuple, eval);
+				if (value == null) {
+					result = null;
+				} else if (!value.booleanValue()) {
+					if (and) {
+						return Boolean.FALSE;
+					}
+				} else if (!and) {
+					return Boolean.TRUE;
+				}
+			}
+			return result;
+		}
+	}
+	
+	static class Not extends CompiledExpression {
+		private final CompiledExpression crit;
+		
+		Not(CompiledExpression crit) {
+			this.crit = crit;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return crit.requiresRowMode();
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			crit.evaluate(rows, selection, count, eval, result);
+			for (int i = 0; i < count; i++) {
+				if (result[i] != null) {
+					result[i] = !((Boolean)result[i]).booleanValue();
+				}
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Boolean result = (Boolean)crit.evaluate(tuple, eval);
+			if (result == null) {
+				return null;
+			}
+			return !result.booleanValue();
+		}
+	}
+	
+	static class Compare extends CompiledExpression {
+		private final CompareCriteria criteria;
+		private final CompiledExpression left;
+		private final CompiledExpression right;
+		
+		Compare(CompareCriteria criteria, CompiledExpression left, CompiledExpression right) {
+			this.criteria = criteria;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return left.requiresRowMode() || right.requiresRowMode();
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			if (rows instanceof ColumnarBatch && compareColumn((ColumnarBatch)rows, selection, count, result)) {
+				return;
+			}
+			Object[] leftValues = result;
+			try {
+				left.evaluate(rows, selection, count, eval, leftValues);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			//the right side is only evaluated against rows with a non-null left value
+			int[] nonNull = new int[count];
+			int[] positions = new int[count];
+			int nonNullCount = 0;
+			for (int i = 0; i < count; i++) {
+				if (leftValues[i] != null) {
+					nonNull[nonNullCount] = selection[i];
+					positions[nonNullCount++] = i;
+				}
+			}
+			Object[] rightValues = new Object[nonNullCount];
+			try {
+				right.evaluate(rows, nonNull, nonNullCount, eval, rightValues);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			for (int i = 0; i < nonNullCount; i++) {
+				int position = positions[i];
+				if (rightValues[i] == null) {
+					result[position] = null;
+				} else {
+					result[position] = Evaluator.compare(criteria, leftValues[position], rightValues[i]);
+				}
+			}
+		}
+
+		/**
+		 * Compare a column to a constant directly against the primitive or dictionary values
+		 * @return false if the kernel does not apply
+		 */
+		private boolean compareColumn(ColumnarBatch batch, int[] selection, int count, Object[] result) {
+			if (!(left instanceof Wrapped) || !(right instanceof Wrapped)) {
+				return false;
+			}
+			CompiledExpression l = ((Wrapped)left).compiled;
+			CompiledExpression r = ((Wrapped)right).compiled;
+			if (!(l instanceof ColumnReference) || !(r instanceof ConstantValue)) {
+				return false;
+			}
+			int col = ((ColumnReference)l).index;
+			Object value = ((ConstantValue)r).value;
+			if (value == null) {
+				Arrays.fill(result, 0, count, null);
+				return true;
+			}
+			ColumnType type = batch.getColumnType(col);
+			int operator = criteria.getOperator();
+			if (type == ColumnType.INT && value.getClass() == batch.getTypes()[col] && value.getClass() == DataTypeManager.DefaultDataClasses.INTEGER) {
+				int[] values = batch.getIntColumn(col);
+				int constant = (Integer)value;
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					result[i] = batch.isNull(row, col)?null:compare(operator, values[row] < constant ? -1 : (values[row] == constant ? 0 : 1));
+				}
+				return true;
+			}
+			if (type == ColumnType.LONG && value.getClass() == DataTypeManager.DefaultDataClasses.LONG) {
+				long[] values = batch.getLongColumn(col);
+				long constant = (Long)value;
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					result[i] = batch.isNull(row, col)?null:compare(operator, values[row] < constant ? -1 : (values[row] == constant ? 0 : 1));
+				}
+				return true;
+			}
+			if (type == ColumnType.STRING && value.getClass() == DataTypeManager.DefaultDataClasses.STRING) {
+				//compare each distinct value only once
+				int[] codes = batch.getDictionaryCodes(col);
+				String[] dictionary = batch.getDictionary(col);
+				Boolean[] matches = new Boolean[dictionary.length];
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					if (batch.isNull(row, col)) {
+						result[i] = null;
+						continue;
+					}
+					int code = codes[row];
+					Boolean match = matches[code];
+					if (match == null) {
+						match = Evaluator.compare(criteria, dictionary[code], value);
+						matches[code] = match;
+					}
+					result[i] = match;
+				}
+				return true;
+			}
+			return false;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Object leftValue = null;
+			try {
+				leftValue = left.evaluate(tuple, eval);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (leftValue == null) {
+				return null;
+			}
+			Object rightValue = null;
+			try {
+				rightValue = right.evaluate(tuple, eval);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			if (rightValue == null) {
+				return null;
+			}
+			return Evaluator.compare(criteria, leftValue, rightValue);
+		}
+	}
+	
+	static class IsNull extends CompiledExpression {
+		private final IsNullCriteria criteria;
+		private final CompiledExpression expr;
+		
+		IsNull(IsNullCriteria criteria, CompiledExpression expr) {
+			this.criteria = criteria;
+			this.expr = expr;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return expr.requiresRowMode();
+		}
+		
+		@Override
+		public void evaluate(List<? extends List<?>> rows, int[] selection, int count, Evaluator eval, Object[] result)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			try {
+				expr.evaluate(rows, selection, count, eval, result);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			for (int i = 0; i < count; i++) {
+				result[i] = result[i] == null ^ criteria.isNegated();
+			}
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Object value = null;
+			try {
+				value = expr.evaluate(tuple, eval);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			return value == null ^ criteria.isNegated();
+		}
+	}
+	
+	static class InConstants extends CompiledExpression {
+		private final SetCriteria criteria;
+		private final CompiledExpression expr;
+		private final Set<?> values;
+		private final Class<?> type;
+		private final boolean hasNull;
+		
+		InConstants(SetCriteria criteria, CompiledExpression expr) {
+			this.criteria = criteria;
+			this.expr = expr;
+			Collection<?> vals = criteria.getValues();
+			this.values = vals instanceof Set<?>?(Set<?>)vals:new HashSet<Object>(vals);
+			this.type = criteria.getExpression().getType();
+			this.hasNull = this.values.contains(Constant.NULL_CONSTANT);
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return expr.requiresRowMode();
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Object leftValue = null;
+			try {
+				leftValue = expr.evaluate(tuple, eval);
+			} catch(ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			if (leftValue == null) {
+				if (!values.isEmpty()) {
+					return null;
+				}
+				return criteria.isNegated();
+			}
+			if (!values.contains(new Constant(leftValue, type))) {
+				if (hasNull) {
+					return null;
+				}
+				return criteria.isNegated();
+			}
+			return !criteria.isNegated();
+		}
+	}
+	
+	static class InterpretedExpression extends CompiledExpression {
+		private final Expression expression;
+		
+		InterpretedExpression(Expression expression) {
+			this.expression = expression;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return true;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			return eval.internalEvaluate(expression, tuple);
+		}
+	}
+
+	static class InterpretedCriteria extends CompiledExpression {
+		private final Criteria criteria;
+		
+		InterpretedCriteria(Criteria criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		public boolean requiresRowMode() {
+			return true;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			return eval.evaluateTVL(criteria, tuple);
+		}
+	}
+	
+}
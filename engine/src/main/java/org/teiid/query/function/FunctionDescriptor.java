@@ -23,9 +23,13 @@
 package org.teiid.query.function;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 
 import org.teiid.api.exception.query.FunctionExecutionException;
@@ -54,6 +58,16 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 
 	private static final boolean ALLOW_NAN_INFINITY = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.allowNanInfinity", false); //$NON-NLS-1$
 	
+	private static final MethodHandle THROW_TARGET_EXCEPTION;
+	
+	static {
+		try {
+			THROW_TARGET_EXCEPTION = MethodHandles.lookup().findStatic(FunctionDescriptor.class, "throwTargetException", MethodType.methodType(Object.class, Throwable.class)); //$NON-NLS-1$
+		} catch (ReflectiveOperationException e) {
+			throw new TeiidRuntimeException(e);
+		}
+	}
+	
 	private Class<?>[] types;
 	private Class<?> returnType;	
     private boolean requiresContext;
@@ -66,6 +80,9 @@ public class FunctionDescriptor implements Serializable, Cloneable {
     // a different VM.  This function descriptor can be used to look up 
     // the real VM descriptor for execution.
     private transient Method invocationMethod;
+    // The invocationMethod adapted to (Object target, Object[] args)Object 
+    // or null if reflection should be used 
+    private transient MethodHandle invocationHandle;
 	
     FunctionDescriptor() {
     }
@@ -78,6 +95,40 @@ public class FunctionDescriptor implements Serializable, Cloneable {
         this.invocationMethod = invocationMethod;
         this.requiresContext = requiresContext;
         this.method = method;
+        if (invocationMethod != null) {
+        	this.invocationHandle = getInvocationHandle(invocationMethod);
+        }
+	}
+	
+	/**
+	 * Bind the method to a {@link MethodHandle} once so that each invocation avoids the 
+	 * access checks and argument validation of {@link Method#invoke(Object, Object...)}.
+	 * The argument and return values are adapted to the method's types.
+	 * <br>
+	 * Only exceptions thrown by the method itself are reported as an {@link InvocationTargetException}, 
+	 * errors adapting the arguments propagate unwrapped as they would from reflection.
+	 * @return the adapted handle or null if the method is not accessible as a handle
+	 */
+	static MethodHandle getInvocationHandle(Method invocationMethod) {
+		try {
+			MethodHandle handle = MethodHandles.lookup().unreflect(invocationMethod).asFixedArity();
+			MethodHandle thrower = THROW_TARGET_EXCEPTION.asType(MethodType.methodType(handle.type().returnType(), Throwable.class));
+			thrower = MethodHandles.dropArguments(thrower, 1, handle.type().parameterList());
+			handle = MethodHandles.catchException(handle, Throwable.class, thrower);
+			handle = handle.asType(handle.type().generic());
+			if (Modifier.isStatic(invocationMethod.getModifiers())) {
+				//accept and ignore the target
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			}
+			return handle.asSpreader(Object[].class, invocationMethod.getParameterTypes().length);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+	
+	@SuppressWarnings("unused")
+	private static Object throwTargetException(Throwable t) throws InvocationTargetException {
+		throw new InvocationTargetException(t);
 	}
 	
 	public Object newInstance() {
@@ -258,7 +309,23 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 	        		values = newValues;
         		}
         	}
-            Object result = invocationMethod.invoke(functionTarget, values);
+            Object result = null;
+            if (invocationHandle != null) {
+            	try {
+            		result = (Object)invocationHandle.invokeExact(functionTarget, values);
+            	} catch (InvocationTargetException e) {
+            		throw e;
+            	} catch (RuntimeException e) {
+            		//an argument adaptation failure, the same as a reflective IllegalArgumentException
+            		throw e;
+            	} catch (Error e) {
+            		throw e;
+            	} catch (Throwable e) {
+            		throw new TeiidRuntimeException(e);
+            	}
+            } else {
+            	result = invocationMethod.invoke(functionTarget, values);
+            }
             if (context != null && getDeterministic().ordinal() <= Determinism.USER_DETERMINISTIC.ordinal()) {
             	context.setDeterminismLevel(getDeterministic());
             }
@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.query.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.util.HyperLogLog;
+
+/**
+ * Statistics gathered from the values of a single column, used for costing.
+ * <br>
+ * The distinct value count is estimated with a {@link HyperLogLog} sketch over all values
+ * of a hashable type, while range and equality selectivity come from an equi-depth histogram built over a 
+ * reservoir sample of the non-null values.  A value is never split across buckets, 
+ * so frequent values end up with buckets of their own.
+ * <br>
+ * All selectivity estimates are fractions of the total row count.
+ */
+public class ColumnStatistics {
+	
+	public static final int DEFAULT_SAMPLE_SIZE = 4096;
+	public static final int DEFAULT_BUCKETS = 64;
+	
+	/**
+	 * Accumulates the values of a column.  Values must be added in a single pass, 
+	 * the collector is not thread safe.
+	 */
+	public static class Collector {
+		
+		private boolean comparable;
+		private HyperLogLog sketch;
+		private Object[] sample;
+		private int buckets;
+		private Random random = new Random(0);
+		private long rowCount;
+		private long nullCount;
+		private Object min;
+		private Object max;
+		
+		/**
+		 * @param comparable false if the values do not have an ordering, in which case
+		 * only the null and distinct counts are gathered.
+		 * @param hashable false if the hashCode of the values is not consistent with
+		 * comparison or is expensive, see {@link org.teiid.core.types.DataTypeManager#isHashable(Class)}, in which 
+		 * case the distinct count is only known if the sample holds all of the values.
+		 */
+		public Collector(boolean comparable, boolean hashable) {
+			this(comparable, hashable, DEFAULT_SAMPLE_SIZE, DEFAULT_BUCKETS);
+		}
+		
+		public Collector(boolean comparable, boolean hashable, int sampleSize, int buckets) {
+			this.comparable = comparable;
+			this.buckets = buckets;
+			if (hashable) {
+				this.sketch = new HyperLogLog();
+			}
+			if (comparable) {
+				this.sample = new Object[sampleSize];
+			}
+		}
+		
+		public void addValue(Object value) {
+			rowCount++;
+			if (value == null) {
+				nullCount++;
+				return;
+			}
+			if (sketch != null) {
+				sketch.add(value);
+			}
+			if (!comparable) {
+				return;
+			}
+			long nonNull = rowCount - nullCount;
+			if (nonNull <= sample.length) {
+				sample[(int)nonNull - 1] = value;
+			} else {
+				long index = (long)(random.nextDouble() * nonNull);
+				if (index < sample.length) {
+					sample[(int)index] = value;
+				}
+			}
+			if (min == null || COMPARATOR.compare(value, min) < 0) {
+				min = value;
+			}
+			if (max == null || COMPARATOR.compare(value, max) > 0) {
+				max = value;
+			}
+		}
+		
+		public ColumnStatistics build() {
+			ColumnStatistics stats = new ColumnStatistics();
+			stats.rowCount = rowCount;
+			stats.nullCount = nullCount;
+			long nonNull = rowCount - nullCount;
+			if (nonNull == 0) {
+				stats.distinctValues = 0;
+			} else if (sketch != null) {
+				stats.distinctValues = Math.max(Math.min(sketch.cardinality(), nonNull), 1);
+			}
+			if (!comparable || nonNull == 0) {
+				return stats;
+			}
+			stats.minimumValue = min;
+			stats.maximumValue = max;
+			int sampleCount = (int)Math.min(nonNull, sample.length);
+			Object[] values = Arrays.copyOf(sample, sampleCount);
+			Arrays.sort(values, COMPARATOR);
+			int sampleDistinct = 1;
+			for (int i = 1; i < sampleCount; i++) {
+				if (COMPARATOR.compare(values[i - 1], values[i]) != 0) {
+					sampleDistinct++;
+				}
+			}
+			if (sampleCount == nonNull) {
+				//the sample is the full set of values
+				stats.distinctValues = sampleDistinct;
+			}
+			int depth = Math.max(1, (sampleCount + buckets - 1) / buckets);
+			List<Object> bounds = new ArrayList<Object>(buckets);
+			List<Float> fractions = new ArrayList<Float>(buckets);
+			List<Integer> distinct = new ArrayList<Integer>(buckets);
+			int frequentValues = 0;
+			int bucketSize = 1;
+			int bucketDistinct = 1;
+			for (int i = 1; i <= sampleCount; i++) {
+				boolean newValue = i == sampleCount || COMPARATOR.compare(values[i - 1], values[i]) != 0;
+				if (newValue && (bucketSize >= depth || i == sampleCount)) {
+					bounds.add(values[i - 1]);
+					fractions.add((float)i / sampleCount);
+					if (bucketDistinct == 1 && bucketSize >= depth && depth > 1) {
+						//a frequent value filling a bucket on its own
+						frequentValues++;
+						distinct.add(-1);
+					} else {
+						distinct.add(bucketDistinct);
+					}
+					bucketSize = 0;
+					bucketDistinct = 0;
+				}
+				bucketSize++;
+				if (newValue) {
+					bucketDistinct++;
+				}
+			}
+			//distinct values not seen by the sample are assumed to be spread evenly over the other buckets
+			float distinctScale = 1;
+			if (stats.distinctValues != -1 && sampleDistinct > frequentValues) {
+				distinctScale = Math.max(1f, (float)(stats.distinctValues - frequentValues) / (sampleDistinct - frequentValues));
+			}
+			stats.bucketBounds = bounds.toArray();
+			stats.bucketFractions = new float[fractions.size()];
+			stats.bucketDistinct = new float[distinct.size()];
+			for (int i = 0; i < stats.bucketFractions.length; i++) {
+				stats.bucketFractions[i] = fractions.get(i);
+				int bucketValues = distinct.get(i);
+				stats.bucketDistinct[i] = bucketValues == -1?1:bucketValues * distinctScale;
+			}
+			return stats;
+		}
+		
+	}
+	
+	private static final Comparator<Object> COMPARATOR = Constant.COMPARATOR;
+	
+	private long rowCount;
+	private long nullCount;
+	private long distinctValues = -1;
+	private Object minimumValue;
+	private Object maximumValue;
+	//upper bound of each bucket in ascending order 
+	private Object[] bucketBounds;
+	//cumulative fraction of the non-null values through each bucket
+	private float[] bucketFractions;
+	//estimated distinct values in each bucket
+	private float[] bucketDistinct;
+	
+	private ColumnStatistics() {
+		
+	}
+	
+	public long getRowCount() {
+		return rowCount;
+	}
+	
+	public long getNullValues() {
+		return nullCount;
+	}
+	
+	/**
+	 * @return the estimated distinct non-null values or -1 if unknown
+	 */
+	public long getDistinctValues() {
+		return distinctValues;
+	}
+	
+	public Object getMinimumValue() {
+		return minimumValue;
+	}
+	
+	public Object getMaximumValue() {
+		return maximumValue;
+	}
+	
+	public boolean hasHistogram() {
+		return bucketBounds != null;
+	}
+	
+	public float getNonNullFraction() {
+		if (rowCount == 0) {
+			return 0;
+		}
+		return (float)(rowCount - nullCount) / rowCount;
+	}
+	
+	/**
+	 * @return the estimated fraction of rows equal to the value or -1 if unknown
+	 */
+	public float getEqualitySelectivity(Object value) {
+		if (value == null || rowCount == 0) {
+			return 0;
+		}
+		if (!hasHistogram()) {
+			if (distinctValues <= 0) {
+				return distinctValues;
+			}
+			return getNonNullFraction() / distinctValues;
+		}
+		if (COMPARATOR.compare(value, minimumValue) < 0 || COMPARATOR.compare(value, maximumValue) > 0) {
+			return 0;
+		}
+		int bucket = findBucket(value);
+		if (bucket == bucketBounds.length) {
+			//greater than anything in the sample, but not than the max
+			bucket--;
+		}
+		return getNonNullFraction() * getBucketFraction(bucket) / bucketDistinct[bucket];
+	}
+	
+	/**
+	 * @return the estimated fraction of rows less than (or equal to if inclusive) the value or -1 if unknown
+	 */
+	public float getLessThanSelectivity(Object value, boolean inclusive) {
+		if (!hasHistogram()) {
+			return rowCount == 0?0:-1;
+		}
+		if (value == null) {
+			return 0;
+		}
+		int minComp = COMPARATOR.compare(value, minimumValue);
+		if (minComp < 0 || (minComp == 0 && !inclusive)) {
+			return 0;
+		}
+		int maxComp = COMPARATOR.compare(value, maximumValue);
+		float nonNull = getNonNullFraction();
+		if (maxComp > 0 || (maxComp == 0 && inclusive)) {
+			return nonNull;
+		}
+		int bucket = findBucket(value);
+		if (bucket == bucketBounds.length) {
+			return nonNull;
+		}
+		float below = bucket == 0?0:bucketFractions[bucket - 1];
+		float fraction = getBucketFraction(bucket);
+		float portion = 0;
+		if (COMPARATOR.compare(value, bucketBounds[bucket]) == 0) {
+			portion = fraction;
+			if (!inclusive) {
+				portion -= fraction / bucketDistinct[bucket];
+			}
+		} else {
+			Object lower = bucket == 0?minimumValue:bucketBounds[bucket - 1];
+			portion = fraction * interpolate(lower, bucketBounds[bucket], value);
+		}
+		return nonNull * (below + portion);
+	}
+	
+	/**
+	 * @return the estimated fraction of rows greater than (or equal to if inclusive) the value or -1 if unknown
+	 */
+	public float getGreaterThanSelectivity(Object value, boolean inclusive) {
+		float lessThan = getLessThanSelectivity(value, !inclusive);
+		if (lessThan == -1) {
+			return -1;
+		}
+		if (value == null) {
+			return 0;
+		}
+		return Math.max(0, getNonNullFraction() - lessThan);
+	}
+	
+	private float getBucketFraction(int bucket) {
+		return bucketFractions[bucket] - (bucket == 0?0:bucketFractions[bucket - 1]);
+	}
+
+	/**
+	 * @return the index of the first bucket with an upper bound greater than or equal to the value
+	 */
+	private int findBucket(Object value) {
+		int low = 0;
+		int high = bucketBounds.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (COMPARATOR.compare(bucketBounds[mid], value) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Estimate the relative position of the value between the bounds, or assume
+	 * the middle if the type is not numeric.
+	 */
+	static float interpolate(Object lower, Object upper, Object value) {
+		double l = 0;
+		double u = 0;
+		double v = 0;
+		if (value instanceof Number) {
+			l = ((Number)lower).doubleValue();
+			u = ((Number)upper).doubleValue();
+			v = ((Number)value).doubleValue();
+		} else if (value instanceof java.util.Date) {
+			l = ((java.util.Date)lower).getTime();
+			u = ((java.util.Date)upper).getTime();
+			v = ((java.util.Date)value).getTime();
+		} else {
+			return .5f;
+		}
+		if (u <= l) {
+			return .5f;
+		}
+		return (float)Math.min(1, Math.max(0, (v - l) / (u - l)));
+	}
+	
+}
@@ -296,6 +296,10 @@ public class TempMetadataAdapter extends BasicQueryMetadataWrapper {
      */
     public float getDistinctValues(Object elementID) throws TeiidComponentException, QueryMetadataException {
         if(elementID instanceof TempMetadataID) {
+        	ColumnStatistics stats = ((TempMetadataID)elementID).getColumnStatistics();
+        	if (stats != null) {
+        		return stats.getDistinctValues();
+        	}
             return -1;
         }         
         return this.actualMetadata.getDistinctValues(elementID);
@@ -307,6 +311,10 @@ public class TempMetadataAdapter extends BasicQueryMetadataWrapper {
     public float getNullValues(Object elementID) throws TeiidComponentException, QueryMetadataException {
         if (elementID instanceof TempMetadataID) {
             TempMetadataID id = (TempMetadataID)elementID;
+            ColumnStatistics stats = id.getColumnStatistics();
+            if (stats != null) {
+            	return stats.getNullValues();
+            }
             elementID = id.getOriginalMetadataID();
             if (elementID == null) {
                 return -1;
@@ -138,6 +138,7 @@ public class TempMetadataID implements Serializable, Modifiable, DataModifiable
     private boolean notNull;
     private boolean updatable;
     private boolean accessed;
+    private transient volatile ColumnStatistics columnStatistics; //only for element
     
     /**
      * Constructor for group form of metadata ID.
@@ -452,4 +453,15 @@ public class TempMetadataID implements Serializable, Modifiable, DataModifiable
 		return accessed;
 	}
 	
+	/**
+	 * @return the statistics gathered from the values of this element or null if none have been collected
+	 */
+	public ColumnStatistics getColumnStatistics() {
+		return columnStatistics;
+	}
+	
+	public void setColumnStatistics(ColumnStatistics columnStatistics) {
+		this.columnStatistics = columnStatistics;
+	}
+	
 }
@@ -231,6 +231,7 @@ public class PlanToProcessConverter {
 							outputElements.add(singleElementSymbol);
 						}
             			wfpn.setElements(outputElements);
+            			wfpn.setStreaming(node.hasBooleanProperty(Info.STREAMING_WINDOW_FUNCTIONS));
             			wfpn.init();
             			pnode.addChild(wfpn);
             		}
@@ -248,9 +249,11 @@ public class PlanToProcessConverter {
                 List joinCrits = (List) node.getProperty(NodeConstants.Info.JOIN_CRITERIA);
                 String depValueSource = (String) node.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE);
                 SortOption leftSort = (SortOption)node.getProperty(NodeConstants.Info.SORT_LEFT);
-                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT) {
+                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT || stype == JoinStrategyType.HASH) {
                 	MergeJoinStrategy mjStrategy = null;
-                	if (stype.equals(JoinStrategyType.ENHANCED_SORT)) { 
+                	if (stype.equals(JoinStrategyType.HASH)) {
+                		mjStrategy = new HashJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
+                	} else if (stype.equals(JoinStrategyType.ENHANCED_SORT)) { 
                 		EnhancedSortMergeJoinStrategy esmjStrategy = new EnhancedSortMergeJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
                 		esmjStrategy.setSemiDep(node.hasBooleanProperty(Info.IS_SEMI_DEP));
                 		mjStrategy = esmjStrategy;
@@ -452,7 +455,9 @@ public class PlanToProcessConverter {
 			case NodeConstants.Types.SORT:
 			case NodeConstants.Types.DUP_REMOVE:
 				if (node.getType() == NodeConstants.Types.DUP_REMOVE) {
-					processNode = new DupRemoveNode(getID());
+					DupRemoveNode dupRemoveNode = new DupRemoveNode(getID());
+					dupRemoveNode.setHashDistinct(node.hasBooleanProperty(NodeConstants.Info.HASH_DISTINCT));
+					processNode = dupRemoveNode;
 				} else {
 	                SortNode sortNode = new SortNode(getID());
 	                OrderBy orderBy = (OrderBy) node.getProperty(NodeConstants.Info.SORT_ORDER);
@@ -462,6 +467,7 @@ public class PlanToProcessConverter {
 					if (node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL)) {
 						sortNode.setMode(Mode.DUP_REMOVE_SORT);
 					}
+					sortNode.setTopN(node.hasBooleanProperty(NodeConstants.Info.IS_TOP_N));
 	
 					processNode = sortNode;
 				}
@@ -469,6 +475,7 @@ public class PlanToProcessConverter {
 			case NodeConstants.Types.GROUP:
 				GroupingNode gnode = new GroupingNode(getID());
 				gnode.setRollup(node.hasBooleanProperty(Info.ROLLUP));
+				gnode.setHashAggregation(node.hasBooleanProperty(Info.HASH_AGGREGATION));
 				SymbolMap groupingMap = (SymbolMap)node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				gnode.setOutputMapping(groupingMap);
 				gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
@@ -584,7 +591,9 @@ public class PlanToProcessConverter {
                     } else {
                     	boolean onlyDupRemoval = node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL);
                     	if (onlyDupRemoval) {
-                    		processNode = new DupRemoveNode(getID());
+                    		DupRemoveNode dupRemoveNode = new DupRemoveNode(getID());
+                    		dupRemoveNode.setHashDistinct(node.hasBooleanProperty(NodeConstants.Info.HASH_DISTINCT));
+                    		processNode = dupRemoveNode;
                     	} else {
                         	SortNode sNode = new SortNode(getID());
                         	sNode.setMode(Mode.DUP_REMOVE_SORT);
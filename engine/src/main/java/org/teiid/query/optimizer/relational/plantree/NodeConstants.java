@@ -102,6 +102,7 @@ public final class NodeConstants {
         PROJECT_COLS,       // List <SingleElementSymbol>
         INTO_GROUP,         // GroupSymbol
         HAS_WINDOW_FUNCTIONS,		// Boolean
+        STREAMING_WINDOW_FUNCTIONS,	// Boolean - the window functions are not required to preserve the input order
 
         // Select node properties
         SELECT_CRITERIA,    // Criteria
@@ -117,6 +118,8 @@ public final class NodeConstants {
         SORT_ORDER,         // OrderBy
         UNRELATED_SORT,     // Boolean
         IS_DUP_REMOVAL,		// Boolean
+        IS_TOP_N,           // Boolean
+        HASH_DISTINCT,      // Boolean
 
         // Source node properties
         SYMBOL_MAP,         // SymbolMap
@@ -135,6 +138,7 @@ public final class NodeConstants {
         // Group node properties
         GROUP_COLS,         // List <Expression>
         ROLLUP,             // Boolean
+        HASH_AGGREGATION,   // Boolean
 
         // Special constant used in converting plan to process for all nodes
         OUTPUT_COLS,        // List <SingleElementSymbol>
@@ -37,8 +37,10 @@ import org.teiid.language.Like.MatchMode;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.query.QueryPlugin;
+import org.teiid.query.metadata.ColumnStatistics;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
+import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
@@ -65,7 +67,9 @@ public class NewCalculateCostUtil {
 
     public static final int UNKNOWN_JOIN_SCALING = 20;
 	public static final float UNKNOWN_VALUE = -1;
-    
+	//the max ratio of groups to input rows for hash aggregation
+	static final float HASH_AGGREGATION_RATIO = .5f;
+
     // the following variables are used to hold cost estimates (roughly in milliseconds)
     private final static float compareTime = .0001f; //TODO: a better estimate would be based upon the number of conjuncts
     private final static float readTime = .001f; //TODO: should come from the connector
@@ -817,6 +821,13 @@ public class NewCalculateCostUtil {
             ndv = Math.max(ndv, 1);
         } 
                 
+        if (!multiGroup && !unknownChildCost) {
+        	float selectivity = getSelectivityFromStatistics(predicateCriteria);
+        	if (selectivity != UNKNOWN_VALUE) {
+        		return Math.max(childCost * selectivity, Math.min(childCost, 1));
+        	}
+        }
+                
         boolean isNegatedPredicateCriteria = false;
         if(predicateCriteria instanceof CompareCriteria) {
             CompareCriteria compCrit = (CompareCriteria) predicateCriteria;
@@ -907,6 +918,94 @@ public class NewCalculateCostUtil {
         return cost;
     }
 
+    /**
+     * Estimate the selectivity of a predicate against a single column from the gathered 
+     * {@link ColumnStatistics}, which are currently only available for loaded materialized
+     * and temp tables.
+     * @return the fraction of rows or UNKNOWN_VALUE if statistics can't be used
+     */
+    private static float getSelectivityFromStatistics(PredicateCriteria predicateCriteria) {
+    	if (predicateCriteria instanceof CompareCriteria) {
+    		CompareCriteria compCrit = (CompareCriteria)predicateCriteria;
+    		ColumnStatistics stats = getColumnStatistics(compCrit.getLeftExpression(), compCrit.getRightExpression());
+    		if (stats == null) {
+    			return UNKNOWN_VALUE;
+    		}
+    		Object value = ((Constant)compCrit.getRightExpression()).getValue();
+    		switch (compCrit.getOperator()) {
+    		case CompareCriteria.EQ:
+    			return stats.getEqualitySelectivity(value);
+    		case CompareCriteria.NE:
+    			if (value == null) {
+    				return 0;
+    			}
+    			float equality = stats.getEqualitySelectivity(value);
+    			if (equality == UNKNOWN_VALUE) {
+    				return UNKNOWN_VALUE;
+    			}
+    			return Math.max(0, stats.getNonNullFraction() - equality);
+    		case CompareCriteria.LT:
+    			return stats.getLessThanSelectivity(value, false);
+    		case CompareCriteria.LE:
+    			return stats.getLessThanSelectivity(value, true);
+    		case CompareCriteria.GT:
+    			return stats.getGreaterThanSelectivity(value, false);
+    		case CompareCriteria.GE:
+    			return stats.getGreaterThanSelectivity(value, true);
+    		}
+    	} else if (predicateCriteria instanceof SetCriteria) {
+    		SetCriteria setCrit = (SetCriteria)predicateCriteria;
+    		ColumnStatistics stats = null;
+    		float selectivity = 0;
+    		boolean hasNull = false;
+    		for (Object value : setCrit.getValues()) {
+    			stats = getColumnStatistics(setCrit.getExpression(), (Expression)value);
+    			if (stats == null) {
+    				return UNKNOWN_VALUE;
+    			}
+    			Object val = ((Constant)value).getValue();
+    			hasNull |= val == null;
+    			float equality = stats.getEqualitySelectivity(val);
+    			if (equality == UNKNOWN_VALUE) {
+    				return UNKNOWN_VALUE;
+    			}
+    			selectivity += equality;
+    		}
+    		if (stats == null) {
+    			return UNKNOWN_VALUE;
+    		}
+    		selectivity = Math.min(selectivity, stats.getNonNullFraction());
+    		if (setCrit.isNegated()) {
+    			return hasNull?0:stats.getNonNullFraction() - selectivity;
+    		}
+    		return selectivity;
+    	} else if (predicateCriteria instanceof IsNullCriteria) {
+    		IsNullCriteria isNullCrit = (IsNullCriteria)predicateCriteria;
+    		ColumnStatistics stats = getColumnStatistics(isNullCrit.getExpression(), null);
+    		if (stats == null || stats.getRowCount() == 0) {
+    			return UNKNOWN_VALUE;
+    		}
+    		if (isNullCrit.isNegated()) {
+    			return stats.getNonNullFraction();
+    		}
+    		return 1 - stats.getNonNullFraction();
+    	}
+    	return UNKNOWN_VALUE;
+    }
+
+    /**
+     * @return the statistics for an element compared against a constant of the same type, or null if not available
+     */
+	private static ColumnStatistics getColumnStatistics(Expression ex, Expression value) {
+		if (!(ex instanceof ElementSymbol) || !(((ElementSymbol)ex).getMetadataID() instanceof TempMetadataID)) {
+			return null;
+		}
+		if (value != null && (!(value instanceof Constant) || ((Constant)value).isMultiValued() || value.getType() != ex.getType())) {
+			return null;
+		}
+		return ((TempMetadataID)((ElementSymbol)ex).getMetadataID()).getColumnStatistics();
+	}
+
     /** 
      * TODO: does not check for escape char
      * or if it will contain single match chars
@@ -1013,6 +1112,45 @@ public class NewCalculateCostUtil {
         return cost;
     }
     
+    /**
+     * Determine if the group node should use hash aggregation rather than sorting.
+     * Hash aggregation is chosen when the number of groups, taken from the ndv of the grouping columns,
+     * is known and is small relative to the input cardinality.  Grouping columns with types where
+     * equality is not consistent with the comparison used for sorting are not considered.
+     */
+    static boolean useHashAggregation(PlanNode groupNode, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
+    	List<Expression> groupCols = (List<Expression>)groupNode.getProperty(Info.GROUP_COLS);
+    	if (groupCols == null || groupCols.isEmpty()) {
+    		return false;
+    	}
+    	if (!isHashable(groupCols)) {
+    		return false;
+    	}
+    	float childCardinality = groupNode.getFirstChild().getCardinality();
+    	if (childCardinality == UNKNOWN_VALUE) {
+    		return false;
+    	}
+    	//don't use getNDVEstimate as it will guess based upon the cardinality
+    	float groups = getStat(Stat.NDV, groupCols, groupNode, childCardinality, metadata);
+    	if (groups == UNKNOWN_VALUE) {
+    		return false;
+    	}
+    	return groups <= childCardinality * HASH_AGGREGATION_RATIO;
+    }
+
+    /**
+     * Return true if the values of the expressions have equals/hashCode semantics consistent 
+     * with the comparison used by sorting.
+     */
+    static boolean isHashable(Collection<? extends Expression> expressions) {
+    	for (Expression ex : expressions) {
+    		if (!DataTypeManager.isHashable(ex.getType())) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     static boolean usesKey(PlanNode planNode, Collection<? extends Expression> allElements, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
     	//TODO: key preserved joins should be marked
     	return isSingleTable(planNode)
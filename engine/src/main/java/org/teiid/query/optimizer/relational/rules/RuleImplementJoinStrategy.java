@@ -202,6 +202,10 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 			}
 
 			boolean pushedRight = insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight);
+			if (useHashJoin(joinNode, joinType, leftExpressions, metadata, context)) {
+				joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+				continue;
+			}
         	if ((!pushedRight || !pushedLeft) && (joinType == JoinType.JOIN_INNER || (joinType == JoinType.JOIN_LEFT_OUTER && !pushedLeft))) {
         		joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
         	}
@@ -210,6 +214,26 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return plan;
     }
 
+    /**
+     * Use a hash join rather than sorting both sides when neither sort can be pushed
+     * and both sides are expected to be larger than a batch.
+     */
+    static boolean useHashJoin(PlanNode joinNode, JoinType joinType, List<Expression> expressions, QueryMetadataInterface metadata, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+    	if (context == null 
+    			|| (joinType != JoinType.JOIN_INNER && joinType != JoinType.JOIN_LEFT_OUTER)
+    			|| joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null
+    			|| joinNode.hasBooleanProperty(Info.IS_SEMI_DEP)
+    			|| joinNode.getProperty(NodeConstants.Info.SORT_LEFT) != SortOption.SORT
+    			|| joinNode.getProperty(NodeConstants.Info.SORT_RIGHT) != SortOption.SORT
+    			|| !NewCalculateCostUtil.isHashable(expressions)) {
+    		return false;
+    	}
+    	float leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
+    	float rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
+    	return leftCost != NewCalculateCostUtil.UNKNOWN_VALUE && rightCost != NewCalculateCostUtil.UNKNOWN_VALUE
+    			&& Math.min(leftCost, rightCost) > context.getProcessorBatchSize();
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
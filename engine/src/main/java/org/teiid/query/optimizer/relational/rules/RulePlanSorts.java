@@ -92,6 +92,10 @@ public class RulePlanSorts implements OptimizerRule {
 				if (NodeEditor.findParent(node, NodeConstants.Types.ACCESS) != null) {
 					return root;
 				}
+				if (node.getParent() != null && node.getParent().getType() == NodeConstants.Types.TUPLE_LIMIT) {
+					//only the first rows are needed, so the sort can use a bounded heap
+					node.setProperty(NodeConstants.Info.IS_TOP_N, true);
+				}
 			}
 			OrderBy orderBy = (OrderBy)node.getProperty(NodeConstants.Info.SORT_ORDER);
 			List<Expression> orderColumns = orderBy.getSortKeys();
@@ -126,12 +130,17 @@ public class RulePlanSorts implements OptimizerRule {
 					possibleSort.setProperty(Info.SORT_ORDER, orderBy);
 				}
 			} 
+			if (node.getType() == NodeConstants.Types.SORT) {
+				checkForStreamingWindow(node);
+			}
 			break;
 		case NodeConstants.Types.DUP_REMOVE:
 			if (parentBlocking) {
 				node.setType(NodeConstants.Types.SORT);
 				node.setProperty(NodeConstants.Info.IS_DUP_REMOVAL, true);
-			} 
+			} else {
+				checkForHashDistinct(node);
+			}
 			break;
 		case NodeConstants.Types.GROUP:
 			if (!node.hasCollectionProperty(NodeConstants.Info.GROUP_COLS)) {
@@ -165,12 +174,18 @@ public class RulePlanSorts implements OptimizerRule {
 					}
 				}
 			}
+			if (!node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL) && !node.hasBooleanProperty(Info.ROLLUP)
+					&& !node.hasProperty(Info.SORT_ORDER) && NewCalculateCostUtil.useHashAggregation(node, metadata)) {
+				//no ordering is expected from the grouping, so avoid the sort
+				node.setProperty(Info.HASH_AGGREGATION, true);
+			}
 			//TODO: check the join interesting order
 			parentBlocking = true;
 			break;
 		case NodeConstants.Types.JOIN:
 			if (node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_LOOP 
-					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE) {
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.HASH) {
 				break;
 			}
 			/*
@@ -203,6 +218,7 @@ public class RulePlanSorts implements OptimizerRule {
 			} else if (!node.hasBooleanProperty(NodeConstants.Info.USE_ALL) && !parentBlocking) {
 				//do the incremental dup removal for lower latency
 			    node.setProperty(NodeConstants.Info.IS_DUP_REMOVAL, true);
+			    checkForHashDistinct(node);
 		    }
 			break;
 		}
@@ -212,6 +228,31 @@ public class RulePlanSorts implements OptimizerRule {
 		return root;
 	}
 
+	/**
+	 * The streaming dup removal can use a hash set rather than an STree if the 
+	 * output values have equals/hashCode semantics consistent with comparison.
+	 */
+	private void checkForHashDistinct(PlanNode node) {
+		List<Expression> outputCols = (List<Expression>)node.getProperty(Info.OUTPUT_COLS);
+		if (outputCols != null && NewCalculateCostUtil.isHashable(outputCols)) {
+			node.setProperty(Info.HASH_DISTINCT, true);
+		}
+	}
+
+	/**
+	 * A window function project directly under the sort does not need to preserve its input order,
+	 * so it may produce its output in the order of the window specification
+	 */
+	private void checkForStreamingWindow(PlanNode node) {
+		PlanNode child = node.getFirstChild();
+		while (child != null && child.getType() == NodeConstants.Types.SELECT) {
+			child = child.getFirstChild();
+		}
+		if (child != null && child.getType() == NodeConstants.Types.PROJECT && child.hasBooleanProperty(Info.HAS_WINDOW_FUNCTIONS)) {
+			child.setProperty(Info.STREAMING_WINDOW_FUNCTIONS, true);
+		}
+	}
+
 	private PlanNode checkForProjectOptimization(PlanNode node, PlanNode root, 
 			QueryMetadataInterface metadata, CapabilitiesFinder capFinder, AnalysisRecord record, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
 		PlanNode projectNode = node.getFirstChild();
@@ -154,6 +154,10 @@ public class QueryProcessor implements BatchProducer {
 	        		result.setRowOffset(rowOffset);
 	        		
 	        		if (result.getTerminationFlag()) {
+	        			if (result.getColumnarBatch() != null) {
+	        				//columnar tuples are read only
+	        				result = new TupleBatch(result.getBeginRow(), result.getTuples());
+	        			}
 	        			result.setTermination(TupleBatch.ITERATION_TERMINATED);
 	        			List<Object> terminationTuple = Arrays.asList(new Object[this.getOutputElements().size()]);
 	        			result.getTuples().add(terminationTuple);
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+/**
+ * A simple Bloom filter over value hash codes.  It may report false positives,
+ * but will never reject a value that was added.
+ * <br>
+ * Values must be of a hashable type - see {@link org.teiid.core.types.DataTypeManager#isHashable(Class)}
+ */
+class BloomFilter {
+	
+	static final double DEFAULT_FPP = .01;
+	
+	private static final int MAX_BITS = 1 << 26;
+	private static final int MAX_HASHES = 16;
+	
+	private long[] bits;
+	private int numBits;
+	private int numHashes;
+	
+	public BloomFilter(long expectedValues, double fpp) {
+		long n = Math.max(1, expectedValues);
+		long m = (long)Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		this.numBits = (int)Math.min(MAX_BITS, Math.max(64, m));
+		this.bits = new long[(numBits + 63) >>> 6];
+		this.numHashes = (int)Math.min(MAX_HASHES, Math.max(1, Math.round((double)numBits / n * Math.log(2))));
+	}
+	
+	public void add(Object value) {
+		long hash = hash(value);
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			bits[index >>> 6] |= 1l << index;
+		}
+	}
+	
+	/**
+	 * @return false if the value was definitely not added.  null values are never contained.
+	 */
+	public boolean mightContain(Object value) {
+		if (value == null) {
+			return false;
+		}
+		long hash = hash(value);
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			if ((bits[index >>> 6] & (1l << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public int getNumBits() {
+		return numBits;
+	}
+	
+	public int getNumHashes() {
+		return numHashes;
+	}
+	
+	/**
+	 * spread the hashCode over 64 bits using the murmur3 finalizer
+	 */
+	private static long hash(Object value) {
+		long h = value.hashCode();
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+}
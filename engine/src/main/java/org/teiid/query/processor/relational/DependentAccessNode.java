@@ -22,15 +22,21 @@
 
 package org.teiid.query.processor.relational;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.teiid.client.plan.PlanNode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.util.Assertion;
+import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.symbol.Expression;
 
 
 /**
@@ -50,6 +56,8 @@ public class DependentAccessNode extends AccessNode {
     private DependentCriteriaProcessor criteriaProcessor;
     private Criteria dependentCrit;
     private boolean sort = true;
+    private int[] filterIndexes;
+    private BloomFilter[] filters;
     /**
      * Cached rewritten command to be used as the base for all dependent queries.
      */
@@ -76,6 +84,8 @@ public class DependentAccessNode extends AccessNode {
         dependentCrit = null;
         sort = true;
         rewrittenCommand = null;
+        filterIndexes = null;
+        filters = null;
     }
     
     @Override
@@ -136,12 +146,17 @@ public class DependentAccessNode extends AccessNode {
         if (this.criteriaProcessor == null) {
             this.criteriaProcessor = new DependentCriteriaProcessor(this.maxSetSize, this.maxPredicates, this, query.getCriteria());
             this.criteriaProcessor.setPushdown(pushdown);
+            this.criteriaProcessor.setMaxDependentQueries(getContext().getOptions().getMaxDependentQueries());
         }
         
         if (this.dependentCrit == null) {
             dependentCrit = criteriaProcessor.prepareCriteria();
         }
         
+        if (filters == null) {
+        	setBloomFilters(query);
+        }
+        
         query.setCriteria(dependentCrit);
         
         if (sort && query.getOrderBy() != null && criteriaProcessor.hasNextCommand()) {
@@ -171,6 +186,46 @@ public class DependentAccessNode extends AccessNode {
         return result;
     }
 
+    /**
+     * Use the filters for dependent criteria that could not be pushed to pre-filter the source rows
+     * before they are seen by the join.
+     */
+    private void setBloomFilters(Query query) {
+    	Map<Expression, BloomFilter> bloomFilters = criteriaProcessor.getBloomFilters();
+    	if (bloomFilters.isEmpty() || query.getGroupBy() != null || query.hasAggregates()) {
+    		return;
+    	}
+    	List<Integer> indexes = new ArrayList<Integer>(bloomFilters.size());
+    	List<BloomFilter> matched = new ArrayList<BloomFilter>(bloomFilters.size());
+    	for (Map.Entry<Expression, BloomFilter> entry : bloomFilters.entrySet()) {
+    		int index = getElements().indexOf(entry.getKey());
+    		if (index != -1) {
+    			indexes.add(index);
+    			matched.add(entry.getValue());
+    		}
+    	}
+    	if (matched.isEmpty()) {
+    		return;
+    	}
+    	filterIndexes = new int[indexes.size()];
+    	for (int i = 0; i < filterIndexes.length; i++) {
+    		filterIndexes[i] = indexes.get(i);
+    	}
+    	filters = matched.toArray(new BloomFilter[matched.size()]);
+    }
+    
+    @Override
+    protected void addBatchRow(List<?> row) {
+    	if (filters != null) {
+    		for (int i = 0; i < filters.length; i++) {
+    			if (!filters[i].mightContain(row.get(filterIndexes[i]))) {
+    				return;
+    			}
+    		}
+    	}
+    	super.addBatchRow(row);
+    }
+
     /**
      * @see org.teiid.query.processor.relational.AccessNode#hasNextCommand()
      */
@@ -182,6 +237,15 @@ public class DependentAccessNode extends AccessNode {
 		this.pushdown = pushdown;
 	}
 	
+	@Override
+	public synchronized PlanNode getDescriptionProperties() {
+		PlanNode props = super.getDescriptionProperties();
+		if (this.criteriaProcessor != null && this.criteriaProcessor.getBackoff() != null) {
+			props.addProperty(AnalysisRecord.PROP_DEPENDENT_BACKOFF, this.criteriaProcessor.getBackoff());
+		}
+		return props;
+	}
+	
 	@Override
 	public Boolean requiresTransaction(boolean transactionalReads) {
 		if (transactionalReads || !(this.getCommand() instanceof QueryCommand)) {
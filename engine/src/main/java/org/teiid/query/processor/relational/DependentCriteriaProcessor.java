@@ -28,6 +28,7 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.query.QueryPlugin;
@@ -81,6 +82,7 @@ public class DependentCriteriaProcessor {
         private List<SetState> dependentSetStates = new LinkedList<SetState>();
         private String valueSource;
         private DependentValueSource originalVs;
+        private boolean hinted;
 
         public TupleState(String source) {
         	this.valueSource = source;
@@ -129,6 +131,7 @@ public class DependentCriteriaProcessor {
                 	if (!setState.overMax && distinctCount > setState.maxNdv) {
                 		LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30011, valueSource, setState.valueExpression, setState.maxNdv));
                 		setState.overMax = true;
+                		addBackoff(valueSource + " " + distinctCount + " values > max ndv " + setState.maxNdv); //$NON-NLS-1$ //$NON-NLS-2$
                 	}
     			}
             }
@@ -161,6 +164,7 @@ public class DependentCriteriaProcessor {
     private int maxPredicates;
     private RelationalNode dependentNode;
     private boolean pushdown;
+    private int maxDependentQueries;
 
     //initialization state
     private List<Criteria> queryCriteria;
@@ -177,6 +181,9 @@ public class DependentCriteriaProcessor {
 	
 	private int totalPredicates;
 	private long maxSize;
+	
+	private Map<Expression, BloomFilter> bloomFilters = new LinkedHashMap<Expression, BloomFilter>();
+	private List<String> backoff;
 
     public DependentCriteriaProcessor(int maxSetSize, int maxPredicates, RelationalNode dependentNode, Criteria dependentCriteria) throws ExpressionEvaluationException, TeiidComponentException {
         this.maxSetSize = maxSetSize;
@@ -221,6 +228,7 @@ public class DependentCriteriaProcessor {
                     sources.add(ts.getDepedentSetStates());
                 }
                 ts.getDepedentSetStates().add(state);
+                ts.hinted |= dsc.getMakeDepOptions() != null;
                 state.maxNdv = dsc.getMaxNdv();
             } 
         }        
@@ -281,6 +289,8 @@ public class DependentCriteriaProcessor {
 							|| (dsc.getMakeDepOptions() != null
 									&& dsc.getMakeDepOptions().getMax() != null 
 									&& dvs.getTupleBuffer().getRowCount() > dsc.getMakeDepOptions().getMax())) {
+						addBloomFilter(dsc, dvs);
+						addBackoff(dsc.getContextSymbol() + " " + dvs.getTupleBuffer().getRowCount() + " values exceed the max for pushdown"); //$NON-NLS-1$ //$NON-NLS-2$
 						continue; // don't try to pushdown
 					}
 					dsc = dsc.clone();
@@ -300,6 +310,10 @@ public class DependentCriteriaProcessor {
 				}
 			}
 
+        	if (maxDependentQueries > 0 && maxSize < Integer.MAX_VALUE) {
+        		checkQueryCount();
+        	}
+
 			//proceed with set based processing
             phase = SET_PROCESSING;
         }
@@ -441,10 +455,12 @@ public class DependentCriteriaProcessor {
         return hasNextCommand;
     }
     
-    public Criteria replaceDependentCriteria(AbstractSetCriteria crit, SetState state) throws TeiidComponentException {
+    public Criteria replaceDependentCriteria(AbstractSetCriteria crit, SetState state) throws TeiidComponentException, TeiidProcessingException {
     	if (state.overMax) {
             DependentValueSource originalVs = (DependentValueSource)dependentNode.getContext().getVariableContext().getGlobalValue(((DependentSetCriteria)crit).getContextSymbol());
             originalVs.setUnused(true);
+            DependentSetCriteria dsc = (DependentSetCriteria)crit;
+            addBloomFilter(dsc, dependentState.get(dsc.getContextSymbol()).dvs);
     		return QueryRewriter.TRUE_CRITERIA;
     	}
     	if (state.replacement.isEmpty()) {
@@ -492,8 +508,104 @@ public class DependentCriteriaProcessor {
     	return c;
     }
 
+    /**
+     * Estimate the number of source queries needed for the actual independent values.
+     * If there are more than the max, then the independent sources requiring the most 
+     * queries are not used as source criteria and the dependent rows will instead be filtered locally. 
+     */
+    private void checkQueryCount() {
+    	long predicatesPerSource = Math.max(1, totalPredicates / sources.size());
+    	List<TupleState> candidates = new ArrayList<TupleState>();
+    	final Map<TupleState, Long> queryCounts = new HashMap<TupleState, Long>();
+    	long queries = 1;
+    	for (TupleState ts : dependentState.values()) {
+    		long valueCount = 1;
+    		for (SetState setState : ts.dependentSetStates) {
+    			if (setState.overMax) {
+    				valueCount = 0;
+    				break;
+    			}
+    			valueCount = Math.max(valueCount, setState.valueCount);
+    		}
+    		long size = ts.dvs.getTupleBuffer().getRowCount() * valueCount;
+    		long perQuery = maxSize * predicatesPerSource;
+    		long count = size / perQuery + (size % perQuery != 0 ? 1 : 0);
+    		if (count <= 1) {
+    			continue;
+    		}
+    		queries = Math.min(Integer.MAX_VALUE, queries * count);
+    		if (!ts.hinted) {
+    			candidates.add(ts);
+    			queryCounts.put(ts, count);
+    		}
+    	}
+    	if (queries <= maxDependentQueries) {
+    		return;
+    	}
+    	Collections.sort(candidates, new Comparator<TupleState>() {
+    		@Override
+    		public int compare(TupleState o1, TupleState o2) {
+    			return queryCounts.get(o2).compareTo(queryCounts.get(o1));
+    		}
+		});
+    	for (TupleState ts : candidates) {
+    		if (queries <= maxDependentQueries) {
+    			break;
+    		}
+    		long count = queryCounts.get(ts);
+    		queries = queries / count + (queries % count != 0 ? 1 : 0);
+    		for (SetState setState : ts.dependentSetStates) {
+    			setState.overMax = true;
+    		}
+    		String message = ts.valueSource + " " + ts.dvs.getTupleBuffer().getRowCount() + " values would require " + count + " queries"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    		LogManager.logDetail(LogConstants.CTX_DQP, "Not using dependent values", message); //$NON-NLS-1$
+    		addBackoff(message);
+    	}
+    }
+    
+    private void addBackoff(String message) {
+    	if (backoff == null) {
+    		backoff = new ArrayList<String>(2);
+    	}
+    	backoff.add(message);
+    }
+    
+    /**
+     * @return the dependent value sources that were not used as source criteria and why, or null if all were used
+     */
+    public List<String> getBackoff() {
+		return backoff;
+	}
+    
+    /**
+     * When the values will not be used as source criteria, a {@link BloomFilter} 
+     * is created so that non-matching rows can still be removed locally
+     */
+    private void addBloomFilter(DependentSetCriteria dsc, DependentValueSource dvs) throws TeiidComponentException, TeiidProcessingException {
+    	if (dsc.hasMultipleAttributes() || bloomFilters.containsKey(dsc.getExpression())) {
+    		return;
+    	}
+    	Class<?> type = dsc.getExpression().getType();
+    	if (type != dsc.getValueExpression().getType() || !DataTypeManager.isHashable(type)) {
+    		return;
+    	}
+    	bloomFilters.put(dsc.getExpression(), dvs.getBloomFilter(dsc.getValueExpression()));
+    }
+    
+    /**
+     * @return the filters for dependent criteria that were not applied to the source query
+     * keyed by the dependent expression
+     */
+    Map<Expression, BloomFilter> getBloomFilters() {
+		return bloomFilters;
+	}
+    
 	public void setPushdown(boolean pushdown) {
 		this.pushdown = pushdown;
 	}
+	
+	public void setMaxDependentQueries(int maxDependentQueries) {
+		this.maxDependentQueries = maxDependentQueries;
+	}
 
 }
@@ -51,6 +51,7 @@ public class DependentValueSource implements
     private TupleBuffer buffer;
     private List<? extends Expression> schema;
     private Map<Expression, Set<Object>> cachedSets;
+    private Map<Expression, BloomFilter> bloomFilters;
     private boolean unused; //TODO: use this value instead of the context
     private boolean distinct;
 
@@ -150,6 +151,33 @@ public class DependentValueSource implements
     	return result;
     }
     
+    /**
+     * Get a {@link BloomFilter} of the non-null values for the given expression.
+     * The expression type should be hashable.
+     */
+    BloomFilter getBloomFilter(Expression valueExpression) throws TeiidComponentException, TeiidProcessingException {
+    	BloomFilter result = null;
+    	if (bloomFilters != null) {
+    		result = bloomFilters.get(valueExpression);
+    	}
+    	if (result == null) {
+    		result = new BloomFilter(buffer.getRowCount(), BloomFilter.DEFAULT_FPP);
+    		TupleSourceValueIterator ve = getValueIterator(valueExpression);
+    		while (ve.hasNext()) {
+    			Object value = ve.next();
+    			if (value != null) {
+    				result.add(value);
+    			}
+    		}
+    		ve.close();
+    		if (bloomFilters == null) {
+    			bloomFilters = new HashMap<Expression, BloomFilter>();
+    		}
+    		bloomFilters.put(valueExpression, result);
+    	}
+    	return result;
+    }
+    
     @Override
     public boolean isUnused() {
 		return unused;
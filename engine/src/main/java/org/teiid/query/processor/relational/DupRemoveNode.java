@@ -22,21 +22,58 @@
 
 package org.teiid.query.processor.relational;
 
+import static org.teiid.query.analysis.AnalysisRecord.*;
+
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 
+import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 
 public class DupRemoveNode extends RelationalNode {
+	
+	/**
+	 * A spilled portion of the input.  The seen rows have already been output
+	 * and are used only to detect duplicates in the remaining rows.
+	 */
+	static class HashPartition {
+		TupleBuffer seen;
+		TupleBuffer rows;
+		int level;
+		
+		HashPartition(TupleBuffer seen, TupleBuffer rows, int level) {
+			this.seen = seen;
+			this.rows = rows;
+			this.level = level;
+		}
+	}
 
 	private STree stree = null;
 	private TupleBatch batch;
 	private int counter;
 	
+	private boolean hashDistinct;
+	
+	//hash state
+	private HashSet<List<?>> hashSet;
+	private HashReservation hashReservation;
+	private int hashLevel;
+	private TupleBuffer[] seenPartitions;
+	private TupleBuffer[] rowPartitions;
+	private LinkedList<HashPartition> pendingPartitions;
+	private HashPartition currentPartition;
+	private TupleSource partitionSource;
+	private boolean childDone;
+	
 	public DupRemoveNode(int nodeID) {
 		super(nodeID);
 	}
@@ -46,17 +83,48 @@ public class DupRemoveNode extends RelationalNode {
         stree = null;
         counter = 0;
         batch = null;
+        hashSet = null;
+        hashReservation = null;
+        hashLevel = 0;
+        seenPartitions = null;
+        rowPartitions = null;
+        pendingPartitions = null;
+        currentPartition = null;
+        partitionSource = null;
+        childDone = false;
     }
     
+    /**
+     * Use an in-memory hash set rather than an STree to detect duplicates.  The 
+     * output values should have equals/hashCode semantics consistent with comparison.
+     */
+    public void setHashDistinct(boolean hashDistinct) {
+		this.hashDistinct = hashDistinct;
+	}
+    
+    public boolean isHashDistinct() {
+		return hashDistinct;
+	}
+    
     @Override
     public void open() throws TeiidComponentException, TeiidProcessingException {
     	super.open();
     	
+    	if (hashDistinct) {
+    		//the reservation is made a batch of rows at a time
+    		hashReservation = new HashReservation(getBufferManager(), this.getElements());
+    		hashSet = new HashSet<List<?>>();
+    		pendingPartitions = new LinkedList<HashPartition>();
+    		return;
+    	}
     	stree = getBufferManager().createSTree(this.getElements(), this.getConnectionID(), this.getElements().size());
     }
 
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
+		if (childDone) {
+			return partitionPhase();
+		}
 		while (true) {
 			if (batch == null) {
 				batch = this.getChildren()[0].nextBatch();
@@ -65,9 +133,15 @@ public class DupRemoveNode extends RelationalNode {
 			List<List<?>> tuples = batch.getTuples();
 			for (;counter < tuples.size(); counter++) {
 				List<?> tuple = tuples.get(counter);
-				List<?> existing = stree.insert(tuple, InsertMode.NEW, -1);
-				if (existing != null) {
-					continue;
+				if (hashSet != null) {
+					if (!addHash(tuple, true)) {
+						continue;
+					}
+				} else {
+					List<?> existing = stree.insert(tuple, InsertMode.NEW, -1);
+					if (existing != null) {
+						continue;
+					}
 				}
 				this.addBatchRow(tuple);
 				if (this.isBatchFull()) {
@@ -75,6 +149,12 @@ public class DupRemoveNode extends RelationalNode {
 				}
 			}
 			if (batch.getTerminationFlag()) {
+				if (hashSet != null) {
+					childDone = true;
+					batch = null;
+					endHashPass();
+					return partitionPhase();
+				}
 				terminateBatches();
 				return pullBatch();
 			}
@@ -82,17 +162,166 @@ public class DupRemoveNode extends RelationalNode {
 			counter = 0;
 		}
     }
+	
+	/**
+	 * Output the new rows from the spilled partitions.  The seen rows for a partition 
+	 * are loaded first without output.
+	 */
+	private TupleBatch partitionPhase() throws TeiidComponentException, TeiidProcessingException {
+		while (true) {
+			if (partitionSource != null) {
+				List<?> tuple = null;
+				while ((tuple = partitionSource.nextTuple()) != null) {
+					if (addHash(tuple, true)) {
+						this.addBatchRow(tuple);
+						if (this.isBatchFull()) {
+							return pullBatch();
+						}
+					}
+				}
+				partitionSource.closeSource();
+				partitionSource = null;
+				currentPartition.rows.remove();
+				currentPartition = null;
+				endHashPass();
+			}
+			if (pendingPartitions.isEmpty()) {
+				break;
+			}
+			currentPartition = pendingPartitions.removeFirst();
+			this.hashLevel = currentPartition.level;
+			TupleSource seen = currentPartition.seen.createIndexedTupleSource(true);
+			List<?> tuple = null;
+			while ((tuple = seen.nextTuple()) != null) {
+				addHash(tuple, false);
+			}
+			seen.closeSource();
+			currentPartition.seen.remove();
+			partitionSource = currentPartition.rows.createIndexedTupleSource(true);
+		}
+		terminateBatches();
+		return pullBatch();
+	}
+	
+	/**
+	 * Add the tuple to the hash set.  Once the reservation can no longer grow, tuples
+	 * not already in the set are written to the partitions instead.
+	 * @return true if the tuple is new and should be output
+	 */
+	private boolean addHash(List<?> tuple, boolean output) throws TeiidComponentException {
+		if (hashSet.contains(tuple)) {
+			return false;
+		}
+		if (rowPartitions == null && !hashReservation.reserve(hashSet.size(), hashLevel)) {
+			createHashPartitions();
+		}
+		if (rowPartitions != null) {
+			int partition = HashReservation.getPartition(tuple, hashLevel);
+			if (output) {
+				rowPartitions[partition].addTuple(tuple);
+			} else {
+				seenPartitions[partition].addTuple(tuple);
+			}
+			return false;
+		}
+		hashSet.add(tuple);
+		return output;
+	}
+	
+	/**
+	 * Clear the hash set.  Partitions that have rows are queued along with the seen rows
+	 * that hash to the same partition - the rest are discarded.
+	 */
+	private void endHashPass() throws TeiidComponentException {
+		if (rowPartitions != null) {
+			for (List<?> tuple : hashSet) {
+				int partition = HashReservation.getPartition(tuple, hashLevel);
+				if (rowPartitions[partition].getRowCount() > 0) {
+					seenPartitions[partition].addTuple(tuple);
+				}
+			}
+			//process the partitions depth first to limit the number of pending buffers
+			for (int i = rowPartitions.length - 1; i >= 0; i--) {
+				if (rowPartitions[i].getRowCount() == 0) {
+					rowPartitions[i].remove();
+					seenPartitions[i].remove();
+					continue;
+				}
+				rowPartitions[i].close();
+				seenPartitions[i].close();
+				pendingPartitions.addFirst(new HashPartition(seenPartitions[i], rowPartitions[i], hashLevel + 1));
+			}
+			rowPartitions = null;
+			seenPartitions = null;
+		}
+		hashSet.clear();
+		hashReservation.release();
+	}
+	
+	private void createHashPartitions() throws TeiidComponentException {
+		seenPartitions = createPartitionBuffers();
+		rowPartitions = createPartitionBuffers();
+	}
+
+	private TupleBuffer[] createPartitionBuffers() throws TeiidComponentException {
+		TupleBuffer[] result = new TupleBuffer[HashReservation.PARTITIONS];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getBufferManager().createTupleBuffer(this.getElements(), getConnectionID(), TupleSourceType.PROCESSOR);
+			result[i].setForwardOnly(true);
+		}
+		return result;
+	}
 
     public void closeDirect() {
     	if (stree != null) {
     		stree.remove();
     	}
+    	if (hashSet != null) {
+    		if (partitionSource != null) {
+    			partitionSource.closeSource();
+    			partitionSource = null;
+    		}
+    		if (currentPartition != null) {
+    			currentPartition.seen.remove();
+    			currentPartition.rows.remove();
+    			currentPartition = null;
+    		}
+    		removePartitions(seenPartitions);
+    		seenPartitions = null;
+    		removePartitions(rowPartitions);
+    		rowPartitions = null;
+    		for (HashPartition partition : pendingPartitions) {
+				partition.seen.remove();
+				partition.rows.remove();
+			}
+    		pendingPartitions.clear();
+    		hashSet.clear();
+    		hashReservation.release();
+    	}
     }
 
+	private void removePartitions(TupleBuffer[] partitions) {
+		if (partitions != null) {
+			for (TupleBuffer partition : partitions) {
+				partition.remove();
+			}
+		}
+	}
+
 	public Object clone(){
 		DupRemoveNode clonedNode = new DupRemoveNode(super.getID());
 		copyTo(clonedNode);
+		clonedNode.hashDistinct = hashDistinct;
 		return clonedNode;
 	}
+	
+	@Override
+	public PlanNode getDescriptionProperties() {
+		PlanNode props = super.getDescriptionProperties();
+		if (hashDistinct) {
+			props.addProperty(PROP_HASH_DISTINCT, Boolean.TRUE.toString());
+		}
+		return props;
+	}
     
 }
@@ -28,7 +28,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -38,6 +40,7 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
@@ -92,11 +95,22 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		    return exprTuple;
 		}
 	}
+    
+    static class HashPartition {
+    	TupleBuffer buffer;
+    	int level;
+    	
+    	HashPartition(TupleBuffer buffer, int level) {
+			this.buffer = buffer;
+			this.level = level;
+		}
+    }
 
 	// Grouping columns set by the planner 
 	private List<OrderByItem> orderBy;
 	private boolean removeDuplicates;
 	private SymbolMap outputMapping;
+	private boolean hashAggregation;
     
     // Collection phase
     private int phase = COLLECTION;
@@ -120,12 +134,24 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private int[] accumulatorStateCount;
     private TupleSource groupSortTupleSource;
     private int[] projection;
+    
+    // Hash aggregation
+    private HashMap<List<?>, List<Object>> hashTable;
+    private Iterator<List<Object>> hashOutput;
+    private List<Object> stateValues = new ArrayList<Object>();
+    private HashReservation hashReservation;
+    private int hashLevel;
+    private TupleBuffer[] hashPartitions;
+    private LinkedList<HashPartition> pendingPartitions;
 
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
     private static final int GROUP_SORT = 4;
     private static final int GROUP_SORT_OUTPUT = 5;
+    private static final int HASH = 6;
+    private static final int HASH_OUTPUT = 7;
+    
 	private int[] indexes;
 	private boolean rollup;
 	private HashMap<Integer, Integer> indexMap;
@@ -145,6 +171,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         lastRow = null;
         currentGroupTuple = null;
         
+        hashOutput = null;
+        hashLevel = 0;
+        
         if (this.functions != null) {
 	    	for (AggregateFunction[] functions : this.functions) {
 	    		for (AggregateFunction function : functions) {
@@ -165,6 +194,15 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     public void setOutputMapping(SymbolMap outputMapping) {
 		this.outputMapping = outputMapping;
 	}
+    
+    /**
+     * Use an in-memory hash table rather than sorting to determine the groups.
+     * Only applies when the output order does not matter and the accumulators can be 
+     * stored as state - otherwise the sort based processing is used. 
+     */
+    public void setHashAggregation(boolean hashAggregation) {
+		this.hashAggregation = hashAggregation;
+	}
 
 	@Override
 	public void initialize(CommandContext context, BufferManager bufferManager,
@@ -355,6 +393,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         	return groupSortOutputPhase();
         }
         
+        if (this.phase == HASH) {
+        	hashPhase();
+        }
+        
+        if (this.phase == HASH_OUTPUT) {
+        	return hashOutputPhase();
+        }
+        
         this.terminateBatches();
         return pullBatch();
     }
@@ -448,6 +494,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 			    		schema.add(es);
 		    		}
 		    		
+		    		if (hashAggregation) {
+		    			//the reservation is made a batch of groups at a time
+		    			this.hashReservation = new HashReservation(this.getBufferManager(), schema);
+		    			this.hashTable = new HashMap<List<?>, List<Object>>();
+		    			this.pendingPartitions = new LinkedList<HashPartition>();
+		    			this.groupSortTupleSource = this.getGroupSortTupleSource();
+		    			this.phase = HASH;
+		    			return;
+		    		}
+		    		
 		    		tree = this.getBufferManager().createSTree(schema, this.getConnectionID(), orderBy.size());
 		    		//non-default order needs to update the comparator
 		    		tree.getComparator().setNullOrdering(nullOrdering);
@@ -512,30 +568,143 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 	 * @throws TeiidProcessingException
 	 */
 	private TupleBatch groupSortOutputPhase() throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException, TeiidProcessingException {
+		List<?> tuple = null;
+		List<Object> vals = Arrays.asList(new Object[orderBy.size() + groupSortfunctions.length]);
+		while ((tuple = groupSortTupleSource.nextTuple()) != null) {
+			addBatchRow(getAccumulatedResult(tuple, vals));
+			if (isBatchFull()) {
+				return pullBatch();
+			}
+		}
+		terminateBatches();
+		return pullBatch();
+	}
+
+	/**
+	 * Get the output row from the group values followed by the accumulator state
+	 */
+	private List<?> getAccumulatedResult(List<?> tuple, List<Object> vals)
+			throws FunctionExecutionException, ExpressionEvaluationException,
+			TeiidComponentException, TeiidProcessingException {
+		int size = orderBy.size();
+		for (int i = 0; i < size; i++) {
+			vals.set(i, tuple.get(i));
+		}
+		int index = size;
+		for (int i = 0; i < this.groupSortfunctions.length; i++) {
+			AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+			aggregateFunction.setState(tuple, index);
+			index+=this.accumulatorStateCount[i];
+			vals.set(size + i, aggregateFunction.getResult(getContext()));
+		}
+		return RelationalNode.projectTuple(projection, vals);
+	}
+	
+	/**
+	 * Process the input and store the partial accumulator values in the hash table.
+	 * Once the reservation can no longer grow, rows for new groups are instead written
+	 * to partitions that will be processed after the current groups are output.
+	 * @throws TeiidComponentException
+	 * @throws TeiidProcessingException
+	 */
+	private void hashPhase() throws TeiidComponentException, TeiidProcessingException {
 		List<?> tuple = null;
 		int size = orderBy.size();
-		List<Object> vals = Arrays.asList(new Object[size + groupSortfunctions.length]);
 		while ((tuple = groupSortTupleSource.nextTuple()) != null) {
-			for (int i = 0; i < size; i++) {
-				vals.set(i, tuple.get(i));
+			List<Object> accumulated = hashTable.get(tuple.subList(0, size));
+			if (accumulated == null) {
+				if (hashPartitions == null && !hashReservation.reserve(hashTable.size(), hashLevel)) {
+					createHashPartitions();
+				}
+				if (hashPartitions != null) {
+					hashPartitions[HashReservation.getPartition(tuple.subList(0, size), hashLevel)].addTuple(tuple);
+					continue;
+				}
+				accumulated = new ArrayList<Object>();
+				//not all collected expressions are needed for the key
+				for (int i = 0; i < size; i++) {
+					accumulated.add(tuple.get(i));
+				}
+				for (int i = 0; i < this.groupSortfunctions.length; i++) {
+					AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+					aggregateFunction.reset();
+					aggregateFunction.addInput(tuple, getContext());
+					aggregateFunction.getState(accumulated);
+				}
+				//the key is a view of the accumulated values, which are only updated in place
+				hashTable.put(accumulated.subList(0, size), accumulated);
+				continue;
 			}
+			int index = size;
 			for (int i = 0; i < this.groupSortfunctions.length; i++) {
 				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
-				int index = size;
-				aggregateFunction.setState(tuple, index);
-				index+=this.accumulatorStateCount[i];
-				vals.set(size + i, aggregateFunction.getResult(getContext()));
+				aggregateFunction.setState(accumulated, index);
+				aggregateFunction.addInput(tuple, getContext());
+				stateValues.clear();
+				aggregateFunction.getState(stateValues);
+				for (int j = 0; j < stateValues.size(); j++) {
+					accumulated.set(index++, stateValues.get(j));
+				}
 			}
-			List<?> result = RelationalNode.projectTuple(projection, vals);
-			addBatchRow(result);
-			if (isBatchFull()) {
-				return pullBatch();
+		}
+		this.groupSortTupleSource.closeSource();
+		this.groupSortTupleSource = null;
+		if (hashPartitions != null) {
+			//process the partitions depth first to limit the number of pending buffers
+			for (int i = hashPartitions.length - 1; i >= 0; i--) {
+				TupleBuffer partition = hashPartitions[i];
+				if (partition.getRowCount() == 0) {
+					partition.remove();
+					continue;
+				}
+				partition.close();
+				pendingPartitions.addFirst(new HashPartition(partition, hashLevel + 1));
 			}
+			hashPartitions = null;
+		}
+		this.hashOutput = hashTable.values().iterator();
+		this.phase = HASH_OUTPUT;
+	}
+	
+	/**
+	 * Output the groups in the hash table, then move on to the next pending partition
+	 * @return
+	 * @throws TeiidComponentException
+	 * @throws TeiidProcessingException
+	 */
+	private TupleBatch hashOutputPhase() throws TeiidComponentException, TeiidProcessingException {
+		List<Object> vals = Arrays.asList(new Object[orderBy.size() + groupSortfunctions.length]);
+		while (true) {
+			while (hashOutput.hasNext()) {
+				addBatchRow(getAccumulatedResult(hashOutput.next(), vals));
+				if (isBatchFull()) {
+					return pullBatch();
+				}
+			}
+			hashTable.clear();
+			hashReservation.release();
+			if (pendingPartitions.isEmpty()) {
+				break;
+			}
+			HashPartition partition = pendingPartitions.removeFirst();
+			this.hashLevel = partition.level;
+			this.groupSortTupleSource = partition.buffer.createIndexedTupleSource(true);
+			this.phase = HASH;
+			hashPhase();
 		}
 		terminateBatches();
 		return pullBatch();
 	}
-
+	
+	private void createHashPartitions() throws TeiidComponentException {
+		List<Expression> schema = new ArrayList<Expression>(collectedExpressions.keySet());
+		hashPartitions = new TupleBuffer[HashReservation.PARTITIONS];
+		for (int i = 0; i < hashPartitions.length; i++) {
+			hashPartitions[i] = getBufferManager().createTupleBuffer(schema, getConnectionID(), TupleSourceType.PROCESSOR);
+			hashPartitions[i].setForwardOnly(true);
+		}
+	}
+	
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
         this.sortBuffer = this.sortUtility.sort();
         this.sortBuffer.setForwardOnly(true);
@@ -659,6 +828,25 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     		this.tree.remove();
     		this.tree = null;
     	}
+    	if (this.hashTable != null) {
+    		if (this.groupSortTupleSource != null) {
+    			this.groupSortTupleSource.closeSource();
+    			this.groupSortTupleSource = null;
+    		}
+    		if (this.hashPartitions != null) {
+    			for (TupleBuffer partition : this.hashPartitions) {
+					partition.remove();
+				}
+    			this.hashPartitions = null;
+    		}
+    		for (HashPartition partition : this.pendingPartitions) {
+				partition.buffer.remove();
+			}
+    		this.pendingPartitions.clear();
+    		this.hashTable.clear();
+    		this.hashOutput = null;
+    		this.hashReservation.release();
+    	}
     }
 
 	protected void getNodeString(StringBuffer str) {
@@ -676,6 +864,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		clonedNode.outputMapping = outputMapping;
 		clonedNode.orderBy = orderBy;
 		clonedNode.rollup = rollup;
+		clonedNode.hashAggregation = hashAggregation;
 		return clonedNode;
 	}
 
@@ -695,6 +884,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         if (rollup) {
         	props.addProperty(PROP_ROLLUP, Boolean.TRUE.toString());
         }
+        if (hashAggregation) {
+        	props.addProperty(PROP_HASH_AGGREGATION, Boolean.TRUE.toString());
+        }
         return props;
     }
 
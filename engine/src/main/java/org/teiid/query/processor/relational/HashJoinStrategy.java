@@ -0,0 +1,421 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.Expression;
+
+
+/**
+ * A partitioned hybrid hash join.
+ * <br>
+ * The build side, which is the smaller side for inner joins and the right side for left outer joins, 
+ * is hashed on the join expressions into partitions held in memory.  Once the reservation cannot grow
+ * the largest memory resident partition is spilled to a buffer along with the probe rows that hash to it.
+ * The spilled partition pairs are then joined in subsequent passes with a different hash.
+ * <br>
+ * Only inner and left outer joins are supported, other join types are processed as a merge join. 
+ * Non-equi join criteria is evaluated against each match.
+ */
+public class HashJoinStrategy extends MergeJoinStrategy {
+	
+	private static final class KeyView extends AbstractList<Object> {
+		private int[] indexes;
+		private List<?> tuple;
+		
+		public KeyView(int[] indexes) {
+			this.indexes = indexes;
+		}
+		
+		@Override
+		public Object get(int index) {
+			return tuple.get(indexes[index]);
+		}
+		
+		@Override
+		public int size() {
+			return indexes.length;
+		}
+		
+		boolean hasNull() {
+			for (int i : indexes) {
+				if (tuple.get(i) == null) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	private static class Partition {
+		TupleBuffer build;
+		TupleBuffer probe;
+		int level;
+		
+		Partition(TupleBuffer build, TupleBuffer probe, int level) {
+			this.build = build;
+			this.probe = probe;
+			this.level = level;
+		}
+	}
+	
+	private enum State {
+		BUILD, PROBE, DONE
+	}
+
+	private boolean hash;
+	private Boolean buildLeft;
+	private SourceState buildSource;
+	private SourceState probeSource;
+	private KeyView buildKey;
+	private KeyView probeKey;
+	
+	//pass state
+	private State state = State.BUILD;
+	private int level;
+	private boolean spilledPass;
+	private TupleSource buildTs;
+	private TupleSource probeTs;
+	private HashMap<List<?>, List<List<?>>>[] tables;
+	private int[] partitionRows;
+	private TupleBuffer[] buildBuffers;
+	private TupleBuffer[] probeBuffers;
+	private int rowsInMemory;
+	private HashReservation reservation;
+	private LinkedList<Partition> pending = new LinkedList<Partition>();
+	
+	//probe state
+	private List<?> probeTuple;
+	private List<List<?>> matches;
+	private int matchIndex;
+	private boolean matched;
+	
+	public HashJoinStrategy(SortOption sortLeft, SortOption sortRight) {
+		super(sortLeft, sortRight, false);
+	}
+	
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		this.hash = joinNode.getJoinType() == JoinType.JOIN_INNER || joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER;
+	}
+	
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		super.close();
+		if (this.spilledPass) {
+			closeSpilledSources();
+		}
+		this.buildTs = null;
+		this.probeTs = null;
+		this.buildLeft = null;
+		this.spilledPass = false;
+		this.state = State.BUILD;
+		this.probeTuple = null;
+		this.matches = null;
+		removeBuffers(this.buildBuffers);
+		removeBuffers(this.probeBuffers);
+		for (Partition partition : this.pending) {
+			partition.build.remove();
+			partition.probe.remove();
+		}
+		this.pending.clear();
+		this.tables = null;
+		if (this.reservation != null) {
+			this.reservation.release();
+			this.reservation = null;
+		}
+	}
+
+	private void closeSpilledSources() {
+		if (this.buildTs != null) {
+			this.buildTs.closeSource();
+		}
+		if (this.probeTs != null) {
+			this.probeTs.closeSource();
+		}
+	}
+	
+	private void removeBuffers(TupleBuffer[] buffers) {
+		if (buffers == null) {
+			return;
+		}
+		for (TupleBuffer buffer : buffers) {
+			if (buffer != null) {
+				buffer.remove();
+			}
+		}
+	}
+	
+	@Override
+	protected void loadLeft() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!hash) {
+			super.loadLeft();
+		}
+	}
+	
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!hash) {
+			super.loadRight();
+			return;
+		}
+		if (this.buildLeft == null) {
+			this.leftSource.setImplicitBuffer(ImplicitBuffer.NONE);
+			this.rightSource.setImplicitBuffer(ImplicitBuffer.NONE);
+			this.buildLeft = buildLeft();
+			if (this.buildLeft) {
+				this.buildSource = this.leftSource;
+				this.probeSource = this.rightSource;
+			} else {
+				this.buildSource = this.rightSource;
+				this.probeSource = this.leftSource;
+			}
+			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "hash join building on the", this.buildLeft?"left":"right", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			this.buildKey = new KeyView(this.buildSource.getExpressionIndexes());
+			this.probeKey = new KeyView(this.probeSource.getExpressionIndexes());
+			this.buildTs = this.buildSource.getIterator();
+			this.probeTs = this.probeSource.getIterator();
+			List<? extends Expression> elements = this.buildSource.getSource().getElements();
+			this.reservation = new HashReservation(this.joinNode.getBufferManager(), elements);
+			startPass(0);
+		}
+	}
+
+	/**
+	 * Determine the build side in an incremental fashion, so that the larger side is not
+	 * fully buffered
+	 */
+	private boolean buildLeft() throws TeiidComponentException, TeiidProcessingException {
+		if (this.joinNode.getJoinType() != JoinType.JOIN_INNER) {
+			return false;
+		}
+		long size = this.joinNode.getBatchSize();
+		while (true) {
+			if (this.rightSource.rowCountLE(size)) {
+				return false;
+			}
+			if (this.leftSource.rowCountLE(size)) {
+				return true;
+			}
+			size *= 2;
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void startPass(int passLevel) {
+		this.level = passLevel;
+		this.tables = new HashMap[HashReservation.PARTITIONS];
+		for (int i = 0; i < HashReservation.PARTITIONS; i++) {
+			this.tables[i] = new HashMap<List<?>, List<List<?>>>();
+		}
+		this.partitionRows = new int[HashReservation.PARTITIONS];
+		this.buildBuffers = new TupleBuffer[HashReservation.PARTITIONS];
+		this.probeBuffers = new TupleBuffer[HashReservation.PARTITIONS];
+		this.rowsInMemory = 0;
+		this.state = State.BUILD;
+	}
+	
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!hash) {
+			super.process();
+			return;
+		}
+		while (this.state != State.DONE) {
+			if (this.state == State.BUILD) {
+				build();
+			}
+			if (this.state == State.PROBE) {
+				probe();
+			}
+		}
+	}
+
+	/**
+	 * Hash the build side rows into the partitions.  Rows with a null key 
+	 * cannot match and are not retained.
+	 */
+	private void build() throws TeiidComponentException, TeiidProcessingException {
+		List<?> tuple = null;
+		while ((tuple = this.buildTs.nextTuple()) != null) {
+			this.buildKey.tuple = tuple;
+			if (this.buildKey.hasNull()) {
+				continue;
+			}
+			int partition = HashReservation.getPartition(this.buildKey, this.level);
+			if (this.buildBuffers[partition] == null && !this.reservation.reserve(this.rowsInMemory, this.level)) {
+				spill();
+			}
+			if (this.buildBuffers[partition] != null) {
+				this.buildBuffers[partition].addTuple(tuple);
+				continue;
+			}
+			List<List<?>> values = this.tables[partition].get(this.buildKey);
+			if (values == null) {
+				values = new ArrayList<List<?>>(2);
+				this.tables[partition].put(new ArrayList<Object>(this.buildKey), values);
+			}
+			values.add(tuple);
+			this.partitionRows[partition]++;
+			this.rowsInMemory++;
+		}
+		this.state = State.PROBE;
+	}
+	
+	/**
+	 * Move the largest memory resident partition to a buffer
+	 */
+	private void spill() throws TeiidComponentException {
+		int largest = 0;
+		for (int i = 1; i < HashReservation.PARTITIONS; i++) {
+			if (this.partitionRows[i] > this.partitionRows[largest]) {
+				largest = i;
+			}
+		}
+		TupleBuffer buffer = this.buildSource.createSourceTupleBuffer();
+		for (List<List<?>> values : this.tables[largest].values()) {
+			for (List<?> tuple : values) {
+				buffer.addTuple(tuple);
+			}
+		}
+		this.buildBuffers[largest] = buffer;
+		this.probeBuffers[largest] = this.probeSource.createSourceTupleBuffer();
+		this.tables[largest] = null;
+		this.rowsInMemory -= this.partitionRows[largest];
+		this.partitionRows[largest] = 0;
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "hash join spilling partition", largest, "at level", this.level, this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	/**
+	 * Probe the memory partitions, buffering the rows for spilled partitions
+	 */
+	private void probe() throws TeiidComponentException, TeiidProcessingException {
+		while (true) {
+			if (this.probeTuple == null) {
+				this.probeTuple = this.probeTs.nextTuple();
+				if (this.probeTuple == null) {
+					break;
+				}
+				this.matched = false;
+				this.matchIndex = 0;
+				this.matches = null;
+				this.probeKey.tuple = this.probeTuple;
+				if (!this.probeKey.hasNull()) {
+					int partition = HashReservation.getPartition(this.probeKey, this.level);
+					if (this.probeBuffers[partition] != null) {
+						this.probeBuffers[partition].addTuple(this.probeTuple);
+						this.probeTuple = null;
+						continue;
+					}
+					this.matches = this.tables[partition].get(this.probeKey);
+				}
+			}
+			if (this.matches != null) {
+				while (this.matchIndex < this.matches.size()) {
+					List<?> buildTuple = this.matches.get(this.matchIndex);
+					List outputTuple = this.buildLeft?outputTuple(buildTuple, this.probeTuple):outputTuple(this.probeTuple, buildTuple);
+					boolean matches = this.joinNode.matchesCriteria(outputTuple);
+					this.matchIndex++;
+					if (matches) {
+						this.matched = true;
+						this.joinNode.addBatchRow(outputTuple);
+					}
+				}
+			}
+			List<?> tuple = this.probeTuple;
+			this.probeTuple = null;
+			if (!this.matched && this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+				this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+			}
+		}
+		if (this.spilledPass) {
+			closeSpilledSources();
+		}
+		this.buildTs = null;
+		this.probeTs = null;
+		this.tables = null;
+		this.reservation.release();
+		for (int i = HashReservation.PARTITIONS - 1; i >= 0; i--) {
+			if (this.buildBuffers[i] == null) {
+				continue;
+			}
+			TupleBuffer build = this.buildBuffers[i];
+			TupleBuffer probe = this.probeBuffers[i];
+			this.buildBuffers[i] = null;
+			this.probeBuffers[i] = null;
+			if (probe.getRowCount() == 0) {
+				build.remove();
+				probe.remove();
+				continue;
+			}
+			build.close();
+			probe.close();
+			this.pending.addFirst(new Partition(build, probe, this.level + 1));
+		}
+		if (this.pending.isEmpty()) {
+			this.state = State.DONE;
+			return;
+		}
+		Partition partition = this.pending.removeFirst();
+		startPass(partition.level);
+		this.spilledPass = true;
+		this.buildTs = partition.build.createIndexedTupleSource(true);
+		this.probeTs = partition.probe.createIndexedTupleSource(true);
+	}
+	
+	@Override
+	public HashJoinStrategy clone() {
+		return new HashJoinStrategy(this.sortLeft, this.sortRight);
+	}
+	
+	@Override
+	public String getName() {
+		return "HASH JOIN"; //$NON-NLS-1$
+	}
+
+}
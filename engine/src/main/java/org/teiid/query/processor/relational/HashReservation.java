@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.List;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * The buffer reservation for the in memory hash table of a hash join, hash aggregation,
+ * or hash distinct.  The reservation is grown a batch of rows at a time and once it can 
+ * no longer grow the remaining rows are expected to be written to partitions that are
+ * processed at the next level.
+ */
+class HashReservation {
+	
+	static final int PARTITIONS = 16;
+	static final int MAX_LEVEL = 3;
+	
+	private BufferManager bufferManager;
+	private int schemaSize;
+	private int batchRows;
+	private int reserved;
+	private int capacity;
+	
+	HashReservation(BufferManager bufferManager, List<? extends Expression> schema) {
+		this.bufferManager = bufferManager;
+		this.schemaSize = bufferManager.getSchemaSize(schema);
+		this.batchRows = bufferManager.getProcessorBatchSize(schema);
+	}
+	
+	/**
+	 * Ensure there is room for another row, reserving space for another batch if needed.  
+	 * The initial reservation is forced so that progress is always made.  At the max level 
+	 * we no longer partition.
+	 * @param rows the number of rows already held in memory
+	 * @return false if the reservation could not grow and the row should be partitioned
+	 */
+	boolean reserve(int rows, int level) {
+		if (rows < this.capacity) {
+			return true;
+		}
+		BufferReserveMode mode = BufferReserveMode.NO_WAIT;
+		if (this.reserved == 0 || level >= MAX_LEVEL) {
+			mode = BufferReserveMode.FORCE;
+		}
+		int result = this.bufferManager.reserveBuffers(this.schemaSize, mode);
+		if (result < this.schemaSize) {
+			this.bufferManager.releaseBuffers(result);
+			return false;
+		}
+		this.reserved += result;
+		this.capacity += this.batchRows;
+		return true;
+	}
+	
+	void release() {
+		if (this.reserved > 0) {
+			this.bufferManager.releaseBuffers(this.reserved);
+		}
+		this.reserved = 0;
+		this.capacity = 0;
+	}
+	
+	/**
+	 * Get the partition for the key, the hash is mixed with the level so that
+	 * a partition will be split further at the next level.
+	 */
+	static int getPartition(List<?> key, int level) {
+		int h = key.hashCode() ^ (level * 0x9e3779b9);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h & (PARTITIONS - 1);
+	}
+
+}
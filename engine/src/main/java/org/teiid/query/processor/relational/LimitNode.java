@@ -140,6 +140,12 @@ public class LimitNode extends RelationalNode {
             offset = 0;
         }
         offsetPhase = offset > 0;
+        if (limit > 0 && getChildren()[0] instanceof SortNode) {
+        	SortNode sortNode = (SortNode)getChildren()[0];
+        	if (sortNode.isTopN()) {
+        		sortNode.setRowLimit((int)Math.min(Integer.MAX_VALUE, (long)limit + offset));
+        	}
+        }
         super.open();
     }
 
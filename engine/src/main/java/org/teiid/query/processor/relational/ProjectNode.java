@@ -39,6 +39,7 @@ import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
@@ -54,6 +55,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private boolean needsProject = true;
     private List<Expression> expressions;
     private int[] projectionIndexes;
+    private CompiledExpression[] compiledExpressions;
 
     // Saved state when blocked on evaluating a row - must be reset
     private TupleBatch currentBatch;
@@ -92,6 +94,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     	for (Expression ses : this.selectSymbols) {
 			this.expressions.add(SymbolMap.getExpression(ses));
 		}
+		compileExpressions();
 	}
 	
 	@Override
@@ -130,6 +133,16 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
             	projectionIndexes[i] = index;
             }
         }
+        compileExpressions();
+	}
+
+	private void compileExpressions() {
+		this.compiledExpressions = new CompiledExpression[this.expressions.size()];
+		for (int i = 0; i < this.compiledExpressions.length; i++) {
+			if (projectionIndexes[i] == -1) {
+				this.compiledExpressions[i] = CompiledExpression.compile(this.expressions.get(i), this.elementMap);
+			}
+		}
 	}
 	
 	public TupleBatch nextBatchDirect()
@@ -154,15 +167,19 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
             }
         }
 
+        boolean batchMode = !CompiledExpression.requiresRowMode(this.compiledExpressions);
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
+        	if (batchMode) {
+        		projectBatch();
+        		continue;
+        	}
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
 			List<Object> projectedTuple = new ArrayList<Object>(selectSymbols.size());
 
 			// Walk through symbols
             for(int i=0; i<expressions.size(); i++) {
-				Expression symbol = expressions.get(i);
-				updateTuple(symbol, i, tuple, projectedTuple);
+				updateTuple(i, tuple, projectedTuple);
 			}
 
             // Add to batch
@@ -180,14 +197,42 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     	return pullBatch();
 	}
 
-	private void updateTuple(Expression symbol, int projectionIndex, List<?> values, List<Object> tuple)
+	/**
+	 * Project as many of the remaining rows of the current batch as will fit, evaluating
+	 * each expression against all of the rows at once 
+	 */
+	private void projectBatch() throws ExpressionEvaluationException,
+			BlockedException, TeiidComponentException {
+		int count = Math.min(currentBatch.getEndRow() - currentRow + 1, getRemainingBatchCapacity());
+		List<List<?>> rows = currentBatch.getTuples();
+		int[] selection = CompiledExpression.getSelection(currentRow - currentBatch.getBeginRow(), count);
+		Object[][] columns = new Object[this.compiledExpressions.length][];
+		for (int i = 0; i < columns.length; i++) {
+			if (this.projectionIndexes[i] == -1) {
+				columns[i] = new Object[count];
+				this.compiledExpressions[i].evaluate(rows, selection, count, getEvaluator(this.elementMap), columns[i]);
+			}
+		}
+		for (int row = 0; row < count; row++) {
+			List<?> tuple = rows.get(selection[row]);
+			List<Object> projectedTuple = new ArrayList<Object>(columns.length);
+			for (int i = 0; i < columns.length; i++) {
+				int index = this.projectionIndexes[i];
+				projectedTuple.add(index != -1 ? tuple.get(index) : columns[i][row]);
+			}
+			addBatchRow(projectedTuple);
+		}
+		currentRow += count;
+	}
+
+	private void updateTuple(int projectionIndex, List<?> values, List<Object> tuple)
 		throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
 
         int index = this.projectionIndexes[projectionIndex];
         if(index != -1) {
 			tuple.add(values.get(index));
         } else { 
-			tuple.add(getEvaluator(this.elementMap).evaluate(symbol, values));
+			tuple.add(this.compiledExpressions[projectionIndex].evaluate(values, getEvaluator(this.elementMap)));
 		}
 	}
 
@@ -209,6 +254,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         target.elementMap = elementMap;
         target.expressions = expressions;
         target.projectionIndexes = projectionIndexes;
+        target.compiledExpressions = compiledExpressions;
     }
 
     public PlanNode getDescriptionProperties() {
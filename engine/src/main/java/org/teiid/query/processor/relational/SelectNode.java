@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -36,6 +37,7 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -51,6 +53,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // Derived element lookup map
     private Map<Expression, Integer> elementMap; 
     private int[] projectionIndexes;
+    private CompiledExpression compiledCriteria;
 	
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
@@ -91,6 +94,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         if(this.elementMap == null) {
             this.elementMap = createLookupMap(this.getChildren()[0].getElements());
             this.projectionIndexes = getProjectionIndexes(this.elementMap, projectedExpressions!=null?projectedExpressions:getElements());
+            this.compiledCriteria = CompiledExpression.compile(this.criteria, this.elementMap);
         }
 	}
 	
@@ -104,10 +108,15 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
 
+        boolean batchMode = !this.compiledCriteria.requiresRowMode();
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
+        	if (batchMode) {
+        		filterBatch();
+        		continue;
+        	}
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
-            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
+            if(this.compiledCriteria.matches(tuple, getEvaluator(this.elementMap))) {
                 addBatchRow(projectTuple(this.projectionIndexes, tuple));
             }
             currentRow++;
@@ -123,6 +132,24 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     	return pullBatch();
 	}
     
+	/**
+	 * Evaluate the criteria against as many of the remaining rows of the current batch as will fit
+	 */
+	private void filterBatch() throws ExpressionEvaluationException,
+			BlockedException, TeiidComponentException {
+		int count = Math.min(currentBatch.getEndRow() - currentRow + 1, getRemainingBatchCapacity());
+		List<List<?>> rows = currentBatch.getTuples();
+		int[] selection = CompiledExpression.getSelection(currentRow - currentBatch.getBeginRow(), count);
+		Object[] results = new Object[count];
+		this.compiledCriteria.evaluate(rows, selection, count, getEvaluator(this.elementMap), results);
+		for (int i = 0; i < count; i++) {
+			if (Boolean.TRUE.equals(results[i])) {
+				addBatchRow(projectTuple(this.projectionIndexes, rows.get(selection[i])));
+			}
+		}
+		currentRow += count;
+	}
+    
 	protected void getNodeString(StringBuffer str) {
 		super.getNodeString(str);
 		str.append(criteria);
@@ -139,6 +166,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 		target.criteria = criteria;
 		target.elementMap = elementMap;
 		target.projectionIndexes = projectionIndexes;
+		target.compiledCriteria = compiledCriteria;
 		target.projectedExpressions = projectedExpressions;
 	}
     
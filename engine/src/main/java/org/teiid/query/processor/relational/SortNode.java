@@ -51,6 +51,7 @@ public class SortNode extends RelationalNode {
     private boolean usingOutput;
     
     private int rowLimit = -1;
+    private boolean topN;
 
     private static final int SORT = 2;
     private static final int OUTPUT = 3;
@@ -84,6 +85,21 @@ public class SortNode extends RelationalNode {
 	public void setMode(Mode mode) {
 		this.mode = mode;
 	}
+	
+	public boolean isTopN() {
+		return topN;
+	}
+	
+	/**
+	 * Allow the sort to retain only the row limit set by the parent limit node. 
+	 */
+	public void setTopN(boolean topN) {
+		this.topN = topN;
+	}
+	
+	void setRowLimit(int rowLimit) {
+		this.rowLimit = rowLimit;
+	}
 
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
@@ -108,6 +124,10 @@ public class SortNode extends RelationalNode {
 	        if (ts == null) {
 	        	this.sortUtility.setWorkingBuffer(working);
 	        }
+	        if (topN && rowLimit >= 0) {
+	        	this.sortUtility.setTopN(rowLimit);
+	        }
+	        this.sortUtility.setCommandContext(getContext());
 		}
 		this.output = this.sortUtility.sort();
 		if (this.outputTs == null) {
@@ -174,6 +194,7 @@ public class SortNode extends RelationalNode {
 		super.copyTo(target);
 		target.items = items;
 		target.mode = mode;
+		target.topN = topN;
 	}
 
 	public Object clone(){
@@ -23,11 +23,18 @@
 package org.teiid.query.processor.relational;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -38,6 +45,7 @@ import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.util.Assertion;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.language.SortSpecification.NullOrdering;
@@ -47,6 +55,7 @@ import org.teiid.logging.MessageLevel;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
 
 
 /**
@@ -88,6 +97,29 @@ public class SortUtility {
 		}
 	}
 
+	/**
+	 * A tuple retained by the top-N heap.  The sequence preserves the 
+	 * input order of equal tuples.
+	 */
+	private class HeapEntry implements Comparable<HeapEntry> {
+		List<?> tuple;
+		long seq;
+		
+		public HeapEntry(List<?> tuple, long seq) {
+			this.tuple = tuple;
+			this.seq = seq;
+		}
+		
+		@Override
+		public int compareTo(HeapEntry o) {
+			int result = comparator.compare(this.tuple, o.tuple);
+			if (result != 0) {
+				return result;
+			}
+			return this.seq < o.seq ? -1 : (this.seq == o.seq ? 0 : 1);
+		}
+	}
+
 	//constructor state
     private TupleSource source;
     private Mode mode;
@@ -116,6 +148,31 @@ public class SortUtility {
 	private static boolean STABLE_SORT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.requireStableSort", false); //$NON-NLS-1$
 	
 	private boolean stableSort = STABLE_SORT;
+	
+	//top-n state
+	private int topN = -1;
+	private PriorityQueue<HeapEntry> heap;
+	private TupleSource heapSource;
+	private long seq;
+	private int heapReserved;
+	
+	//parallel state
+	private CommandContext context;
+	private Map<TupleBuffer, PendingMerge> pendingMerges = new HashMap<TupleBuffer, PendingMerge>();
+	
+	/**
+	 * A merge submitted to the executor and the buffers reserved for it, which are
+	 * released by the processor thread once the merge has been awaited.
+	 */
+	private static class PendingMerge {
+		FutureTask<Void> task;
+		int reserved;
+		
+		PendingMerge(FutureTask<Void> task, int reserved) {
+			this.task = task;
+			this.reserved = reserved;
+		}
+	}
     
     public SortUtility(TupleSource sourceID, List<OrderByItem> items, Mode mode, BufferManager bufferMgr,
                         String groupName, List<? extends Expression> schema) {
@@ -199,6 +256,9 @@ public class SortUtility {
         throws TeiidComponentException, TeiidProcessingException {
     	boolean success = false;
     	try {
+    		if (this.phase == INITIAL_SORT && useTopN()) {
+    			topNSort();
+    		}
 	        if(this.phase == INITIAL_SORT) {
 	            initialSort(false, false);
 	        }
@@ -243,6 +303,73 @@ public class SortUtility {
     	}
     }
     
+    /**
+     * Determine if a bounded heap can be used to hold the top N tuples in memory.
+     */
+    private boolean useTopN() {
+    	if (this.heap != null) {
+    		return true;
+    	}
+    	if (this.topN < 0 || this.mode != Mode.SORT || (this.source == null && this.workingBuffer == null)) {
+    		return false;
+    	}
+    	long needed = (this.topN/this.batchSize + 1) * (long)this.schemaSize;
+    	if (needed > this.bufferManager.getMaxProcessingSize()) {
+    		return false;
+    	}
+    	this.heapReserved = this.bufferManager.reserveBuffers((int)needed, BufferReserveMode.FORCE);
+    	this.heap = new PriorityQueue<HeapEntry>(Math.max(1, Math.min(this.topN, this.batchSize)), Collections.reverseOrder());
+    	if (this.source != null) {
+    		this.heapSource = this.source;
+    	} else {
+    		this.heapSource = this.workingBuffer.createIndexedTupleSource();
+    	}
+    	return true;
+    }
+    
+    /**
+     * Retain only the top N tuples of the source in a max-heap, 
+     * then output them in sorted order without any intermediate sublists.
+     */
+    private void topNSort() throws TeiidComponentException, TeiidProcessingException {
+    	List<?> tuple = null;
+    	while ((tuple = this.heapSource.nextTuple()) != null) {
+    		processed++;
+    		if (this.topN == 0) {
+    			continue;
+    		}
+    		HeapEntry entry = new HeapEntry(tuple, seq++);
+    		if (this.heap.size() < this.topN) {
+    			this.heap.add(entry);
+    		} else if (entry.compareTo(this.heap.peek()) < 0) {
+    			this.heap.poll();
+    			this.heap.add(entry);
+    		}
+    	}
+    	doneReading = true;
+    	List<HeapEntry> entries = new ArrayList<HeapEntry>(this.heap);
+    	Collections.sort(entries);
+    	TupleBuffer result = createTupleBuffer();
+    	for (HeapEntry entry : entries) {
+    		result.addTuple(entry.tuple);
+    	}
+    	result.close();
+    	result.setForwardOnly(false);
+    	this.activeTupleBuffers.add(result);
+    	releaseTopN();
+    	this.phase = DONE;
+    }
+    
+    private void releaseTopN() {
+    	this.heap = null;
+    	if (this.heapSource != null && this.heapSource != this.source) {
+    		this.heapSource.closeSource();
+    	}
+    	this.heapSource = null;
+    	this.bufferManager.releaseBuffers(this.heapReserved);
+    	this.heapReserved = 0;
+    }
+    
 	private TupleBuffer createTupleBuffer() throws TeiidComponentException {
 		TupleBuffer tb = bufferManager.createTupleBuffer(this.schema, this.groupName, TupleSourceType.PROCESSOR);
 		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
@@ -358,11 +485,12 @@ public class SortUtility {
 		        activeTupleBuffers.add(sublist);
 		        if (this.mode == Mode.SORT) {
 		        	//perform a stable sort
-		    		Collections.sort((List<List<?>>)workingTuples, comparator);
+		        	sortSublist((List<List<?>>)workingTuples, sublist);
+		        } else {
+			        for (List<?> list : workingTuples) {
+						sublist.addTuple(list);
+					}
 		        }
-		        for (List<?> list : workingTuples) {
-					sublist.addTuple(list);
-				}
 		        workingTuples.clear();
 		        sublist.saveBatch();
             }
@@ -430,10 +558,6 @@ public class SortUtility {
         
         try {
         	while(this.activeTupleBuffers.size() > 1) {    		
-	    		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
-	            
-	            TupleBuffer merged = createTupleBuffer();
-
 	            desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
 	            if (desiredSpace < reserved) {
 	            	bufferManager.releaseBuffers(reserved - (int)desiredSpace);
@@ -444,31 +568,34 @@ public class SortUtility {
             	if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
 	            	LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
 	            }
-	        	// initialize the sublists with the min value
-	            for(int i = 0; i<maxSortIndex; i++) { 
-	             	TupleBuffer activeID = activeTupleBuffers.get(i);
-	             	SortedSublist sortedSublist = new SortedSublist();
-	            	sortedSublist.its = activeID.createIndexedTupleSource();
-	            	sortedSublist.its.setNoBlocking(true);
-	            	sortedSublist.index = i;
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }
-	            
-	            // iteratively process the lowest tuple
-	            while (sublists.size() > 0) {
-	            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-	        		merged.addTuple(sortedSublist.tuple);
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }                
-	
-	            // Remove merged sublists
-	            for(int i=0; i<maxSortIndex; i++) {
-	            	TupleBuffer id = activeTupleBuffers.remove(0);
-            		id.remove();
+            	List<TupleBuffer> group = this.activeTupleBuffers.subList(0, maxSortIndex);
+            	final List<TupleBuffer> toMerge = new ArrayList<TupleBuffer>(group);
+            	group.clear();
+            	awaitMerges(toMerge);
+	            final TupleBuffer merged = createTupleBuffer();
+	            this.activeTupleBuffers.add(merged);
+	            if (this.activeTupleBuffers.size() > 1 && this.context != null && this.context.getOptions().getRequestParallelism() > 1) {
+	            	//merge this group concurrently with the next if there is memory for both 
+	            	int toReserve = maxSortIndex * schemaSize;
+	            	int mergeReserved = bufferManager.reserveBuffers(toReserve, BufferReserveMode.NO_WAIT);
+	            	if (mergeReserved == toReserve) {
+	            		FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+	            			@Override
+	            			public Void call() throws Exception {
+	            				merge(toMerge, merged);
+	            				return null;
+	            			}
+						});
+	            		if (submit(task)) {
+	            			this.pendingMerges.put(merged, new PendingMerge(task, mergeReserved));
+	            			continue;
+	            		}
+	            	}
+	            	bufferManager.releaseBuffers(mergeReserved);
 	            }
-	            merged.saveBatch();
-	            this.activeTupleBuffers.add(merged);           
+	            merge(toMerge, merged);
     		}
+        	awaitMerges(this.activeTupleBuffers);
         } finally {
         	this.bufferManager.releaseBuffers(reserved);
         }
@@ -481,6 +608,148 @@ public class SortUtility {
         return;
     }
 
+	/**
+	 * Merge the sorted sublists into the merged buffer, then remove them.
+	 */
+	private void merge(List<TupleBuffer> toMerge, TupleBuffer merged) throws TeiidComponentException, TeiidProcessingException {
+		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(toMerge.size());
+		try {
+	    	// initialize the sublists with the min value
+	        for(int i = 0; i<toMerge.size(); i++) { 
+	         	TupleBuffer activeID = toMerge.get(i);
+	         	SortedSublist sortedSublist = new SortedSublist();
+	        	sortedSublist.its = activeID.createIndexedTupleSource();
+	        	sortedSublist.its.setNoBlocking(true);
+	        	sortedSublist.index = i;
+	        	incrementWorkingTuple(sublists, sortedSublist);
+	        }
+	        
+	        // iteratively process the lowest tuple
+	        while (sublists.size() > 0) {
+	        	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
+	    		merged.addTuple(sortedSublist.tuple);
+	        	incrementWorkingTuple(sublists, sortedSublist);
+	        }
+	        merged.saveBatch();
+		} finally {
+	        // Remove merged sublists
+	        for (TupleBuffer id : toMerge) {
+	    		id.remove();
+	        }
+		}
+	}
+	
+	/**
+	 * Perform a stable sort of the tuples into the sublist.
+	 * <br>
+	 * If additional processing threads are available, slices of the tuples are sorted concurrently 
+	 * and then merged taking ties from the earlier slice, which gives the same result as a single sort.
+	 */
+	private void sortSublist(List<List<?>> tuples, TupleBuffer sublist) throws TeiidComponentException, TeiidProcessingException {
+		int slices = 1;
+		if (this.context != null) {
+			slices = Math.min(this.context.getOptions().getRequestParallelism(), tuples.size() / (2 * this.batchSize));
+		}
+		if (slices < 2) {
+			Collections.sort(tuples, comparator);
+			for (List<?> list : tuples) {
+				sublist.addTuple(list);
+			}
+			return;
+		}
+		final List<?>[] array = tuples.toArray(new List<?>[tuples.size()]);
+		int[] bounds = new int[slices + 1];
+		List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(slices);
+		for (int i = 0; i < slices; i++) {
+			final int from = (int)((long)array.length * i / slices);
+			final int to = (int)((long)array.length * (i + 1) / slices);
+			bounds[i] = from;
+			bounds[i + 1] = to;
+			FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					Arrays.sort(array, from, to, comparator);
+					return null;
+				}
+			});
+			tasks.add(task);
+			if (i > 0) {
+				submit(task);
+			}
+		}
+		for (FutureTask<Void> task : tasks) {
+			await(task);
+		}
+		int[] positions = Arrays.copyOf(bounds, slices);
+		for (int i = 0; i < array.length; i++) {
+			int min = -1;
+			for (int j = 0; j < slices; j++) {
+				if (positions[j] < bounds[j + 1] && (min == -1 || comparator.compare(array[positions[j]], array[positions[min]]) < 0)) {
+					min = j;
+				}
+			}
+			sublist.addTuple(array[positions[min]++]);
+		}
+	}
+	
+	/**
+	 * Submit the task to the executor if a parallel task can be claimed.
+	 * @return true if submitted
+	 */
+	private boolean submit(final FutureTask<Void> task) {
+		if (!this.context.acquireParallelTask()) {
+			return false;
+		}
+		this.context.getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					context.releaseParallelTask();
+				}
+			}
+		});
+		return true;
+	}
+	
+	/**
+	 * Wait for the task, running it on this thread if it has not yet started
+	 */
+	private void await(FutureTask<Void> task) throws TeiidComponentException, TeiidProcessingException {
+		task.run();
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			throw new TeiidRuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TeiidComponentException) {
+				throw (TeiidComponentException)e.getCause();
+			}
+			if (e.getCause() instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new TeiidProcessingException(e.getCause());
+		}
+	}
+	
+	private void awaitMerges(List<TupleBuffer> buffers) throws TeiidComponentException, TeiidProcessingException {
+		for (TupleBuffer tb : buffers) {
+			PendingMerge pending = this.pendingMerges.remove(tb);
+			if (pending != null) {
+				try {
+					await(pending.task);
+				} finally {
+					//released on the processor thread so that it is accounted to the request
+					this.bufferManager.releaseBuffers(pending.reserved);
+				}
+			}
+		}
+	}
+
 	private void incrementWorkingTuple(ArrayList<SortedSublist> subLists, SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
 		while (true) {
 			sortedSublist.tuple = null;
@@ -508,6 +777,22 @@ public class SortUtility {
     }
 
 	public void remove() {
+		if (heap != null) {
+			releaseTopN();
+		}
+		if (!this.pendingMerges.isEmpty()) {
+			//the buffers may not be removed while still in use
+			for (PendingMerge pending : this.pendingMerges.values()) {
+				try {
+					await(pending.task);
+				} catch (Exception e) {
+					//ignore
+				} finally {
+					this.bufferManager.releaseBuffers(pending.reserved);
+				}
+			}
+			this.pendingMerges.clear();
+		}
 		if (workingBuffer != null && source != null) {
 			workingBuffer.remove();
 			workingBuffer = null;
@@ -530,10 +815,27 @@ public class SortUtility {
 		this.nonBlocking = b;
 	}
 	
+	/**
+	 * Set the context to allow the use of additional processing threads 
+	 * for sublist sorting and intermediate merges, limited by the request parallelism.
+	 */
+	public void setCommandContext(CommandContext context) {
+		this.context = context;
+	}
+	
 	public void setStableSort(boolean stableSort) {
 		this.stableSort = stableSort;
 	}
 	
+	/**
+	 * Only the first n tuples of the sort are needed.  If they can be held in memory, 
+	 * a bounded heap will be used rather than a full sort.
+	 * @param n
+	 */
+	public void setTopN(int n) {
+		this.topN = n;
+	}
+	
 	void setBatchSize(int batchSize) {
 		this.batchSize = batchSize;
 	}
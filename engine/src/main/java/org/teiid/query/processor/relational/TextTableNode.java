@@ -31,8 +31,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
@@ -62,6 +66,51 @@ import org.teiid.query.util.CommandContext;
  * TODO: allow for a configurable line terminator
  */
 public class TextTableNode extends SubqueryAwareRelationalNode {
+	
+	/**
+	 * The raw lines of a record.  A delimited record may span lines if a 
+	 * value is qualified or a new line is escaped.
+	 */
+	private static class TextRecord {
+		List<StringBuilder> lines = new ArrayList<StringBuilder>(1);
+		List<Boolean> crs = new ArrayList<Boolean>(1);
+		int textLine;
+		int rowNumber;
+		int next;
+		
+		void addLine(StringBuilder line, boolean cr) {
+			lines.add(line);
+			crs.add(cr);
+		}
+		
+		StringBuilder nextLine() {
+			if (next >= lines.size()) {
+				return null;
+			}
+			return lines.get(next++);
+		}
+	}
+	
+	/**
+	 * Parses a chunk of records into tuples
+	 */
+	private class ParseTask implements Callable<List<List<?>>> {
+		private List<TextRecord> records;
+		
+		ParseTask(List<TextRecord> records) {
+			this.records = records;
+		}
+		
+		@Override
+		public List<List<?>> call() throws TeiidProcessingException {
+			List<List<?>> result = new ArrayList<List<?>>(records.size());
+			for (TextRecord record : records) {
+				List<String> vals = parseLine(record.nextLine(), record);
+				result.add(createTuple(vals, record.rowNumber, record.textLine + record.lines.size() - 1));
+			}
+			return result;
+		}
+	}
 
 	private TextTable table;
 	
@@ -90,6 +139,11 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 
 	private int limit = -1;
 	
+	private boolean parallel;
+	private LinkedList<FutureTask<List<List<?>>>> parseTasks;
+	private List<List<?>> parsedTuples;
+	private int parsedIndex;
+	
 	public TextTableNode(int nodeID) {
 		super(nodeID);
 	}
@@ -167,6 +221,9 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		this.running = false;
 		this.asynchException = null;
 		this.limit = -1;
+		this.parallel = false;
+		this.parseTasks = null;
+		this.parsedTuples = null;
 	}
 	
 	public void setTable(TextTable table) {
@@ -190,6 +247,9 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				limit = parent.getLimit() + parent.getOffset();
 			}
 		}
+		//records can be parsed independently if there are no selectors
+		parallel = limit < 0 && table.getSelector() == null && parentLines == null 
+				&& getContext().getOptions().getRequestParallelism() > 1;
 	}
 
 	@Override
@@ -244,7 +304,11 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				@Override
 				public void run() {
 					try {
-						process();
+						if (parallel) {
+							processParallel();
+						} else {
+							process();
+						}
 					} catch (TeiidProcessingException e) {
 						asynchException = e;
 					} finally {
@@ -293,7 +357,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 					}
 				}
 				
-				List<String> vals = parseLine(line);
+				List<String> vals = parseLine(line, null);
 				
 				if (parentSelector != null) {
 					this.parentLines.put(parentSelector, vals);
@@ -304,35 +368,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				
 				rowNumber++;
 				
-				List<Object> tuple = new ArrayList<Object>(projectionIndexes.length);
-				for (int output : projectionIndexes) {
-					TextColumn col = table.getColumns().get(output);
-					String val = null;
-					int index = output;
-					
-					if (col.isOrdinal()) {
-						tuple.add(rowNumber);
-						continue;
-					}
-					
-					if (col.getSelector() != null) {
-						vals = this.parentLines.get(col.getSelector());
-						index = col.getPosition() - 1;
-					} else if (nameIndexes != null) {
-						index = nameIndexes.get(col.getName());
-					}
-					if (vals == null || index >= vals.size()) {
-						//throw new TeiidProcessingException(QueryPlugin.Util.getString("TextTableNode.no_value", col.getName(), textLine, systemId)); //$NON-NLS-1$
-						tuple.add(null);
-						continue;
-					} 
-					val = vals.get(index);
-					try {
-						tuple.add(DataTypeManager.transformValue(val, table.getColumns().get(output).getSymbol().getType()));
-					} catch (TransformationException e) {
-						 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30176, col.getName(), textLine, systemId));
-					}
-				}
+				List<Object> tuple = createTuple(vals, rowNumber, textLine);
 				addBatchRow(tuple);
 				
 				if (rowNumber == limit) {
@@ -343,6 +379,183 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		}
 	}
 
+	/**
+	 * Read ahead chunks of records, which are parsed by the executor if parallel tasks are available.
+	 * The parsed chunks are added to the batch in order.
+	 */
+	private void processParallel() throws TeiidProcessingException {
+		int batchSize = getBatchSize();
+		int maxTasks = getContext().getOptions().getRequestParallelism();
+		while (true) {
+			synchronized (this) {
+				if (isBatchFull()) {
+					return;
+				}
+				if (parsedTuples != null) {
+					addParsedTuples();
+					continue;
+				}
+				if (parseTasks == null) {
+					parseTasks = new LinkedList<FutureTask<List<List<?>>>>();
+				}
+			}
+			while (!eof && parseTasks.size() < maxTasks) {
+				List<TextRecord> records = new ArrayList<TextRecord>(batchSize);
+				TextRecord record = null;
+				while (records.size() < batchSize && (record = readRecord()) != null) {
+					record.rowNumber = ++rowNumber;
+					records.add(record);
+				}
+				if (records.isEmpty()) {
+					break;
+				}
+				final FutureTask<List<List<?>>> task = new FutureTask<List<List<?>>>(new ParseTask(records));
+				parseTasks.add(task);
+				if (parseTasks.size() > 1 && getContext().acquireParallelTask()) {
+					getContext().getExecutor().execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								task.run();
+							} finally {
+								getContext().releaseParallelTask();
+							}
+						}
+					});
+				}
+			}
+			if (parseTasks.isEmpty()) {
+				synchronized (this) {
+					terminateBatches();
+				}
+				return;
+			}
+			FutureTask<List<List<?>>> task = parseTasks.removeFirst();
+			//run here if the task has not yet started
+			task.run();
+			List<List<?>> tuples = null;
+			try {
+				tuples = task.get();
+			} catch (InterruptedException e) {
+				throw new TeiidRuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TeiidProcessingException) {
+					throw (TeiidProcessingException)e.getCause();
+				}
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)e.getCause();
+				}
+				throw new TeiidProcessingException(e.getCause());
+			}
+			synchronized (this) {
+				parsedTuples = tuples;
+				parsedIndex = 0;
+				addParsedTuples();
+			}
+		}
+	}
+	
+	/**
+	 * Add the parsed tuples up to the remaining batch capacity, the rest are held for the next batch.
+	 */
+	private void addParsedTuples() {
+		int end = Math.min(parsedTuples.size(), parsedIndex + getRemainingBatchCapacity());
+		for (; parsedIndex < end; parsedIndex++) {
+			addBatchRow(parsedTuples.get(parsedIndex));
+		}
+		if (parsedIndex >= parsedTuples.size()) {
+			parsedTuples = null;
+		}
+	}
+	
+	/**
+	 * Read the lines for the next record.  For delimited parsing the quoting is tracked
+	 * to determine if the record continues onto the next line. 
+	 */
+	private TextRecord readRecord() throws TeiidProcessingException {
+		StringBuilder line = readLine(lineWidth, table.isFixedWidth());
+		if (line == null) {
+			return null;
+		}
+		TextRecord record = new TextRecord();
+		record.textLine = textLine;
+		record.addLine(line, cr);
+		if (table.isFixedWidth()) {
+			return record;
+		}
+		boolean escaped = false;
+		boolean wasQualified = false;
+		boolean qualified = false;
+		while (true) {
+			for (int i = 0; i < line.length(); i++) {
+				char chr = line.charAt(i);
+				if (chr == delimiter) {
+					if (escaped || qualified) {
+						escaped = false;
+					} else {
+						wasQualified = false;
+					}
+				} else if (chr == quote) {
+					if (noQuote) {
+						escaped = !escaped;
+					} else if (qualified) {
+						qualified = false;
+					} else {
+						qualified = true;
+						wasQualified = true;
+					}
+				} else {
+					//an invalid escape will be reported by the parsing
+					escaped = false;
+				}
+			}
+			if (escaped) {
+				escaped = false;
+			} else if (!qualified) {
+				return record;
+			}
+			line = readLine(lineWidth, false);
+			if (line == null) {
+				//the parsing will report an unterminated value
+				return record;
+			}
+			record.addLine(line, cr);
+		}
+	}
+	
+	private List<Object> createTuple(List<String> vals, int rowNumber, int line) throws TeiidProcessingException {
+		List<Object> tuple = new ArrayList<Object>(projectionIndexes.length);
+		for (int output : projectionIndexes) {
+			TextColumn col = table.getColumns().get(output);
+			String val = null;
+			int index = output;
+			
+			if (col.isOrdinal()) {
+				tuple.add(rowNumber);
+				continue;
+			}
+			
+			if (col.getSelector() != null) {
+				vals = this.parentLines.get(col.getSelector());
+				index = col.getPosition() - 1;
+			} else if (nameIndexes != null) {
+				index = nameIndexes.get(col.getName());
+			}
+			if (vals == null || index >= vals.size()) {
+				//throw new TeiidProcessingException(QueryPlugin.Util.getString("TextTableNode.no_value", col.getName(), textLine, systemId)); //$NON-NLS-1$
+				tuple.add(null);
+				continue;
+			} 
+			val = vals.get(index);
+			try {
+				tuple.add(DataTypeManager.transformValue(val, table.getColumns().get(output).getSymbol().getType()));
+			} catch (TransformationException e) {
+				 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30176, col.getName(), line, systemId));
+			}
+		}
+		return tuple;
+	}
+
 	private StringBuilder readLine(int maxLength, boolean exact) throws TeiidProcessingException {
 		if (eof) {
 			return null;
@@ -452,7 +665,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 					reset();
 					return;
 				}
-				processHeader(parseLine(line));
+				processHeader(parseLine(line, null));
 			} else {
 				while (readChar() != '\n') {
 	    			
@@ -482,14 +695,32 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		}
 	}
 
-	private List<String> parseLine(StringBuilder line) throws TeiidProcessingException {
+	/**
+	 * Parse the line.  If a record is given, continuation lines are taken from the record 
+	 * rather than the reader.
+	 */
+	private List<String> parseLine(StringBuilder line, TextRecord record) throws TeiidProcessingException {
 		if (table.isFixedWidth()) {
 			return parseFixedWidth(line);
 		} 
-		return parseDelimitedLine(line);
+		return parseDelimitedLine(line, record);
+	}
+	
+	private StringBuilder nextLine(TextRecord record) throws TeiidProcessingException {
+		if (record != null) {
+			return record.nextLine();
+		}
+		return readLine(lineWidth, false);
+	}
+	
+	private int getTextLine(TextRecord record) {
+		if (record != null) {
+			return record.textLine + record.next - 1;
+		}
+		return textLine;
 	}
 
-	private List<String> parseDelimitedLine(StringBuilder line) throws TeiidProcessingException {
+	private List<String> parseDelimitedLine(StringBuilder line, TextRecord record) throws TeiidProcessingException {
 		ArrayList<String> result = new ArrayList<String>();
 		StringBuilder builder = new StringBuilder();
 		boolean escaped = false;
@@ -499,12 +730,12 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 			if (line == null) {
 				if (escaped) {
 					//allow for escaped new lines
-					if (cr) {
+					if (record != null ? record.crs.get(record.next - 1) : cr) {
 						builder.append('\r'); 
 					}
 					builder.append('\n'); 
 					escaped = false;
-					line = readLine(lineWidth, false);
+					line = nextLine(record);
 					continue;
 				} 
 				if (!qualified) {
@@ -512,7 +743,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 					addValue(result, wasQualified, builder.toString());
 					return result;
 				} 
-				line = readLine(lineWidth, false);
+				line = nextLine(record);
 				if (line == null) {
 					 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30182, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30182, systemId));
 				}
@@ -543,7 +774,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 								builder.append(chr);
 							} else {
 								if (builder.toString().trim().length() != 0) {
-									 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30183, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30183, textLine, systemId));
+									 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30183, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30183, getTextLine(record), systemId));
 								}
 								qualified = true;
 								builder = new StringBuilder(); //start the entry over
@@ -554,11 +785,11 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				} else {
 					if (escaped) {
 						//don't understand other escape sequences yet
-						 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30184, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30184, chr, textLine, systemId));
+						 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30184, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30184, chr, getTextLine(record), systemId));
 					}
 					if (wasQualified && !qualified) {
 						if (!Character.isWhitespace(chr)) {
-							 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30183, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30183, textLine, systemId));
+							 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30183, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30183, getTextLine(record), systemId));
 						}
 						//else just ignore
 					} else {
@@ -22,7 +22,9 @@
 
 package org.teiid.query.processor.relational;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedList;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -31,15 +33,143 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 
 
 public class UnionAllNode extends RelationalNode {
+	
+	/**
+	 * Pulls batches from a child on an engine thread into a bounded queue.
+	 * The child is only accessed by one thread at a time - either the branch task or the
+	 * processor thread when the branch is not running.
+	 */
+	private final class Branch implements Runnable {
+		private RelationalNode child;
+		private LinkedList<TupleBatch> batches = new LinkedList<TupleBatch>();
+		private boolean running;
+		private boolean done;
+		private boolean closed;
+		private Throwable exception;
+		private boolean scheduleRequested;
+		
+		public Branch(RelationalNode child) {
+			this.child = child;
+		}
+		
+		@Override
+		public void run() {
+			boolean signal = false;
+			//the buffer manager accounts reservations against the thread local context
+			CommandContext.pushThreadLocalContext(getContext());
+			try {
+				while (true) {
+					synchronized (this) {
+						if (closed || done || batches.size() >= MAX_QUEUED_BATCHES) {
+							break;
+						}
+					}
+					TupleBatch batch = child.nextBatch();
+					synchronized (this) {
+						batches.add(batch);
+						done = batch.getTerminationFlag();
+					}
+					signal = true;
+				}
+			} catch (BlockedException e) {
+				//the processor thread will resubmit
+			} catch (Throwable e) {
+				synchronized (this) {
+					exception = e;
+				}
+				signal = true;
+			} finally {
+				CommandContext.popThreadLocalContext();
+				synchronized (this) {
+					running = false;
+					//the processor found nothing while this was running, so it must be woken to resubmit
+					signal |= scheduleRequested;
+					scheduleRequested = false;
+				}
+				getContext().releaseParallelTask();
+				synchronized (UnionAllNode.this) {
+					UnionAllNode.this.notifyAll();
+				}
+				RequestWorkItem workItem = getContext().getWorkItem();
+				if (signal && workItem != null) {
+					workItem.moreWork();
+				}
+			}
+		}
+		
+		synchronized void schedule() {
+			if (running) {
+				scheduleRequested = true;
+				return;
+			}
+			if (done || closed || exception != null || batches.size() >= MAX_QUEUED_BATCHES 
+					|| !getContext().acquireParallelTask()) {
+				return;
+			}
+			running = true;
+			getContext().getExecutor().execute(this);
+		}
+		
+		/**
+		 * Get the next queued batch or pull directly if the branch is not running
+		 * @return the next batch or null if none is available
+		 */
+		TupleBatch nextBatch() throws TeiidComponentException, TeiidProcessingException {
+			synchronized (this) {
+				if (exception != null) {
+					if (exception instanceof TeiidComponentException) {
+						throw (TeiidComponentException)exception;
+					}
+					if (exception instanceof TeiidProcessingException) {
+						throw (TeiidProcessingException)exception;
+					}
+					if (exception instanceof RuntimeException) {
+						throw (RuntimeException)exception;
+					}
+					if (exception instanceof Error) {
+						throw (Error)exception;
+					}
+					throw new TeiidComponentException(exception);
+				}
+				TupleBatch batch = batches.poll();
+				if (batch != null || running || done) {
+					return batch;
+				}
+			}
+			try {
+				TupleBatch batch = child.nextBatch();
+				synchronized (this) {
+					done = batch.getTerminationFlag();
+				}
+				return batch;
+			} catch (BlockedException e) {
+				return null;
+			}
+		}
+		
+		synchronized void close() {
+			closed = true;
+			batches.clear();
+		}
+	}
 
     private static final int SMALL_LIMIT = 10;
+    private static final int MAX_QUEUED_BATCHES = 2;
 	private boolean[] sourceDone;
     private boolean[] sourceOpen;
+    private Branch[] branches;
+    private int nextChild;
     
     private int outputRow = 1;
     private int reserved;
@@ -54,6 +184,8 @@ public class UnionAllNode extends RelationalNode {
         
         sourceDone = null;
         sourceOpen = null;
+        branches = null;
+        nextChild = 0;
         outputRow = 1;   
     }    
     
@@ -121,10 +253,73 @@ public class UnionAllNode extends RelationalNode {
     	
         // Open the children
         super.open();
+        
+        if (this.getContext().getOptions().getRequestParallelism() > 1 && this.getChildCount() > 1) {
+        	RelationalNode[] children = this.getChildren();
+        	for (int i = 0; i < this.getChildCount(); i++) {
+        		//access nodes are already executed asynchronously
+        		if (children[i] instanceof AccessNode || !isParallelSafe(children[i])) {
+        			continue;
+        		}
+        		if (branches == null) {
+        			branches = new Branch[this.getChildCount()];
+        		}
+        		branches[i] = new Branch(children[i]);
+        		reserved += getBufferManager().reserveBuffers(MAX_QUEUED_BATCHES * schemaSize, BufferReserveMode.FORCE);
+        	}
+        }
+	}
+	
+	/**
+	 * Determine if the subtree may be processed on a thread other than the processor thread.
+	 * Nodes that set or depend upon the variable context, evaluate subqueries, or use functions 
+	 * needing the command context are excluded. 
+	 */
+	static boolean isParallelSafe(RelationalNode node) {
+		if (node instanceof JoinNode) {
+			JoinNode joinNode = (JoinNode)node;
+			if (joinNode.isDependent() || joinNode.getJoinStrategy() instanceof NestedTableJoinStrategy) {
+				return false;
+			}
+		} else if ((node instanceof AccessNode && node.getClass() != AccessNode.class)
+				|| node instanceof PlanExecutionNode
+				|| node instanceof ProjectIntoNode
+				|| node instanceof BatchedUpdateNode
+				|| node instanceof ObjectTableNode) {
+			return false;
+		}
+		if (node instanceof SubqueryAwareRelationalNode) {
+			Collection<? extends LanguageObject> objects = ((SubqueryAwareRelationalNode)node).getObjects();
+			if (objects != null) {
+				if (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(objects).isEmpty()) {
+					return false;
+				}
+				for (LanguageObject object : objects) {
+					for (Function function : FunctionCollectorVisitor.getFunctions(object, false)) {
+						if (function.getFunctionDescriptor() == null || function.getFunctionDescriptor().requiresContext()) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		for (RelationalNode child : node.getChildren()) {
+			if (child == null) {
+				break;
+			}
+			if (!isParallelSafe(child)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
     public TupleBatch nextBatchDirect() 
         throws BlockedException, TeiidComponentException, TeiidProcessingException {
+    	
+    	if (branches != null) {
+    		return nextBatchParallel();
+    	}
 
         // Walk through all children and for each one that isn't done, try to retrieve a batch
         // When all sources are done, set the termination flag on that batch
@@ -218,8 +413,106 @@ public class UnionAllNode extends RelationalNode {
         return outputBatch;
     }    
     
+    /**
+     * Return the next batch from any child, starting with the child after the last one to return a batch.
+     * Parallel branches are resubmitted whenever they have room in their queue.
+     */
+    private TupleBatch nextBatchParallel() throws TeiidComponentException, TeiidProcessingException {
+    	RelationalNode[] children = getChildren();
+    	int childCount = getChildCount();
+    	while (true) {
+	    	for (Branch branch : branches) {
+	    		if (branch != null) {
+	    			branch.schedule();
+	    		}
+	    	}
+	    	int activeSources = 0;
+	    	TupleBatch batch = null;
+	    	for (int j = 0; j < childCount; j++) {
+	    		int i = (nextChild + j) % childCount;
+	    		if (sourceDone[i]) {
+	    			continue;
+	    		}
+	    		activeSources++;
+	    		if (batch != null) {
+	    			continue;
+	    		}
+	    		if (branches[i] != null) {
+	    			batch = branches[i].nextBatch();
+	    		} else {
+	    			try {
+	    				batch = children[i].nextBatch();
+	    			} catch (BlockedException e) {
+	    				// no problem - try the next one
+	    			}
+	    		}
+	    		if (batch == null) {
+	    			continue;
+	    		}
+	    		nextChild = i + 1;
+	    		if (batch.getTerminationFlag()) {
+	    			sourceDone[i] = true;
+	    			activeSources--;
+	    			int toRelease = Math.min(reserved, branches[i] != null?(MAX_QUEUED_BATCHES + 1) * schemaSize:schemaSize);
+	    			getBufferManager().releaseBuffers(toRelease);
+	    			reserved -= toRelease;
+	    		}
+	    	}
+	    	if (batch != null) {
+	    		TupleBatch outputBatch = new TupleBatch(outputRow, batch.getTuples());
+	    		outputBatch.setTerminationFlag(batch.getTerminationFlag() && activeSources == 0);
+	    		outputRow += outputBatch.getRowCount();
+	    		return outputBatch;
+	    	}
+	    	if (activeSources == 0) {
+	    		TupleBatch outputBatch = new TupleBatch(outputRow, Collections.EMPTY_LIST);
+	            outputBatch.setTerminationFlag(true);
+	            return outputBatch;
+	    	}
+	    	if (this.getContext().getWorkItem() != null || !waitForBranches()) {
+	    		throw BlockedException.block(getContext().getRequestId(), "Blocking on union source.", getID()); //$NON-NLS-1$
+	    	}
+    	}
+    }
+    
+    /**
+     * Wait for the running branches to complete.  Used when there is no work item to notify
+     * and during close.
+     * @return true if there were any running branches
+     */
+    private synchronized boolean waitForBranches() {
+    	boolean waited = false;
+    	for (Branch branch : branches) {
+    		if (branch == null) {
+    			continue;
+    		}
+    		while (true) {
+    			synchronized (branch) {
+    				if (!branch.running) {
+    					break;
+    				}
+    			}
+    			waited = true;
+    			try {
+    				this.wait();
+    			} catch (InterruptedException e) {
+    				throw new TeiidRuntimeException(e);
+    			}
+    		}
+    	}
+    	return waited;
+    }
+    
     @Override
     public void closeDirect() {
+    	if (branches != null) {
+    		for (Branch branch : branches) {
+    			if (branch != null) {
+    				branch.close();
+    			}
+    		}
+    		waitForBranches();
+    	}
     	if (reserved > 0) {
 	    	getBufferManager().releaseBuffers(reserved);
 	    	reserved = 0;
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -87,6 +88,26 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		List<Boolean> orderType = new ArrayList<Boolean>();
 		List<WindowFunctionInfo> functions = new ArrayList<WindowFunctionInfo>();
 		List<WindowFunctionInfo> rowValuefunctions = new ArrayList<WindowFunctionInfo>();
+		
+		/**
+		 * @return the partition and order by indexes, which determine the rows that share function values
+		 */
+		List<Integer> getKeyIndexes() {
+			List<Integer> result = new ArrayList<Integer>(groupIndexes);
+			result.addAll(sortIndexes);
+			return result;
+		}
+		
+		/**
+		 * Return true if sorting by the other specification also sorts by this specification
+		 */
+		boolean isPrefixOf(WindowSpecificationInfo other) {
+			int size = orderType.size();
+			return size <= other.orderType.size()
+					&& getKeyIndexes().equals(other.getKeyIndexes().subList(0, size))
+					&& orderType.equals(other.orderType.subList(0, size))
+					&& nullOrderings.equals(other.nullOrderings.subList(0, size));
+		}
 	}
 	
 	private LinkedHashMap<WindowSpecification, WindowSpecificationInfo> windows = new LinkedHashMap<WindowSpecification, WindowSpecificationInfo>();
@@ -104,6 +125,25 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 	private STree[] rowValueMapping;
 	private IndexedTupleSource outputTs;
 	
+	//streaming state
+	private boolean streaming;
+	private WindowSpecificationInfo streamingSpec;
+	private SortUtility sortUtility;
+	private TupleBuffer sorted;
+	private IndexedTupleSource scanTs;
+	private List<?> scanRow;
+	private int pendingRows;
+	private List<?> lastOutputRow;
+	private List<WindowSpecificationInfo> specInfos;
+	private List<List<AggregateFunction>> specAggs;
+	private List<List<AggregateFunction>> specRowValueAggs;
+	private List<LinkedList<List<Object>>> groupValues;
+	private int[] groupCounts;
+	private int[][] partitionIndexes;
+	private int[][] valueIndexes;
+	private int[] boundaryIndexes;
+	private boolean hasAggs;
+	
 	public WindowFunctionProjectNode(int nodeId) {
 		super(nodeId);
 	}
@@ -121,6 +161,15 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		this.valueMapping = null;
 		this.rowValueMapping = null;
 		this.outputTs = null;
+		this.sortUtility = null;
+		this.sorted = null;
+		this.scanTs = null;
+		this.scanRow = null;
+		this.pendingRows = 0;
+		this.lastOutputRow = null;
+		this.specAggs = null;
+		this.specRowValueAggs = null;
+		this.groupValues = null;
 	}
 	
 	@Override
@@ -135,6 +184,14 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		valueMapping = null;
 		removeMappings(rowValueMapping);
 		rowValueMapping = null;
+		if (sortUtility != null) {
+			sortUtility.remove();
+			sortUtility = null;
+		}
+		if (sorted != null) {
+			sorted.remove();
+			sorted = null;
+		}
 	}
 
 	private void removeMappings(STree[] mappings) {
@@ -153,6 +210,8 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
         clonedNode.windows = windows;
         clonedNode.expressionIndexes = expressionIndexes;
         clonedNode.passThrough = passThrough;
+        clonedNode.streaming = streaming;
+        clonedNode.streamingSpec = streamingSpec;
 		return clonedNode;
 	}
 	
@@ -214,12 +273,47 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 				passThrough.add(new int[] {i, index});
 			}
 		}
+		if (streaming) {
+			//a single sort can be used if each specification is a prefix of the longest
+			for (WindowSpecificationInfo wsi : windows.values()) {
+				if (streamingSpec == null || streamingSpec.orderType.size() < wsi.orderType.size()) {
+					streamingSpec = wsi;
+				}
+			}
+			for (WindowSpecificationInfo wsi : windows.values()) {
+				if (!wsi.isPrefixOf(streamingSpec)) {
+					streamingSpec = null;
+					break;
+				}
+			}
+			if (streamingSpec != null && streamingSpec.orderType.isEmpty()) {
+				streamingSpec = null;
+			}
+		}
+	}
+	
+	/**
+	 * Allow the output to be produced in the order of the window specification 
+	 * rather than in the input order.  If all of the window specifications share
+	 * a partition/order prefix, then the rows are output as each group of rows
+	 * sharing function values is completed.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	public boolean isStreaming() {
+		return streaming;
 	}
 
 	@Override
 	protected TupleBatch nextBatchDirect() throws BlockedException,
 			TeiidComponentException, TeiidProcessingException {
 		
+		if (streamingSpec != null) {
+			return nextBatchStreaming();
+		}
+		
 		if (phase == Phase.COLLECT) {
 			saveInput();
 			phase = Phase.PROCESS;
@@ -285,6 +379,208 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		return this.pullBatch();
 	}
 
+	/**
+	 * Sort the input by the longest window specification, then make a single pass 
+	 * to compute the values.  A scan ahead determines the aggregate values for each
+	 * group of rows before they are output.
+	 */
+	private TupleBatch nextBatchStreaming() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		if (phase == Phase.COLLECT) {
+			if (sortUtility == null) {
+				List<Expression> collectedExpressions = new ArrayList<Expression>(expressionIndexes.keySet());
+				Evaluator eval = new Evaluator(elementMap, getDataManager(), getContext());
+				inputTs = new ProjectingTupleSource(this.getChildren()[0], eval, collectedExpressions);
+				int[] sortKeys = toArray(streamingSpec.getKeyIndexes());
+				sortUtility = new SortUtility(inputTs, Mode.SORT, this.getBufferManager(), this.getConnectionID(), collectedExpressions, streamingSpec.orderType, streamingSpec.nullOrderings, sortKeys);
+			}
+			sorted = sortUtility.sort();
+			inputTs = null;
+			initStreaming();
+			phase = Phase.OUTPUT;
+		}
+		while (true) {
+			while (pendingRows > 0) {
+				List<?> tuple = outputTs.nextTuple();
+				pendingRows--;
+				this.addBatchRow(getStreamingRow(tuple));
+				if (this.isBatchFull()) {
+					return pullBatch();
+				}
+			}
+			if (hasAggs) {
+				if (!scanGroup()) {
+					break;
+				}
+			} else if (outputTs.hasNext()) {
+				pendingRows++;
+			} else {
+				break;
+			}
+		}
+		terminateBatches();
+		return pullBatch();
+	}
+
+	private void initStreaming() {
+		specInfos = new ArrayList<WindowSpecificationInfo>(windows.values());
+		int size = specInfos.size();
+		specAggs = new ArrayList<List<AggregateFunction>>(size);
+		specRowValueAggs = new ArrayList<List<AggregateFunction>>(size);
+		groupValues = new ArrayList<LinkedList<List<Object>>>(size);
+		groupCounts = new int[size];
+		partitionIndexes = new int[size][];
+		valueIndexes = new int[size][];
+		boundaryIndexes = null;
+		hasAggs = false;
+		for (int specIndex = 0; specIndex < size; specIndex++) {
+			WindowSpecificationInfo info = specInfos.get(specIndex);
+			if (!info.groupIndexes.isEmpty()) {
+				partitionIndexes[specIndex] = toArray(info.groupIndexes);
+			}
+			if (!info.orderType.isEmpty()) {
+				valueIndexes[specIndex] = toArray(info.getKeyIndexes());
+			}
+			specAggs.add(createAccumulators(info.functions));
+			specRowValueAggs.add(createAccumulators(info.rowValuefunctions));
+			groupValues.add(new LinkedList<List<Object>>());
+			if (!info.functions.isEmpty()) {
+				//rows can only be output once the shortest group is complete
+				if (!hasAggs || (boundaryIndexes != null && (valueIndexes[specIndex] == null || valueIndexes[specIndex].length < boundaryIndexes.length))) {
+					boundaryIndexes = valueIndexes[specIndex];
+				}
+				hasAggs = true;
+			}
+		}
+		scanTs = sorted.createIndexedTupleSource();
+		outputTs = sorted.createIndexedTupleSource();
+	}
+	
+	private List<AggregateFunction> createAccumulators(List<WindowFunctionInfo> functions) {
+		List<AggregateFunction> aggs = new ArrayList<AggregateFunction>(functions.size());
+		for (WindowFunctionInfo wfi : functions) {
+			aggs.add(GroupingNode.initAccumulator(wfi.function.getFunction(), this, expressionIndexes));
+		}
+		return aggs;
+	}
+	
+	private static int[] toArray(List<Integer> indexes) {
+		int[] result = new int[indexes.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = indexes.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Scan the rows until the end of the current output group, saving the aggregate 
+	 * values for each group along the way.
+	 * @return false if there are no more rows
+	 */
+	private boolean scanGroup() throws TeiidComponentException, TeiidProcessingException {
+		if (scanRow == null) {
+			if (!scanTs.hasNext()) {
+				return false;
+			}
+			scanRow = scanTs.nextTuple();
+		}
+		List<?> lastRow = null;
+		while (scanRow != null) {
+			if (lastRow != null) {
+				for (int specIndex = 0; specIndex < specInfos.size(); specIndex++) {
+					if (specAggs.get(specIndex).isEmpty()) {
+						continue;
+					}
+					boolean samePartition = GroupingNode.sameGroup(partitionIndexes[specIndex], scanRow, lastRow) == -1;
+					if (!samePartition || GroupingNode.sameGroup(valueIndexes[specIndex], scanRow, lastRow) != -1) {
+						saveGroupValues(specIndex, samePartition);
+					}
+				}
+				if (GroupingNode.sameGroup(boundaryIndexes, scanRow, lastRow) != -1) {
+					return true;
+				}
+			}
+			for (int specIndex = 0; specIndex < specInfos.size(); specIndex++) {
+				List<AggregateFunction> aggs = specAggs.get(specIndex);
+				for (AggregateFunction function : aggs) {
+					function.addInput(scanRow, getContext());
+				}
+				if (!aggs.isEmpty()) {
+					groupCounts[specIndex]++;
+				}
+			}
+			pendingRows++;
+			lastRow = scanRow;
+			scanRow = null;
+			if (scanTs.hasNext()) {
+				scanRow = scanTs.nextTuple();
+			}
+		}
+		for (int specIndex = 0; specIndex < specInfos.size(); specIndex++) {
+			if (!specAggs.get(specIndex).isEmpty()) {
+				saveGroupValues(specIndex, false);
+			}
+		}
+		return true;
+	}
+
+	private void saveGroupValues(int specIndex, boolean samePartition) 
+			throws TeiidComponentException, TeiidProcessingException {
+		List<AggregateFunction> aggs = specAggs.get(specIndex);
+		List<Object> values = new ArrayList<Object>(aggs.size() + 1);
+		values.add(groupCounts[specIndex]);
+		for (AggregateFunction function : aggs) {
+			values.add(function.getResult(getContext()));
+			if (!samePartition) {
+				function.reset();
+			}
+		}
+		groupValues.get(specIndex).add(values);
+		groupCounts[specIndex] = 0;
+	}
+	
+	private List<Object> getStreamingRow(List<?> tuple) 
+			throws TeiidComponentException, TeiidProcessingException {
+		int size = getElements().size();
+		ArrayList<Object> outputRow = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++) {
+			outputRow.add(null);
+		}
+		for (int[] entry : passThrough) {
+			outputRow.set(entry[0], tuple.get(entry[1]));
+		}
+		for (int specIndex = 0; specIndex < specInfos.size(); specIndex++) {
+			WindowSpecificationInfo info = specInfos.get(specIndex);
+			List<AggregateFunction> rowValueAggs = specRowValueAggs.get(specIndex);
+			if (!rowValueAggs.isEmpty()) {
+				boolean samePartition = lastOutputRow == null || GroupingNode.sameGroup(partitionIndexes[specIndex], tuple, lastOutputRow) == -1;
+				for (int i = 0; i < rowValueAggs.size(); i++) {
+					AggregateFunction function = rowValueAggs.get(i);
+					if (!samePartition) {
+						function.reset();
+					}
+					function.addInput(tuple, getContext());
+					outputRow.set(info.rowValuefunctions.get(i).outputIndex, function.getResult(getContext()));
+				}
+			}
+			if (!info.functions.isEmpty()) {
+				LinkedList<List<Object>> values = groupValues.get(specIndex);
+				List<Object> valueRow = values.getFirst();
+				for (int i = 0; i < info.functions.size(); i++) {
+					outputRow.set(info.functions.get(i).outputIndex, valueRow.get(i+1));
+				}
+				int remaining = (Integer)valueRow.get(0) - 1;
+				if (remaining == 0) {
+					values.removeFirst();
+				} else {
+					valueRow.set(0, remaining);
+				}
+			}
+		}
+		lastOutputRow = tuple;
+		return outputRow;
+	}
+
 	/**
 	 * Build the results by maintaining indexes that either map
 	 * rowid->values
@@ -58,6 +58,7 @@ import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.metadata.ColumnStatistics;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.processor.relational.RelationalNode;
@@ -87,6 +88,8 @@ public class TempTable implements Cloneable, SearchableTable {
 		private boolean addRowId;
 		private int[] indexes;
 		private GeneratedKeysImpl keys;
+		private boolean started;
+		private STree.BulkLoader loader;
 		
 		private InsertUpdateProcessor(TupleSource ts, boolean addRowId, int[] indexes, boolean canUndo)
 				throws TeiidComponentException {
@@ -104,6 +107,10 @@ public class TempTable implements Cloneable, SearchableTable {
 		
 		@Override
 		protected void afterCompletion() throws TeiidComponentException {
+			if (loader != null) {
+				loader.finish();
+				loader = null;
+			}
 			tree.setBatchInsert(false);
 		}
 		
@@ -142,12 +149,33 @@ public class TempTable implements Cloneable, SearchableTable {
 			}
 			currentTuple = tuple;
 			
+			if (statisticsCollectors != null) {
+				for (int i = 0; i < statisticsCollectors.length; i++) {
+					if (statisticsCollectors[i] != null) {
+						statisticsCollectors[i].addValue(tuple.get(i));
+					}
+				}
+			}
+			
 			for (int i = 0; i < notNull.length; i++) {
 				if (tuple.get(notNull[i]) == null) {
 					 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30236, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30236, columns.get(i)));
 				}
 			}
-			insertTuple(tuple, addRowId);
+			if (!started) {
+				started = true;
+				if (tree.getRowCount() == 0) {
+					//an initial load, such as a materialization, is typically in key order 
+					loader = tree.createBulkLoader(updatable?UPDATABLE_FILL_FACTOR:1);
+				}
+			}
+			if (loader != null) {
+				if (loader.append(tuple) != null) {
+					 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30238, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30238, tid.getID()));
+				}
+			} else {
+				insertTuple(tuple, addRowId);
+			}
 			if (generatedKey != null) {
 				this.keys.addKey(generatedKey);
 			}
@@ -315,6 +343,10 @@ public class TempTable implements Cloneable, SearchableTable {
 		
 	}
 	private static AtomicLong ID_GENERATOR = new AtomicLong();
+	/**
+	 * leave room in bulk loaded pages for subsequent inserts
+	 */
+	private static final float UPDATABLE_FILL_FACTOR = .75f;
 	
 	private Long id = ID_GENERATOR.getAndIncrement();
 	private STree tree;
@@ -334,6 +366,7 @@ public class TempTable implements Cloneable, SearchableTable {
 	private int[] notNull;
 	private Map<Integer, AtomicInteger> sequences;
 	private int uniqueColIndex;
+	private ColumnStatistics.Collector[] statisticsCollectors;
 	
 	private AtomicInteger activeReaders = new AtomicInteger();
 
@@ -413,11 +446,85 @@ public class TempTable implements Cloneable, SearchableTable {
 			return;
 		}
 		TempTable indexTable = createIndexTable(indexColumns, unique);
-		//TODO: ordered insert optimization
-		TupleSource ts = createTupleSource(indexTable.getColumns(), null, null);
+		//sort so that the index tree can be bulk loaded
+		TupleSource ts = createTupleSource(indexTable.getColumns(), null, new OrderBy(indexTable.getColumns()));
 		indexTable.insert(ts, indexTable.getColumns(), false, null);
 		indexTable.getTree().compact();
 	}
+	
+	/**
+	 * Gather the {@link ColumnStatistics} from the rows passed to subsequent inserts, 
+	 * such as a materialized load, rather than with a separate scan.  The statistics 
+	 * are set by {@link #collectStatistics()}.
+	 */
+	void startStatisticsCollection() {
+		this.statisticsCollectors = createStatisticsCollectors();
+	}
+	
+	/**
+	 * Set the {@link ColumnStatistics} for each column.  If collection was not 
+	 * started prior to loading, then a scan of the table is used.
+	 * The statistics are not maintained by later updates, so this is only used once a 
+	 * table has been loaded.
+	 */
+	void collectStatistics() throws TeiidComponentException, TeiidProcessingException {
+		ColumnStatistics.Collector[] collectors = this.statisticsCollectors;
+		this.statisticsCollectors = null;
+		if (collectors == null) {
+			collectors = createStatisticsCollectors();
+			if (collectors == null) {
+				return;
+			}
+			lock.readLock().lock();
+			try {
+				TupleBrowser browser = createTupleBrower(null, OrderBy.ASC);
+				List<?> tuple = null;
+				while ((tuple = browser.nextTuple()) != null) {
+					for (int i = 0; i < collectors.length; i++) {
+						if (collectors[i] != null) {
+							collectors[i].addValue(tuple.get(i));
+						}
+					}
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		for (int i = 0; i < collectors.length; i++) {
+			if (collectors[i] != null) {
+				getElement(i).setColumnStatistics(collectors[i].build());
+			}
+		}
+	}
+	
+	/**
+	 * @return the collectors by tree column position, or null if there is no column metadata
+	 */
+	private ColumnStatistics.Collector[] createStatisticsCollectors() {
+		if (tid.getElements().isEmpty()) {
+			return null;
+		}
+		ColumnStatistics.Collector[] collectors = new ColumnStatistics.Collector[columns.size()];
+		for (int i = rowId != null?1:0; i < collectors.length; i++) {
+			Class<?> type = columns.get(i).getType();
+			collectors[i] = new ColumnStatistics.Collector(!DataTypeManager.isNonComparable(DataTypeManager.getDataTypeName(type)), DataTypeManager.isHashable(type));
+		}
+		return collectors;
+	}
+	
+	/**
+	 * Get the metadata for the tree column.  The tree columns are reordered to place 
+	 * the primary key first, so the element is matched by name rather than by position.
+	 */
+	private TempMetadataID getElement(int treeIndex) {
+		String name = columns.get(treeIndex).getShortName();
+		for (TempMetadataID element : tid.getElements()) {
+			if (element.getName().equalsIgnoreCase(name)) {
+				return element;
+			}
+		}
+		throw new AssertionError("Unknown column " + name); //$NON-NLS-1$
+	}
 
 	private TempTable createIndexTable(List<ElementSymbol> indexColumns,
 			boolean unique) {
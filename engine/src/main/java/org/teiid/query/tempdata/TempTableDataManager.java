@@ -273,6 +273,10 @@ public class TempTableDataManager implements ProcessorDataManager {
     				tt.addIndex(cols, false);
     			}
     		}
+    		//the table is now read only, so statistics gathered here remain accurate
+    		if (tt.getRowCount() > tt.getTree().getPageSize(true)) {
+    			tt.collectStatistics();
+    		}
     		return CollectionTupleSource.createUpdateCountTupleSource(0);
     	}
         return null;
@@ -708,6 +712,8 @@ public class TempTableDataManager implements ProcessorDataManager {
 		final List<ElementSymbol> allColumns = ResolverUtil.resolveElementsInGroup(group, metadata); 
 		final TempTable table = globalStore.createMatTable(tableName, group);
 		table.setUpdatable(false);
+		//gather the statistics during the load rather than with another scan
+		table.startStatisticsCollection();
 		return new ProxyTupleSource() {
 			TupleSource insertTupleSource;
 			boolean success;
@@ -729,6 +735,7 @@ public class TempTableDataManager implements ProcessorDataManager {
 					table.insert(insertTupleSource, allColumns, false, null);
 					table.getTree().compact();
 					rowCount = table.getRowCount();
+					table.collectStatistics();
 					Determinism determinism = qp.getContext().getDeterminismLevel();
 					context.setDeterminismLevel(determinism);
 					//TODO: could pre-process indexes to remove overlap
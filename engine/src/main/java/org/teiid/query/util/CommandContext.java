@@ -29,6 +29,7 @@ import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.security.auth.Subject;
@@ -39,6 +40,7 @@ import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.api.exception.query.QueryProcessingException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferStatistics;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidException;
@@ -178,6 +180,8 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    private boolean returnAutoGeneratedKeys;
 	    private GeneratedKeysImpl generatedKeys;
 	    private long reservedBuffers;
+	    private BufferStatistics bufferStatistics = new BufferStatistics();
+	    private AtomicInteger parallelTasks = new AtomicInteger();
 
 		private AuthorizationValidator authorizationValidator;
 		
@@ -742,8 +746,10 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 			if (this.globalState.reservedBuffers > 0) {
 				long toRelease = this.globalState.reservedBuffers;
 				this.globalState.reservedBuffers = 0;
+				this.globalState.bufferStatistics.setReservedBytes(0);
 				this.globalState.bufferManager.releaseOrphanedBuffers(toRelease);
 			}
+			this.globalState.bufferStatistics.close();
 			if (this.globalState.reusableExecutions != null) {
 				for (List<ReusableExecution<?>> reusableExecutions : this.globalState.reusableExecutions.values()) {
 					for (ReusableExecution<?> reusableExecution : reusableExecutions) {
@@ -917,6 +923,28 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     	this.globalState.options = options;
     }
     
+    /**
+     * Attempt to claim one of the request's additional processing threads.
+     * The processor thread counts against the {@link Options#getRequestParallelism()} limit.
+     * @return true if the task may be submitted to the executor, it must be released with {@link #releaseParallelTask()}
+     */
+    public boolean acquireParallelTask() {
+    	int max = getOptions().getRequestParallelism() - 1;
+    	while (true) {
+    		int current = this.globalState.parallelTasks.get();
+    		if (current >= max) {
+    			return false;
+    		}
+    		if (this.globalState.parallelTasks.compareAndSet(current, current + 1)) {
+    			return true;
+    		}
+    	}
+    }
+    
+    public void releaseParallelTask() {
+    	this.globalState.parallelTasks.decrementAndGet();
+    }
+    
 	@Override
 	public boolean isReturnAutoGeneratedKeys() {
 		return this.globalState.returnAutoGeneratedKeys;
@@ -954,7 +982,21 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 
 	public long addAndGetReservedBuffers(int i) {
-		return globalState.reservedBuffers += i;
+		//parallel plan branches may reserve and release concurrently
+		synchronized (this.globalState) {
+			long result = globalState.reservedBuffers += i;
+			if (i != 0) {
+				globalState.bufferStatistics.setReservedBytes(result);
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * @return the buffer usage of this request
+	 */
+	public BufferStatistics getBufferStatistics() {
+		return globalState.bufferStatistics;
 	}
 
 	@Override
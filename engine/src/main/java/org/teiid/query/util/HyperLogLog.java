@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.query.util;
+
+/**
+ * A HyperLogLog sketch for estimating the number of distinct values in a stream
+ * using a fixed amount of memory.  With the default precision of 11 (2048 registers)
+ * the standard error is roughly 2.3%.
+ */
+public class HyperLogLog {
+	
+	public static final int DEFAULT_PRECISION = 11;
+
+	private byte[] registers;
+	private int precision;
+	
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+	
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 16) {
+			throw new IllegalArgumentException("Precision must be between 4 and 16"); //$NON-NLS-1$
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+	
+	/**
+	 * Add a non-null value to the sketch.  Values are distinguished by their hashCode.
+	 */
+	public void add(Object value) {
+		addHash(mix(value.hashCode()));
+	}
+	
+	void addHash(long hash) {
+		int index = (int)(hash >>> (64 - precision));
+		//the guard bit bounds the rank when the remaining bits are all zero
+		long w = (hash << precision) | (1L << (precision - 1));
+		byte rank = (byte)(Long.numberOfLeadingZeros(w) + 1);
+		if (rank > registers[index]) {
+			registers[index] = rank;
+		}
+	}
+	
+	/**
+	 * Combine the values seen by another sketch of the same precision into this one. 
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.precision != this.precision) {
+			throw new IllegalArgumentException("Precision mismatch"); //$NON-NLS-1$
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+	
+	/**
+	 * @return the estimated number of distinct values added
+	 */
+	public long cardinality() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (int i = 0; i < m; i++) {
+			sum += 1d / (1L << registers[i]);
+			if (registers[i] == 0) {
+				zeros++;
+			}
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			//linear counting is more accurate for small cardinalities
+			estimate = m * Math.log((double)m / zeros);
+		}
+		return Math.round(estimate);
+	}
+	
+	/**
+	 * Spread a 32 bit hash over 64 bits with the murmur3 finalizer
+	 */
+	static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -35,6 +35,9 @@ public class Options {
 	public static final String JOIN_PREFETCH_BATCHES = "org.teiid.joinPrefetchBatches"; //$NON-NLS-1$
 	public static final String SANITIZE_MESSAGES = "org.teiid.sanitizeMessages"; //$NON-NLS-1$
 	public static final String REQUIRE_COLLATION = "org.teiid.requireTeiidCollation"; //$NON-NLS-1$
+	public static final String REQUEST_PARALLELISM = "org.teiid.requestParallelism"; //$NON-NLS-1$
+	public static final String MAX_DEPENDENT_QUERIES = "org.teiid.maxDependentQueries"; //$NON-NLS-1$
+	public static final String AUTO_PARAMETERIZE = "org.teiid.autoParameterize"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault;
@@ -44,6 +47,9 @@ public class Options {
 	private boolean sanitizeMessages;
 	private float dependentJoinPushdownThreshold = 0;
 	private boolean requireTeiidCollation;
+	private int requestParallelism = 1;
+	private int maxDependentQueries = -1;
+	private boolean autoParameterize;
 	
 	public Properties getProperties() {
 		return properties;
@@ -146,4 +152,43 @@ public class Options {
 		return this;
 	}
 
+	public int getRequestParallelism() {
+		return requestParallelism;
+	}
+	
+	public void setRequestParallelism(int requestParallelism) {
+		this.requestParallelism = requestParallelism;
+	}
+	
+	public Options requestParallelism(int i) {
+		this.requestParallelism = i;
+		return this;
+	}
+	
+	public int getMaxDependentQueries() {
+		return maxDependentQueries;
+	}
+	
+	public void setMaxDependentQueries(int maxDependentQueries) {
+		this.maxDependentQueries = maxDependentQueries;
+	}
+	
+	public Options maxDependentQueries(int i) {
+		this.maxDependentQueries = i;
+		return this;
+	}
+
+	public boolean isAutoParameterize() {
+		return autoParameterize;
+	}
+	
+	public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+	
+	public Options autoParameterize(boolean b) {
+		this.autoParameterize = b;
+		return this;
+	}
+
 }
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnarBatch.ColumnType;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.common.buffer.impl.SizeUtility;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings("nls")
+public class TestColumnarBatch {
+
+	private static Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER,
+		DataTypeManager.DefaultDataClasses.LONG, DataTypeManager.DefaultDataClasses.DOUBLE,
+		DataTypeManager.DefaultDataClasses.BOOLEAN, DataTypeManager.DefaultDataClasses.STRING,
+		DataTypeManager.DefaultDataClasses.BIG_DECIMAL, DataTypeManager.DefaultDataClasses.SHORT};
+
+	private List<List<?>> exampleRows(int count) {
+		List<List<?>> rows = new ArrayList<List<?>>();
+		for (int i = 0; i < count; i++) {
+			if (i % 10 == 0) {
+				rows.add(Arrays.asList(null, null, null, null, null, null, null));
+			} else {
+				rows.add(Arrays.asList(i, (long)i << 33, i/2.0, i%2==0, "region" + (i%3), BigDecimal.valueOf(i), (short)i));
+			}
+		}
+		return rows;
+	}
+
+	@Test public void testRoundTrip() {
+		List<List<?>> rows = exampleRows(100);
+		ColumnarBatch batch = ColumnarBatch.create(TYPES, rows);
+		assertEquals(rows, batch);
+		assertEquals(ColumnType.INT, batch.getColumnType(0));
+		assertEquals(ColumnType.STRING, batch.getColumnType(4));
+		assertEquals(ColumnType.OBJECT, batch.getColumnType(5));
+		assertEquals(3, batch.getDictionary(4).length);
+		assertTrue(batch.isNull(0, 1));
+		assertFalse(batch.isNull(1, 1));
+		assertEquals(5, batch.getIntColumn(0)[5]);
+		assertEquals(Short.valueOf((short)5), batch.get(5).get(6));
+	}
+
+	@Test public void testUnexpectedValueType() {
+		List<List<?>> rows = new ArrayList<List<?>>();
+		rows.add(Arrays.asList(1));
+		rows.add(Arrays.asList("a"));
+		ColumnarBatch batch = ColumnarBatch.create(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}, rows);
+		assertEquals(ColumnType.OBJECT, batch.getColumnType(0));
+		assertEquals(rows, batch);
+	}
+
+	@Test(expected=UnsupportedOperationException.class) public void testReadOnly() {
+		ColumnarBatch batch = ColumnarBatch.create(TYPES, exampleRows(2));
+		((List<Object>)batch.get(1)).set(0, 2);
+	}
+
+	@Test public void testSize() {
+		List<List<?>> rows = exampleRows(1000);
+		SizeUtility su = new SizeUtility(TYPES);
+		long rowSize = su.getBatchSize(false, rows);
+		long columnarSize = su.getBatchSize(false, ColumnarBatch.create(TYPES, rows));
+		assertTrue(columnarSize < rowSize/2);
+	}
+
+	@Test public void testTupleBuffer() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setUseColumnarBatches(true);
+		List<ElementSymbol> schema = new ArrayList<ElementSymbol>();
+		for (int i = 0; i < TYPES.length; i++) {
+			ElementSymbol x = new ElementSymbol("x" + i);
+			x.setType(TYPES[i]);
+			schema.add(x);
+		}
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR);
+		tb.setBatchSize(50);
+		List<List<?>> rows = exampleRows(120);
+		for (List<?> row : rows) {
+			tb.addTuple(row);
+		}
+		tb.close();
+		TupleBatch batch = tb.getBatch(51);
+		assertNotNull(batch.getColumnarBatch());
+		assertEquals(rows.subList(50, 100), batch.getTuples());
+		TupleSource ts = tb.createIndexedTupleSource();
+		for (List<?> row : rows) {
+			assertEquals(row, ts.nextTuple());
+		}
+		assertNull(ts.nextTuple());
+	}
+
+}
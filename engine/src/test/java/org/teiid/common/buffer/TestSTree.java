@@ -24,9 +24,11 @@ package org.teiid.common.buffer;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 import org.teiid.common.buffer.STree.InsertMode;
@@ -62,6 +64,67 @@ public class TestSTree {
 		assertNull(map.insert(Arrays.asList(1, String.valueOf(1)), InsertMode.NEW, -1));
 	}
 	
+	@Test public void testReadOnlyBrowsing() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(16);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		final STree map = bm.createSTree(elements, "1", 1);
+		
+		final int size = 5000;
+		for (int i = 0; i < size; i++) {
+			map.insert(Arrays.asList(i*2, String.valueOf(i)), InsertMode.NEW, -1);
+		}
+		
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread writer = new Thread() {
+			public void run() {
+				try {
+					for (int i = 0; !done.get(); i = (i + 7) % size) {
+						map.insert(Arrays.asList(i*2+1, "x"), InsertMode.NEW, -1);
+						map.insert(Arrays.asList(i*2, "y"), InsertMode.UPDATE, -1);
+						map.remove(Arrays.asList(i*2+1));
+					}
+				} catch (TeiidComponentException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		try {
+			for (int i = 0; i < 10; i++) {
+				boolean direction = i % 2 == 0;
+				TupleBrowser tb = new TupleBrowser(map, null, null, direction, true);
+				Integer last = null;
+				int count = 0;
+				List<?> tuple = null;
+				while ((tuple = tb.nextTuple()) != null) {
+					Integer value = (Integer)tuple.get(0);
+					if (last != null) {
+						assertTrue(direction?value > last:value < last);
+					}
+					if (value % 2 == 0) {
+						count++;
+					}
+					last = value;
+				}
+				assertEquals(size, count);
+				
+				tb = new TupleBrowser(map, new CollectionTupleSource(Arrays.asList(Arrays.asList(10), Arrays.asList(-1), Arrays.asList(9998)).iterator()), true, true);
+				assertEquals(10, tb.nextTuple().get(0));
+				assertEquals(9998, tb.nextTuple().get(0));
+				assertNull(tb.nextTuple());
+			}
+		} finally {
+			done.set(true);
+			writer.join();
+		}
+	}
+	
 	@Test public void testUnOrderedInsert() throws TeiidComponentException {
 		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
 		bm.setProcessorBatchSize(16);
@@ -105,6 +168,48 @@ public class TestSTree {
 				
 	}
 	
+	@Test public void testBulkLoad() throws TeiidComponentException, TeiidProcessingException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(4);
+
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+
+		int size = 10000;
+		STree.BulkLoader loader = map.createBulkLoader(.5f);
+		for (int i = 0; i < size; i++) {
+			assertNull(loader.append(Arrays.asList(i*2, String.valueOf(i))));
+		}
+		assertNotNull(loader.append(Arrays.asList((size - 1)*2, "dup")));
+		//out of order is inserted normally
+		assertNull(loader.append(Arrays.asList(1, "1")));
+		loader.finish();
+
+		assertEquals(size + 1, map.getRowCount());
+		for (int i = 0; i < size; i++) {
+			assertEquals(String.valueOf(i), map.find(Arrays.asList(i*2)).get(1));
+		}
+		assertNull(map.find(Arrays.asList(3)));
+
+		TupleBrowser tb = new TupleBrowser(map, null, null, true);
+		assertEquals(0, tb.nextTuple().get(0));
+		assertEquals(1, tb.nextTuple().get(0));
+		for (int i = 1; i < size; i++) {
+			assertEquals(i*2, tb.nextTuple().get(0));
+		}
+		assertNull(tb.nextTuple());
+
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i*2 + 3, String.valueOf(i)), InsertMode.NEW, -1));
+			assertNotNull(map.remove(Arrays.asList(i*2)));
+		}
+		assertEquals(size + 1, map.getRowCount());
+	}
+
 	@Test public void testStorageWrites() throws TeiidComponentException {
 		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
 		bm.setProcessorBatchSize(32);
@@ -133,6 +238,76 @@ public class TestSTree {
 				
 	}
 	
+	@Test public void testReadOnlyPartialKeyBrowsing() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(16);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(Integer.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		final STree map = bm.createSTree(elements, "1", 2);
+		
+		final int size = 50;
+		final int perKey = 20;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < perKey; j++) {
+				map.insert(Arrays.asList(i, j*2), InsertMode.NEW, -1);
+			}
+		}
+		
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread writer = new Thread() {
+			public void run() {
+				try {
+					//splits and merges pages within and around the partial key ranges
+					for (int i = 0; !done.get(); i = (i + 7) % size) {
+						for (int j = 0; j < perKey; j++) {
+							map.insert(Arrays.asList(i, j*2+1), InsertMode.NEW, -1);
+						}
+						for (int j = 0; j < perKey; j++) {
+							map.remove(Arrays.asList(i, j*2+1));
+						}
+					}
+				} catch (TeiidComponentException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		try {
+			for (int i = 0; i < 50; i++) {
+				List<Integer> keys = Arrays.asList(10, 20, -1, 30, 49);
+				List<List<Integer>> valueSet = new ArrayList<List<Integer>>();
+				for (Integer key : keys) {
+					valueSet.add(Arrays.asList(key));
+				}
+				TupleBrowser tb = new TupleBrowser(map, new CollectionTupleSource(valueSet.iterator()), true, true);
+				List<List<?>> results = new ArrayList<List<?>>();
+				List<?> tuple = null;
+				while ((tuple = tb.nextTuple()) != null) {
+					if ((Integer)tuple.get(1) % 2 == 0) {
+						results.add(tuple);
+					}
+				}
+				assertEquals((keys.size() - 1) * perKey, results.size());
+				int index = 0;
+				for (Integer key : keys) {
+					if (key < 0) {
+						continue;
+					}
+					for (int j = 0; j < perKey; j++) {
+						assertEquals(Arrays.asList(key, j*2), results.get(index++));
+					}
+				}
+			}
+		} finally {
+			done.set(true);
+			writer.join();
+		}
+	}
+	
 	@Test public void testSearch() throws TeiidComponentException, TeiidProcessingException {
 		//due to buffering changes we need to hold this in memory directly rather than serialize it out as that will lead to GC overhead errors
 		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(Integer.MAX_VALUE, 1);
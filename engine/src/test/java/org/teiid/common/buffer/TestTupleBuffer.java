@@ -26,15 +26,20 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.sql.rowset.serial.SerialClob;
 
 import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.CommandContext;
 
 public class TestTupleBuffer {
 
@@ -160,4 +165,129 @@ public class TestTupleBuffer {
 		assertNotNull(tb.getLobReference(c.getReferenceStreamId()));
 	}
 	
+	@Test public void testCompactSerialization() throws Exception {
+		BufferManagerImpl bm = new BufferManagerImpl();
+		bm.setUseCompactSerialization(true);
+		bm.setMaxProcessingKB(1024);
+		bm.setMaxReserveKB(1024);
+		BufferManagerFactory.initBufferManager(bm);
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y"); //$NON-NLS-1$
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		List<ElementSymbol> schema = Arrays.asList(x, y);
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(100);
+		for (int i = 0; i < 1000; i++) {
+			tb.addTuple(Arrays.asList(i, i % 3 == 0 ? null : String.valueOf(i % 10)));
+		}
+		tb.close();
+		
+		bm.reserveBuffers(1 << 20, BufferReserveMode.FORCE);
+		assertEquals(0, bm.getMemoryCacheEntries());
+		bm.releaseBuffers(1 << 20);
+		
+		TupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Arrays.asList(i, i % 3 == 0 ? null : String.valueOf(i % 10)), ts.nextTuple());
+		}
+	}
+	
+	@Test public void testBufferStatistics() throws Exception {
+		BufferManagerImpl bm = new BufferManagerImpl();
+		bm.setMaxProcessingKB(1024);
+		bm.setMaxReserveKB(1024);
+		BufferManagerFactory.initBufferManager(bm);
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		CommandContext context = new CommandContext();
+		CommandContext.pushThreadLocalContext(context);
+		TupleBuffer tb = null;
+		try {
+			tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+			tb.setBatchSize(100);
+			for (int i = 0; i < 1000; i++) {
+				tb.addTuple(Arrays.asList(i));
+			}
+			tb.close();
+			
+			bm.reserveBuffers(1 << 20, BufferReserveMode.FORCE);
+			bm.releaseBuffers(1 << 20);
+			
+			TupleSource ts = tb.createIndexedTupleSource();
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(Arrays.asList(i), ts.nextTuple());
+			}
+		} finally {
+			CommandContext.popThreadLocalContext();
+		}
+		BufferStatistics stats = context.getBufferStatistics();
+		assertEquals(1 << 20, stats.getPeakReservedBytes());
+		assertEquals(0, stats.getReservedBytes());
+		assertEquals(10, stats.getBatchesWritten());
+		assertEquals(10, stats.getBatchesRead());
+		assertEquals(stats.getBytesWritten(), stats.getBytesRead());
+		assertTrue(stats.getFirstWriteTime() > 0);
+		
+		//the buffer outlives the request, but is no longer charged to it
+		context.close();
+		assertTrue(stats.isClosed());
+		bm.reserveBuffers(1 << 20, BufferReserveMode.FORCE);
+		bm.releaseBuffers(1 << 20);
+		TupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Arrays.asList(i), ts.nextTuple());
+		}
+		assertEquals(10, stats.getBatchesRead());
+		tb.remove();
+	}
+	
+	@Test public void testReadAhead() throws Exception {
+		BufferManagerImpl bm = new BufferManagerImpl();
+		ExecutorService ioPool = Executors.newSingleThreadExecutor();
+		bm.setIoExecutor(ioPool);
+		bm.setMaxProcessingKB(1024);
+		bm.setMaxReserveKB(1024);
+		BufferManagerFactory.initBufferManager(bm);
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(100);
+		for (int i = 0; i < 1000; i++) {
+			tb.addTuple(Arrays.asList(i));
+		}
+		tb.close();
+		
+		//force everything to be written behind
+		bm.reserveBuffers(1 << 20, BufferReserveMode.FORCE);
+		awaitIo(ioPool);
+		assertEquals(0, bm.getPendingWriteBytes());
+		assertEquals(0, bm.getMemoryCacheEntries());
+		bm.releaseBuffers(1 << 20);
+		
+		assertEquals(0, tb.getBatch(1).getTuples().get(0).get(0));
+		//sequential access should prefetch
+		assertEquals(100, tb.getBatch(101).getTuples().get(0).get(0));
+		awaitIo(ioPool);
+		assertEquals(BufferManagerImpl.DEFAULT_READ_AHEAD_BATCHES, bm.getPrefetchCount());
+		TupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, ts.nextTuple().get(0));
+		}
+		bm.shutdown();
+	}
+
+	/**
+	 * Wait for the tasks already submitted to the single io thread
+	 */
+	private static void awaitIo(ExecutorService ioPool) throws Exception {
+		ioPool.submit(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}).get();
+	}
+	
 }
@@ -37,6 +37,7 @@ import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.Serializer;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.UnitTestUtil;
 
 public class TestBufferFrontedFileStoreCache {
 	
@@ -73,6 +74,37 @@ public class TestBufferFrontedFileStoreCache {
 		}
 	}
 	
+	private final static class RepeatingSerializer implements Serializer<Integer> {
+		@Override
+		public Integer deserialize(ObjectInput ois)
+				throws IOException, ClassNotFoundException {
+			Integer result = ois.readInt();
+			for (int i = 0; i < result; i++) {
+				assertEquals(i%16, ois.readInt());
+			}
+			return result;
+		}
+
+		@Override
+		public Long getId() {
+			return 1l;
+		}
+
+		@Override
+		public void serialize(Integer obj, ObjectOutput oos)
+				throws IOException {
+			oos.writeInt(obj);
+			for (int i = 0; i < obj; i++) {
+				oos.writeInt(i%16);
+			}
+		}
+
+		@Override
+		public boolean useSoftCache() {
+			return false;
+		}
+	}
+	
 	@After public void teardown() {
 		if (this.cache != null) {
 			cache.shutdown();
@@ -150,6 +182,77 @@ public class TestBufferFrontedFileStoreCache {
 		assertEquals(0, cache.getInodesInUse());
 	}
 
+	@Test public void testCompression() throws Exception {
+		cache = createLayeredCache(1 << 26, 1 << 26, true);
+		cache.setCompress(true);
+		
+		Serializer<Integer> s = new RepeatingSerializer();
+		cache.createCacheGroup(s.getId());
+		CacheEntry ce = new CacheEntry(2l);
+		Integer cacheObject = Integer.valueOf(80000);
+		ce.setObject(cacheObject);
+		cache.addToCacheGroup(s.getId(), ce.getId());
+		cache.add(ce, s);
+		int compressedBlocks = cache.getDataBlocksInUse();
+		
+		ce = get(cache, 2l, s);
+		assertEquals(cacheObject, ce.getObject());
+		assertTrue(cache.getCompressionRatio() > 1);
+		//the stored size accounts for all of the compressed bytes
+		assertEquals(compressedBlocks, cache.getCompressedBlocks());
+		assertTrue(cache.getUncompressedBlocks() > compressedBlocks);
+		long[] counts = cache.getCompressionRatioCounts();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		assertEquals(1, total);
+		assertEquals(0, counts[0]);
+		
+		cache.removeCacheGroup(1l);
+		assertEquals(0, cache.getDataBlocksInUse());
+		
+		cache.setCompress(false);
+		cache.createCacheGroup(s.getId());
+		ce = new CacheEntry(3l);
+		ce.setObject(cacheObject);
+		cache.addToCacheGroup(s.getId(), ce.getId());
+		cache.add(ce, s);
+		assertTrue(compressedBlocks < cache.getDataBlocksInUse());
+	}
+
+	@Test public void testMappedStorage() throws Exception {
+		cache = new BufferFrontedFileStoreCache();
+		cache.cleanerRunning.set(true);
+		cache.setMemoryBufferSpace(1<<15);
+		cache.setMaxStorageObjectSize(1<<15);
+		cache.setDirect(false);
+		MappedFileStorageManager sm = new MappedFileStorageManager();
+		sm.setStorageDirectory(UnitTestUtil.getTestScratchPath() + "/mapped");
+		cache.setStorageManager(sm);
+		cache.initialize();
+		
+		Serializer<Integer> s = new SimpleSerializer();
+		WeakReference<? extends Serializer<?>> ref = new WeakReference<Serializer<?>>(s);
+		cache.createCacheGroup(s.getId());
+		for (long i = 0; i < 3; i++) {
+			CacheEntry ce = new CacheEntry(i);
+			ce.setSerializer(ref);
+			ce.setObject(Integer.valueOf(5000 + (int)i));
+			cache.addToCacheGroup(s.getId(), ce.getId());
+			cache.add(ce, s);
+		}
+		assertTrue(cache.getStorageWrites() > 0);
+		
+		//reading from the mapped storage should not promote back to memory
+		int blocks = cache.getDataBlocksInUse();
+		long reads = cache.getStorageReads();
+		CacheEntry ce = get(cache, 0l, s);
+		assertEquals(Integer.valueOf(5000), ce.getObject());
+		assertEquals(reads + 1, cache.getStorageReads());
+		assertEquals(blocks, cache.getDataBlocksInUse());
+	}
+	
 	private static CacheEntry get(BufferFrontedFileStoreCache cache, Long oid,
 			Serializer<Integer> s) throws TeiidComponentException {
 		PhysicalInfo o = cache.lockForLoad(oid, s);
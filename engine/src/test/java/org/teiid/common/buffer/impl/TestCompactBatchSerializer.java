@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.client.BatchSerializer;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.DataTypeManager.DefaultDataClasses;
+
+@SuppressWarnings("nls")
+public class TestCompactBatchSerializer {
+	
+	private static Class<?>[] TYPES = new Class<?>[] {DefaultDataClasses.STRING, DefaultDataClasses.CHAR,
+		DefaultDataClasses.BOOLEAN, DefaultDataClasses.BYTE, DefaultDataClasses.SHORT, DefaultDataClasses.INTEGER, 
+		DefaultDataClasses.LONG, DefaultDataClasses.BIG_INTEGER, DefaultDataClasses.FLOAT, DefaultDataClasses.DOUBLE, 
+		DefaultDataClasses.BIG_DECIMAL, DefaultDataClasses.DATE, DefaultDataClasses.TIME, DefaultDataClasses.TIMESTAMP, 
+		DefaultDataClasses.NULL};
+	
+	private static List<?> exampleRow(int i) {
+		Timestamp ts = new Timestamp(1300000000000l - i * 1001);
+		ts.setNanos(123456789 + i);
+		return Arrays.asList("value" + (i % 7), (char)('a' + i), i % 3 == 0, (byte)-i, (short)(i * 100), -i * 100000, 
+				(long)i << 40, BigInteger.valueOf(i).pow(5).negate(), i / 3f, i / 7d, BigDecimal.valueOf(-i, 3), 
+				new Date(1300000000000l + i * 86400000l), new Time(i * 1000), ts, null);
+	}
+
+	private static byte[] serialize(List<? extends List<?>> batch, boolean compact) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		if (compact) {
+			CompactBatchSerializer.writeBatch(oos, CompactBatchSerializer.getTypeCodes(TYPES), batch);
+		} else {
+			String[] types = new String[TYPES.length];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = DataTypeManager.getDataTypeName(TYPES[i]);
+			}
+			BatchSerializer.writeBatch(oos, types, batch);
+		}
+		oos.close();
+		return baos.toByteArray();
+	}
+	
+	private static List<List<Object>> deserialize(byte[] bytes) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		return CompactBatchSerializer.readBatch(ois, CompactBatchSerializer.getTypeCodes(TYPES));
+	}
+
+	@Test public void testRoundTrip() throws Exception {
+		List<List<?>> batch = new ArrayList<List<?>>();
+		for (int i = 0; i < 100; i++) {
+			if (i % 11 == 0) {
+				batch.add(Arrays.asList(new Object[TYPES.length]));
+			} else {
+				batch.add(exampleRow(i));
+			}
+		}
+		assertEquals(batch, deserialize(serialize(batch, true)));
+	}
+	
+	@Test public void testEmpty() throws Exception {
+		assertEquals(0, deserialize(serialize(new ArrayList<List<?>>(), true)).size());
+	}
+	
+	@Test public void testExtremeValues() throws Exception {
+		List<List<?>> batch = new ArrayList<List<?>>();
+		Timestamp ts = new Timestamp(Long.MIN_VALUE/2);
+		ts.setNanos(999999999);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 70000; i++) {
+			sb.append((char)i);
+		}
+		batch.add(Arrays.asList(sb.toString(), Character.MAX_VALUE, true, Byte.MIN_VALUE, Short.MIN_VALUE, Integer.MIN_VALUE, 
+				Long.MIN_VALUE, BigInteger.ZERO, Float.NaN, Double.NEGATIVE_INFINITY, BigDecimal.ONE, new Date(Long.MIN_VALUE/2), new Time(0), ts, null));
+		batch.add(Arrays.asList("", Character.MIN_VALUE, false, Byte.MAX_VALUE, Short.MAX_VALUE, Integer.MAX_VALUE, 
+				Long.MAX_VALUE, null, Float.MAX_VALUE, Double.MIN_VALUE, null, new Date(Long.MAX_VALUE/2), null, null, null));
+		assertEquals(batch, deserialize(serialize(batch, true)));
+	}
+	
+	@Test public void testSize() throws Exception {
+		List<List<?>> batch = new ArrayList<List<?>>();
+		for (int i = 0; i < 1000; i++) {
+			batch.add(exampleRow(i));
+		}
+		assertTrue(serialize(batch, true).length < serialize(batch, false).length * 3 / 4);
+	}
+	
+	@Test public void testSupported() {
+		assertTrue(CompactBatchSerializer.isSupported(TYPES));
+		assertFalse(CompactBatchSerializer.isSupported(new Class<?>[] {DefaultDataClasses.INTEGER, DefaultDataClasses.CLOB}));
+		assertFalse(CompactBatchSerializer.isSupported(new Class<?>[] {DefaultDataClasses.OBJECT}));
+	}
+
+}
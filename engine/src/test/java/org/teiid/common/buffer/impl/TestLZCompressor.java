@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestLZCompressor {
+	
+	private byte[] roundTrip(byte[] data, LZCompressor.CompressingOutputStream[] out) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		LZCompressor.CompressingOutputStream cos = new LZCompressor.CompressingOutputStream(baos);
+		cos.write(data, 0, data.length);
+		cos.close();
+		out[0] = cos;
+		//trailing bytes should not be consumed
+		baos.write(new byte[] {1, 2, 3});
+		LZCompressor.DecompressingInputStream dis = new LZCompressor.DecompressingInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		byte[] result = new byte[data.length];
+		int read = 0;
+		while (read < data.length) {
+			int n = dis.read(result, read, data.length - read);
+			assertTrue(n > 0);
+			read += n;
+		}
+		return result;
+	}
+
+	@Test public void testRepeating() throws Exception {
+		byte[] data = new byte[200000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte)(i%97);
+		}
+		LZCompressor.CompressingOutputStream[] cos = new LZCompressor.CompressingOutputStream[1];
+		assertArrayEquals(data, roundTrip(data, cos));
+		assertTrue(cos[0].getStoredBytes() < data.length/10);
+	}
+	
+	@Test public void testRandom() throws Exception {
+		byte[] data = new byte[100000];
+		new Random(1).nextBytes(data);
+		LZCompressor.CompressingOutputStream[] cos = new LZCompressor.CompressingOutputStream[1];
+		assertArrayEquals(data, roundTrip(data, cos));
+		//stored as is with chunk headers
+		assertEquals(data.length + 16, cos[0].getStoredBytes());
+	}
+	
+	@Test public void testSmall() throws Exception {
+		byte[] data = new byte[] {1, 2, 3};
+		LZCompressor.CompressingOutputStream[] cos = new LZCompressor.CompressingOutputStream[1];
+		assertArrayEquals(data, roundTrip(data, cos));
+	}
+
+}
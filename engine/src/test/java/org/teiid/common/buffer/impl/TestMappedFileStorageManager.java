@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Test;
+import org.teiid.common.buffer.FileStore;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.UnitTestUtil;
+
+@SuppressWarnings("nls")
+public class TestMappedFileStorageManager {
+	
+	private MappedFileStorageManager getStorageManager() throws TeiidComponentException {
+		MappedFileStorageManager sm = new MappedFileStorageManager();
+		sm.setStorageDirectory(UnitTestUtil.getTestScratchPath() + "/mapped");
+		sm.setSegmentSize(1 << 16);
+		sm.initialize();
+		return sm;
+	}
+
+	@Test public void testInitialRead() throws Exception {
+		MappedFileStorageManager sm = getStorageManager();
+		FileStore store = sm.createFileStore("0");
+		assertTrue(store.isMemoryMapped());
+		assertEquals(-1, store.read(0, new byte[1], 0, 1));
+	}
+	
+	@Test public void testWriteAcrossSegments() throws Exception {
+		MappedFileStorageManager sm = getStorageManager();
+		FileStore store = sm.createFileStore("0");
+		byte[] bytes = new byte[200000];
+		new Random(1).nextBytes(bytes);
+		store.write(0, bytes, 0, bytes.length);
+		assertEquals(bytes.length, store.getLength());
+		assertTrue(sm.getUsedBufferSpace() >= bytes.length);
+		
+		byte[] bytesRead = new byte[bytes.length];
+		store.readFully(0, bytesRead, 0, bytesRead.length);
+		assertArrayEquals(bytes, bytesRead);
+		
+		//the stream reads directly from the mapping
+		InputStream is = store.createInputStream(60000, 10000);
+		byte[] streamBytes = new byte[10000];
+		int read = 0;
+		int n = 0;
+		while ((n = is.read(streamBytes, read, streamBytes.length - read)) > 0) {
+			read += n;
+		}
+		assertEquals(10000, read);
+		for (int i = 0; i < read; i++) {
+			assertEquals(bytes[60000 + i], streamBytes[i]);
+		}
+		assertEquals(-1, is.read());
+		
+		store.remove();
+		assertEquals(0, sm.getUsedBufferSpace());
+	}
+	
+	@Test public void testSetLength() throws Exception {
+		MappedFileStorageManager sm = getStorageManager();
+		FileStore store = sm.createFileStore("0");
+		store.setLength(100000);
+		assertEquals(100000, store.getLength());
+		assertEquals(100000, sm.getUsedBufferSpace());
+		
+		store.write(99999, new byte[] {1}, 0, 1);
+		store.setLength(200);
+		assertEquals(200, store.getLength());
+		assertEquals(200, sm.getUsedBufferSpace());
+		assertEquals(-1, store.read(200, new byte[1], 0, 1));
+		
+		store.setLength(100000);
+		byte[] b = new byte[1];
+		store.readFully(99999, b, 0, 1);
+		assertEquals(0, b[0]);
+	}
+	
+	@Test(expected=IOException.class) public void testMaxSpace() throws Exception {
+		MappedFileStorageManager sm = getStorageManager();
+		sm.setMaxBufferSpace(1);
+		FileStore store = sm.createFileStore("0");
+		try {
+			store.write(0, new byte[10], 0, 10);
+		} finally {
+			assertEquals(0, sm.getUsedBufferSpace());
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestReserveCounter {
+
+	@Test public void testStripes() {
+		ReserveCounter counter = new ReserveCounter(4);
+		counter.set(1000);
+		counter.setMaxStripeBytes(100);
+		assertEquals(1000, counter.getTotal());
+		counter.addShared(-100);
+		counter.release(50);
+		assertEquals(900, counter.getShared());
+		assertEquals(950, counter.getTotal());
+		assertTrue(counter.tryReserveLocal(50, 0));
+		assertFalse(counter.tryReserveLocal(1, 0));
+		counter.release(200); //over the stripe max
+		assertEquals(1100, counter.getShared());
+		counter.release(50);
+		assertFalse(counter.tryReserveLocal(50, 1101));
+		assertEquals(50, counter.reconcile());
+		assertEquals(1150, counter.getShared());
+		assertEquals(1150, counter.getTotal());
+	}
+	
+	@Test public void testConcurrentReserve() throws Exception {
+		for (int threads : new int[] {1, 8, 32, 128}) {
+			helpTestConcurrentReserve(threads);
+		}
+	}
+
+	private void helpTestConcurrentReserve(int threads) throws Exception {
+		final ReserveCounter counter = new ReserveCounter(32);
+		final long max = 1 << 20;
+		counter.set(max);
+		counter.setMaxStripeBytes(max >> 8);
+		ExecutorService es = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(es.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int j = 0; j < 10000; j++) {
+							int count = 1 + (j & 1023);
+							if (!counter.tryReserveLocal(count, 0)) {
+								counter.addShared(-count);
+							}
+							counter.release(count);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		//the total is only consistent once the threads are done
+		assertEquals(max, counter.getTotal());
+		assertTrue(counter.getShared() <= max);
+		counter.reconcile();
+		assertEquals(max, counter.getShared());
+	}
+
+}
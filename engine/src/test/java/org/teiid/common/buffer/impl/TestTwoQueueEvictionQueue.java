@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
+
+public class TestTwoQueueEvictionQueue {
+	
+	private AtomicLong clock = new AtomicLong();
+	
+	private BaseCacheEntry add(EvictionQueue<BaseCacheEntry> q, long id) {
+		BaseCacheEntry entry = new BaseCacheEntry(new CacheKey(id, clock.get(), 0));
+		q.add(entry);
+		return entry;
+	}
+	
+	@Test public void testScanResistance() {
+		TwoQueueEvictionQueue<BaseCacheEntry> q = new TwoQueueEvictionQueue<BaseCacheEntry>(clock);
+		List<BaseCacheEntry> hot = new ArrayList<BaseCacheEntry>();
+		for (long i = 0; i < 10; i++) {
+			hot.add(add(q, i));
+		}
+		clock.addAndGet(1 << 10);
+		for (BaseCacheEntry entry : hot) {
+			q.touch(entry);
+		}
+		assertEquals(10, q.getHits());
+		//scan
+		for (long i = 10; i < 1000; i++) {
+			add(q, i);
+			clock.incrementAndGet();
+			if (q.getSize() > 100) {
+				BaseCacheEntry evicted = q.firstEntry(true);
+				assertTrue(evicted.getId() >= 10);
+			}
+		}
+		for (BaseCacheEntry entry : hot) {
+			assertTrue(q.remove(entry));
+		}
+	}
+	
+	@Test public void testGhostReadmission() {
+		TwoQueueEvictionQueue<BaseCacheEntry> q = new TwoQueueEvictionQueue<BaseCacheEntry>(clock);
+		BaseCacheEntry entry = add(q, 1);
+		assertSame(entry, q.firstEntry(true));
+		assertEquals(0, q.getSize());
+		clock.addAndGet(1 << 10);
+		//reading back counts as a miss and goes to the protected queue
+		q.touch(entry);
+		assertEquals(1, q.getMisses());
+		add(q, 2);
+		add(q, 3);
+		assertEquals(3, q.getEvictionQueue().size());
+		assertEquals(Long.valueOf(2), q.firstEntry(false).getId());
+		q.getEvictionQueue().clear();
+		assertEquals(0, q.getSize());
+	}
+	
+	@Test public void testInitialQueueScanResistance() {
+		EvictionQueue<BaseCacheEntry> initial = EvictionPolicy.TWO_QUEUE.createInitialEvictionQueue(clock);
+		TwoQueueEvictionQueue<BaseCacheEntry> main = new TwoQueueEvictionQueue<BaseCacheEntry>(clock);
+		BaseCacheEntry entry = add(initial, 1);
+		assertSame(entry, initial.firstEntry(true));
+		//a spilled entry read back once is not promoted
+		entry = add(main, 1);
+		add(main, 2);
+		assertEquals("Probation:2 Protected:0", main.toString()); //$NON-NLS-1$
+		//but an entry evicted from the main queue is
+		assertSame(entry, main.firstEntry(true));
+		main.add(entry);
+		assertEquals("Probation:1 Protected:1", main.toString()); //$NON-NLS-1$
+	}
+	
+	@Test public void testPolicy() {
+		assertTrue(EvictionPolicy.TWO_QUEUE.createEvictionQueue(clock) instanceof TwoQueueEvictionQueue);
+		assertTrue(EvictionPolicy.LRFU.createEvictionQueue(clock) instanceof LrfuEvictionQueue);
+	}
+
+}
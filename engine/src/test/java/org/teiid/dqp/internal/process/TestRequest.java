@@ -25,9 +25,15 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.teiid.adminapi.DataPolicy;
+import org.teiid.adminapi.DataPolicy.PermissionType;
+import org.teiid.adminapi.impl.DataPolicyMetadata;
+import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.StatementType;
@@ -47,6 +53,7 @@ import org.teiid.query.sql.lang.Command;
 import org.teiid.query.tempdata.TempTableStore;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings("nls")
 public class TestRequest {
@@ -126,14 +133,18 @@ public class TestRequest {
         } else {
         	request = new Request();
         }
-        ConnectorManagerRepository repo = Mockito.mock(ConnectorManagerRepository.class);
+        return helpProcessMessage(request, message, null, workContext, new DefaultAuthorizationValidator());
+    }
+
+	private Request helpProcessMessage(Request request, RequestMessage message, SessionAwareCache<PreparedPlan> planCache, DQPWorkContext workContext, AuthorizationValidator validator) 
+			throws TeiidComponentException, TeiidProcessingException {
+		ConnectorManagerRepository repo = Mockito.mock(ConnectorManagerRepository.class);
         workContext.getVDB().addAttchment(ConnectorManagerRepository.class, repo);
         Mockito.stub(repo.getConnectorManager(Mockito.anyString())).toReturn(new AutoGenDataService());
         
         request.initialize(message, Mockito.mock(BufferManager.class),
-				new FakeDataManager(), new FakeTransactionService(), TEMP_TABLE_STORE, workContext, null);
-        DefaultAuthorizationValidator drav = new DefaultAuthorizationValidator();
-        request.setAuthorizationValidator(drav);
+				new FakeDataManager(), new FakeTransactionService(), TEMP_TABLE_STORE, workContext, planCache);
+        request.setAuthorizationValidator(validator);
         request.processRequest();
         return request;
     }
@@ -167,4 +178,65 @@ public class TestRequest {
 
         helpProcessMessage(message, cache, workContext);
     }
+    
+    @Test public void testAutoParameterize() throws Exception {
+        QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        SessionAwareCache<PreparedPlan> cache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0);
+        DQPWorkContext workContext = RealMetadataFactory.buildWorkContext(metadata, RealMetadataFactory.example1VDB());
+        
+        helpProcessAutoParameterized("SELECT e1 FROM pm1.g1 WHERE e2 = 1 AND e1 IN ('a', 'b')", cache, workContext);
+        assertEquals(0, cache.getCacheHitCount());
+        assertEquals(1, cache.getCachePutCount());
+        
+        //same statement with different literals reuses the plan
+        Request request = helpProcessAutoParameterized("SELECT e1 FROM pm1.g1 WHERE e2 = 2 AND e1 IN ('c', 'd')", cache, workContext);
+        assertEquals(1, cache.getCacheHitCount());
+        assertEquals(2, request.context.getVariableContext().getGlobalValue("$param/pos0"));
+        assertEquals("c", request.context.getVariableContext().getGlobalValue("$param/pos1"));
+        assertEquals("d", request.context.getVariableContext().getGlobalValue("$param/pos2"));
+        
+        //a different number of values is a different plan
+        helpProcessAutoParameterized("SELECT e1 FROM pm1.g1 WHERE e2 = 2 AND e1 IN ('c')", cache, workContext);
+        assertEquals(1, cache.getCacheHitCount());
+        assertEquals(2, cache.getCachePutCount());
+    }
+
+	private Request helpProcessAutoParameterized(String sql, SessionAwareCache<PreparedPlan> cache, DQPWorkContext workContext) 
+			throws TeiidComponentException, TeiidProcessingException {
+		Request request = new Request();
+		request.setOptions(new Options().autoParameterize(true));
+		DefaultAuthorizationValidator drav = new DefaultAuthorizationValidator();
+		DataRolePolicyDecider drpd = new DataRolePolicyDecider();
+		drpd.setAllowFunctionCallsByDefault(true);
+		drav.setPolicyDecider(drpd);
+		return helpProcessMessage(request, new RequestMessage(sql), cache, workContext, drav);
+	}
+    
+    @Test public void testAutoParameterizeIgnoresPrunedSelectAll() throws Exception {
+        QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        SessionAwareCache<PreparedPlan> cache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0);
+        
+        Request request = helpProcessAutoParameterized("SELECT * FROM pm1.g1 WHERE e2 = 1", cache, RealMetadataFactory.buildWorkContext(metadata, RealMetadataFactory.example1VDB()));
+        assertEquals(4, request.processPlan.getOutputElements().size());
+        assertEquals(1, cache.getCachePutCount());
+        
+        //a role that cannot read e1, with the column removed from the select all
+        DataPolicyMetadata svc = new DataPolicyMetadata();
+        svc.setName("test"); //$NON-NLS-1$
+        svc.addPermission(TestAuthorizationValidationVisitor.addResource(PermissionType.READ, true, "pm1")); //$NON-NLS-1$
+        svc.addPermission(TestAuthorizationValidationVisitor.addResource(PermissionType.READ, false, "pm1.g1.e1")); //$NON-NLS-1$
+        VDBMetaData vdb = RealMetadataFactory.example1VDB();
+        vdb.setDataPolicies(new ArrayList<DataPolicy>(Arrays.asList(svc)));
+        DQPWorkContext workContext = RealMetadataFactory.buildWorkContext(metadata, vdb);
+        HashMap<String, DataPolicy> policies = new HashMap<String, DataPolicy>();
+        policies.put(svc.getName(), svc);
+        workContext.setPolicies(policies);
+        workContext.getSession().getSessionVariables().put(DefaultAuthorizationValidator.IGNORE_UNAUTHORIZED_ASTERISK, "true"); //$NON-NLS-1$
+        
+        request = helpProcessAutoParameterized("SELECT * FROM pm1.g1 WHERE e2 = 2", cache, workContext);
+        assertEquals(0, cache.getCacheHitCount());
+        assertEquals(1, cache.getCachePutCount());
+        assertEquals(3, request.processPlan.getOutputElements().size());
+    }
+    
 }
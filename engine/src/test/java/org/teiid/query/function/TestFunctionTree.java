@@ -30,6 +30,7 @@ import java.util.Collection;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
@@ -42,6 +43,7 @@ import org.teiid.query.function.source.SystemSource;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
 
 @SuppressWarnings("nls")
 public class TestFunctionTree {
@@ -176,6 +178,43 @@ public class TestFunctionTree {
     	assertEquals(hello, fd.invokeFunction(new Object[] {new BinaryType(hello.getBytes())}, null, null));
     }
     
+    @Test public void testInvocationHandle() throws Exception {
+    	FunctionDescriptor fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("/", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER});
+    	assertNotNull(FunctionDescriptor.getInvocationHandle(fd.getInvocationMethod()));
+    	assertEquals(2, fd.invokeFunction(new Object[] {4, 2}, null, null));
+    	try {
+    		fd.invokeFunction(new Object[] {4, 0}, null, null);
+    		fail();
+    	} catch (FunctionExecutionException e) {
+    		assertTrue(e.getCause() instanceof ArithmeticException);
+    	}
+    }
+    
+    /**
+     * An argument that cannot be adapted is not a failure of the function itself
+     */
+    @Test(expected=ClassCastException.class) public void testInvocationHandleArgumentMismatch() throws Exception {
+    	FunctionDescriptor fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("/", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER});
+    	fd.invokeFunction(new Object[] {"4", 2}, null, null); //$NON-NLS-1$
+    }
+    
+    @Test public void testInvocationHandleVarArgs() throws Exception {
+    	FunctionDescriptor fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction(FunctionLibrary.COALESCE, new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER});
+    	assertNotNull(FunctionDescriptor.getInvocationHandle(fd.getInvocationMethod()));
+    	assertEquals(3, fd.invokeFunction(new Object[] {null, null, 3, 4}, null, null));
+    	fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction(FunctionLibrary.COALESCE, new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.INTEGER});
+    	assertEquals(2, fd.invokeFunction(new Object[] {null, 2}, null, null));
+    }
+    
+    @Test public void testInvocationHandleRequiresContext() throws Exception {
+    	FunctionDescriptor fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("user", new Class<?>[] {}); //$NON-NLS-1$
+    	assertTrue(fd.requiresContext());
+    	assertNotNull(FunctionDescriptor.getInvocationHandle(fd.getInvocationMethod()));
+    	CommandContext cc = new CommandContext();
+    	cc.setUserName("foodude"); //$NON-NLS-1$
+    	assertEquals("foodude", fd.invokeFunction(new Object[] {cc}, cc, null)); //$NON-NLS-1$
+    }
+    
     @Test public void testMultiPartName() throws Exception {
     	FunctionMethod method = new FunctionMethod(
     			"x.y.dummy", null, null, PushDown.CANNOT_PUSHDOWN, TestFunctionTree.class.getName(), "toString",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ 
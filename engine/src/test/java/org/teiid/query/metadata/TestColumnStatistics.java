@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.query.metadata;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.teiid.query.util.HyperLogLog;
+
+@SuppressWarnings("nls")
+public class TestColumnStatistics {
+	
+	@Test public void testHyperLogLog() {
+		HyperLogLog hll = new HyperLogLog();
+		assertEquals(0, hll.cardinality());
+		for (int i = 0; i < 100000; i++) {
+			hll.add(i);
+			hll.add(i);
+		}
+		assertEquals(100000, hll.cardinality(), 5000);
+		
+		HyperLogLog other = new HyperLogLog();
+		for (int i = 50000; i < 150000; i++) {
+			other.add(i);
+		}
+		hll.merge(other);
+		assertEquals(150000, hll.cardinality(), 7500);
+	}
+	
+	@Test public void testSmallCardinality() {
+		HyperLogLog hll = new HyperLogLog();
+		for (int i = 0; i < 1000; i++) {
+			hll.add("value" + (i % 10));
+		}
+		assertEquals(10, hll.cardinality());
+	}
+	
+	@Test public void testUniformHistogram() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(true, true);
+		for (int i = 0; i < 100000; i++) {
+			collector.addValue(i % 10 == 0?null:i);
+		}
+		ColumnStatistics stats = collector.build();
+		assertTrue(stats.hasHistogram());
+		assertEquals(100000, stats.getRowCount());
+		assertEquals(10000, stats.getNullValues());
+		assertEquals(90000, stats.getDistinctValues(), 4500);
+		assertEquals(1, stats.getMinimumValue());
+		assertEquals(99999, stats.getMaximumValue());
+		
+		assertEquals(.9, stats.getNonNullFraction(), .001);
+		assertEquals(.45, stats.getLessThanSelectivity(50000, false), .03);
+		assertEquals(.225, stats.getGreaterThanSelectivity(75000, true), .03);
+		assertEquals(0, stats.getLessThanSelectivity(1, false), 0);
+		assertEquals(.9, stats.getLessThanSelectivity(100000, false), .001);
+		assertEquals(0, stats.getGreaterThanSelectivity(null, false), 0);
+		assertEquals(1/100000f, stats.getEqualitySelectivity(500), 1/200000f);
+		assertEquals(0, stats.getEqualitySelectivity(-1), 0);
+	}
+	
+	@Test public void testSkewedHistogram() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(true, true);
+		for (int i = 0; i < 10000; i++) {
+			collector.addValue(i % 2 == 0?"common":("v" + i));
+		}
+		ColumnStatistics stats = collector.build();
+		assertEquals(5001, stats.getDistinctValues(), 250);
+		//the frequent value is in its own bucket
+		assertEquals(.5, stats.getEqualitySelectivity("common"), .05);
+		assertEquals(1/10000f, stats.getEqualitySelectivity("v1"), 1/20000f);
+		assertEquals(.5, stats.getGreaterThanSelectivity("common", false), .05);
+	}
+	
+	@Test public void testExactSample() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(true, true);
+		for (int i = 0; i < 100; i++) {
+			collector.addValue(i % 4);
+		}
+		ColumnStatistics stats = collector.build();
+		assertEquals(4, stats.getDistinctValues());
+		assertEquals(.25, stats.getEqualitySelectivity(2), .001);
+		assertEquals(.5, stats.getLessThanSelectivity(2, false), .001);
+		assertEquals(.75, stats.getLessThanSelectivity(2, true), .001);
+	}
+	
+	@Test public void testNonComparable() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(false, true);
+		for (int i = 0; i < 100; i++) {
+			collector.addValue(i % 4 == 0?null:i % 5);
+		}
+		ColumnStatistics stats = collector.build();
+		assertFalse(stats.hasHistogram());
+		assertEquals(5, stats.getDistinctValues());
+		assertEquals(25, stats.getNullValues());
+		assertEquals(.15, stats.getEqualitySelectivity(1), .001);
+		assertEquals(-1, stats.getLessThanSelectivity(1, false), 0);
+	}
+
+	@Test public void testNonHashable() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(false, false);
+		for (int i = 0; i < 100; i++) {
+			collector.addValue(i % 4 == 0?null:i % 5);
+		}
+		ColumnStatistics stats = collector.build();
+		assertEquals(-1, stats.getDistinctValues());
+		assertEquals(25, stats.getNullValues());
+		assertEquals(-1, stats.getEqualitySelectivity(1), 0);
+	}
+	
+	@Test public void testNonHashableSample() {
+		ColumnStatistics.Collector collector = new ColumnStatistics.Collector(true, false, 10, 2);
+		for (int i = 0; i < 10; i++) {
+			collector.addValue(i % 2);
+		}
+		//the sample holds all of the values
+		assertEquals(2, collector.build().getDistinctValues());
+		collector = new ColumnStatistics.Collector(true, false, 10, 2);
+		for (int i = 0; i < 100; i++) {
+			collector.addValue(i);
+		}
+		ColumnStatistics stats = collector.build();
+		assertEquals(-1, stats.getDistinctValues());
+		assertTrue(stats.hasHistogram());
+		assertEquals(.5, stats.getLessThanSelectivity(50, false), .2);
+	}
+
+}
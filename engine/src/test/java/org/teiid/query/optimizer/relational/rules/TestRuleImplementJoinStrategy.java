@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.optimizer.relational.rules;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
+import org.teiid.query.optimizer.relational.plantree.NodeFactory;
+import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.processor.relational.MergeJoinStrategy.SortOption;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestRuleImplementJoinStrategy {
+	
+	private static PlanNode getJoinNode(float leftCardinality, float rightCardinality) {
+		PlanNode joinNode = NodeFactory.getNewNode(NodeConstants.Types.JOIN);
+		joinNode.setProperty(Info.SORT_LEFT, SortOption.SORT);
+		joinNode.setProperty(Info.SORT_RIGHT, SortOption.SORT);
+		joinNode.addLastChild(getSourceNode(leftCardinality));
+		joinNode.addLastChild(getSourceNode(rightCardinality));
+		return joinNode;
+	}
+
+	private static PlanNode getSourceNode(float cardinality) {
+		PlanNode source = NodeFactory.getNewNode(NodeConstants.Types.SOURCE);
+		source.setProperty(Info.EST_CARDINALITY, cardinality);
+		return source;
+	}
+	
+	private static List<Expression> getKeys(Class<?> type) {
+		ElementSymbol key = new ElementSymbol("x");
+		key.setType(type);
+		return Arrays.asList((Expression)key);
+	}
+	
+	private static boolean useHashJoin(PlanNode joinNode, JoinType joinType, Class<?> keyType) throws Exception {
+		CommandContext context = new CommandContext();
+		context.setProcessorBatchSize(100);
+		return RuleImplementJoinStrategy.useHashJoin(joinNode, joinType, getKeys(keyType), RealMetadataFactory.example1Cached(), context);
+	}
+	
+	@Test public void testUseHashJoin() throws Exception {
+		assertTrue(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+		assertTrue(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_LEFT_OUTER, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testSmallSide() throws Exception {
+		assertFalse(useHashJoin(getJoinNode(50, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testUnknownCardinality() throws Exception {
+		assertFalse(useHashJoin(getJoinNode(-1, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testOuterJoinTypes() throws Exception {
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_RIGHT_OUTER, DataTypeManager.DefaultDataClasses.INTEGER));
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_FULL_OUTER, DataTypeManager.DefaultDataClasses.INTEGER));
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_SEMI, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testDependentJoin() throws Exception {
+		PlanNode joinNode = getJoinNode(1000, 2000);
+		joinNode.setProperty(Info.DEPENDENT_VALUE_SOURCE, "x");
+		assertFalse(useHashJoin(joinNode, JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+		joinNode = getJoinNode(1000, 2000);
+		joinNode.setProperty(Info.IS_SEMI_DEP, Boolean.TRUE);
+		assertFalse(useHashJoin(joinNode, JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testPushedSort() throws Exception {
+		PlanNode joinNode = getJoinNode(1000, 2000);
+		joinNode.setProperty(Info.SORT_LEFT, SortOption.ALREADY_SORTED);
+		assertFalse(useHashJoin(joinNode, JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.INTEGER));
+	}
+	
+	@Test public void testUnhashableKeys() throws Exception {
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.BIG_DECIMAL));
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.OBJECT));
+		assertFalse(useHashJoin(getJoinNode(1000, 2000), JoinType.JOIN_INNER, DataTypeManager.DefaultDataClasses.CLOB));
+	}
+
+}
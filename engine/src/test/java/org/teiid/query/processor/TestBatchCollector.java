@@ -29,6 +29,9 @@ import java.util.List;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.ColumnarBatch;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.processor.relational.FakeRelationalNode;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -50,4 +53,38 @@ public class TestBatchCollector {
 		assertEquals(3, bc.collectTuples().getRowCount());
 	}
 	
+	@Test public void testRowLimitSaveLastRowColumnar() throws Exception {
+		TupleBuffer tb = helpCollectColumnar(2);
+		assertEquals(3, tb.getRowCount());
+		assertEquals(Arrays.asList(2), tb.getBatch(2).getTuple(2));
+		assertEquals(Arrays.asList(4), tb.getBatch(3).getTuple(3));
+		
+		//the limit falls on the end of the batch, so the batch is not truncated
+		tb = helpCollectColumnar(4);
+		assertEquals(5, tb.getRowCount());
+		assertEquals(Arrays.asList(4), tb.getBatch(5).getTuple(5));
+	}
+
+	private TupleBuffer helpCollectColumnar(int rowLimit) throws Exception {
+		List<?>[] rows = new List[] {
+				Arrays.asList(1),
+				Arrays.asList(2),
+				Arrays.asList(3),
+				Arrays.asList(4)
+			};
+		final TupleBatch batch = TupleBatch.columnar(1, ColumnarBatch.create(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}, Arrays.asList(rows)));
+		batch.setTerminationFlag(true);
+		FakeRelationalNode sourceNode = new FakeRelationalNode(1, rows) {
+			@Override
+			public TupleBatch nextBatchDirect() {
+				return batch;
+			}
+		};
+		sourceNode.setElements(Arrays.asList(new ElementSymbol("x", null, DataTypeManager.DefaultDataClasses.INTEGER)));
+		BatchCollector bc = new BatchCollector(sourceNode, BufferManagerFactory.getStandaloneBufferManager(), new CommandContext(), false);
+		bc.setRowLimit(rowLimit);
+		bc.setSaveLastRow(true);
+		return bc.collectTuples();
+	}
+	
 }
@@ -51,6 +51,7 @@ import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.translator.ExecutionFactory.NullOrder;
 
 @SuppressWarnings({"rawtypes", "unchecked", "nls"})
@@ -922,6 +923,16 @@ public class TestDependentJoins {
         assertEquals(4, new HashSet<String>(dataManager.getQueries()).size());
     }
     
+    @Test public void testDependentJoinRuntimeBackoff() throws Exception {
+    	CommandContext cc = TestProcessor.createCommandContext();
+    	cc.setOptions(new Options().maxDependentQueries(1));
+        FakeDataManager dataManager = helpTestBackoff(false, cc);
+        
+        //no stats, but the actual number of values would require too many queries
+        assertEquals(new HashSet<String>(Arrays.asList("SELECT pm6.g1.e1, pm6.g1.e2 FROM pm6.g1 ORDER BY pm6.g1.e1, pm6.g1.e2", "SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1")), 
+        		new HashSet<String>(dataManager.getQueries()));
+    }
+    
     @Test public void testIssue1899() throws Exception {
     	String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm3.g1 WHERE pm1.g1.e1=pm3.g1.e1"; //$NON-NLS-1$
 
@@ -965,6 +976,12 @@ public class TestDependentJoins {
 	private FakeDataManager helpTestBackoff(boolean setNdv) throws Exception,
 			QueryMetadataException, TeiidComponentException,
 			TeiidProcessingException {
+		return helpTestBackoff(setNdv, TestProcessor.createCommandContext());
+	}
+
+	private FakeDataManager helpTestBackoff(boolean setNdv, CommandContext cc) throws Exception,
+			QueryMetadataException, TeiidComponentException,
+			TeiidProcessingException {
 		// Create query 
         String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 WHERE pm1.g1.e1=pm6.g1.e1 and pm1.g1.e2=pm6.g1.e2"; //$NON-NLS-1$
 
@@ -1007,7 +1024,7 @@ public class TestDependentJoins {
         }, capFinder, ComparisonMode.EXACT_COMMAND_STRING);
 
         // Run query
-        TestProcessor.helpProcess(plan, dataManager, expected);
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
 		return dataManager;
 	}
     
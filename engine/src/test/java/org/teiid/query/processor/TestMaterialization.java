@@ -45,6 +45,7 @@ import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
+import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.tempdata.TempTableDataManager;
@@ -171,6 +172,40 @@ public class TestMaterialization {
 		execute("SELECT * from vgroup7 where y is null", Arrays.asList("1", null, 1));
 	}
 	
+	@Test public void testStatisticsCosting() throws Exception {
+		List<?>[] rows = new List<?>[1000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = Arrays.asList(i % 2 == 0?"common":"v" + i);
+		}
+		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", rows);
+		execute("SELECT count(*) from vgroup2 where x = 'common'", Arrays.asList(500));
+		//the statistics gathered during the load distinguish the frequent value
+		assertEquals(500, getEstimate("SELECT * from vgroup2 where x = 'common'"), 50);
+		assertEquals(1, getEstimate("SELECT * from vgroup2 where x = 'v1'"), 1);
+	}
+	
+	@Test public void testStatisticsNonLeadingKey() throws Exception {
+		List<?>[] rows = new List<?>[1000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = Arrays.asList("v" + i);
+		}
+		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", rows);
+		execute("SELECT count(*) from vgroup7 where z = 1", Arrays.asList(1000));
+		//the key column y is stored first, the statistics must still be associated with the declared columns
+		assertEquals(1000, getEstimate("SELECT * from vgroup7 where x = '1'"), 100);
+		assertEquals(1, getEstimate("SELECT * from vgroup7 where y = 'z1'"), 1);
+		assertEquals(1000, getEstimate("SELECT * from vgroup7 where z = 1"), 100);
+	}
+
+	private float getEstimate(String sql) throws Exception {
+		CommandContext cc = TestProcessor.createCommandContext();
+		cc.setTempTableStore(tempStore);
+		cc.setGlobalTableStore(globalStore);
+		cc.setMetadata(metadata);
+		RelationalPlan plan = (RelationalPlan)TestProcessor.helpGetPlan(TestProcessor.helpParse(sql), metadata, new DefaultCapabilitiesFinder(), cc);
+		return plan.getRootNode().getEstimateNodeCardinality().floatValue();
+	}
+	
 	@Test public void testFunctionBasedIndexQuery() throws Exception {
 		TempMetadataID id = this.globalStore.getGlobalTempTableMetadataId(metadata.getGroupID("MatView.vgroup2a"));
 		assertEquals("SELECT MatView.VGroup2a.*, ucase(x) FROM MatView.VGroup2a option nocache MatView.VGroup2a", id.getQueryNode().getQuery());
@@ -29,6 +29,8 @@ import static org.teiid.query.processor.TestProcessor.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.sql.rowset.serial.SerialClob;
 
@@ -50,6 +52,7 @@ import org.teiid.query.processor.relational.NestedTableJoinStrategy;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings({"unchecked", "nls"})
 public class TestTextTable {
@@ -161,6 +164,34 @@ public class TestTextTable {
         process(sql, expected);
     }
 	
+	@Test public void testParallelParsing() throws Exception {
+		StringBuilder text = new StringBuilder();
+		List<?>[] expected = new List<?>[1000];
+		for (int i = 0; i < expected.length; i++) {
+			if (i % 10 == 0) {
+				//a qualified value spanning lines
+				text.append(i).append(",\"a\r\nb\"\r\n");
+				expected[i] = Arrays.asList(i + 1, i, "ab");
+			} else {
+				text.append(i).append(", x").append(i).append('\n');
+				expected[i] = Arrays.asList(i + 1, i, "x" + i);
+			}
+		}
+		String sql = "select * from texttable('" + text + "' COLUMNS r FOR ORDINALITY, x integer, y string) t"; //$NON-NLS-1$
+		
+		CommandContext context = createCommandContext();
+		context.setOptions(new Options().requestParallelism(3));
+		context.setProcessorBatchSize(16);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		context.setExecutor(executor);
+		try {
+			ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+			helpProcess(plan, context, new HardcodedDataManager(), expected);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
 	@Test(expected=TeiidProcessingException.class) public void testEscapeError() throws Exception {
     	String sql = "select * from texttable('axq' COLUMNS c1 string ESCAPE 'x') x"; //$NON-NLS-1$
     	
@@ -22,6 +22,7 @@
 
 package org.teiid.query.processor;
 
+import static org.junit.Assert.*;
 import static org.teiid.query.optimizer.TestOptimizer.*;
 import static org.teiid.query.processor.TestProcessor.*;
 
@@ -38,8 +39,11 @@ import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.processor.relational.AccessNode;
 import org.teiid.query.processor.relational.ProjectNode;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.processor.relational.WindowFunctionProjectNode;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
 import org.teiid.translator.ExecutionFactory.NullOrder;
 
 @SuppressWarnings({"nls", "unchecked"})
@@ -254,6 +258,99 @@ public class TestWindowFunctions {
         helpProcess(plan, dataManager, expected);
     }
     
+    @Test public void testStreamingWindowFunctions() throws Exception {
+    	String sql = "select e1, e3, row_number() over (partition by e3 order by e1) as r, rank() over (partition by e3 order by e1) as rk, count(e1) over (partition by e3) as c from pm1.g1 order by e3, e1, r";
+        
+    	List<?>[] expected = new List[] {
+        		Arrays.asList(null, Boolean.FALSE, 1, 1, 3),
+        		Arrays.asList("a", Boolean.FALSE, 2, 2, 3),
+        		Arrays.asList("a", Boolean.FALSE, 3, 2, 3),
+        		Arrays.asList("b", Boolean.FALSE, 4, 4, 3),
+        		Arrays.asList("a", Boolean.TRUE, 1, 1, 2),
+        		Arrays.asList("c", Boolean.TRUE, 2, 2, 2),
+        };
+    	
+    	FakeDataManager dataManager = new FakeDataManager();
+    	sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+    	assertTrue(getWindowFunctionNode(plan).isStreaming());
+        
+        helpProcess(plan, dataManager, expected);
+    }
+    
+    @Test public void testStreamingPartitionBoundaries() throws Exception {
+    	String sql = "select e1, e3, count(e1) over (partition by e3) as c, row_number() over (partition by e3 order by e1) as r, sum(e2) over (partition by e3 order by e1) as s from pm1.g1 order by e3, r";
+        
+    	List<?>[] expected = new List[] {
+        		Arrays.asList(null, Boolean.FALSE, 3, 1, Long.valueOf(1)),
+        		Arrays.asList("a", Boolean.FALSE, 3, 2, Long.valueOf(1)),
+        		Arrays.asList("a", Boolean.FALSE, 3, 3, Long.valueOf(1)),
+        		Arrays.asList("b", Boolean.FALSE, 3, 4, Long.valueOf(3)),
+        		Arrays.asList("a", Boolean.TRUE, 2, 1, Long.valueOf(3)),
+        		Arrays.asList("c", Boolean.TRUE, 2, 2, Long.valueOf(4)),
+        };
+    	
+    	FakeDataManager dataManager = new FakeDataManager();
+    	sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+    	assertTrue(getWindowFunctionNode(plan).isStreaming());
+    	
+    	//small batches so that the partitions and peer groups span batches
+    	CommandContext context = createCommandContext();
+    	context.setProcessorBatchSize(2);
+        helpProcess(plan, context, dataManager, expected);
+    }
+    
+    @Test public void testStreamingOrderByTies() throws Exception {
+    	String sql = "select e1, e2, rank() over (order by e1) as rk, dense_rank() over (order by e1) as drk, count(e2) over (order by e1) as c from pm1.g1 order by e1, e2, c";
+        
+    	List<?>[] expected = new List[] {
+        		Arrays.asList(null, 1, 1, 1, 1),
+        		Arrays.asList("a", 0, 2, 2, 4),
+        		Arrays.asList("a", 0, 2, 2, 4),
+        		Arrays.asList("a", 3, 2, 2, 4),
+        		Arrays.asList("b", 2, 5, 3, 5),
+        		Arrays.asList("c", 1, 6, 4, 6),
+        };
+    	
+    	FakeDataManager dataManager = new FakeDataManager();
+    	sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+    	assertTrue(getWindowFunctionNode(plan).isStreaming());
+        
+        helpProcess(plan, dataManager, expected);
+    }
+    
+    @Test public void testStreamingSharedPrefix() throws Exception {
+    	String sql = "select e1, e2, e3, count(e1) over (partition by e3) as c, max(e2) over (partition by e3 order by e1) as m, row_number() over (partition by e3 order by e1, e2) as r from pm1.g1 order by e3, r";
+        
+    	List<?>[] expected = new List[] {
+        		Arrays.asList(null, 1, Boolean.FALSE, 3, 1, 1),
+        		Arrays.asList("a", 0, Boolean.FALSE, 3, 1, 2),
+        		Arrays.asList("a", 0, Boolean.FALSE, 3, 1, 3),
+        		Arrays.asList("b", 2, Boolean.FALSE, 3, 2, 4),
+        		Arrays.asList("a", 3, Boolean.TRUE, 2, 3, 1),
+        		Arrays.asList("c", 1, Boolean.TRUE, 2, 3, 2),
+        };
+    	
+    	FakeDataManager dataManager = new FakeDataManager();
+    	sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+    	assertTrue(getWindowFunctionNode(plan).isStreaming());
+    	
+    	CommandContext context = createCommandContext();
+    	context.setProcessorBatchSize(2);
+        helpProcess(plan, context, dataManager, expected);
+    }
+    
+    private WindowFunctionProjectNode getWindowFunctionNode(ProcessorPlan plan) {
+    	RelationalNode node = ((RelationalPlan)plan).getRootNode();
+    	while (!(node instanceof WindowFunctionProjectNode)) {
+    		node = node.getChildren()[0];
+    	}
+    	return (WindowFunctionProjectNode)node;
+    }
+    
     @Test public void testEmptyOver() throws Exception {
     	String sql = "select e1, max(e1) over () as c from pm1.g1";
         
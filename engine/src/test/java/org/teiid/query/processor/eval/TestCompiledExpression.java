@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.ColumnarBatch;
+import org.teiid.query.eval.CompiledExpression;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.resolver.util.ResolverVisitor;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestCompiledExpression {
+	
+	private static final Object[] E1_VALUES = new Object[] {null, "a", "b", "ab "};
+	private static final Object[] E2_VALUES = new Object[] {null, 0, 1, 2};
+
+	/**
+	 * Compare the compiled and interpreted results over all combinations of e1 and e2 values
+	 */
+	private void helpTest(String sql, boolean criteria) throws Exception {
+		Expression expr = null;
+		if (criteria) {
+			expr = QueryParser.getQueryParser().parseCriteria(sql);
+		} else {
+			expr = QueryParser.getQueryParser().parseExpression(sql);
+		}
+		ResolverVisitor.resolveLanguageObject(expr, RealMetadataFactory.example1Cached());
+		Map<Expression, Integer> elements = new HashMap<Expression, Integer>();
+		List<String> names = new ArrayList<String>();
+		for (ElementSymbol es : ElementCollectorVisitor.getElements(expr, true)) {
+			elements.put(es, names.size());
+			names.add(es.getShortName().toLowerCase());
+		}
+		CompiledExpression compiled = null;
+		if (criteria) {
+			compiled = CompiledExpression.compile((Criteria)expr, elements);
+		} else {
+			compiled = CompiledExpression.compile(expr, elements);
+		}
+		Evaluator eval = new Evaluator(elements, null, new CommandContext());
+		List<List<?>> rows = new ArrayList<List<?>>();
+		List<Object> expectedValues = new ArrayList<Object>();
+		boolean errors = false;
+		for (Object e1 : E1_VALUES) {
+			for (Object e2 : E2_VALUES) {
+				List<Object> tuple = new ArrayList<Object>();
+				for (String name : names) {
+					tuple.add(name.equals("e1")?e1:e2);
+				}
+				rows.add(tuple);
+				Object expected = null;
+				String expectedError = null;
+				try {
+					expected = criteria?eval.evaluateTVL((Criteria)expr, tuple):eval.evaluate(expr, tuple);
+				} catch (ExpressionEvaluationException e) {
+					expectedError = e.getMessage();
+				}
+				expectedValues.add(expected);
+				errors |= expectedError != null;
+				try {
+					assertEquals(tuple.toString(), expected, compiled.evaluate(tuple, eval));
+					assertNull(expectedError);
+				} catch (ExpressionEvaluationException e) {
+					assertEquals(expectedError, e.getMessage());
+				}
+			}
+		}
+		if (errors) {
+			return;
+		}
+		Class<?>[] types = new Class<?>[names.size()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = names.get(i).equals("e1")?String.class:Integer.class;
+		}
+		//batch evaluation over every other row of both row and columnar batches
+		int count = rows.size() / 2;
+		int[] selection = new int[count];
+		for (int i = 0; i < count; i++) {
+			selection[i] = i * 2 + 1;
+		}
+		for (List<? extends List<?>> batch : Arrays.asList(rows, ColumnarBatch.create(types, rows))) {
+			Object[] result = new Object[count];
+			compiled.evaluate(batch, selection, count, eval, result);
+			for (int i = 0; i < count; i++) {
+				assertEquals(rows.get(selection[i]).toString(), expectedValues.get(selection[i]), result[i]);
+			}
+		}
+	}
+	
+	@Test public void testCompare() throws Exception {
+		helpTest("pm1.g1.e2 >= 1 and pm1.g1.e1 <> 'a'", true);
+	}
+	
+	@Test public void testCompound() throws Exception {
+		helpTest("pm1.g1.e2 = 1 or not (pm1.g1.e1 = 'b' and pm1.g1.e2 < 2)", true);
+	}
+	
+	@Test public void testIsNullAndIn() throws Exception {
+		helpTest("pm1.g1.e1 is null or pm1.g1.e2 in (0, 2) or pm1.g1.e1 not in ('a', null)", true);
+	}
+	
+	@Test public void testFunctions() throws Exception {
+		helpTest("concat(pm1.g1.e1, convert(pm1.g1.e2 + 1, string))", false);
+	}
+	
+	@Test public void testCase() throws Exception {
+		helpTest("case pm1.g1.e1 when 'a' then pm1.g1.e2 when 'b' then -1 end", false);
+		helpTest("case when pm1.g1.e2 > 0 then ucase(pm1.g1.e1) else pm1.g1.e1 end", false);
+	}
+	
+	@Test public void testInterpretedCriteria() throws Exception {
+		helpTest("pm1.g1.e1 like 'a%' or pm1.g1.e2 > 1", true);
+	}
+	
+	@Test public void testArithmetic() throws Exception {
+		helpTest("(pm1.g1.e2 + 1) * pm1.g1.e2 - 2 > pm1.g1.e2", true);
+		helpTest("pm1.g1.e2 * 2147483647 + convert(pm1.g1.e2, long) * 9223372036854775807", false);
+	}
+	
+	@Test public void testRowMode() throws Exception {
+		Criteria crit = QueryParser.getQueryParser().parseCriteria("pm1.g1.e2 = 1 and pm1.g1.e1 = 'a'");
+		ResolverVisitor.resolveLanguageObject(crit, RealMetadataFactory.example1Cached());
+		Map<Expression, Integer> elements = new HashMap<Expression, Integer>();
+		for (ElementSymbol es : ElementCollectorVisitor.getElements(crit, true)) {
+			elements.put(es, elements.size());
+		}
+		assertFalse(CompiledExpression.compile(crit, elements).requiresRowMode());
+		//like is not compiled
+		crit = QueryParser.getQueryParser().parseCriteria("pm1.g1.e2 = 1 and pm1.g1.e1 like 'a%'");
+		ResolverVisitor.resolveLanguageObject(crit, RealMetadataFactory.example1Cached());
+		assertTrue(CompiledExpression.compile(crit, elements).requiresRowMode());
+	}
+	
+	@Test public void testErrors() throws Exception {
+		helpTest("1 / pm1.g1.e2 > 0", true);
+		helpTest("1 / pm1.g1.e2", false);
+	}
+	
+	@Test public void testSharedBetweenEvaluators() throws Exception {
+		Expression expr = QueryParser.getQueryParser().parseExpression("pm1.g1.e2 * 2");
+		ResolverVisitor.resolveLanguageObject(expr, RealMetadataFactory.example1Cached());
+		Map<Expression, Integer> elements = new HashMap<Expression, Integer>();
+		elements.put(ElementCollectorVisitor.getElements(expr, true).iterator().next(), 0);
+		CompiledExpression compiled = CompiledExpression.compile(expr, elements);
+		assertEquals(4, compiled.evaluate(Arrays.asList(2), new Evaluator(elements, null, null)));
+		assertEquals(6, compiled.evaluate(Arrays.asList(3), new Evaluator(elements, null, new CommandContext())));
+	}
+
+}
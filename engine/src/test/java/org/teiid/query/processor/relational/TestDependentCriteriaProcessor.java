@@ -28,8 +28,13 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.query.sql.lang.CompareCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.DependentSetCriteria;
 import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -76,4 +81,41 @@ public class TestDependentCriteriaProcessor {
 		assertFalse(dcp.hasNextCommand());
 	}
 	
+	@Test public void testBloomFilterOverMax() throws Exception {
+		DependentAccessNode dan = new DependentAccessNode(0);
+		CommandContext cc = new CommandContext();
+		dan.setContext(cc);
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(Integer.class);
+		TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		for (int i = 0; i < 100; i++) {
+			tb.addTuple(Arrays.asList(i * 2));
+		}
+		tb.close();
+		DependentValueSource dvs = new DependentValueSource(tb);
+		dvs.setDistinct(true);
+		cc.getVariableContext().setGlobalValue("x", dvs); //$NON-NLS-1$
+		ElementSymbol e1 = new ElementSymbol("e1"); //$NON-NLS-1$
+		e1.setType(Integer.class);
+		DependentSetCriteria dsc = new DependentSetCriteria(e1, "x"); //$NON-NLS-1$
+		dsc.setValueExpression(x);
+		dsc.setMaxNdv(10);
+		DependentCriteriaProcessor dcp = new DependentCriteriaProcessor(1, -1, dan, dsc);
+		dcp.prepareCriteria();
+		assertFalse(dcp.hasNextCommand());
+		assertTrue(dvs.isUnused());
+		BloomFilter filter = dcp.getBloomFilters().get(e1);
+		assertNotNull(filter);
+		int falsePositives = 0;
+		for (int i = 0; i < 100; i++) {
+			assertTrue(filter.mightContain(i * 2));
+			if (filter.mightContain(i * 2 + 1)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 10);
+		assertFalse(filter.mightContain(null));
+	}
+	
 }
@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.query.processor.FakeTupleSource;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings({"nls", "unchecked"})
+public class TestDupRemoveNode {
+	
+	private List<List<?>> helpProcess(BufferManagerImpl mgr, boolean hash, int rows, int distinct) throws Exception {
+		ElementSymbol col1 = new ElementSymbol("col1");
+		col1.setType(Integer.class);
+		ElementSymbol col2 = new ElementSymbol("col2");
+		col2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(col1, col2);
+		
+		List[] data = new List[rows];
+		for (int i = 0; i < rows; i++) {
+			data[i] = Arrays.asList(i % distinct, String.valueOf(i % distinct));
+		}
+		FakeTupleSource dataSource = new FakeTupleSource(elements, data);
+		RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+		dataNode.setElements(elements);
+		
+		DupRemoveNode node = new DupRemoveNode(1);
+		node.setElements(elements);
+		node.setHashDistinct(hash);
+		node.addChild(dataNode);
+		CommandContext context = new CommandContext("pid", "test", null, null, 1);
+		node.initialize(context, mgr, null);
+		node.open();
+		
+		List<List<?>> results = new ArrayList<List<?>>();
+		while (true) {
+			try {
+				TupleBatch batch = node.nextBatch();
+				results.addAll(batch.getTuples());
+				if (batch.getTerminationFlag()) {
+					break;
+				}
+			} catch (BlockedException e) {
+				//ignore
+			}
+		}
+		node.close();
+		return results;
+	}
+
+	@Test public void testDupRemove() throws Exception {
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1000000, 16);
+		List<List<?>> results = helpProcess(mgr, false, 100, 10);
+		assertEquals(10, results.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Arrays.asList(i, String.valueOf(i)), results.get(i));
+		}
+	}
+	
+	@Test public void testHashDistinct() throws Exception {
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1000000, 16);
+		List<List<?>> results = helpProcess(mgr, true, 100, 10);
+		//without spilling the first seen rows are output in order
+		assertEquals(10, results.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Arrays.asList(i, String.valueOf(i)), results.get(i));
+		}
+	}
+	
+	@Test public void testHashDistinctPartitioned() throws Exception {
+		//no reserve is available, so the rows must be partitioned
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(0, 2);
+		long reserve = mgr.getReserveBatchBytes();
+		int distinct = 5000;
+		List<List<?>> results = helpProcess(mgr, true, distinct * 3, distinct);
+		assertEquals(distinct, results.size());
+		Set<List<?>> unique = new HashSet<List<?>>(results);
+		assertEquals(distinct, unique.size());
+		for (int i = 0; i < distinct; i++) {
+			assertTrue(unique.contains(Arrays.asList(i, String.valueOf(i))));
+		}
+		assertEquals(reserve, mgr.getReserveBatchBytes());
+	}
+
+}
@@ -420,6 +420,62 @@ public class TestGroupingNode {
         helpProcess(mgr, node, context, expected, null);
     }
 
+    @Test public void testHashAggregation() throws Exception {
+    	//no reserve is available, so the groups must be partitioned
+        BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(0, 2);
+        long reserve = mgr.getReserveBatchBytes();
+
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+
+        GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("MAX", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        node.setOrderBy(new OrderBy(Arrays.asList(col1)).getOrderByItems());
+        node.setHashAggregation(true);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+
+        int groups = 1000;
+        List[] data = new List[groups * 3];
+        for (int i = 0; i < data.length; i++) {
+        	data[i] = Arrays.asList(i % groups, i);
+        }
+        FakeTupleSource dataSource = new FakeTupleSource(Arrays.asList(col1, col2), data);
+        RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+        dataNode.setElements(dataSource.getSchema());
+        node.addChild(dataNode);
+        node.initialize(context, mgr, null);
+        node.open();
+
+        //the output order is not defined
+        Map<Integer, List<?>> results = new HashMap<Integer, List<?>>();
+        while (true) {
+            try {
+                TupleBatch batch = node.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	assertNull(results.put((Integer)tuple.get(1), tuple));
+                }
+                if (batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                //ignore
+            }
+        }
+        assertEquals(groups, results.size());
+        for (int i = 0; i < groups; i++) {
+        	assertEquals(Arrays.asList(3, i, Long.valueOf(3*i + 3*groups), i + 2*groups), results.get(i));
+        }
+        node.close();
+        assertEquals(reserve, mgr.getReserveBatchBytes());
+    }
+
 	private GroupingNode getExampleGroupingNode() {
 		GroupingNode node = new GroupingNode(1);
         List outputElements = new ArrayList();
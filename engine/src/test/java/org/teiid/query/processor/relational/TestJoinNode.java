@@ -26,6 +26,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +81,7 @@ public class TestJoinNode {
     private BlockingFakeRelationalNode rightNode;
     
     private FakeDataManager dataMgr;
+    private boolean unordered;
 
     @Before public void setup() {
     	leftTuples = createTuples1();
@@ -273,11 +275,16 @@ public class TestJoinNode {
 		join.open();
         
         int currentRow = 1;
+        List<String> actual = new ArrayList<String>();
         while(true) {
             try {
                 TupleBatch batch = join.nextBatch();
                 for(;currentRow <= batch.getEndRow(); currentRow++) {
                     List tuple = batch.getTuple(currentRow);
+                    if (unordered) {
+                    	actual.add(tuple.toString());
+                    	continue;
+                    }
                     assertEquals("Rows don't match at " + currentRow, expectedResults[currentRow-1], tuple); //$NON-NLS-1$
                 }
                 if(batch.getTerminationFlag()) {
@@ -288,6 +295,15 @@ public class TestJoinNode {
             }
         }
         assertEquals(expectedResults.length, currentRow - 1);
+        if (unordered) {
+        	List<String> expectedRows = new ArrayList<String>();
+        	for (List tuple : expectedResults) {
+        		expectedRows.add(tuple.toString());
+        	}
+        	Collections.sort(expectedRows);
+        	Collections.sort(actual);
+        	assertEquals(expectedRows, actual);
+        }
         join.close();
 	}
     
@@ -795,6 +811,50 @@ public class TestJoinNode {
         helpTestJoinDirect(expected, 10, 1);
 	}
     
+    @Test public void testHashJoin() throws Exception {
+    	this.joinType = JoinType.JOIN_INNER;
+    	int rows = 1000;
+    	this.leftTuples = createTuples(0, rows);
+    	this.rightTuples = new List[rows * 2];
+    	expected = new List[rows * 2];
+    	for (int i = 0; i < rows * 2; i++) {
+    		int value = (rows - 1) - (i % rows);
+    		rightTuples[i] = Arrays.asList(value);
+    		expected[i] = Arrays.asList(value, value);
+    	}
+    	helpCreateJoin();
+    	this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+    	this.join.setJoinStrategy(joinStrategy);
+    	this.unordered = true;
+    	//the left side will be the build side and will be spilled
+    	helpTestJoinDirect(expected, 4, 1);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	int rows = 500;
+    	this.leftTuples = createTuples(0, rows);
+    	this.rightTuples = new List[rows + 1];
+    	expected = new List[rows + rows/2];
+    	int index = 0;
+    	for (int i = 0; i < rows; i++) {
+    		if (i % 2 == 1) {
+    			expected[index++] = Arrays.asList(i, null);
+    			continue;
+    		}
+    		rightTuples[i] = Arrays.asList(i);
+    		rightTuples[i + 1] = Arrays.asList(i);
+    		expected[index++] = Arrays.asList(i, i);
+    		expected[index++] = Arrays.asList(i, i);
+    	}
+    	rightTuples[rows] = Arrays.asList((Integer)null);
+    	helpCreateJoin();
+    	this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+    	this.join.setJoinStrategy(joinStrategy);
+    	this.unordered = true;
+    	helpTestJoinDirect(expected, 4, 1);
+    }
+    
     @Test public void testMergeJoinOptimizationMultiBatch() throws Exception {
     	helpTestEnhancedSortMergeJoin(10);
     }
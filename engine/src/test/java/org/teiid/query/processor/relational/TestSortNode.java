@@ -30,6 +30,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
@@ -58,6 +60,7 @@ import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings({"rawtypes", "nls"})
 public class TestSortNode {
@@ -337,4 +340,80 @@ public class TestSortNode {
     	assertNull(ts.nextTuple());
     }
 
+    @Test public void testTopN() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 1000; i++) {
+        	tsid.addTuple(Arrays.asList((i*17)%100, i));
+        }
+    	tsid.close();
+    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.FALSE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+    	su.setTopN(25);
+    	TupleBuffer out = su.sort();
+    	assertEquals(25, out.getRowCount());
+    	TupleSource ts = out.createIndexedTupleSource();
+    	//the top values in input order
+    	for (int value = 99; value > 96; value--) {
+    		int count = value == 97?5:10;
+    		int last = -1;
+    		for (int i = 0; i < count; i++) {
+    			List<?> tuple = ts.nextTuple();
+    			assertEquals(value, tuple.get(0));
+    			assertTrue(((Integer)tuple.get(1)) > last);
+    			last = (Integer)tuple.get(1);
+    		}
+    	}
+    	assertNull(ts.nextTuple());
+    }
+    
+    @Test public void testParallelSort() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(20000, 4);
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 5000; i++) {
+        	tsid.addTuple(Arrays.asList((i*31)%97, i));
+        }
+    	tsid.close();
+    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1, es2), Arrays.asList(Boolean.TRUE, Boolean.FALSE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+    	TupleBuffer expected = su.sort();
+    	
+    	CommandContext context = new CommandContext();
+    	context.setOptions(new Options().requestParallelism(4));
+    	ExecutorService executor = Executors.newFixedThreadPool(3);
+    	context.setExecutor(executor);
+    	try {
+	    	su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1, es2), Arrays.asList(Boolean.TRUE, Boolean.FALSE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+	    	su.setCommandContext(context);
+	    	TupleBuffer out = su.sort();
+	    	assertEquals(expected.getRowCount(), out.getRowCount());
+	    	TupleSource expectedTs = expected.createIndexedTupleSource();
+	    	TupleSource ts = out.createIndexedTupleSource();
+	    	for (int i = 0; i < 5000; i++) {
+	    		assertEquals(expectedTs.nextTuple(), ts.nextTuple());
+	    	}
+	    	assertNull(ts.nextTuple());
+    	} finally {
+    		executor.shutdown();
+    	}
+    }
+    
+    @Test public void testTopNPlanning() throws Exception {
+    	ProcessorPlan plan = TestProcessor.helpGetPlan("select e1, e2 from pm1.g1 order by e2 limit 2", RealMetadataFactory.example1Cached());
+    	RelationalNode node = ((RelationalPlan)plan).getRootNode();
+    	while (!(node instanceof SortNode)) {
+    		node = node.getChildren()[0];
+    	}
+    	assertTrue(node.getParent() instanceof LimitNode);
+    	assertTrue(((SortNode)node).isTopN());
+    	
+        FakeDataManager dataMgr = new FakeDataManager();
+        FakeDataStore.sampleData1(dataMgr, RealMetadataFactory.example1Cached());
+        TestProcessor.helpProcess(plan, dataMgr, new List[] {Arrays.asList("a", 0), Arrays.asList("a", 0)});
+    }
+
 }
@@ -27,6 +27,8 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
@@ -39,6 +41,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 
 /**
@@ -225,4 +228,58 @@ public class TestUnionAllNode {
         helpTestUnionConfigs(3, 1, 6, 1, expected);       
     }    
 
+    @Test public void testParallelUnion() throws TeiidComponentException, TeiidProcessingException {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        
+        int sources = 4;
+        int rowsPerSource = 100;
+        UnionAllNode union = new UnionAllNode(sources);
+        union.setElements(Arrays.asList(es1));
+        BufferManager mgr = BufferManagerFactory.getTestBufferManager(1, 2);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.setOptions(new Options().requestParallelism(3));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        context.setExecutor(executor);
+        FakeDataManager fdm = new FakeDataManager();
+        for (int i = 0; i < sources; i++) {
+        	List[] tuples = new List[rowsPerSource];
+        	for (int r = 0; r < rowsPerSource; r++) {
+        		tuples[r] = Arrays.asList(i);
+        	}
+        	RelationalNode node = i % 2 == 0?new BlockingFakeRelationalNode(i, tuples, 3):new FakeRelationalNode(i, tuples, 3);
+        	node.setElements(Arrays.asList(es1));
+        	union.addChild(node);
+        	node.initialize(context, mgr, fdm);
+        }
+        union.initialize(context, mgr, fdm);
+        
+        try {
+	        union.open();
+	        int[] counts = new int[sources];
+	        int currentRow = 1;
+	        while (true) {
+	        	try {
+	        		TupleBatch batch = union.nextBatch();
+	        		assertEquals(currentRow, batch.getBeginRow());
+	        		for (List<?> tuple : batch.getTuples()) {
+	        			counts[(Integer)tuple.get(0)]++;
+	        		}
+	        		currentRow += batch.getRowCount();
+	        		if (batch.getTerminationFlag()) {
+	        			break;
+	        		}
+	        	} catch (BlockedException e) {
+	        		// ignore and retry
+	        	}
+	        }
+	        union.close();
+	        for (int i = 0; i < sources; i++) {
+	        	assertEquals(rowsPerSource, counts[i]);
+	        }
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+
 }
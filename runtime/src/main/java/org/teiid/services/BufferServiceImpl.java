@@ -32,7 +32,9 @@ import org.teiid.common.buffer.TupleBufferCache;
 import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.common.buffer.impl.EncryptedStorageManager;
+import org.teiid.common.buffer.impl.EvictionPolicy;
 import org.teiid.common.buffer.impl.FileStorageManager;
+import org.teiid.common.buffer.impl.MappedFileStorageManager;
 import org.teiid.common.buffer.impl.MemoryStorageManager;
 import org.teiid.common.buffer.impl.SplittableStorageManager;
 import org.teiid.core.TeiidComponentException;
@@ -66,9 +68,16 @@ public class BufferServiceImpl implements BufferService, Serializable {
     private int maxReserveKb = BufferManager.DEFAULT_RESERVE_BUFFER_KB;
     private long maxBufferSpace = FileStorageManager.DEFAULT_MAX_BUFFERSPACE>>20;
     private boolean inlineLobs = true;
+    private boolean useColumnarBatches;
+    private boolean useCompactSerialization;
     private long memoryBufferSpace = -1;
     private int maxStorageObjectSize = BufferFrontedFileStoreCache.DEFAuLT_MAX_OBJECT_SIZE;
     private boolean memoryBufferOffHeap;
+    private boolean compressBuffer;
+    private boolean memoryMappedFiles;
+    private int ioThreads;
+    private int readAheadBatches = BufferManagerImpl.DEFAULT_READ_AHEAD_BATCHES;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRFU;
 	private FileStorageManager fsm;
 	private BufferFrontedFileStoreCache fsc;
 	private int workingMaxReserveKb;
@@ -90,6 +99,11 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxReserveKB(this.maxReserveKb);
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
+            this.bufferMgr.setUseColumnarBatches(useColumnarBatches);
+            this.bufferMgr.setUseCompactSerialization(useCompactSerialization);
+            this.bufferMgr.setIoThreads(ioThreads);
+            this.bufferMgr.setReadAheadBatches(readAheadBatches);
+            this.bufferMgr.setEvictionPolicy(evictionPolicy);
             this.bufferMgr.initialize();
             
             // If necessary, add disk storage manager
@@ -102,20 +116,31 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 // wise FileStorageManager is smart enough to clean up after itself
                 cleanDirectory(bufferDir);
                 // Get the properties for FileStorageManager and create.
-                fsm = new FileStorageManager();
+                StorageManager sm = null;
+                if (memoryMappedFiles) {
+                	//mapped files are segmented internally, so they are not split
+                	fsm = new MappedFileStorageManager();
+                	sm = fsm;
+                } else {
+                	fsm = new FileStorageManager();
+                	fsm.setMaxOpenFiles(maxOpenFiles);
+                	SplittableStorageManager ssm = new SplittableStorageManager(fsm);
+                	ssm.setMaxFileSize(maxFileSize);
+                	sm = ssm;
+                }
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
-                fsm.setMaxOpenFiles(maxOpenFiles);
                 fsm.setMaxBufferSpace(maxBufferSpace*MB);
-                SplittableStorageManager ssm = new SplittableStorageManager(fsm);
-                ssm.setMaxFileSize(maxFileSize);
-                StorageManager sm = ssm;
                 if (encryptFiles) {
-                	sm = new EncryptedStorageManager(ssm);
+                	sm = new EncryptedStorageManager(sm);
                 }
                 fsc = new BufferFrontedFileStoreCache();
                 fsc.setBufferManager(this.bufferMgr);
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(memoryBufferOffHeap);
+                if (compressBuffer) {
+                	fsc.setCompress(true);
+                }
+                fsc.setEvictionPolicy(evictionPolicy);
                 int batchOverheadKB = (int)(this.memoryBufferSpace<0?(this.bufferMgr.getMaxReserveKB()<<8):this.memoryBufferSpace)>>20;
         		this.bufferMgr.setMaxReserveKB(Math.max(0, this.bufferMgr.getMaxReserveKB() - batchOverheadKB));
                 if (memoryBufferSpace < 0) {
@@ -183,6 +208,22 @@ public class BufferServiceImpl implements BufferService, Serializable {
 		this.inlineLobs = inlineLobs;
 	}
 
+	public void setUseColumnarBatches(boolean useColumnarBatches) {
+		this.useColumnarBatches = useColumnarBatches;
+	}
+	
+	public boolean isUseColumnarBatches() {
+		return useColumnarBatches;
+	}
+	
+	public void setUseCompactSerialization(boolean useCompactSerialization) {
+		this.useCompactSerialization = useCompactSerialization;
+	}
+	
+	public boolean isUseCompactSerialization() {
+		return useCompactSerialization;
+	}
+
 	public File getBufferDirectory() {
 		return bufferDir;
 	}
@@ -307,6 +348,82 @@ public class BufferServiceImpl implements BufferService, Serializable {
 		return memoryBufferOffHeap;
 	}    
     
+    public boolean isCompressBuffer() {
+		return compressBuffer;
+	}
+    
+    public void setCompressBuffer(boolean compressBuffer) {
+		this.compressBuffer = compressBuffer;
+	}
+    
+    public double getBufferCompressionRatio() {
+    	if (fsc != null) {
+    		return fsc.getCompressionRatio();
+    	}
+    	return 1;
+    }
+    
+    public String getEvictionPolicy() {
+		return evictionPolicy.name();
+	}
+    
+    /**
+     * @param evictionPolicy the name of an {@link EvictionPolicy}, LRFU or TWO_QUEUE
+     */
+    public void setEvictionPolicy(String evictionPolicy) {
+		this.evictionPolicy = EvictionPolicy.valueOf(evictionPolicy.toUpperCase());
+	}
+    
+    public long getEvictionQueueHits() {
+    	return bufferMgr.getEvictionQueueHits();
+    }
+    
+    public long getEvictionQueueMisses() {
+    	return bufferMgr.getEvictionQueueMisses();
+    }
+    
+    public long getMemoryBufferHits() {
+    	if (fsc != null) {
+    		return fsc.getMemoryBufferHits();
+    	}
+    	return 0;
+    }
+    
+    public long getMemoryBufferMisses() {
+    	if (fsc != null) {
+    		return fsc.getMemoryBufferMisses();
+    	}
+    	return 0;
+    }
+    
+    public int getIoThreads() {
+		return ioThreads;
+	}
+    
+    public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+    
+    public int getReadAheadBatches() {
+		return readAheadBatches;
+	}
+    
+    public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+    
+    public long getPrefetchCount() {
+    	return bufferMgr.getPrefetchCount();
+    }
+    
+    public boolean isMemoryMappedFiles() {
+		return memoryMappedFiles;
+	}
+    
+    public void setMemoryMappedFiles(boolean memoryMappedFiles) {
+		this.memoryMappedFiles = memoryMappedFiles;
+	}
+    
     public boolean isEncryptFiles() {
 		return encryptFiles;
 	}
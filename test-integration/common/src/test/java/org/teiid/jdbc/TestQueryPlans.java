@@ -86,6 +86,7 @@ public class TestQueryPlans {
 		PlanNode node = s.unwrap(TeiidStatement.class).getPlanDescription();
 		Property p = node.getProperty(AnalysisRecord.PROP_DATA_BYTES_SENT);
 		assertEquals("21", p.getValues().get(0));
+		assertNotNull(node.getProperty(AnalysisRecord.PROP_BUFFER_STATS_LIST));
 		
 		rs = s.executeQuery("show plan");
 		assertTrue(rs.next());